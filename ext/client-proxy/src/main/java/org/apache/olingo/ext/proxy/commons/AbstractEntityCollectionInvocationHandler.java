@@ -91,7 +91,6 @@ public abstract class AbstractEntityCollectionInvocationHandler<T extends Entity
     this.collItemRef = (Class<EC>) ref;
   }
 
-  @SuppressWarnings("unchecked")
   @Override
   public Triple<List<T>, URI, List<ClientAnnotation>> fetchPartial(
       final URI uri, final Class<T> typeRef) {
@@ -107,18 +106,34 @@ public abstract class AbstractEntityCollectionInvocationHandler<T extends Entity
       entities.add(res.getBody());
       next = null;
     } else {
-      final ODataEntitySetRequest<ClientEntitySet> req =
-          getClient().getRetrieveRequestFactory().getEntitySetRequest(uri);
-      req.setPrefer(getClient().newPreferences().includeAnnotations("*"));
-
-      final ODataRetrieveResponse<ClientEntitySet> res = req.execute();
-
-      final ClientEntitySet entitySet = res.getBody();
+      final ClientEntitySet entitySet = fetchEntitySet(uri);
       entities.addAll(entitySet.getEntities());
       next = entitySet.getNext();
       anns.addAll(entitySet.getAnnotations());
     }
 
+    return toPartial(entities, next, anns, typeRef);
+  }
+
+  /**
+   * Retrieves a single entity set page, without binding its entities to the entity context.
+   * This method can be safely invoked outside the thread owning the service.
+   *
+   * @param uri page URI
+   * @return the page
+   */
+  protected ClientEntitySet fetchEntitySet(final URI uri) {
+    final ODataEntitySetRequest<ClientEntitySet> req =
+        getClient().getRetrieveRequestFactory().getEntitySetRequest(uri);
+    req.setPrefer(getClient().newPreferences().includeAnnotations("*"));
+
+    return req.execute().getBody();
+  }
+
+  @SuppressWarnings("unchecked")
+  protected Triple<List<T>, URI, List<ClientAnnotation>> toPartial(
+      final List<ClientEntity> entities, final URI next, final List<ClientAnnotation> anns, final Class<T> typeRef) {
+
     final List<T> res = new ArrayList<T>(entities.size());
 
     for (ClientEntity entity : entities) {
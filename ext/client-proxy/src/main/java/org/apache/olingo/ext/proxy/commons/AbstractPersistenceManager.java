@@ -49,6 +49,7 @@ import org.apache.olingo.ext.proxy.api.PersistenceManager;
 import org.apache.olingo.ext.proxy.api.annotations.NavigationProperty;
 import org.apache.olingo.ext.proxy.context.AttachedEntity;
 import org.apache.olingo.ext.proxy.context.AttachedEntityStatus;
+import org.apache.olingo.ext.proxy.context.EntityCache;
 import org.apache.olingo.ext.proxy.context.EntityLinkDesc;
 import org.apache.olingo.ext.proxy.utils.ClassUtils;
 import org.apache.olingo.ext.proxy.utils.CoreUtils;
@@ -112,12 +113,28 @@ abstract class AbstractPersistenceManager implements PersistenceManager {
     }
 
     if (!items.isEmpty()) {
+      // cached payloads of changed entities are stale even if the flush fails halfway
+      invalidate(service.getContext().entityCache(), changes, service.getContext().entityContext().getFurtherDeletes());
+
       doFlush(changes, items);
     }
 
     service.getContext().detachAll();
   }
 
+  static void invalidate(final EntityCache cache, final PersistenceChanges changes, final List<URI> furtherDeletes) {
+    if (cache.isEnabled()) {
+      for (EntityInvocationHandler handler : changes.getChanges().values()) {
+        if (handler != null) {
+          cache.invalidate(handler.getEntityURI());
+        }
+      }
+      for (URI uri : furtherDeletes) {
+        cache.invalidate(uri);
+      }
+    }
+  }
+
   private ClientLink buildNavigationLink(final String name, final URI uri, final ClientLinkType type) {
     ClientLink result;
 
@@ -396,7 +413,7 @@ abstract class AbstractPersistenceManager implements PersistenceManager {
     LOG.debug("Create '{}'", handler);
 
     changeset.addChange(service.getClient().getCUDRequestFactory().
-        getEntityCreateRequest(handler.getEntitySetURI(), entity), handler);
+        getEntityCreateRequest(handler.getEntitySetURI(), entity), handler, entity);
   }
 
   private void queueUpdateMediaEntity(
@@ -461,7 +478,7 @@ abstract class AbstractPersistenceManager implements PersistenceManager {
       req.setIfMatch(handler.getETag());
     }
 
-    changeset.addChange(req, handler);
+    changeset.addChange(req, handler, changes);
   }
 
   private boolean queueUpdateLinkViaRef(
@@ -506,7 +523,7 @@ abstract class AbstractPersistenceManager implements PersistenceManager {
       req.setIfMatch(handler.getETag());
     }
 
-    changeset.addChange(req, handler);
+    changeset.addChange(req, handler, changes);
   }
 
   private void queueDelete(
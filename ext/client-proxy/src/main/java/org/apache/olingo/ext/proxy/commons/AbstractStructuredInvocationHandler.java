@@ -19,7 +19,6 @@
 package org.apache.olingo.ext.proxy.commons;
 
 import java.io.InputStream;
-import java.lang.annotation.Annotation;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
@@ -65,6 +64,7 @@ import org.apache.olingo.ext.proxy.context.EntityContext;
 import org.apache.olingo.ext.proxy.context.EntityUUID;
 import org.apache.olingo.ext.proxy.utils.ClassUtils;
 import org.apache.olingo.ext.proxy.utils.CoreUtils;
+import org.apache.olingo.ext.proxy.utils.TypeMetadata;
 import org.apache.olingo.ext.proxy.utils.ProxyUtils;
 
 public abstract class AbstractStructuredInvocationHandler extends AbstractInvocationHandler {
@@ -151,6 +151,14 @@ public abstract class AbstractStructuredInvocationHandler extends AbstractInvoca
     return typeRef;
   }
 
+  private TypeMetadata.Accessor getAccessor(final String methodName) throws NoSuchMethodException {
+    final TypeMetadata.Accessor accessor = TypeMetadata.get(typeRef).getAccessor(methodName);
+    if (accessor == null) {
+      throw new NoSuchMethodException(methodName.replaceFirst("set", "get"));
+    }
+    return accessor;
+  }
+
   @Override
   public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
   	if (method.getName().startsWith("get")) {  
@@ -161,31 +169,30 @@ public abstract class AbstractStructuredInvocationHandler extends AbstractInvoca
       // get method annotation and check if it exists as expected
 
       final Object res;
-      final Method getter = typeRef.getMethod(method.getName());
+      final TypeMetadata.Accessor accessor = getAccessor(method.getName());
 
-      final Property property = ClassUtils.getAnnotation(Property.class, getter);
+      final Property property = accessor.getProperty();
       if (property == null) {
-        final NavigationProperty navProp = ClassUtils.getAnnotation(NavigationProperty.class, getter);
+        final NavigationProperty navProp = accessor.getNavigationProperty();
         if (navProp == null) {
           throw new UnsupportedOperationException("Unsupported method " + method.getName());
         } else {
           // if the getter refers to a navigation property ... navigate and follow link if necessary
-          res = getNavigationPropertyValue(navProp, getter);
+          res = getNavigationPropertyValue(navProp, accessor.getGetter());
         }
       } else {
         // if the getter refers to a property .... get property from wrapped entity
-        res = getPropertyValue(property.name(), getter.getGenericReturnType());
+        res = getPropertyValue(property.name(), accessor.getGetter().getGenericReturnType());
       }
 
       return res;
     } else if (method.getName().startsWith("set")) {
       // get the corresponding getter method (see assumption above)
-      final String getterName = method.getName().replaceFirst("set", "get");
-      final Method getter = typeRef.getMethod(getterName);
+      final TypeMetadata.Accessor accessor = getAccessor(method.getName());
 
-      final Property property = ClassUtils.getAnnotation(Property.class, getter);
+      final Property property = accessor.getProperty();
       if (property == null) {
-        final NavigationProperty navProp = ClassUtils.getAnnotation(NavigationProperty.class, getter);
+        final NavigationProperty navProp = accessor.getNavigationProperty();
         if (navProp == null) {
           throw new UnsupportedOperationException("Unsupported method " + method.getName());
         } else {
@@ -604,17 +611,9 @@ public abstract class AbstractStructuredInvocationHandler extends AbstractInvoca
 
   public Collection<String> readAdditionalPropertyNames() {
     final Set<String> res = new HashSet<String>(propertyChanges.keySet());
-    final Set<String> propertyNames = new HashSet<String>();
-    for (Method method : typeRef.getMethods()) {
-      final Annotation ann = method.getAnnotation(Property.class);
-      if (ann != null) {
-        final String property = ((Property) ann).name();
-        propertyNames.add(property);
-
-        // maybe someone could add a normal attribute to the additional set
-        res.remove(property);
-      }
-    }
+    final Set<String> propertyNames = TypeMetadata.get(typeRef).getPropertyNames();
+    // maybe someone could add a normal attribute to the additional set
+    res.removeAll(propertyNames);
 
     for (ClientProperty property : getInternalProperties()) {
       if (!propertyNames.contains(property.getName())) {
@@ -30,15 +30,21 @@ import java.util.List;
 import java.util.Map;
 
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.tuple.Pair;
+import org.apache.olingo.client.api.ODataClient;
 import org.apache.olingo.client.api.communication.request.retrieve.ODataEntityRequest;
 import org.apache.olingo.client.api.communication.request.retrieve.ODataMediaRequest;
 import org.apache.olingo.client.api.communication.response.ODataRetrieveResponse;
+import org.apache.olingo.client.api.data.ResWrap;
 import org.apache.olingo.client.api.domain.ClientAnnotation;
 import org.apache.olingo.client.api.domain.ClientEntity;
 import org.apache.olingo.client.api.domain.ClientProperty;
+import org.apache.olingo.client.api.serialization.ODataDeserializerException;
 import org.apache.olingo.client.api.uri.URIBuilder;
+import org.apache.olingo.commons.api.data.Entity;
 import org.apache.olingo.commons.api.edm.FullQualifiedName;
 import org.apache.olingo.commons.api.format.ContentType;
+import org.apache.olingo.commons.api.http.HttpStatusCode;
 import org.apache.olingo.ext.proxy.AbstractService;
 import org.apache.olingo.ext.proxy.api.AbstractTerm;
 import org.apache.olingo.ext.proxy.api.Annotatable;
@@ -48,6 +54,7 @@ import org.apache.olingo.ext.proxy.api.annotations.Namespace;
 import org.apache.olingo.ext.proxy.api.annotations.NavigationProperty;
 import org.apache.olingo.ext.proxy.api.annotations.Term;
 import org.apache.olingo.ext.proxy.context.AttachedEntityStatus;
+import org.apache.olingo.ext.proxy.context.EntityCache;
 import org.apache.olingo.ext.proxy.context.EntityUUID;
 import org.apache.olingo.ext.proxy.utils.CoreUtils;
 
@@ -443,20 +450,16 @@ public class EntityInvocationHandler extends AbstractStructuredInvocationHandler
     final Object key = uuid.getKey();
 
     try {
-      final ODataEntityRequest<ClientEntity> req =
-          getClient().getRetrieveRequestFactory().getEntityRequest(uri.build());
+      final Pair<ClientEntity, String> retrieved = retrieve(getClient(), getContext().entityCache(), uri.build());
+      final ClientEntity entity = retrieved.getLeft();
+      final String etag = retrieved.getRight();
 
-      req.setPrefer(getClient().newPreferences().includeAnnotations("*"));
-
-      final ODataRetrieveResponse<ClientEntity> res = req.execute();
-
-      final ClientEntity entity = res.getBody();
       if (entity == null) {
         throw new IllegalArgumentException("Invalid " + typeRef.getSimpleName() + "(" + key + ")");
       }
 
       setEntity(entity);
-      setETag(res.getETag());
+      setETag(etag);
 
       if (key != null && !key.equals(CoreUtils.getKey(getClient(), this, typeRef, entity))) {
         throw new IllegalArgumentException("Invalid " + typeRef.getSimpleName() + "(" + key + ")");
@@ -475,6 +478,47 @@ public class EntityInvocationHandler extends AbstractStructuredInvocationHandler
     }
   }
 
+  /**
+   * Retrieves an entity and its ETag, through the given cache if enabled: fresh entries are served without
+   * contacting the service, older ones are revalidated via <tt>If-None-Match</tt>.
+   */
+  static Pair<ClientEntity, String> retrieve(final ODataClient client, final EntityCache cache,
+      final URI requestURI) throws ODataDeserializerException {
+
+    final EntityCache.Entry cached = cache.isEnabled() ? cache.get(requestURI) : null;
+    if (cached != null && cache.isFresh(cached)) {
+      LOG.debug("Entity '{}' served from cache", requestURI);
+      return Pair.of(client.getBinder().getODataEntity(cached.getResource()), cached.getETag());
+    }
+
+    final ODataEntityRequest<ClientEntity> req = client.getRetrieveRequestFactory().getEntityRequest(requestURI);
+
+    req.setPrefer(client.newPreferences().includeAnnotations("*"));
+    if (cached != null && cached.getETag() != null) {
+      req.setIfNoneMatch(cached.getETag());
+    }
+
+    final ODataRetrieveResponse<ClientEntity> res = req.execute();
+
+    if (cached != null && res.getStatusCode() == HttpStatusCode.NOT_MODIFIED.getStatusCode()) {
+      LOG.debug("Entity '{}' not modified, served from cache", requestURI);
+      res.close();
+      cache.touch(cached);
+      return Pair.of(client.getBinder().getODataEntity(cached.getResource()), cached.getETag());
+    } else if (cache.isEnabled()) {
+      final ResWrap<Entity> resource;
+      try {
+        resource = client.getDeserializer(ContentType.parse(res.getContentType())).toEntity(res.getRawResponse());
+      } finally {
+        res.close();
+      }
+      cache.put(requestURI, resource, res.getETag());
+      return Pair.of(client.getBinder().getODataEntity(resource), res.getETag());
+    } else {
+      return Pair.of(res.getBody(), res.getETag());
+    }
+  }
+
   @Override
   @SuppressWarnings("unchecked")
   protected <T extends ClientProperty> List<T> getInternalProperties() {
@@ -19,14 +19,18 @@
 package org.apache.olingo.ext.proxy.commons;
 
 import java.io.Serializable;
+import java.lang.ref.WeakReference;
 import java.net.URI;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.concurrent.CancellationException;
 
 import org.apache.commons.lang3.tuple.Triple;
 import org.apache.olingo.client.api.domain.ClientAnnotation;
+import org.apache.olingo.client.api.domain.ClientEntitySet;
+import org.apache.olingo.client.api.domain.ClientEntitySetPageIterator;
 import org.apache.olingo.ext.proxy.api.EntityCollection;
 import org.apache.olingo.ext.proxy.api.EntityType;
 
@@ -39,10 +43,40 @@ class EntitySetIterator<T extends EntityType<?>, KEY extends Serializable, EC ex
 
   private Iterator<T> current;
 
-  EntitySetIterator(final URI uri, EntitySetInvocationHandler<T, KEY, EC> esi) {
+  /**
+   * Background page fetcher, only when page prefetching is enabled in the client configuration.
+   * It is closed when the last page has been retrieved; if iteration is abandoned, it stops requesting pages as
+   * soon as this iterator has been garbage collected.
+   */
+  private final ClientEntitySetPageIterator pages;
+
+  EntitySetIterator(final URI uri, final EntitySetInvocationHandler<T, KEY, EC> esi) {
     this.esi = esi;
     this.next = uri;
     this.current = Collections.<T>emptyList().iterator();
+
+    final int prefetchPages = esi.getClient().getConfiguration().getPrefetchPages();
+    this.pages = prefetchPages > 0 ? newPageIterator(uri, esi, prefetchPages,
+        new WeakReference<EntitySetIterator<?, ?, ?>>(this)) : null;
+  }
+
+  /**
+   * Static in order not to reference the owning iterator from the background requests, so that it can be collected.
+   */
+  private static ClientEntitySetPageIterator newPageIterator(final URI uri,
+      final EntitySetInvocationHandler<?, ?, ?> esi, final int prefetchPages,
+      final WeakReference<EntitySetIterator<?, ?, ?>> owner) {
+
+    return new ClientEntitySetPageIterator(esi.getClient(), uri, prefetchPages) {
+      @Override
+      protected ClientEntitySet fetch(final URI uri) {
+        if (owner.get() == null) {
+          // iteration has been abandoned: end the chain of page requests
+          throw new CancellationException("Entity set iteration abandoned");
+        }
+        return esi.fetchEntitySet(uri);
+      }
+    };
   }
 
   @Override
@@ -81,8 +115,23 @@ class EntitySetIterator<T extends EntityType<?>, KEY extends Serializable, EC ex
   }
 
   private void goOn() {
-    final Triple<List<T>, URI, List<ClientAnnotation>> entitySet = esi.fetchPartial(this.next, this.esi.getTypeRef());
+    final Triple<List<T>, URI, List<ClientAnnotation>> entitySet;
+    if (pages == null) {
+      entitySet = esi.fetchPartial(this.next, this.esi.getTypeRef());
+    } else {
+      final ClientEntitySet page;
+      try {
+        page = pages.next();
+      } catch (final RuntimeException e) {
+        pages.close();
+        throw e;
+      }
+      entitySet = esi.toPartial(page.getEntities(), page.getNext(), page.getAnnotations(), this.esi.getTypeRef());
+    }
     this.current = entitySet.getLeft().iterator();
     this.next = entitySet.getMiddle();
+    if (this.next == null && pages != null) {
+      pages.close();
+    }
   }
 }
@@ -18,21 +18,165 @@
  */
 package org.apache.olingo.ext.proxy.commons;
 
-import org.apache.olingo.client.api.communication.request.ODataBatchableRequest;
-
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+
+import org.apache.olingo.client.api.communication.request.ODataBatchableRequest;
+import org.apache.olingo.client.api.domain.ClientEntity;
+import org.apache.olingo.client.api.domain.ClientLink;
 
 public class PersistenceChanges {
 
   private final Map<ODataBatchableRequest, EntityInvocationHandler> requests =
           new LinkedHashMap<ODataBatchableRequest, EntityInvocationHandler>();
 
+  /**
+   * Positions (i.e. Content-IDs) referenced by each change, in insertion order.
+   */
+  private final List<Set<Integer>> references = new ArrayList<Set<Integer>>();
+
   public void addChange(final ODataBatchableRequest request, final EntityInvocationHandler handler) {
+    addChange(request, handler, null);
+  }
+
+  /**
+   * Adds a change whose payload might link entities created or changed in the same unit of work.
+   *
+   * @param request request
+   * @param handler entity handler, or null
+   * @param payload entity sent with the request, or null
+   */
+  public void addChange(final ODataBatchableRequest request, final EntityInvocationHandler handler,
+          final ClientEntity payload) {
+
     this.requests.put(request, handler);
+
+    final Set<Integer> refs = new HashSet<Integer>();
+    addReference(request.getURI(), refs);
+    if (payload != null) {
+      for (ClientLink link : payload.getNavigationLinks()) {
+        addReference(link.getLink(), refs);
+      }
+    }
+    this.references.add(refs);
+  }
+
+  private void addReference(final URI uri, final Set<Integer> refs) {
+    final String value = uri == null ? null : uri.toASCIIString();
+    if (value != null && value.startsWith("$")) {
+      int end = 1;
+      while (end < value.length() && Character.isDigit(value.charAt(end))) {
+        end++;
+      }
+      if (end > 1) {
+        refs.add(Integer.valueOf(value.substring(1, end)));
+      }
+    }
   }
 
   public Map<ODataBatchableRequest, EntityInvocationHandler> getChanges() {
     return requests;
   }
+
+  /**
+   * Splits changes into parts of at most <tt>maxSize</tt> changes each, so that changes referencing each other via
+   * Content-ID or affecting the same entity always belong to the same part. Such a group of related changes is never
+   * split, even if larger than <tt>maxSize</tt>.
+   *
+   * @param maxSize maximum part size; <tt>0</tt> means no limit
+   * @return parts, each as the ascending list of the 1-based positions of its changes
+   */
+  public List<List<Integer>> split(final int maxSize) {
+    final int size = references.size();
+    final List<Integer> all = new ArrayList<Integer>(size);
+    for (int position = 1; position <= size; position++) {
+      all.add(position);
+    }
+    if (maxSize <= 0 || size <= maxSize) {
+      return Collections.singletonList(all);
+    }
+
+    // union-find over positions
+    final int[] parent = new int[size + 1];
+    for (int position = 1; position <= size; position++) {
+      parent[position] = position;
+    }
+    final Map<EntityInvocationHandler, Integer> firstByHandler = new HashMap<EntityInvocationHandler, Integer>();
+    int position = 0;
+    for (EntityInvocationHandler handler : requests.values()) {
+      position++;
+      for (Integer ref : references.get(position - 1)) {
+        if (ref >= 1 && ref <= size) {
+          union(parent, position, ref);
+        }
+      }
+      if (handler != null) {
+        final Integer first = firstByHandler.get(handler);
+        if (first == null) {
+          firstByHandler.put(handler, position);
+        } else {
+          union(parent, position, first);
+        }
+      }
+    }
+
+    // groups, ordered by their first position
+    final Map<Integer, List<Integer>> groups = new LinkedHashMap<Integer, List<Integer>>();
+    for (position = 1; position <= size; position++) {
+      final int root = find(parent, position);
+      List<Integer> group = groups.get(root);
+      if (group == null) {
+        group = new ArrayList<Integer>();
+        groups.put(root, group);
+      }
+      group.add(position);
+    }
+
+    final List<List<Integer>> parts = new ArrayList<List<Integer>>();
+    List<Integer> part = new ArrayList<Integer>();
+    for (List<Integer> group : groups.values()) {
+      if (!part.isEmpty() && part.size() + group.size() > maxSize) {
+        Collections.sort(part);
+        parts.add(part);
+        part = new ArrayList<Integer>();
+      }
+      part.addAll(group);
+    }
+    if (!part.isEmpty()) {
+      Collections.sort(part);
+      parts.add(part);
+    }
+    return parts;
+  }
+
+  private static int find(final int[] parent, final int position) {
+    int root = position;
+    while (parent[root] != root) {
+      root = parent[root];
+    }
+    // path compression
+    int current = position;
+    while (parent[current] != root) {
+      final int next = parent[current];
+      parent[current] = root;
+      current = next;
+    }
+    return root;
+  }
+
+  private static void union(final int[] parent, final int first, final int second) {
+    final int firstRoot = find(parent, first);
+    final int secondRoot = find(parent, second);
+    if (firstRoot != secondRoot) {
+      // keep the smallest position as root
+      parent[Math.max(firstRoot, secondRoot)] = Math.min(firstRoot, secondRoot);
+    }
+  }
 }
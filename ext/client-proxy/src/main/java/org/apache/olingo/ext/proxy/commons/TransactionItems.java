@@ -20,78 +20,136 @@ package org.apache.olingo.ext.proxy.commons;
 
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
 import java.util.List;
-import java.util.Set;
+import java.util.Map;
 
+/**
+ * Positions of the entity handlers processed during a flush.
+ * <br/>
+ * The same handler can be put more than once; lookups always refer to its first position. Lookups are indexed, so
+ * that flushing large units of work does not degrade to quadratic time.
+ */
 public class TransactionItems {
 
-  private final List<EntityInvocationHandler> keys = new ArrayList<EntityInvocationHandler>();
+  private static final class Item {
+
+    private final EntityInvocationHandler key;
+
+    private final Integer value;
 
-  private final List<Integer> values = new ArrayList<Integer>();
+    private boolean removed;
+
+    private Item(final EntityInvocationHandler key, final Integer value) {
+      this.key = key;
+      this.value = value;
+    }
+  }
+
+  private final List<Item> items = new ArrayList<Item>();
+
+  private final Map<EntityInvocationHandler, LinkedList<Item>> byKey =
+      new HashMap<EntityInvocationHandler, LinkedList<Item>>();
+
+  private final Map<Integer, LinkedList<Item>> byValue = new HashMap<Integer, LinkedList<Item>>();
+
+  private int size;
+
+  private static <K> void index(final Map<K, LinkedList<Item>> index, final K key, final Item item) {
+    LinkedList<Item> list = index.get(key);
+    if (list == null) {
+      list = new LinkedList<Item>();
+      index.put(key, list);
+    }
+    list.add(item);
+  }
+
+  private static <K> void unindex(final Map<K, LinkedList<Item>> index, final K key, final Item item) {
+    final LinkedList<Item> list = index.get(key);
+    list.remove(item);
+    if (list.isEmpty()) {
+      index.remove(key);
+    }
+  }
+
+  private void remove(final Item item) {
+    item.removed = true;
+    unindex(byKey, item.key, item);
+    unindex(byValue, item.value, item);
+    size--;
+  }
 
   public EntityInvocationHandler get(final Integer value) {
-    if (value != null && values.contains(value)) {
-      return keys.get(values.indexOf(value));
+    if (value != null && byValue.containsKey(value)) {
+      return byValue.get(value).getFirst().key;
     } else {
       return null;
     }
   }
 
   public Integer get(final EntityInvocationHandler key) {
-    if (key != null && keys.contains(key)) {
-      return values.get(keys.indexOf(key));
+    if (key != null && byKey.containsKey(key)) {
+      return byKey.get(key).getFirst().value;
     } else {
       return null;
     }
   }
 
   public void remove(final EntityInvocationHandler key) {
-    if (keys.contains(key)) {
-      values.remove(keys.indexOf(key));
-      keys.remove(key);
+    if (byKey.containsKey(key)) {
+      remove(byKey.get(key).getFirst());
     }
   }
 
   public void normalize() {
-    final Set<Integer> toBeRemoved = new HashSet<Integer>();
-    for (EntityInvocationHandler key : keys) {
-      int i = keys.indexOf(key);
-      if (values.get(i) == null) {
-        toBeRemoved.add(i);
+    final LinkedList<Item> nullValued = byValue.get(null);
+    if (nullValued != null) {
+      for (Item item : new ArrayList<Item>(nullValued)) {
+        remove(item);
       }
     }
 
-    for (int i : toBeRemoved) {
-      keys.remove(i);
-      values.remove(i);
+    for (Iterator<Item> itor = items.iterator(); itor.hasNext();) {
+      if (itor.next().removed) {
+        itor.remove();
+      }
     }
   }
 
   public void put(final EntityInvocationHandler key, final Integer value) {
     // replace just in case of null current value; otherwise add the new entry
-    if (key != null && keys.contains(key) && values.get(keys.indexOf(key)) == null) {
+    if (key != null && byKey.containsKey(key) && byKey.get(key).getFirst().value == null) {
       remove(key);
     }
-    keys.add(key);
-    values.add(value);
+    final Item item = new Item(key, value);
+    items.add(item);
+    index(byKey, key, item);
+    index(byValue, value, item);
+    size++;
   }
 
   public List<Integer> sortedValues() {
-    final List<Integer> sortedValues = new ArrayList<Integer>(values);
+    final List<Integer> sortedValues = new ArrayList<Integer>(size);
+    for (Item item : items) {
+      if (!item.removed) {
+        sortedValues.add(item.value);
+      }
+    }
     Collections.<Integer>sort(sortedValues);
     return sortedValues;
   }
 
   public boolean contains(final EntityInvocationHandler key) {
-    return keys.contains(key);
+    return byKey.containsKey(key);
   }
 
   public int size() {
-    return keys.size();
+    return size;
   }
 
   public boolean isEmpty() {
-    return keys.isEmpty();
+    return size == 0;
   }
 }
@@ -20,8 +20,12 @@ package org.apache.olingo.ext.proxy.commons;
 
 import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import org.apache.olingo.client.api.communication.ODataServerErrorException;
 import org.apache.olingo.client.api.communication.request.ODataBatchableRequest;
@@ -56,24 +60,129 @@ public class TransactionalPersistenceManagerImpl extends AbstractPersistenceMana
 
   /**
    * Transactional changes commit.
+   * <br/>
+   * When the number of changes exceeds the configured maximum change set size, changes are split over several batch
+   * requests (see {@link PersistenceChanges#split(int)}), keeping their original Content-IDs; up to the configured
+   * number of such batch requests are in flight at the same time, while responses are processed in order.
    */
   @Override
   protected void doFlush(final PersistenceChanges changes, final TransactionItems items) {
+    final List<ODataBatchableRequest> requests =
+            new ArrayList<ODataBatchableRequest>(changes.getChanges().keySet());
+    final List<Integer> sortedItems = items.sortedValues();
+    final List<List<Integer>> parts =
+            changes.split(service.getClient().getConfiguration().getMaxChangesetSize());
+
+    final List<ODataResponseError> errors = new ArrayList<ODataResponseError>();
+    final int[] statusCode = new int[1];
+    sendInOrder(parts.size(),
+            service.getClient().getConfiguration().getMaxConcurrentBatches(),
+            service.getClient().getConfiguration().getBatchResponseTimeout(),
+            new PartHandler<ODataBatchResponse>() {
+
+              @Override
+              public Future<ODataBatchResponse> send(final int part) {
+                return TransactionalPersistenceManagerImpl.this.send(requests, parts.get(part));
+              }
+
+              @Override
+              public void process(final ODataBatchResponse response, final int part) {
+                statusCode[0] = response.getStatusCode();
+                processResponse(response, parts.get(part), requests, items, sortedItems, errors);
+              }
+            });
+
+    if (!errors.isEmpty()) {
+      throw new ODataFlushException(statusCode[0], errors);
+    }
+  }
+
+  /**
+   * Sends and processes the parts of a split unit of work.
+   */
+  interface PartHandler<T> {
+
+    /**
+     * Sends the given part without waiting for its response.
+     */
+    Future<T> send(int part);
+
+    /**
+     * Processes the response to the given part.
+     */
+    void process(T response, int part);
+  }
+
+  /**
+   * Sends <tt>parts</tt> parts, keeping at most <tt>maxInFlight</tt> of them sent but not yet processed, and processes
+   * their responses in the order the parts have been sent. When processing fails, the parts still in flight are
+   * cancelled.
+   *
+   * @param parts number of parts
+   * @param maxInFlight maximum number of parts in flight
+   * @param timeout number of seconds to wait for each response
+   * @param handler sends and processes parts
+   */
+  static <T> void sendInOrder(final int parts, final int maxInFlight, final long timeout,
+          final PartHandler<T> handler) {
+    final LinkedList<Future<T>> inFlight = new LinkedList<Future<T>>();
+    int sent = 0;
+    int processed = 0;
+    try {
+      while (processed < parts) {
+        while (sent < parts && inFlight.size() < maxInFlight) {
+          inFlight.add(handler.send(sent++));
+        }
+        handler.process(await(inFlight.removeFirst(), timeout), processed++);
+      }
+    } finally {
+      for (Future<T> future : inFlight) {
+        future.cancel(true);
+      }
+    }
+  }
+
+  /**
+   * Streams a batch request containing a single changeset made of the given changes.
+   */
+  private Future<ODataBatchResponse> send(final List<ODataBatchableRequest> requests, final List<Integer> part) {
     final ODataBatchRequest request =
             service.getClient().getBatchRequestFactory().getBatchRequest(service.getClient().getServiceRoot());
     ((ODataRequest) request).setAccept(
             service.getClient().getConfiguration().getDefaultBatchAcceptFormat().toContentTypeString());
 
-    final BatchManager batchManager = (BatchManager) ((ODataStreamedRequest<?,?>) request).payloadManager();
+    final BatchManager batchManager = (BatchManager) ((ODataStreamedRequest<?, ?>) request).payloadManager();
 
-    final List<ODataRequest> requests = new ArrayList<ODataRequest>(changes.getChanges().size());
     final ODataChangeset changeset = batchManager.addChangeset();
-    for (Map.Entry<ODataBatchableRequest, EntityInvocationHandler> entry : changes.getChanges().entrySet()) {
-      changeset.addRequest(entry.getKey());
-      requests.add(entry.getKey());
+    for (Integer position : part) {
+      changeset.addRequest(requests.get(position - 1), position);
     }
 
-    final ODataBatchResponse response = batchManager.getResponse();
+    // the payload must be complete before the response can arrive
+    batchManager.finalizeBody();
+    return batchManager.getAsyncResponse();
+  }
+
+  private static <T> T await(final Future<T> future, final long timeout) {
+    try {
+      return future.get(timeout, TimeUnit.SECONDS);
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException(e);
+    } catch (final TimeoutException e) {
+      future.cancel(true);
+      throw new IllegalStateException("No batch response within " + timeout + " seconds", e);
+    } catch (final ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new IllegalStateException(e.getCause());
+    }
+  }
+
+  private void processResponse(final ODataBatchResponse response, final List<Integer> part,
+          final List<ODataBatchableRequest> requests, final TransactionItems items, final List<Integer> sortedItems,
+          final List<ODataResponseError> errors) {
 
     // This should be 202 for service version <= 3.0 and 200 for service version >= 4.0 but it seems that
     // many service implementations are not fully compliant in this respect.
@@ -81,65 +190,58 @@ public class TransactionalPersistenceManagerImpl extends AbstractPersistenceMana
       throw new ODataServerErrorException(new ResponseStatusLine(response));
     }
 
-    if (!items.isEmpty()) {
-      final List<ODataResponseError> errors = new ArrayList<ODataResponseError>();
+    final Iterator<ODataBatchResponseItem> batchResItor = response.getBody();
+    if (!batchResItor.hasNext()) {
+      throw new IllegalStateException("Unexpected operation result");
+    }
 
-      final Iterator<ODataBatchResponseItem> batchResItor = response.getBody();
-      if (!batchResItor.hasNext()) {
-        throw new IllegalStateException("Unexpected operation result");
-      }
+    final ODataBatchResponseItem item = batchResItor.next();
+    if (!(item instanceof ODataChangesetResponseItem)) {
+      throw new IllegalStateException("Unexpected batch response item " + item.getClass().getSimpleName());
+    }
 
-      final ODataBatchResponseItem item = batchResItor.next();
-      if (!(item instanceof ODataChangesetResponseItem)) {
-        throw new IllegalStateException("Unexpected batch response item " + item.getClass().getSimpleName());
+    final ODataChangesetResponseItem chgres = (ODataChangesetResponseItem) item;
+
+    for (Integer position : part) {
+      final int index = position - 1;
+      final Integer changesetItemId = sortedItems.get(index);
+      LOG.debug("Expected changeset item {}", changesetItemId);
+
+      final ODataResponse res = chgres.next();
+      if (res.getStatusCode() >= 400) {
+        errors.add(new ODataResponseError(ODataErrorResponseChecker.checkResponse(
+                service.getClient(),
+                new ResponseStatusLine(res),
+                res.getRawResponse(),
+                ((ODataRequest) requests.get(index)).getAccept()), index, (ODataRequest) requests.get(index)));
+        if (!service.getClient().getConfiguration().isContinueOnError()) {
+          throw new ODataFlushException(response.getStatusCode(), errors);
+        }
       }
 
-      final ODataChangesetResponseItem chgres = (ODataChangesetResponseItem) item;
-
-      int index = 0;
-      for (final Iterator<Integer> itor = items.sortedValues().iterator(); itor.hasNext(); index++) {
-        final Integer changesetItemId = itor.next();
-        LOG.debug("Expected changeset item {}", changesetItemId);
-
-        final ODataResponse res = chgres.next();
-        if (res.getStatusCode() >= 400) {
-          errors.add(new ODataResponseError(ODataErrorResponseChecker.checkResponse(
-                  service.getClient(),
-                  new ResponseStatusLine(res),
-                  res.getRawResponse(),
-                  ((ODataRequest) request).getAccept()), index, requests.get(index)));
-          if (!service.getClient().getConfiguration().isContinueOnError()) {
-            throw new ODataFlushException(response.getStatusCode(), errors);
-          }
-        }
+      final EntityInvocationHandler handler = items.get(changesetItemId);
 
-        final EntityInvocationHandler handler = items.get(changesetItemId);
-
-        if (handler != null) {
-          if (res instanceof ODataEntityCreateResponse && (res.getStatusCode() == 201 || res
-              .getStatusCode() == 204)) {
-            if (res.getStatusCode() == 201) {
-              handler.setEntity(((ODataEntityCreateResponse<?>) res).getBody());
-              LOG.debug("Upgrade created object '{}'", handler);
-            } else {
-              handler.applyChanges();
-            }
-          } else if (res instanceof ODataEntityUpdateResponse && (res.getStatusCode() == 200 || res
-              .getStatusCode() == 204)) {
-            if (res.getStatusCode() == 201) {
-              handler.setEntity(((ODataEntityUpdateResponse<?>) res).getBody());
-              LOG.debug("Upgrade updated object '{}'", handler);
-            } else {
-              handler.applyChanges();
-            }
+      if (handler != null) {
+        if (res instanceof ODataEntityCreateResponse && (res.getStatusCode() == 201 || res
+            .getStatusCode() == 204)) {
+          if (res.getStatusCode() == 201) {
+            handler.setEntity(((ODataEntityCreateResponse<?>) res).getBody());
+            LOG.debug("Upgrade created object '{}'", handler);
+          } else {
+            handler.applyChanges();
+          }
+        } else if (res instanceof ODataEntityUpdateResponse && (res.getStatusCode() == 200 || res
+            .getStatusCode() == 204)) {
+          if (res.getStatusCode() == 201) {
+            handler.setEntity(((ODataEntityUpdateResponse<?>) res).getBody());
+            LOG.debug("Upgrade updated object '{}'", handler);
+          } else {
+            handler.applyChanges();
           }
         }
       }
-
-      if (!errors.isEmpty()) {
-        throw new ODataFlushException(response.getStatusCode(), errors);
-      }
     }
+
     response.close();
   }
 }
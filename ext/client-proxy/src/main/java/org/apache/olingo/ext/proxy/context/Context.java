@@ -22,15 +22,21 @@ public class Context {
 
   private final EntityContext entities;
 
+  private final EntityCache cache;
+
   public Context() {
     this.entities = new EntityContext();
-
+    this.cache = new EntityCache();
   }
 
   public EntityContext entityContext() {
     return entities;
   }
 
+  public EntityCache entityCache() {
+    return cache;
+  }
+
   public void detachAll() {
     entities.detachAll();
   }
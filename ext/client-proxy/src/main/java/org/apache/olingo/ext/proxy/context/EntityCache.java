@@ -0,0 +1,226 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.ext.proxy.context;
+
+import java.net.URI;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.olingo.client.api.data.ResWrap;
+import org.apache.olingo.commons.api.data.Entity;
+
+/**
+ * Second-level cache of entities read from the service, shared by all entity handlers of a service.
+ * <br/>
+ * Entries are keyed by request URI (query options included, as they shape the payload) and hold the deserialized
+ * payload, so that each lookup binds a fresh, independently modifiable entity. The cache is bounded by size (least
+ * recently used entries are evicted first); entries younger than the time-to-live are served without contacting the
+ * service, older ones are revalidated via <tt>If-None-Match</tt> when an ETag is available.
+ * <br/>
+ * The cache is disabled by default (maximum size <tt>0</tt>).
+ */
+public class EntityCache {
+
+  /**
+   * Cached entity.
+   */
+  public static final class Entry {
+
+    private final ResWrap<Entity> resource;
+
+    private final String etag;
+
+    private long timestamp;
+
+    private Entry(final ResWrap<Entity> resource, final String etag, final long timestamp) {
+      this.resource = resource;
+      this.etag = etag;
+      this.timestamp = timestamp;
+    }
+
+    public ResWrap<Entity> getResource() {
+      return resource;
+    }
+
+    public String getETag() {
+      return etag;
+    }
+  }
+
+  private int maxSize = 0;
+
+  private long timeToLive = 0;
+
+  private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+
+    private static final long serialVersionUID = 5457326066716003245L;
+
+    @Override
+    protected boolean removeEldestEntry(final Map.Entry<String, Entry> eldest) {
+      if (size() > maxSize) {
+        unindex(eldest.getKey());
+        return true;
+      }
+      return false;
+    }
+  };
+
+  /**
+   * Request URIs by entity URI (i.e. request URI without query options), for invalidation.
+   */
+  private final Map<String, Set<String>> byEntity = new HashMap<String, Set<String>>();
+
+  public synchronized int getMaxSize() {
+    return maxSize;
+  }
+
+  /**
+   * Sets the maximum number of cached entities; <tt>0</tt> disables the cache.
+   *
+   * @param maxSize maximum number of cached entities
+   */
+  public synchronized void setMaxSize(final int maxSize) {
+    if (maxSize < 0) {
+      throw new IllegalArgumentException("Maximum size must not be negative");
+    }
+    this.maxSize = maxSize;
+    for (final Iterator<String> itor = entries.keySet().iterator(); entries.size() > maxSize && itor.hasNext();) {
+      unindex(itor.next());
+      itor.remove();
+    }
+  }
+
+  public synchronized long getTimeToLive() {
+    return timeToLive;
+  }
+
+  /**
+   * Sets for how long cached entities are served without contacting the service.
+   *
+   * @param timeToLive time-to-live in milliseconds; <tt>0</tt> means that entities are always revalidated
+   */
+  public synchronized void setTimeToLive(final long timeToLive) {
+    if (timeToLive < 0) {
+      throw new IllegalArgumentException("Time-to-live must not be negative");
+    }
+    this.timeToLive = timeToLive;
+  }
+
+  public synchronized boolean isEnabled() {
+    return maxSize > 0;
+  }
+
+  /**
+   * Gets a cached entity.
+   *
+   * @param uri request URI
+   * @return cached entity, or null
+   */
+  public synchronized Entry get(final URI uri) {
+    return entries.get(uri.toASCIIString());
+  }
+
+  /**
+   * Checks whether the given cached entity can be served without contacting the service.
+   *
+   * @param entry cached entity
+   * @return whether the entry is younger than the time-to-live
+   */
+  public synchronized boolean isFresh(final Entry entry) {
+    return System.currentTimeMillis() - entry.timestamp < timeToLive;
+  }
+
+  /**
+   * Marks the given cached entity as just validated by the service.
+   *
+   * @param entry cached entity
+   */
+  public synchronized void touch(final Entry entry) {
+    entry.timestamp = System.currentTimeMillis();
+  }
+
+  /**
+   * Caches an entity, if the cache is enabled.
+   *
+   * @param uri request URI
+   * @param resource deserialized payload
+   * @param etag entity ETag, or null
+   */
+  public synchronized void put(final URI uri, final ResWrap<Entity> resource, final String etag) {
+    if (maxSize > 0) {
+      final String key = uri.toASCIIString();
+      final String entity = entityOf(key);
+      Set<String> keys = byEntity.get(entity);
+      if (keys == null) {
+        keys = new HashSet<String>();
+        byEntity.put(entity, keys);
+      }
+      keys.add(key);
+      entries.put(key, new Entry(resource, etag, System.currentTimeMillis()));
+    }
+  }
+
+  /**
+   * Removes all cached variants (i.e. with any query options) of the given entity.
+   *
+   * @param entityURI entity URI
+   */
+  public synchronized void invalidate(final URI entityURI) {
+    if (entityURI != null) {
+      final Set<String> keys = byEntity.remove(entityOf(entityURI.toASCIIString()));
+      if (keys != null) {
+        for (String key : keys) {
+          entries.remove(key);
+        }
+      }
+    }
+  }
+
+  /**
+   * Removes all cached entities.
+   */
+  public synchronized void clear() {
+    entries.clear();
+    byEntity.clear();
+  }
+
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  private void unindex(final String key) {
+    final String entity = entityOf(key);
+    final Set<String> keys = byEntity.get(entity);
+    if (keys != null) {
+      keys.remove(key);
+      if (keys.isEmpty()) {
+        byEntity.remove(entity);
+      }
+    }
+  }
+
+  private static String entityOf(final String uri) {
+    final int query = uri.indexOf('?');
+    return query < 0 ? uri : uri.substring(0, query);
+  }
+}
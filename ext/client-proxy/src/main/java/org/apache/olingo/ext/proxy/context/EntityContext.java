@@ -18,6 +18,9 @@
  */
 package org.apache.olingo.ext.proxy.context;
 
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
 import java.net.URI;
 import org.apache.olingo.ext.proxy.commons.EntityInvocationHandler;
 
@@ -27,6 +30,7 @@ import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.WeakHashMap;
 
 /**
  * Entity context.
@@ -56,6 +60,86 @@ public class EntityContext implements Iterable<AttachedEntity> {
    */
   private final List<URI> furtherDeletes = new ArrayList<URI>();
 
+  /**
+   * Whether unchanged entities (status <tt>ATTACHED</tt>) are referenced weakly.
+   */
+  private boolean weakReferences = false;
+
+  /**
+   * Unchanged entities, when weak references are enabled: they are released as soon as the application does not
+   * reference them anymore, and moved to <tt>allAttachedEntities</tt> as soon as their status changes.
+   */
+  private final Map<EntityInvocationHandler, Boolean> weaklyAttachedEntities =
+          new WeakHashMap<EntityInvocationHandler, Boolean>();
+
+  /**
+   * Unchanged entities with not null key, when weak references are enabled.
+   */
+  private final Map<EntityUUID, UUIDReference> weaklySearchableEntities = new HashMap<EntityUUID, UUIDReference>();
+
+  private final ReferenceQueue<EntityInvocationHandler> releasedEntities =
+          new ReferenceQueue<EntityInvocationHandler>();
+
+  private static final class UUIDReference extends WeakReference<EntityInvocationHandler> {
+
+    private final EntityUUID uuid;
+
+    private UUIDReference(final EntityInvocationHandler entity, final ReferenceQueue<EntityInvocationHandler> queue) {
+      super(entity, queue);
+      this.uuid = entity.getUUID();
+    }
+  }
+
+  /**
+   * Checks whether unchanged entities are referenced weakly.
+   *
+   * @return <tt>true</tt> if unchanged entities are referenced weakly; <tt>false</tt> otherwise.
+   */
+  public boolean isWeakReferences() {
+    return weakReferences;
+  }
+
+  /**
+   * Sets whether unchanged entities (status <tt>ATTACHED</tt>) are referenced weakly, so that long-running sessions
+   * reading many entities do not retain them until {@link #detachAll()}.
+   *
+   * @param weakReferences whether unchanged entities are to be referenced weakly.
+   */
+  public void setWeakReferences(final boolean weakReferences) {
+    if (this.weakReferences && !weakReferences) {
+      for (EntityInvocationHandler entity : new ArrayList<EntityInvocationHandler>(weaklyAttachedEntities.keySet())) {
+        promote(entity, AttachedEntityStatus.ATTACHED);
+      }
+      weaklySearchableEntities.clear();
+    }
+    this.weakReferences = weakReferences;
+  }
+
+  /**
+   * Removes the entries of released entities.
+   */
+  private void expungeReleasedEntities() {
+    Reference<? extends EntityInvocationHandler> released;
+    while ((released = releasedEntities.poll()) != null) {
+      final EntityUUID uuid = ((UUIDReference) released).uuid;
+      if (weaklySearchableEntities.get(uuid) == released) {
+        weaklySearchableEntities.remove(uuid);
+      }
+    }
+  }
+
+  /**
+   * Moves a weakly referenced entity among the strongly referenced ones.
+   */
+  private void promote(final EntityInvocationHandler entity, final AttachedEntityStatus status) {
+    weaklyAttachedEntities.remove(entity);
+    weaklySearchableEntities.remove(entity.getUUID());
+    allAttachedEntities.put(entity, status);
+    if (entity.getUUID().getKey() != null) {
+      searchableEntities.put(entity.getUUID(), entity);
+    }
+  }
+
   /**
    * Attaches an entity with status <tt>NEW</tt>.
    * <br/>
@@ -111,10 +195,19 @@ public class EntityContext implements Iterable<AttachedEntity> {
     }
 
     if (force || entity.getUUID().getEntitySetURI() != null) {
-      allAttachedEntities.put(entity, status);
+      if (weakReferences && status == AttachedEntityStatus.ATTACHED) {
+        expungeReleasedEntities();
+        weaklyAttachedEntities.put(entity, Boolean.TRUE);
+
+        if (entity.getUUID().getKey() != null) {
+          weaklySearchableEntities.put(entity.getUUID(), new UUIDReference(entity, releasedEntities));
+        }
+      } else {
+        allAttachedEntities.put(entity, status);
 
-      if (entity.getUUID().getKey() != null) {
-        searchableEntities.put(entity.getUUID(), entity);
+        if (entity.getUUID().getKey() != null) {
+          searchableEntities.put(entity.getUUID(), entity);
+        }
       }
     }
   }
@@ -127,6 +220,8 @@ public class EntityContext implements Iterable<AttachedEntity> {
   public void detach(final EntityInvocationHandler entity) {
     searchableEntities.remove(entity.getUUID());
     allAttachedEntities.remove(entity);
+    weaklySearchableEntities.remove(entity.getUUID());
+    weaklyAttachedEntities.remove(entity);
   }
 
   /**
@@ -137,6 +232,8 @@ public class EntityContext implements Iterable<AttachedEntity> {
   public void detachAll() {
     allAttachedEntities.clear();
     searchableEntities.clear();
+    weaklyAttachedEntities.clear();
+    weaklySearchableEntities.clear();
     furtherDeletes.clear();
   }
 
@@ -147,7 +244,12 @@ public class EntityContext implements Iterable<AttachedEntity> {
    * @return retrieved entity.
    */
   public EntityInvocationHandler getEntity(final EntityUUID uuid) {
-    return searchableEntities.get(uuid);
+    EntityInvocationHandler entity = searchableEntities.get(uuid);
+    if (entity == null && weakReferences) {
+      final UUIDReference reference = weaklySearchableEntities.get(uuid);
+      entity = reference == null ? null : reference.get();
+    }
+    return entity;
   }
 
   /**
@@ -161,7 +263,9 @@ public class EntityContext implements Iterable<AttachedEntity> {
       throw new IllegalStateException("Entity is not in the context");
     }
 
-    return allAttachedEntities.get(entity);
+    return !allAttachedEntities.containsKey(entity) && weaklyAttachedEntities.containsKey(entity)
+            ? AttachedEntityStatus.ATTACHED
+            : allAttachedEntities.get(entity);
   }
 
   /**
@@ -175,7 +279,7 @@ public class EntityContext implements Iterable<AttachedEntity> {
       throw new IllegalStateException("Entity is not in the context");
     }
 
-    final AttachedEntityStatus current = allAttachedEntities.get(entity);
+    final AttachedEntityStatus current = getStatus(entity);
 
     // Previously deleted object cannot be modified anymore.
     if (current == AttachedEntityStatus.DELETED) {
@@ -190,7 +294,11 @@ public class EntityContext implements Iterable<AttachedEntity> {
             || (status == AttachedEntityStatus.CHANGED && current == AttachedEntityStatus.ATTACHED)
             || (status == AttachedEntityStatus.CHANGED && current == AttachedEntityStatus.LINKED)
             || (status == AttachedEntityStatus.DELETED)) {
-      allAttachedEntities.put(entity, status);
+      if (weaklyAttachedEntities.containsKey(entity)) {
+        promote(entity, status);
+      } else {
+        allAttachedEntities.put(entity, status);
+      }
     }
   }
 
@@ -203,7 +311,9 @@ public class EntityContext implements Iterable<AttachedEntity> {
   public boolean isAttached(final EntityInvocationHandler entity) {
     return entity == null // avoid attach for null entities (coming from complexes created from container ...)
             || allAttachedEntities.containsKey(entity)
-            || (entity.getUUID().getKey() != null && searchableEntities.containsKey(entity.getUUID()));
+            || (entity.getUUID().getKey() != null && searchableEntities.containsKey(entity.getUUID()))
+            || (weakReferences && (weaklyAttachedEntities.containsKey(entity)
+            || (entity.getUUID().getKey() != null && getEntity(entity.getUUID()) != null)));
   }
 
   /**
@@ -217,6 +327,9 @@ public class EntityContext implements Iterable<AttachedEntity> {
     for (Map.Entry<EntityInvocationHandler, AttachedEntityStatus> entity : allAttachedEntities.entrySet()) {
       res.add(new AttachedEntity(entity.getKey(), entity.getValue()));
     }
+    for (EntityInvocationHandler entity : weaklyAttachedEntities.keySet()) {
+      res.add(new AttachedEntity(entity, AttachedEntityStatus.ATTACHED));
+    }
     return res.iterator();
   }
 
@@ -0,0 +1,191 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.ext.proxy.utils;
+
+import java.lang.annotation.Annotation;
+import java.lang.ref.SoftReference;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+import org.apache.olingo.ext.proxy.api.annotations.NavigationProperty;
+import org.apache.olingo.ext.proxy.api.annotations.Property;
+
+/**
+ * Annotation metadata of a proxy interface, computed once per interface and shared by all invocation handlers.
+ * <br/>
+ * This avoids scanning methods and their annotations via reflection on every property access.
+ * <br/>
+ * The cache does not prevent the unloading of the interfaces' class loaders: its keys are weak, and its values,
+ * which reference the interfaces through their methods, are soft.
+ */
+public final class TypeMetadata {
+
+  private static final Map<Class<?>, SoftReference<TypeMetadata>> CACHE =
+      Collections.synchronizedMap(new WeakHashMap<Class<?>, SoftReference<TypeMetadata>>());
+
+  /**
+   * Property or navigation property backing a getter / setter pair.
+   * Assumption: for each getter will always exist a setter and viceversa.
+   */
+  public static final class Accessor {
+
+    private final Method getter;
+
+    private final Property property;
+
+    private final NavigationProperty navigationProperty;
+
+    private Accessor(final Method getter) {
+      this.getter = getter;
+      this.property = ClassUtils.getAnnotation(Property.class, getter);
+      this.navigationProperty = property == null ? ClassUtils.getAnnotation(NavigationProperty.class, getter) : null;
+    }
+
+    public Method getGetter() {
+      return getter;
+    }
+
+    /**
+     * @return property annotation, or null if the getter does not refer to a property
+     */
+    public Property getProperty() {
+      return property;
+    }
+
+    /**
+     * @return navigation property annotation, or null if the getter does not refer to a navigation property
+     */
+    public NavigationProperty getNavigationProperty() {
+      return navigationProperty;
+    }
+  }
+
+  private final Map<String, Accessor> accessors = new HashMap<String, Accessor>();
+
+  private final Map<String, Method> propertyGetters = new HashMap<String, Method>();
+
+  private final Map<String, Method> navigationPropertyGetters = new HashMap<String, Method>();
+
+  private final Map<String, Method[]> methodsByName = new HashMap<String, Method[]>();
+
+  private final Set<String> propertyNames = new LinkedHashSet<String>();
+
+  private TypeMetadata(final Class<?> type) {
+    for (Method method : type.getMethods()) {
+      final Method[] sameName = methodsByName.get(method.getName());
+      if (sameName == null) {
+        methodsByName.put(method.getName(), new Method[] { method });
+      } else {
+        final Method[] extended = Arrays.copyOf(sameName, sameName.length + 1);
+        extended[sameName.length] = method;
+        methodsByName.put(method.getName(), extended);
+      }
+
+      if (method.getName().startsWith("get") && method.getParameterTypes().length == 0) {
+        final Accessor accessor = new Accessor(method);
+        accessors.put(method.getName(), accessor);
+        accessors.put(method.getName().replaceFirst("get", "set"), accessor);
+
+        if (accessor.getProperty() != null) {
+          propertyNames.add(accessor.getProperty().name());
+          if (!propertyGetters.containsKey(accessor.getProperty().name())) {
+            propertyGetters.put(accessor.getProperty().name(), method);
+          }
+        } else if (accessor.getNavigationProperty() != null
+            && !navigationPropertyGetters.containsKey(accessor.getNavigationProperty().name())) {
+          navigationPropertyGetters.put(accessor.getNavigationProperty().name(), method);
+        }
+      }
+    }
+  }
+
+  /**
+   * Gets the metadata of the given interface (or class).
+   *
+   * @param type interface or class
+   * @return metadata
+   */
+  public static TypeMetadata get(final Class<?> type) {
+    final SoftReference<TypeMetadata> cached = CACHE.get(type);
+    TypeMetadata metadata = cached == null ? null : cached.get();
+    if (metadata == null) {
+      // concurrent scans of the same type are harmless, their results are equal
+      metadata = new TypeMetadata(type);
+      CACHE.put(type, new SoftReference<TypeMetadata>(metadata));
+    }
+    return metadata;
+  }
+
+  /**
+   * Gets the accessor for the given getter or setter method name.
+   *
+   * @param methodName name of a getter (<tt>getXxx</tt>) or a setter (<tt>setXxx</tt>)
+   * @return accessor, or null if no getter <tt>getXxx</tt> exists
+   */
+  public Accessor getAccessor(final String methodName) {
+    return accessors.get(methodName);
+  }
+
+  /**
+   * Gets the getter annotated with {@link Property} or {@link NavigationProperty} with the given name.
+   *
+   * @param annotation either {@link Property} or {@link NavigationProperty}
+   * @param name property name
+   * @return getter, or null if not found
+   */
+  public Method getGetter(final Class<? extends Annotation> annotation, final String name) {
+    if (Property.class.equals(annotation)) {
+      return propertyGetters.get(name);
+    } else if (NavigationProperty.class.equals(annotation)) {
+      return navigationPropertyGetters.get(name);
+    }
+    return null;
+  }
+
+  /**
+   * @return names of all declared properties
+   */
+  public Set<String> getPropertyNames() {
+    return Collections.unmodifiableSet(propertyNames);
+  }
+
+  /**
+   * Finds the public method with the same name and parameter types as the given one.
+   *
+   * @param method method, usually declared by another type
+   * @return matching method, or null
+   */
+  public Method findMethod(final Method method) {
+    final Method[] candidates = methodsByName.get(method.getName());
+    if (candidates != null) {
+      for (Method candidate : candidates) {
+        if (Arrays.equals(method.getParameterTypes(), candidate.getParameterTypes())) {
+          return candidate;
+        }
+      }
+    }
+    return null;
+  }
+}
@@ -0,0 +1,149 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.ext.proxy.commons;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.net.URI;
+import java.util.Collections;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.apache.olingo.client.api.ODataClient;
+import org.apache.olingo.client.api.communication.header.ODataPreferences;
+import org.apache.olingo.client.api.communication.request.ODataBatchableRequest;
+import org.apache.olingo.client.api.communication.request.retrieve.ODataEntityRequest;
+import org.apache.olingo.client.api.communication.request.retrieve.RetrieveRequestFactory;
+import org.apache.olingo.client.api.communication.response.ODataRetrieveResponse;
+import org.apache.olingo.client.api.data.ResWrap;
+import org.apache.olingo.client.api.domain.ClientEntity;
+import org.apache.olingo.client.api.serialization.ODataBinder;
+import org.apache.olingo.commons.api.data.Entity;
+import org.apache.olingo.commons.api.format.ContentType;
+import org.apache.olingo.commons.api.http.HttpStatusCode;
+import org.apache.olingo.ext.proxy.context.EntityCache;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the use of the entity cache when reading entities and flushing changes.
+ */
+public class EntityCacheUsageTest {
+
+  private static final URI ENTITY = URI.create("http://localhost/service/ESTwoPrim(1)");
+
+  private static final String ETAG = "W/\"1\"";
+
+  private final ResWrap<Entity> resource = new ResWrap<Entity>(null, null, new Entity());
+
+  private final ClientEntity entity = mock(ClientEntity.class);
+
+  private ODataClient client;
+
+  private RetrieveRequestFactory requestFactory;
+
+  private ODataEntityRequest<ClientEntity> request;
+
+  private ODataRetrieveResponse<ClientEntity> response;
+
+  private EntityCache cache;
+
+  @Before
+  @SuppressWarnings("unchecked")
+  public void setUp() {
+    client = mock(ODataClient.class);
+    final ODataBinder binder = mock(ODataBinder.class);
+    when(binder.getODataEntity(resource)).thenReturn(entity);
+    when(client.getBinder()).thenReturn(binder);
+    when(client.newPreferences()).thenReturn(new ODataPreferences());
+    requestFactory = mock(RetrieveRequestFactory.class);
+    when(client.getRetrieveRequestFactory()).thenReturn(requestFactory);
+    request = mock(ODataEntityRequest.class);
+    when(requestFactory.getEntityRequest(ENTITY)).thenReturn(request);
+    response = mock(ODataRetrieveResponse.class);
+    when(request.execute()).thenReturn(response);
+
+    cache = new EntityCache();
+    cache.setMaxSize(10);
+    cache.put(ENTITY, resource, ETAG);
+  }
+
+  @Test
+  public void revalidation() throws Exception {
+    when(response.getStatusCode()).thenReturn(HttpStatusCode.NOT_MODIFIED.getStatusCode());
+
+    final Pair<ClientEntity, String> retrieved = EntityInvocationHandler.retrieve(client, cache, ENTITY);
+
+    verify(request).setIfNoneMatch(ETAG);
+    verify(response).close();
+    verify(client, never()).getDeserializer(any(ContentType.class));
+    assertSame(entity, retrieved.getLeft());
+    assertEquals(ETAG, retrieved.getRight());
+    assertSame(resource, cache.get(ENTITY).getResource());
+
+    // the revalidated entry is served without request within the time-to-live
+    cache.setTimeToLive(60000);
+    assertSame(entity, EntityInvocationHandler.retrieve(client, cache, ENTITY).getLeft());
+    verify(requestFactory, times(1)).getEntityRequest(ENTITY);
+  }
+
+  @Test
+  public void disabledCache() throws Exception {
+    cache.setMaxSize(0);
+    final ClientEntity body = mock(ClientEntity.class);
+    when(response.getStatusCode()).thenReturn(HttpStatusCode.OK.getStatusCode());
+    when(response.getBody()).thenReturn(body);
+    when(response.getETag()).thenReturn("W/\"2\"");
+
+    final Pair<ClientEntity, String> retrieved = EntityInvocationHandler.retrieve(client, cache, ENTITY);
+
+    verify(request, never()).setIfNoneMatch(any(String.class));
+    assertSame(body, retrieved.getLeft());
+    assertEquals("W/\"2\"", retrieved.getRight());
+  }
+
+  @Test
+  public void invalidationOnFlush() {
+    final URI other = URI.create("http://localhost/service/ESTwoPrim(2)");
+    final URI deleted = URI.create("http://localhost/service/ESTwoPrim(3)");
+    cache.put(URI.create(ENTITY + "?$select=PropertyString"), resource, ETAG);
+    cache.put(other, resource, ETAG);
+    cache.put(deleted, resource, ETAG);
+
+    final EntityInvocationHandler handler = mock(EntityInvocationHandler.class);
+    when(handler.getEntityURI()).thenReturn(ENTITY);
+    final PersistenceChanges changes = new PersistenceChanges();
+    changes.addChange(mock(ODataBatchableRequest.class), handler);
+    changes.addChange(mock(ODataBatchableRequest.class), null);
+
+    AbstractPersistenceManager.invalidate(cache, changes, Collections.singletonList(deleted));
+
+    assertEquals(1, cache.size());
+    assertNull(cache.get(ENTITY));
+    assertNotNull(cache.get(other));
+  }
+}
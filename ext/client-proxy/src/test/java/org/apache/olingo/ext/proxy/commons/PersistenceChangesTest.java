@@ -0,0 +1,113 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.ext.proxy.commons;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.net.URI;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.olingo.client.api.communication.request.ODataBatchableRequest;
+import org.apache.olingo.client.api.domain.ClientEntity;
+import org.apache.olingo.client.core.domain.ClientObjectFactoryImpl;
+import org.apache.olingo.commons.api.edm.FullQualifiedName;
+import org.junit.Test;
+
+public class PersistenceChangesTest {
+
+  private static final ClientObjectFactoryImpl FACTORY = new ClientObjectFactoryImpl();
+
+  @Test
+  public void noLimit() {
+    final PersistenceChanges changes = changes(5);
+    assertEquals(Arrays.asList(Arrays.asList(1, 2, 3, 4, 5)), changes.split(0));
+    assertEquals(Arrays.asList(Arrays.asList(1, 2, 3, 4, 5)), changes.split(5));
+  }
+
+  @Test
+  public void independentChanges() {
+    assertEquals(Arrays.asList(Arrays.asList(1, 2), Arrays.asList(3, 4), Arrays.asList(5)),
+        changes(5).split(2));
+  }
+
+  @Test
+  public void contentIdInRequestUri() {
+    final PersistenceChanges changes = new PersistenceChanges();
+    changes.addChange(request("ESTwoPrim"), null);
+    changes.addChange(request("ESTwoPrim"), null);
+    changes.addChange(request("$1/NavPropertyETAllPrimMany"), null);
+    changes.addChange(request("ESTwoPrim"), null);
+    // 1 and 3 are kept together although the group does not fit after 2
+    assertEquals(Arrays.asList(Arrays.asList(1, 3), Arrays.asList(2, 4)), changes.split(2));
+  }
+
+  @Test
+  public void contentIdInNavigationLink() {
+    final PersistenceChanges changes = new PersistenceChanges();
+    changes.addChange(request("ESTwoPrim"), null);
+    changes.addChange(request("ESTwoPrim"), null);
+    changes.addChange(request("ESTwoPrim"), null, entity("$2"));
+    changes.addChange(request("ESTwoPrim"), null, entity("$3"));
+    final List<List<Integer>> parts = changes.split(2);
+    assertEquals(Arrays.asList(Arrays.asList(1), Arrays.asList(2, 3, 4)), parts);
+  }
+
+  @Test
+  public void groupLargerThanLimit() {
+    final PersistenceChanges changes = new PersistenceChanges();
+    changes.addChange(request("ESTwoPrim"), null);
+    changes.addChange(request("$1"), null);
+    changes.addChange(request("$2"), null);
+    changes.addChange(request("ESTwoPrim"), null);
+    assertEquals(Arrays.asList(Arrays.asList(1, 2, 3), Arrays.asList(4)), changes.split(2));
+  }
+
+  @Test
+  public void sameEntity() {
+    final EntityInvocationHandler handler = mock(EntityInvocationHandler.class);
+    final PersistenceChanges changes = new PersistenceChanges();
+    changes.addChange(request("ESTwoPrim(1)"), handler);
+    changes.addChange(request("ESTwoPrim(2)"), null);
+    changes.addChange(request("ESTwoPrim(1)"), handler);
+    assertEquals(Arrays.asList(Arrays.asList(1, 3), Arrays.asList(2)), changes.split(2));
+  }
+
+  private static PersistenceChanges changes(final int count) {
+    final PersistenceChanges changes = new PersistenceChanges();
+    for (int index = 0; index < count; index++) {
+      changes.addChange(request("ESTwoPrim"), null);
+    }
+    return changes;
+  }
+
+  private static ODataBatchableRequest request(final String uri) {
+    final ODataBatchableRequest request = mock(ODataBatchableRequest.class);
+    when(request.getURI()).thenReturn(URI.create(uri));
+    return request;
+  }
+
+  private static ClientEntity entity(final String link) {
+    final ClientEntity entity = FACTORY.newEntity(new FullQualifiedName("Namespace", "ETTwoPrim"));
+    entity.getNavigationLinks().add(FACTORY.newEntityNavigationLink("NavPropertyETAllPrimOne", URI.create(link)));
+    return entity;
+  }
+}
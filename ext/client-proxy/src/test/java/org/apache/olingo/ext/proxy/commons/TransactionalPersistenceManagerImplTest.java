@@ -0,0 +1,139 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.ext.proxy.commons;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+import org.junit.Test;
+
+public class TransactionalPersistenceManagerImplTest {
+
+  @Test
+  public void responsesProcessedInOrder() throws Exception {
+    final ExecutorService executor = Executors.newFixedThreadPool(3);
+    try {
+      final List<String> events = new ArrayList<String>();
+      final int[] inFlight = new int[2];
+      TransactionalPersistenceManagerImpl.sendInOrder(5, 3, 30,
+          new TransactionalPersistenceManagerImpl.PartHandler<Integer>() {
+
+            @Override
+            public Future<Integer> send(final int part) {
+              events.add("send " + part);
+              inFlight[0]++;
+              inFlight[1] = Math.max(inFlight[1], inFlight[0]);
+              return executor.submit(new Callable<Integer>() {
+                @Override
+                public Integer call() throws Exception {
+                  // earlier parts answer later
+                  Thread.sleep(50 - 10 * part);
+                  return part;
+                }
+              });
+            }
+
+            @Override
+            public void process(final Integer response, final int part) {
+              assertEquals(part, response.intValue());
+              events.add("process " + part);
+              inFlight[0]--;
+            }
+          });
+
+      assertEquals(Arrays.asList("send 0", "send 1", "send 2", "process 0", "send 3", "process 1",
+          "send 4", "process 2", "process 3", "process 4"), events);
+      assertEquals(3, inFlight[1]);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void inFlightPartsCancelledOnFailure() {
+    final List<FutureTask<Integer>> futures = new ArrayList<FutureTask<Integer>>();
+    try {
+      TransactionalPersistenceManagerImpl.sendInOrder(4, 2, 30,
+          new TransactionalPersistenceManagerImpl.PartHandler<Integer>() {
+
+            @Override
+            public Future<Integer> send(final int part) {
+              final FutureTask<Integer> future = new FutureTask<Integer>(new Callable<Integer>() {
+                @Override
+                public Integer call() {
+                  return part;
+                }
+              });
+              if (part == 0) {
+                future.run();
+              }
+              futures.add(future);
+              return future;
+            }
+
+            @Override
+            public void process(final Integer response, final int part) {
+              throw new IllegalStateException("Failed part " + part);
+            }
+          });
+      fail("Expected exception not thrown.");
+    } catch (final IllegalStateException e) {
+      assertEquals("Failed part 0", e.getMessage());
+    }
+    assertEquals(2, futures.size());
+    assertTrue(futures.get(1).isCancelled());
+  }
+
+  @Test
+  public void timeout() {
+    try {
+      TransactionalPersistenceManagerImpl.sendInOrder(1, 1, 1,
+          new TransactionalPersistenceManagerImpl.PartHandler<Integer>() {
+
+            @Override
+            public Future<Integer> send(final int part) {
+              return new FutureTask<Integer>(new Callable<Integer>() {
+                @Override
+                public Integer call() {
+                  return part;
+                }
+              });
+            }
+
+            @Override
+            public void process(final Integer response, final int part) {
+              fail("Unexpected response.");
+            }
+          });
+      fail("Expected exception not thrown.");
+    } catch (final IllegalStateException e) {
+      assertTrue(e.getMessage().contains("1 seconds"));
+    }
+  }
+}
@@ -0,0 +1,117 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.ext.proxy.context;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.net.URI;
+
+import org.apache.olingo.client.api.data.ResWrap;
+import org.apache.olingo.commons.api.data.Entity;
+import org.junit.Test;
+
+public class EntityCacheTest {
+
+  private static final String SERVICE = "http://localhost/service/";
+
+  private static URI uri(final String path) {
+    return URI.create(SERVICE + path);
+  }
+
+  private static ResWrap<Entity> resource() {
+    return new ResWrap<Entity>(null, null, new Entity());
+  }
+
+  @Test
+  public void disabledByDefault() {
+    final EntityCache cache = new EntityCache();
+    assertFalse(cache.isEnabled());
+    cache.put(uri("ESTwoPrim(1)"), resource(), null);
+    assertEquals(0, cache.size());
+    assertNull(cache.get(uri("ESTwoPrim(1)")));
+  }
+
+  @Test
+  public void evictionAtBound() {
+    final EntityCache cache = new EntityCache();
+    cache.setMaxSize(2);
+    final ResWrap<Entity> first = resource();
+    cache.put(uri("ESTwoPrim(1)"), first, "W/\"1\"");
+    cache.put(uri("ESTwoPrim(2)"), resource(), null);
+    // accessing the first entry makes the second one the least recently used
+    assertSame(first, cache.get(uri("ESTwoPrim(1)")).getResource());
+    cache.put(uri("ESTwoPrim(3)"), resource(), null);
+
+    assertEquals(2, cache.size());
+    assertNotNull(cache.get(uri("ESTwoPrim(1)")));
+    assertNull(cache.get(uri("ESTwoPrim(2)")));
+    assertNotNull(cache.get(uri("ESTwoPrim(3)")));
+
+    cache.setMaxSize(1);
+    assertEquals(1, cache.size());
+    assertNotNull(cache.get(uri("ESTwoPrim(3)")));
+
+    // the evicted entries are not indexed anymore
+    cache.invalidate(uri("ESTwoPrim(1)"));
+    cache.invalidate(uri("ESTwoPrim(2)"));
+    assertEquals(1, cache.size());
+  }
+
+  @Test
+  public void invalidation() {
+    final EntityCache cache = new EntityCache();
+    cache.setMaxSize(10);
+    cache.put(uri("ESTwoPrim(1)"), resource(), null);
+    cache.put(uri("ESTwoPrim(1)?$select=PropertyString"), resource(), null);
+    cache.put(uri("ESTwoPrim(2)"), resource(), null);
+
+    cache.invalidate(uri("ESTwoPrim(1)"));
+    assertEquals(1, cache.size());
+    assertNull(cache.get(uri("ESTwoPrim(1)")));
+    assertNull(cache.get(uri("ESTwoPrim(1)?$select=PropertyString")));
+    assertNotNull(cache.get(uri("ESTwoPrim(2)")));
+
+    cache.clear();
+    assertEquals(0, cache.size());
+  }
+
+  @Test
+  public void freshness() {
+    final EntityCache cache = new EntityCache();
+    cache.setMaxSize(10);
+    cache.put(uri("ESTwoPrim(1)"), resource(), "W/\"1\"");
+    final EntityCache.Entry entry = cache.get(uri("ESTwoPrim(1)"));
+    assertEquals("W/\"1\"", entry.getETag());
+    assertFalse(cache.isFresh(entry));
+
+    cache.setTimeToLive(60000);
+    cache.touch(entry);
+    assertTrue(cache.isFresh(entry));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void negativeSize() {
+    new EntityCache().setMaxSize(-1);
+  }
+}
@@ -0,0 +1,130 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.ext.proxy.context;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.lang.ref.WeakReference;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.olingo.ext.proxy.api.EntityType;
+import org.apache.olingo.ext.proxy.commons.EntityInvocationHandler;
+import org.junit.Test;
+
+public class EntityContextTest {
+
+  private static final URI ENTITY_SET = URI.create("http://localhost/service/ESTwoPrim");
+
+  public interface TwoPrim extends EntityType<TwoPrim> {
+  }
+
+  private static EntityInvocationHandler entity(final int key) {
+    final EntityUUID uuid = uuid(key);
+    final EntityInvocationHandler entity = mock(EntityInvocationHandler.class);
+    when(entity.getUUID()).thenReturn(uuid);
+    return entity;
+  }
+
+  private static EntityUUID uuid(final int key) {
+    return new EntityUUID(ENTITY_SET, TwoPrim.class, key);
+  }
+
+  private static Map<EntityUUID, AttachedEntityStatus> statuses(final EntityContext context) {
+    final Map<EntityUUID, AttachedEntityStatus> statuses = new HashMap<EntityUUID, AttachedEntityStatus>();
+    for (AttachedEntity attached : context) {
+      statuses.put(attached.getEntity().getUUID(), attached.getStatus());
+    }
+    return statuses;
+  }
+
+  /** Allocates memory until the garbage collector has cleared the given reference. */
+  private static void collect(final WeakReference<?> reference) {
+    final List<byte[]> garbage = new ArrayList<byte[]>();
+    for (int i = 0; i < 10000 && reference.get() != null; i++) {
+      garbage.add(new byte[1024 * 1024]);
+      if (garbage.size() == 16) {
+        garbage.clear();
+      }
+    }
+    assertNull(reference.get());
+  }
+
+  @Test
+  public void changedEntitiesHeldStrongly() {
+    final EntityContext context = new EntityContext();
+    context.setWeakReferences(true);
+
+    EntityInvocationHandler unchanged = entity(1);
+    EntityInvocationHandler changed = entity(2);
+    EntityInvocationHandler deleted = entity(3);
+    context.attach(unchanged);
+    context.attach(changed);
+    context.attach(deleted);
+    context.setStatus(changed, AttachedEntityStatus.CHANGED);
+    context.setStatus(deleted, AttachedEntityStatus.DELETED);
+    context.attach(entity(4), AttachedEntityStatus.CHANGED);
+
+    final WeakReference<EntityInvocationHandler> unchangedReference =
+        new WeakReference<EntityInvocationHandler>(unchanged);
+    final WeakReference<EntityInvocationHandler> changedReference =
+        new WeakReference<EntityInvocationHandler>(changed);
+    unchanged = null;
+    changed = null;
+    deleted = null;
+    // the mocking framework keeps the mock invoked last
+    entity(5).getUUID();
+    collect(unchangedReference);
+
+    assertNotNull(changedReference.get());
+    assertNull(context.getEntity(uuid(1)));
+    assertSame(changedReference.get(), context.getEntity(uuid(2)));
+    final Map<EntityUUID, AttachedEntityStatus> statuses = statuses(context);
+    assertEquals(3, statuses.size());
+    assertEquals(AttachedEntityStatus.CHANGED, statuses.get(uuid(2)));
+    assertEquals(AttachedEntityStatus.DELETED, statuses.get(uuid(3)));
+    assertEquals(AttachedEntityStatus.CHANGED, statuses.get(uuid(4)));
+  }
+
+  @Test
+  public void unchangedEntitiesKeptWhenWeakReferencesDisabled() {
+    final EntityContext context = new EntityContext();
+    context.setWeakReferences(true);
+    final EntityInvocationHandler entity = entity(1);
+    context.attach(entity);
+    assertSame(entity, context.getEntity(uuid(1)));
+    assertEquals(AttachedEntityStatus.ATTACHED, context.getStatus(entity));
+
+    context.setWeakReferences(false);
+    assertSame(entity, context.getEntity(uuid(1)));
+    assertEquals(AttachedEntityStatus.ATTACHED, context.getStatus(entity));
+
+    context.detach(entity);
+    assertFalse(context.isAttached(entity));
+  }
+}
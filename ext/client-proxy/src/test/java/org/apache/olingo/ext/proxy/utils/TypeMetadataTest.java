@@ -0,0 +1,117 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.ext.proxy.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import org.apache.olingo.ext.proxy.api.annotations.NavigationProperty;
+import org.apache.olingo.ext.proxy.api.annotations.Property;
+import org.junit.Test;
+
+public class TypeMetadataTest {
+
+  public interface Named {
+    @Property(name = "Name", type = "Edm.String")
+    String getName();
+
+    void setName(String name);
+  }
+
+  public interface Person extends Named {
+    @Property(name = "Age", type = "Edm.Int32")
+    Integer getAge();
+
+    void setAge(Integer age);
+
+    @NavigationProperty(name = "Parent", type = "Namespace.Person",
+        targetSchema = "Namespace", targetContainer = "Container", targetEntitySet = "People")
+    Person getParent();
+
+    void setParent(Person parent);
+
+    String getNickname();
+
+    void print(String prefix);
+
+    void print(String prefix, int times);
+  }
+
+  /** Scans the methods of the given type the way it was done before the metadata have been cached. */
+  private static Method scan(final Class<?> type, final Class<? extends Annotation> annotation, final String name)
+      throws Exception {
+    for (Method method : type.getMethods()) {
+      final Annotation found = method.getAnnotation(annotation);
+      if (found != null && method.getName().startsWith("get")
+          && name.equals(annotation.getMethod("name").invoke(found))) {
+        return method;
+      }
+    }
+    return null;
+  }
+
+  @Test
+  public void sameAsFreshScan() throws Exception {
+    final TypeMetadata metadata = TypeMetadata.get(Person.class);
+
+    final Set<String> propertyNames = new LinkedHashSet<String>();
+    for (Method method : Person.class.getMethods()) {
+      final Property property = method.getAnnotation(Property.class);
+      final NavigationProperty navigationProperty = method.getAnnotation(NavigationProperty.class);
+      if (property != null) {
+        propertyNames.add(property.name());
+        assertEquals(scan(Person.class, Property.class, property.name()),
+            metadata.getGetter(Property.class, property.name()));
+      }
+      if (navigationProperty != null) {
+        assertEquals(scan(Person.class, NavigationProperty.class, navigationProperty.name()),
+            metadata.getGetter(NavigationProperty.class, navigationProperty.name()));
+      }
+
+      if (method.getName().startsWith("get")) {
+        final TypeMetadata.Accessor accessor = metadata.getAccessor(method.getName());
+        assertEquals(method, accessor.getGetter());
+        assertSame(accessor, metadata.getAccessor(method.getName().replaceFirst("get", "set")));
+        assertEquals(property, accessor.getProperty());
+        assertEquals(navigationProperty, accessor.getNavigationProperty());
+      }
+      assertEquals(Person.class.getMethod(method.getName(), method.getParameterTypes()),
+          metadata.findMethod(method));
+    }
+    assertEquals(propertyNames, metadata.getPropertyNames());
+    assertEquals(2, propertyNames.size());
+
+    assertNull(metadata.getAccessor("getUnknown"));
+    assertNull(metadata.getGetter(Property.class, "Parent"));
+    assertNull(metadata.getAccessor("getNickname").getProperty());
+    assertNotNull(metadata.findMethod(Person.class.getMethod("print", String.class, int.class)));
+  }
+
+  @Test
+  public void cached() {
+    assertSame(TypeMetadata.get(Person.class), TypeMetadata.get(Person.class));
+  }
+}
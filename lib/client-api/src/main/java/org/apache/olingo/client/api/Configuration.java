@@ -253,6 +253,73 @@ public interface Configuration {
    */
   void setContinueOnError(boolean value);
 
+  /**
+   * Gets the maximum number of requests that are put in a single change set when a set of changes has to be sent by
+   * means of batch requests (as the transactional persistence manager of the proxy does): larger sets are split over
+   * several batch requests, keeping requests which reference each other together. <tt>0</tt> means no limit.
+   * <br/>
+   * Please note that each batch request is processed as a separate unit of work by the service.
+   *
+   * @return maximum number of requests per change set
+   */
+  int getMaxChangesetSize();
+
+  /**
+   * Sets the maximum number of requests that are put in a single change set.
+   *
+   * @param size maximum number of requests per change set; <tt>0</tt> means no limit.
+   */
+  void setMaxChangesetSize(int size);
+
+  /**
+   * Gets the maximum number of batch requests that can be in flight at the same time when a set of changes is split
+   * over several batch requests.
+   * <br/>
+   * This value must not exceed the number of concurrent connections to the service allowed by the configured HTTP
+   * client.
+   *
+   * @return maximum number of concurrent batch requests
+   */
+  int getMaxConcurrentBatches();
+
+  /**
+   * Sets the maximum number of batch requests that can be in flight at the same time.
+   *
+   * @param batches maximum number of concurrent batch requests; must be positive.
+   */
+  void setMaxConcurrentBatches(int batches);
+
+  /**
+   * Gets the number of seconds to wait for each batch response when a set of changes is sent by means of batch
+   * requests (as the transactional persistence manager of the proxy does).
+   *
+   * @return batch response timeout, in seconds
+   */
+  long getBatchResponseTimeout();
+
+  /**
+   * Sets the number of seconds to wait for each batch response.
+   *
+   * @param seconds batch response timeout, in seconds; must be positive.
+   */
+  void setBatchResponseTimeout(long seconds);
+
+  /**
+   * Gets the number of entity set pages that paging iterators are allowed to request in the background, ahead of the
+   * page currently being consumed. <tt>0</tt> means that the next page is requested only once the current one is
+   * exhausted.
+   *
+   * @return number of pages to prefetch
+   */
+  int getPrefetchPages();
+
+  /**
+   * Sets the number of entity set pages that paging iterators are allowed to request in the background.
+   *
+   * @param pages number of pages to prefetch; <tt>0</tt> disables prefetching.
+   */
+  void setPrefetchPages(int pages);
+
   /**
    * Retrieves request executor service.
    *
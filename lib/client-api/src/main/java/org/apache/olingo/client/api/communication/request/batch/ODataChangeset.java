@@ -36,4 +36,19 @@ public interface ODataChangeset extends ODataBatchRequestItem {
    * @return current item instance.
    */
   ODataChangeset addRequest(final ODataBatchableRequest request);
+
+  /**
+   * Serialize and send the given request, using the given Content-ID instead of the next sequential one.
+   * <p>
+   * This is useful when a set of changes referencing each other by Content-ID is split over several batch
+   * requests: each part can keep the original identifiers. Content-IDs must be unique within the batch request and
+   * greater than the last one used in this changeset.
+   * <p>
+   * An IllegalArgumentException is thrown in case of GET request or invalid Content-ID.
+   *
+   * @param request request to be serialized.
+   * @param contentId Content-ID of the request.
+   * @return current item instance.
+   */
+  ODataChangeset addRequest(final ODataBatchableRequest request, final int contentId);
 }
@@ -0,0 +1,289 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.client.api.domain;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+import org.apache.olingo.client.api.ODataClient;
+
+/**
+ * Iterator over the pages of an entity set which requests the following pages in the background while the current
+ * one is being consumed.
+ * <br/>
+ * Two modes are supported:
+ * <ul>
+ * <li><i>next link</i>: pages are chained by their <tt>@odata.nextLink</tt>; as soon as a page has been retrieved,
+ * the following one is requested, as long as at most <tt>lookAhead</tt> pages are requested (or buffered) ahead of
+ * the page returned last;</li>
+ * <li><i>ranges</i>: a collection whose size is known in advance is split into <tt>$skip</tt>/<tt>$top</tt> ranges,
+ * up to <tt>lookAhead</tt> of them being requested concurrently; server-driven paging inside a range is followed
+ * transparently.</li>
+ * </ul>
+ * Pages are always returned in collection order. Requests are run by the configured
+ * {@link org.apache.olingo.client.api.Configuration#getExecutor() executor}.
+ * <br/>
+ * <b>Please don't forget to call the <tt>close()</tt> method when iteration is abandoned before the end.</b>
+ */
+public class ClientEntitySetPageIterator implements Iterator<ClientEntitySet> {
+
+  protected final ODataClient odataClient;
+
+  private final ExecutorService executor;
+
+  private final int lookAhead;
+
+  private final Iterator<URI> ranges;
+
+  private final LinkedList<Future<ClientEntitySet>> pending = new LinkedList<Future<ClientEntitySet>>();
+
+  private boolean chainEnded;
+
+  /**
+   * Page retrieved last in <i>next link</i> mode whose following page waits for room in the look-ahead.
+   */
+  private ClientEntitySet stalled;
+
+  /**
+   * Constructor for <i>next link</i> mode.
+   *
+   * @param odataClient client instance
+   * @param uri URI of the first page
+   * @param lookAhead maximum number of pages requested ahead of the page returned last; must be positive
+   */
+  public ClientEntitySetPageIterator(final ODataClient odataClient, final URI uri, final int lookAhead) {
+    this(odataClient, lookAhead, null);
+    scheduleChained(uri);
+  }
+
+  /**
+   * Constructor for <i>ranges</i> mode.
+   *
+   * @param odataClient client instance
+   * @param uri URI of the collection, without <tt>$skip</tt> and <tt>$top</tt>
+   * @param count number of entities in the collection, as returned by <tt>$count</tt>
+   * @param rangeSize number of entities requested per range; must be positive
+   * @param lookAhead maximum number of ranges requested concurrently; must be positive
+   */
+  public ClientEntitySetPageIterator(final ODataClient odataClient, final URI uri,
+      final long count, final int rangeSize, final int lookAhead) {
+
+    this(odataClient, lookAhead, buildRanges(odataClient, uri, count, rangeSize).iterator());
+    chainEnded = true;
+    fill();
+  }
+
+  private ClientEntitySetPageIterator(final ODataClient odataClient, final int lookAhead, final Iterator<URI> ranges) {
+    if (lookAhead < 1) {
+      throw new IllegalArgumentException("Look-ahead must be positive");
+    }
+    this.odataClient = odataClient;
+    this.executor = odataClient.getConfiguration().getExecutor();
+    this.lookAhead = lookAhead;
+    this.ranges = ranges;
+  }
+
+  private static List<URI> buildRanges(final ODataClient odataClient, final URI uri,
+      final long count, final int rangeSize) {
+
+    if (rangeSize < 1) {
+      throw new IllegalArgumentException("Range size must be positive");
+    }
+    final List<URI> result = new ArrayList<URI>();
+    for (long skip = 0; skip < count; skip += rangeSize) {
+      result.add(odataClient.newURIBuilder(uri.toASCIIString())
+          .skip((int) skip).top((int) Math.min(rangeSize, count - skip)).build());
+    }
+    return result.isEmpty() ? Collections.singletonList(uri) : result;
+  }
+
+  /**
+   * Retrieves a single page; invoked from the executor's threads.
+   * Subclasses can override this method in order to customize the request, e.g. by adding headers.
+   *
+   * @param uri page URI
+   * @return the page
+   */
+  protected ClientEntitySet fetch(final URI uri) {
+    return odataClient.getRetrieveRequestFactory().getEntitySetRequest(uri).execute().getBody();
+  }
+
+  private Future<ClientEntitySet> schedule(final URI uri) {
+    return executor.submit(new Callable<ClientEntitySet>() {
+      @Override
+      public ClientEntitySet call() throws Exception {
+        return fetch(uri);
+      }
+    });
+  }
+
+  /**
+   * Requests a page in <i>next link</i> mode; when it has been retrieved, the executor's thread goes on with the
+   * following page unless the look-ahead is exhausted.
+   */
+  private synchronized void scheduleChained(final URI uri) {
+    final FutureTask<ClientEntitySet> task = new FutureTask<ClientEntitySet>(new Callable<ClientEntitySet>() {
+      @Override
+      public ClientEntitySet call() throws Exception {
+        final ClientEntitySet page = fetch(uri);
+        chain(page);
+        return page;
+      }
+    });
+    pending.add(task);
+    executor.execute(task);
+  }
+
+  private synchronized void chain(final ClientEntitySet page) {
+    if (chainEnded) {
+      return;
+    }
+    if (page.getNext() == null) {
+      chainEnded = true;
+    } else if (pending.size() < lookAhead) {
+      scheduleChained(page.getNext());
+    } else {
+      stalled = page;
+    }
+  }
+
+  private ClientEntitySet await(final Future<ClientEntitySet> future) {
+    try {
+      return future.get();
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException(e);
+    } catch (final ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new IllegalStateException(e.getCause());
+    }
+  }
+
+  /**
+   * Requests further pages as long as the look-ahead allows it and the URIs of those pages are known.
+   */
+  private synchronized void fill() {
+    if (ranges == null) {
+      if (stalled != null && pending.size() < lookAhead) {
+        final URI next = stalled.getNext();
+        stalled = null;
+        scheduleChained(next);
+      }
+    } else {
+      while (pending.size() < lookAhead && ranges.hasNext()) {
+        pending.add(schedule(ranges.next()));
+      }
+    }
+  }
+
+  @Override
+  public synchronized boolean hasNext() {
+    return !pending.isEmpty();
+  }
+
+  @Override
+  public ClientEntitySet next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException("No more pages");
+    }
+
+    final Future<ClientEntitySet> future;
+    synchronized (this) {
+      future = pending.poll();
+    }
+    // the lock must not be held while waiting, as the page's task needs it to chain the following page
+    final ClientEntitySet page = await(future);
+    if (ranges != null && page.getNext() != null) {
+      // server-driven paging inside a range: its continuation comes before any further range
+      synchronized (this) {
+        pending.addFirst(schedule(page.getNext()));
+      }
+    }
+    fill();
+
+    return page;
+  }
+
+  /**
+   * Unsupported operation.
+   */
+  @Override
+  public void remove() {
+    throw new UnsupportedOperationException("Operation not supported");
+  }
+
+  /**
+   * Returns an iterator over the entities of all remaining pages. Further pages keep being requested in the
+   * background while the returned iterator is consumed.
+   *
+   * @return entity iterator
+   */
+  public Iterator<ClientEntity> entities() {
+    return new Iterator<ClientEntity>() {
+
+      private Iterator<ClientEntity> current = Collections.<ClientEntity> emptyList().iterator();
+
+      @Override
+      public boolean hasNext() {
+        while (!current.hasNext() && ClientEntitySetPageIterator.this.hasNext()) {
+          current = ClientEntitySetPageIterator.this.next().getEntities().iterator();
+        }
+        fill();
+        return current.hasNext();
+      }
+
+      @Override
+      public ClientEntity next() {
+        if (hasNext()) {
+          return current.next();
+        }
+        throw new NoSuchElementException("No entity found");
+      }
+
+      @Override
+      public void remove() {
+        throw new UnsupportedOperationException("Operation not supported");
+      }
+    };
+  }
+
+  /**
+   * Cancels all pending page requests.
+   */
+  public synchronized void close() {
+    for (Future<ClientEntitySet> future : pending) {
+      future.cancel(true);
+    }
+    pending.clear();
+    chainEnded = true;
+    stalled = null;
+  }
+}
@@ -60,6 +60,14 @@ public class ConfigurationImpl implements Configuration {
 
   private static final String CONTINUE_ON_ERROR = "continueOnError";
 
+  private static final String PREFETCH_PAGES = "prefetchPages";
+
+  private static final String MAX_CHANGESET_SIZE = "maxChangesetSize";
+
+  private static final String MAX_CONCURRENT_BATCHES = "maxConcurrentBatches";
+
+  private static final String BATCH_RESPONSE_TIMEOUT = "batchResponseTimeout";
+
   public static final int DEFAULT_BUFFER_SIZE = 4 * 1024 * 1024;  // 4MB
 
   private final Map<String, Object> CONF = new HashMap<String, Object>();
@@ -235,6 +243,58 @@ public class ConfigurationImpl implements Configuration {
     setProperty(CONTINUE_ON_ERROR, value);
   }
 
+  @Override
+  public int getMaxChangesetSize() {
+    return (Integer) getProperty(MAX_CHANGESET_SIZE, 0);
+  }
+
+  @Override
+  public void setMaxChangesetSize(final int size) {
+    if (size < 0) {
+      throw new IllegalArgumentException("Maximum change set size must not be negative");
+    }
+    setProperty(MAX_CHANGESET_SIZE, size);
+  }
+
+  @Override
+  public int getMaxConcurrentBatches() {
+    return (Integer) getProperty(MAX_CONCURRENT_BATCHES, 1);
+  }
+
+  @Override
+  public void setMaxConcurrentBatches(final int batches) {
+    if (batches < 1) {
+      throw new IllegalArgumentException("Maximum number of concurrent batches must be positive");
+    }
+    setProperty(MAX_CONCURRENT_BATCHES, batches);
+  }
+
+  @Override
+  public long getBatchResponseTimeout() {
+    return (Long) getProperty(BATCH_RESPONSE_TIMEOUT, 30L);
+  }
+
+  @Override
+  public void setBatchResponseTimeout(final long seconds) {
+    if (seconds < 1) {
+      throw new IllegalArgumentException("Batch response timeout must be positive");
+    }
+    setProperty(BATCH_RESPONSE_TIMEOUT, seconds);
+  }
+
+  @Override
+  public int getPrefetchPages() {
+    return (Integer) getProperty(PREFETCH_PAGES, 0);
+  }
+
+  @Override
+  public void setPrefetchPages(final int pages) {
+    if (pages < 0) {
+      throw new IllegalArgumentException("Number of prefetched pages must not be negative");
+    }
+    setProperty(PREFETCH_PAGES, pages);
+  }
+
   @Override
   public ExecutorService getExecutor() {
     return executor;
@@ -169,7 +169,7 @@ public abstract class AbstractODataStreamManager<T extends ODataResponse> extend
 
       @Override
       public T get() throws InterruptedException, ExecutionException {
-        return getResponse(0, TimeUnit.SECONDS);
+        return getResponse(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
       }
 
       @Override
@@ -45,6 +45,8 @@ public abstract class AbstractBatchManager extends AbstractODataStreamManager<OD
    */
   protected ODataBatchRequestItem currentItem = null;
 
+  private boolean finalized = false;
+
   /**
    * batch request reference.
    */
@@ -107,10 +109,22 @@ public abstract class AbstractBatchManager extends AbstractODataStreamManager<OD
     }
   }
 
+  /**
+   * Closes the current item, streams the close delimiter and closes the payload stream; subsequent invocations have
+   * no effect.
+   */
+  @Override
+  public void finalizeBody() {
+    if (!finalized) {
+      finalized = true;
+      closeCurrentItem();
+      streamCloseDelimiter();
+      super.finalizeBody();
+    }
+  }
+
   @Override
   protected ODataBatchResponse getResponse(final long timeout, final TimeUnit unit) {
-    closeCurrentItem();
-    streamCloseDelimiter();
     finalizeBody();
     return getResponseInstance(timeout, unit);
   }
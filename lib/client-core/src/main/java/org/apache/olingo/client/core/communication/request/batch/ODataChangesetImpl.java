@@ -92,6 +92,14 @@ public class ODataChangesetImpl extends AbstractODataBatchRequestItem
    */
   @Override
   public ODataChangeset addRequest(final ODataBatchableRequest request) {
+    return addRequest(request, contentId + 1);
+  }
+
+  /**
+   * {@inheritDoc }
+   */
+  @Override
+  public ODataChangeset addRequest(final ODataBatchableRequest request, final int contentId) {
     if (!isOpen()) {
       throw new IllegalStateException("Current batch item is closed");
     }
@@ -100,6 +108,11 @@ public class ODataChangesetImpl extends AbstractODataBatchRequestItem
       throw new IllegalArgumentException("Invalid request. GET method not allowed in changeset");
     }
 
+    if (contentId <= this.contentId) {
+      throw new IllegalArgumentException("Invalid Content-ID " + contentId
+          + ": it must be greater than " + this.contentId);
+    }
+
     if (!hasStreamedSomething) {
       stream((HttpHeader.CONTENT_TYPE + ": "
           + ContentType.MULTIPART_MIXED + ";boundary=" + boundary).getBytes(DEFAULT_CHARSET));
@@ -110,7 +123,7 @@ public class ODataChangesetImpl extends AbstractODataBatchRequestItem
       hasStreamedSomething = true;
     }
 
-    contentId++;
+    this.contentId = contentId;
 
     // preamble
     newLine();
@@ -0,0 +1,165 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.client.core.domain;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.olingo.client.api.ODataClient;
+import org.apache.olingo.client.api.domain.ClientEntity;
+import org.apache.olingo.client.api.domain.ClientEntitySet;
+import org.apache.olingo.client.api.domain.ClientEntitySetPageIterator;
+import org.apache.olingo.client.core.ODataClientFactory;
+import org.apache.olingo.commons.api.edm.FullQualifiedName;
+import org.junit.Test;
+
+public class ClientEntitySetPageIteratorTest {
+
+  private static final String SERVICE = "http://localhost/service/ESAllPrim";
+
+  private static final FullQualifiedName TYPE = new FullQualifiedName("Namespace", "ETAllPrim");
+
+  private final ODataClient client = ODataClientFactory.getClient();
+
+  private final List<String> requested = Collections.synchronizedList(new ArrayList<String>());
+
+  /** Builds a page of <code>size</code> entities with IDs starting at <code>first</code>. */
+  private ClientEntitySet page(final int first, final int size, final URI next) {
+    final ClientEntitySet page = client.getObjectFactory().newEntitySet(next);
+    for (int i = first; i < first + size; i++) {
+      final ClientEntity entity = client.getObjectFactory().newEntity(TYPE);
+      entity.getProperties().add(client.getObjectFactory().newPrimitiveProperty("PropertyInt32",
+          client.getObjectFactory().newPrimitiveValueBuilder().buildInt32(i)));
+      page.getEntities().add(entity);
+    }
+    return page;
+  }
+
+  private void assertSequence(final Iterator<ClientEntity> entities, final int count) {
+    for (int i = 0; i < count; i++) {
+      assertTrue(entities.hasNext());
+      assertEquals(i, entities.next().getProperty("PropertyInt32").getPrimitiveValue().toValue());
+    }
+    assertFalse(entities.hasNext());
+  }
+
+  @Test
+  public void nextLinks() throws Exception {
+    final ClientEntitySetPageIterator iterator =
+        new ClientEntitySetPageIterator(client, URI.create(SERVICE + "?page=0"), 2) {
+          @Override
+          protected ClientEntitySet fetch(final URI uri) {
+            requested.add(uri.toASCIIString());
+            final int page = Integer.parseInt(uri.getQuery().substring("page=".length()));
+            return page(page * 3, 3, page < 3 ? URI.create(SERVICE + "?page=" + (page + 1)) : null);
+          }
+        };
+
+    assertSequence(iterator.entities(), 12);
+    assertFalse(iterator.hasNext());
+    assertEquals(4, requested.size());
+  }
+
+  @Test
+  public void nextLinksPrefetchedInBackground() throws Exception {
+    final ClientEntitySetPageIterator iterator =
+        new ClientEntitySetPageIterator(client, URI.create(SERVICE + "?page=0"), 3) {
+          @Override
+          protected ClientEntitySet fetch(final URI uri) {
+            requested.add(uri.toASCIIString());
+            final int page = Integer.parseInt(uri.getQuery().substring("page=".length()));
+            return page(page * 3, 3, URI.create(SERVICE + "?page=" + (page + 1)));
+          }
+        };
+
+    // no page has been consumed, yet the chain is followed up to the look-ahead
+    awaitRequests(3);
+    Thread.sleep(100);
+    assertEquals(3, requested.size());
+
+    iterator.next();
+    awaitRequests(4);
+    Thread.sleep(100);
+    assertEquals(4, requested.size());
+
+    iterator.close();
+    assertFalse(iterator.hasNext());
+  }
+
+  private void awaitRequests(final int count) throws InterruptedException {
+    final long end = System.currentTimeMillis() + 10000;
+    while (requested.size() < count && System.currentTimeMillis() < end) {
+      Thread.sleep(10);
+    }
+    assertEquals(count, requested.size());
+  }
+
+  @Test
+  public void ranges() throws Exception {
+    final Pattern query = Pattern.compile("\\$skip=(\\d+)&\\$top=(\\d+)");
+    final ClientEntitySetPageIterator iterator =
+        new ClientEntitySetPageIterator(client, URI.create(SERVICE), 10, 4, 3) {
+          @Override
+          protected ClientEntitySet fetch(final URI uri) {
+            requested.add(uri.toASCIIString());
+            if (uri.getQuery().startsWith("continue=")) {
+              return page(Integer.parseInt(uri.getQuery().substring("continue=".length())), 2, null);
+            }
+            final Matcher matcher = query.matcher(uri.getQuery());
+            assertTrue(matcher.find());
+            final int skip = Integer.parseInt(matcher.group(1));
+            final int top = Integer.parseInt(matcher.group(2));
+            // simulate server-driven paging with a page size of two entities
+            return top > 2
+                ? page(skip, 2, URI.create(SERVICE + "?continue=" + (skip + 2)))
+                : page(skip, top, null);
+          }
+        };
+
+    assertSequence(iterator.entities(), 10);
+    assertEquals(5, requested.size());
+  }
+
+  @Test
+  public void emptyCollection() throws Exception {
+    final ClientEntitySetPageIterator iterator =
+        new ClientEntitySetPageIterator(client, URI.create(SERVICE), 0, 4, 3) {
+          @Override
+          protected ClientEntitySet fetch(final URI uri) {
+            return page(0, 0, null);
+          }
+        };
+
+    assertFalse(iterator.entities().hasNext());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void invalidLookAhead() {
+    new ClientEntitySetPageIterator(client, URI.create(SERVICE), 0);
+  }
+}
@@ -0,0 +1,526 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.commons.api.data;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import org.apache.olingo.commons.api.edm.EdmPrimitiveTypeKind;
+
+/**
+ * Entity collection that stores primitive property values column by column in typed arrays
+ * instead of one {@link Entity} with one {@link Property} per value.
+ * <br/>Integral values are held in <code>int[]</code> or <code>long[]</code>, floating-point values
+ * in <code>double[]</code>, strings dictionary-encoded, and <code>null</code> values in a bitmap per column;
+ * only values of other types are kept as objects.
+ * A processor can thus hand over a large tabular result (e.g., from a database cursor) with a fraction
+ * of the heap needed by an {@link EntityCollection}.
+ * <br/>Serializers may read the columns directly; all other consumers see the rows
+ * as entities which are created one by one during iteration.
+ * <br/>Usage:
+ * <pre>
+ * ColumnarEntityCollection collection = new ColumnarEntityCollection("Namespace.EntityType");
+ * final int id = collection.addColumn("ID", EdmPrimitiveTypeKind.Int32);
+ * final int name = collection.addColumn("Name", EdmPrimitiveTypeKind.String);
+ * while (resultSet.next()) {
+ *   final int row = collection.addRow();
+ *   collection.setInt(row, id, resultSet.getInt(1));
+ *   collection.setString(row, name, resultSet.getString(2));
+ * }
+ * </pre>
+ */
+public class ColumnarEntityCollection extends AbstractEntityCollection {
+
+  /** Storage of the values of a column. */
+  public enum ColumnType {
+    /** values in a <code>boolean[]</code> */
+    BOOLEAN,
+    /** values in an <code>int[]</code> */
+    INT,
+    /** values in a <code>long[]</code> */
+    LONG,
+    /** values in a <code>double[]</code> */
+    DOUBLE,
+    /** dictionary-encoded string values */
+    STRING,
+    /** values in an <code>Object[]</code> */
+    OBJECT
+  }
+
+  private static final int INITIAL_CAPACITY = 16;
+
+  private final String entityType;
+  private final List<Column> columns = new ArrayList<Column>();
+  private final Map<String, Integer> columnIndex = new HashMap<String, Integer>();
+  private int rowCount;
+  private int capacity;
+  private Integer count;
+  private URI next;
+  private URI deltaLink;
+  private final List<Operation> operations = new ArrayList<Operation>();
+
+  /**
+   * Creates an empty collection.
+   * @param entityType the full-qualified name of the type of the entities, may be <code>null</code>
+   */
+  public ColumnarEntityCollection(final String entityType) {
+    this.entityType = entityType;
+  }
+
+  /**
+   * Gets the full-qualified name of the type of the entities.
+   * @return the type name or <code>null</code>
+   */
+  public String getEntityType() {
+    return entityType;
+  }
+
+  /**
+   * Adds a column for a primitive property; the values of existing rows are <code>null</code>.
+   * @param name the name of the property
+   * @param kind the primitive type of the property
+   * @return the index of the new column
+   */
+  public int addColumn(final String name, final EdmPrimitiveTypeKind kind) {
+    if (name == null || kind == null) {
+      throw new IllegalArgumentException("Column name and type must not be null.");
+    }
+    if (columnIndex.containsKey(name)) {
+      throw new IllegalArgumentException("Column '" + name + "' already exists.");
+    }
+    final Column column = new Column(name, kind);
+    column.ensureCapacity(capacity);
+    columns.add(column);
+    columnIndex.put(name, columns.size() - 1);
+    return columns.size() - 1;
+  }
+
+  /**
+   * Gets the number of columns.
+   * @return the number of columns
+   */
+  public int getColumnCount() {
+    return columns.size();
+  }
+
+  /**
+   * Gets the index of the column for the property with the given name.
+   * @param name the name of the property
+   * @return the column index or -1 if there is no such column
+   */
+  public int getColumnIndex(final String name) {
+    final Integer index = columnIndex.get(name);
+    return index == null ? -1 : index;
+  }
+
+  public String getColumnName(final int column) {
+    return columns.get(column).name;
+  }
+
+  public EdmPrimitiveTypeKind getColumnKind(final int column) {
+    return columns.get(column).kind;
+  }
+
+  public ColumnType getColumnType(final int column) {
+    return columns.get(column).type;
+  }
+
+  /**
+   * Adds a row; all its values are <code>null</code> until they are set.
+   * @return the index of the new row
+   */
+  public int addRow() {
+    if (rowCount == capacity) {
+      capacity = capacity == 0 ? INITIAL_CAPACITY : capacity * 2;
+      for (final Column column : columns) {
+        column.ensureCapacity(capacity);
+      }
+    }
+    return rowCount++;
+  }
+
+  /**
+   * Gets the number of rows.
+   * @return the number of rows
+   */
+  public int getRowCount() {
+    return rowCount;
+  }
+
+  public boolean isNull(final int row, final int column) {
+    return !columns.get(column).isSet(checkRow(row));
+  }
+
+  public void setNull(final int row, final int column) {
+    final Column col = columns.get(column);
+    checkRow(row);
+    col.clear(row);
+    if (col.objects != null) {
+      col.objects[row] = null;
+    }
+  }
+
+  public void setBoolean(final int row, final int column, final boolean value) {
+    checkType(column, ColumnType.BOOLEAN).booleans[checkRow(row)] = value;
+    columns.get(column).set(row);
+  }
+
+  public boolean getBoolean(final int row, final int column) {
+    return checkType(column, ColumnType.BOOLEAN).booleans[checkRow(row)];
+  }
+
+  /** Sets an integral value; for {@link ColumnType#LONG} columns it is widened. */
+  public void setInt(final int row, final int column, final int value) {
+    final Column col = columns.get(column);
+    if (col.type == ColumnType.LONG) {
+      col.longs[checkRow(row)] = value;
+    } else {
+      checkType(column, ColumnType.INT).ints[checkRow(row)] = value;
+    }
+    col.set(row);
+  }
+
+  public int getInt(final int row, final int column) {
+    return checkType(column, ColumnType.INT).ints[checkRow(row)];
+  }
+
+  public void setLong(final int row, final int column, final long value) {
+    checkType(column, ColumnType.LONG).longs[checkRow(row)] = value;
+    columns.get(column).set(row);
+  }
+
+  /** Gets an integral value of an {@link ColumnType#INT} or {@link ColumnType#LONG} column. */
+  public long getLong(final int row, final int column) {
+    final Column col = columns.get(column);
+    return col.type == ColumnType.INT ? col.ints[checkRow(row)]
+        : checkType(column, ColumnType.LONG).longs[checkRow(row)];
+  }
+
+  public void setDouble(final int row, final int column, final double value) {
+    checkType(column, ColumnType.DOUBLE).doubles[checkRow(row)] = value;
+    columns.get(column).set(row);
+  }
+
+  public double getDouble(final int row, final int column) {
+    return checkType(column, ColumnType.DOUBLE).doubles[checkRow(row)];
+  }
+
+  /** Sets a string value; a <code>null</code> value sets the value to <code>null</code>. */
+  public void setString(final int row, final int column, final String value) {
+    final Column col = checkType(column, ColumnType.STRING);
+    checkRow(row);
+    if (value == null) {
+      col.clear(row);
+    } else {
+      col.ints[row] = col.encode(value);
+      col.set(row);
+    }
+  }
+
+  public String getString(final int row, final int column) {
+    final Column col = checkType(column, ColumnType.STRING);
+    return col.isSet(checkRow(row)) ? col.dictionary.get(col.ints[row]) : null;
+  }
+
+  /**
+   * Sets a value of any column type; a <code>null</code> value sets the value to <code>null</code>.
+   * @throws IllegalArgumentException if the value does not fit into the column
+   */
+  public void setValue(final int row, final int column, final Object value) {
+    if (value == null) {
+      setNull(row, column);
+      return;
+    }
+    final Column col = columns.get(column);
+    switch (col.type) {
+    case BOOLEAN:
+      setBoolean(row, column, (Boolean) checkClass(col, value, Boolean.class));
+      break;
+    case INT:
+      if (!(value instanceof Integer || value instanceof Short || value instanceof Byte)) {
+        throw wrongValue(col, value);
+      }
+      setInt(row, column, ((Number) value).intValue());
+      break;
+    case LONG:
+      if (!(value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte)) {
+        throw wrongValue(col, value);
+      }
+      setLong(row, column, ((Number) value).longValue());
+      break;
+    case DOUBLE:
+      if (!(value instanceof Double || value instanceof Float)) {
+        throw wrongValue(col, value);
+      }
+      setDouble(row, column, ((Number) value).doubleValue());
+      break;
+    case STRING:
+      setString(row, column, (String) checkClass(col, value, String.class));
+      break;
+    default:
+      col.objects[checkRow(row)] = value;
+      col.set(row);
+    }
+  }
+
+  /**
+   * Gets a value of any column type; primitive values are boxed.
+   * @return the value or <code>null</code>
+   */
+  public Object getValue(final int row, final int column) {
+    final Column col = columns.get(column);
+    if (!col.isSet(checkRow(row))) {
+      return null;
+    }
+    switch (col.type) {
+    case BOOLEAN:
+      return col.booleans[row];
+    case INT:
+      return boxInt(col.kind, col.ints[row]);
+    case LONG:
+      return col.longs[row];
+    case DOUBLE:
+      if (col.kind == EdmPrimitiveTypeKind.Single) {
+        return Float.valueOf((float) col.doubles[row]);
+      }
+      return col.doubles[row];
+    case STRING:
+      return col.dictionary.get(col.ints[row]);
+    default:
+      return col.objects[row];
+    }
+  }
+
+  /** Boxes an integral value into the default value class of its primitive type. */
+  private static Object boxInt(final EdmPrimitiveTypeKind kind, final int value) {
+    if (kind == EdmPrimitiveTypeKind.Int16 || kind == EdmPrimitiveTypeKind.Byte) {
+      return Short.valueOf((short) value);
+    } else if (kind == EdmPrimitiveTypeKind.SByte) {
+      return Byte.valueOf((byte) value);
+    } else {
+      return Integer.valueOf(value);
+    }
+  }
+
+  /**
+   * Creates an entity with the values of the given row.
+   * @param row the index of the row
+   * @return a new entity
+   */
+  public Entity getEntity(final int row) {
+    checkRow(row);
+    Entity entity = new Entity();
+    entity.setType(entityType);
+    for (int column = 0; column < columns.size(); column++) {
+      final Column col = columns.get(column);
+      entity.addProperty(new Property(col.typeName, col.name, ValueType.PRIMITIVE, getValue(row, column)));
+    }
+    return entity;
+  }
+
+  public void setCount(final Integer count) {
+    this.count = count;
+  }
+
+  @Override
+  public Integer getCount() {
+    return count;
+  }
+
+  public void setNext(final URI next) {
+    this.next = next;
+  }
+
+  @Override
+  public URI getNext() {
+    return next;
+  }
+
+  public void setDeltaLink(final URI deltaLink) {
+    this.deltaLink = deltaLink;
+  }
+
+  @Override
+  public URI getDeltaLink() {
+    return deltaLink;
+  }
+
+  @Override
+  public List<Operation> getOperations() {
+    return operations;
+  }
+
+  /**
+   * Iterates over the rows as entities; each entity is created when it is requested.
+   */
+  @Override
+  public Iterator<Entity> iterator() {
+    return new Iterator<Entity>() {
+      private int row = 0;
+
+      @Override
+      public boolean hasNext() {
+        return row < rowCount;
+      }
+
+      @Override
+      public Entity next() {
+        if (row >= rowCount) {
+          throw new NoSuchElementException();
+        }
+        return getEntity(row++);
+      }
+
+      @Override
+      public void remove() {
+        throw new UnsupportedOperationException();
+      }
+    };
+  }
+
+  private int checkRow(final int row) {
+    if (row < 0 || row >= rowCount) {
+      throw new IndexOutOfBoundsException("Row " + row + " does not exist.");
+    }
+    return row;
+  }
+
+  private Column checkType(final int column, final ColumnType type) {
+    final Column col = columns.get(column);
+    if (col.type != type) {
+      throw new IllegalArgumentException("Column '" + col.name + "' does not hold values of type " + type + ".");
+    }
+    return col;
+  }
+
+  private static Object checkClass(final Column column, final Object value, final Class<?> valueClass) {
+    if (!valueClass.isInstance(value)) {
+      throw wrongValue(column, value);
+    }
+    return value;
+  }
+
+  private static IllegalArgumentException wrongValue(final Column column, final Object value) {
+    return new IllegalArgumentException("Value of class " + value.getClass().getName()
+        + " does not fit into column '" + column.name + "'.");
+  }
+
+  /** Values of one column. */
+  private static final class Column {
+    private final String name;
+    private final EdmPrimitiveTypeKind kind;
+    private final String typeName;
+    private final ColumnType type;
+    private long[] present = new long[0];
+    private boolean[] booleans;
+    /** the values for {@link ColumnType#INT}, the dictionary codes for {@link ColumnType#STRING} */
+    private int[] ints;
+    private long[] longs;
+    private double[] doubles;
+    private Object[] objects;
+    private List<String> dictionary;
+    private Map<String, Integer> codes;
+
+    private Column(final String name, final EdmPrimitiveTypeKind kind) {
+      this.name = name;
+      this.kind = kind;
+      typeName = kind.getFullQualifiedName().getFullQualifiedNameAsString();
+      type = getColumnType(kind);
+      booleans = type == ColumnType.BOOLEAN ? new boolean[0] : null;
+      ints = type == ColumnType.INT || type == ColumnType.STRING ? new int[0] : null;
+      longs = type == ColumnType.LONG ? new long[0] : null;
+      doubles = type == ColumnType.DOUBLE ? new double[0] : null;
+      objects = type == ColumnType.OBJECT ? new Object[0] : null;
+      if (type == ColumnType.STRING) {
+        dictionary = new ArrayList<String>();
+        codes = new HashMap<String, Integer>();
+      }
+    }
+
+    private static ColumnType getColumnType(final EdmPrimitiveTypeKind kind) {
+      switch (kind) {
+      case Boolean:
+        return ColumnType.BOOLEAN;
+      case Byte:
+      case SByte:
+      case Int16:
+      case Int32:
+        return ColumnType.INT;
+      case Int64:
+        return ColumnType.LONG;
+      case Single:
+      case Double:
+        return ColumnType.DOUBLE;
+      case String:
+        return ColumnType.STRING;
+      default:
+        return ColumnType.OBJECT;
+      }
+    }
+
+    private void ensureCapacity(final int capacity) {
+      if (present.length * 64 < capacity) {
+        present = Arrays.copyOf(present, (capacity + 63) / 64);
+      }
+      if (booleans != null && booleans.length < capacity) {
+        booleans = Arrays.copyOf(booleans, capacity);
+      }
+      if (ints != null && ints.length < capacity) {
+        ints = Arrays.copyOf(ints, capacity);
+      }
+      if (longs != null && longs.length < capacity) {
+        longs = Arrays.copyOf(longs, capacity);
+      }
+      if (doubles != null && doubles.length < capacity) {
+        doubles = Arrays.copyOf(doubles, capacity);
+      }
+      if (objects != null && objects.length < capacity) {
+        objects = Arrays.copyOf(objects, capacity);
+      }
+    }
+
+    private boolean isSet(final int row) {
+      return (present[row >>> 6] & 1L << row) != 0;
+    }
+
+    private void set(final int row) {
+      present[row >>> 6] |= 1L << row;
+    }
+
+    private void clear(final int row) {
+      present[row >>> 6] &= ~(1L << row);
+    }
+
+    private int encode(final String value) {
+      Integer code = codes.get(value);
+      if (code == null) {
+        code = dictionary.size();
+        dictionary.add(value);
+        codes.put(value, code);
+      }
+      return code;
+    }
+  }
+}
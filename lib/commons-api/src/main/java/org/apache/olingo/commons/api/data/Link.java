@@ -33,6 +33,7 @@ public class Link extends Annotatable {
   private String mediaETag;
   private Entity entity;
   private EntityCollection entitySet;
+  private EntityIterator entityIterator;
   private String bindingLink;
   private List<String> bindingLinks = new ArrayList<String>();
 
@@ -162,6 +163,30 @@ public class Link extends Annotatable {
     this.entitySet = entitySet;
   }
 
+  /**
+   * Gets in-line entity iterator.
+   * It is used for expanded entities that are delivered one by one
+   * if no in-line entity set has been set.
+   *
+   * @return in-line entity iterator.
+   */
+  public EntityIterator getInlineEntityIterator() {
+    return entityIterator;
+  }
+
+  /**
+   * Sets in-line entity iterator.
+   * The iterator is consumed when the link is written, so it should not read
+   * any entity before its first <code>hasNext</code> call; that way a streamed
+   * collection with expanded navigation properties needs memory for only
+   * one parent entity and its expanded entities at a time.
+   *
+   * @param entityIterator entity iterator.
+   */
+  public void setInlineEntityIterator(final EntityIterator entityIterator) {
+    this.entityIterator = entityIterator;
+  }
+
   /**
    * If this is a "toOne" relationship this method delivers the binding link or <tt>null</tt> if not set.
    * @return String the binding link.
@@ -212,6 +237,7 @@ public class Link extends Annotatable {
         && (mediaETag == null ? other.mediaETag == null : mediaETag.equals(other.mediaETag))
         && (entity == null ? other.entity == null : entity.equals(other.entity))
         && (entitySet == null ? other.entitySet == null : entitySet.equals(other.entitySet))
+        && (entityIterator == null ? other.entityIterator == null : entityIterator.equals(other.entityIterator))
         && (bindingLink == null ? other.bindingLink == null : bindingLink.equals(other.bindingLink))
         && bindingLinks.equals(other.bindingLinks);
   }
@@ -226,6 +252,7 @@ public class Link extends Annotatable {
     result = 31 * result + (mediaETag == null ? 0 : mediaETag.hashCode());
     result = 31 * result + (entity == null ? 0 : entity.hashCode());
     result = 31 * result + (entitySet == null ? 0 : entitySet.hashCode());
+    result = 31 * result + (entityIterator == null ? 0 : entityIterator.hashCode());
     result = 31 * result + (bindingLink == null ? 0 : bindingLink.hashCode());
     result = 31 * result + bindingLinks.hashCode();
     return result;
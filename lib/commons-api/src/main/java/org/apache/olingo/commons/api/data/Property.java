@@ -68,6 +68,7 @@ public class Property extends Valuable {
 
   /**
    * Set name of property.
+   * <br/>Properties contained in a {@link PropertyList} must not be renamed, as its index does not notice it.
    * @param name name of property
    */
   public void setName(final String name) {
@@ -0,0 +1,121 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.commons.api.data;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * List of properties with fast lookup by property name.
+ * <br/>Small lists are searched linearly; above a threshold an index from names to positions
+ * is built on the first lookup and rebuilt lazily after structural modifications of the list,
+ * so wide entities can be accessed property by property without quadratic cost.
+ * The list itself behaves exactly like an {@link ArrayList}.
+ * <br/>Properties must not be renamed while they are in such a list, and must not be replaced through a
+ * {@link #subList(int, int) sub-list}; otherwise a lookup of their new name may not find them.
+ * Replace them with {@link #set(int, Property)} or remove them and add them again instead.
+ */
+public class PropertyList extends ArrayList<Property> {
+
+  private static final long serialVersionUID = 3410734386880117425L;
+
+  /** Lists up to this size are searched linearly. */
+  private static final int INDEX_THRESHOLD = 8;
+
+  private transient Map<String, Integer> index;
+  private transient int indexModCount;
+
+  /**
+   * Gets the first property with the given name.
+   * @param name the name of the property
+   * @return the property or <code>null</code> if there is no such property
+   */
+  public Property getProperty(final String name) {
+    if (size() <= INDEX_THRESHOLD) {
+      return scan(name);
+    }
+    if (index == null || indexModCount != modCount) {
+      buildIndex();
+    }
+    Integer position = index.get(name);
+    if (position == null) {
+      return null;
+    }
+    Property property = get(position);
+    if (!name.equals(property.getName())) {
+      // The property has been renamed in place.
+      buildIndex();
+      position = index.get(name);
+      property = position == null ? null : get(position);
+    }
+    return property;
+  }
+
+  /**
+   * Replaces the property at the given position; the replacement is reflected in the index.
+   */
+  @Override
+  public Property set(final int position, final Property property) {
+    index = null;
+    return super.set(position, property);
+  }
+
+  /**
+   * Finds the first property with the given name in a list of properties;
+   * uses the index of a {@link PropertyList}.
+   * @param properties the properties
+   * @param name the name of the property
+   * @return the property or <code>null</code> if there is no such property
+   */
+  public static Property find(final List<Property> properties, final String name) {
+    if (properties instanceof PropertyList) {
+      return ((PropertyList) properties).getProperty(name);
+    }
+    for (final Property property : properties) {
+      if (name.equals(property.getName())) {
+        return property;
+      }
+    }
+    return null;
+  }
+
+  private Property scan(final String name) {
+    for (int i = 0; i < size(); i++) {
+      final Property property = get(i);
+      if (name.equals(property.getName())) {
+        return property;
+      }
+    }
+    return null;
+  }
+
+  private void buildIndex() {
+    Map<String, Integer> newIndex = new HashMap<String, Integer>(size() * 2);
+    for (int i = size() - 1; i >= 0; i--) {
+      final String name = get(i).getName();
+      if (name != null) {
+        newIndex.put(name, i);
+      }
+    }
+    index = newIndex;
+    indexModCount = modCount;
+  }
+}
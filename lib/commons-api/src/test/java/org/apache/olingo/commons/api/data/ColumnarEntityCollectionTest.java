@@ -0,0 +1,157 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.commons.api.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.math.BigDecimal;
+import java.util.Iterator;
+
+import org.apache.olingo.commons.api.edm.EdmPrimitiveTypeKind;
+import org.junit.Test;
+
+public class ColumnarEntityCollectionTest {
+
+  @Test
+  public void columns() {
+    ColumnarEntityCollection collection = new ColumnarEntityCollection("Namespace.Type");
+    assertEquals(0, collection.addColumn("Int16", EdmPrimitiveTypeKind.Int16));
+    assertEquals(1, collection.addColumn("Int64", EdmPrimitiveTypeKind.Int64));
+    assertEquals(2, collection.addColumn("Double", EdmPrimitiveTypeKind.Double));
+    assertEquals(3, collection.addColumn("Boolean", EdmPrimitiveTypeKind.Boolean));
+    assertEquals(4, collection.addColumn("String", EdmPrimitiveTypeKind.String));
+    assertEquals(5, collection.addColumn("Decimal", EdmPrimitiveTypeKind.Decimal));
+    assertEquals(6, collection.getColumnCount());
+    assertEquals(4, collection.getColumnIndex("String"));
+    assertEquals(-1, collection.getColumnIndex("Unknown"));
+    assertEquals(ColumnarEntityCollection.ColumnType.INT, collection.getColumnType(0));
+    assertEquals(ColumnarEntityCollection.ColumnType.LONG, collection.getColumnType(1));
+    assertEquals(ColumnarEntityCollection.ColumnType.DOUBLE, collection.getColumnType(2));
+    assertEquals(ColumnarEntityCollection.ColumnType.BOOLEAN, collection.getColumnType(3));
+    assertEquals(ColumnarEntityCollection.ColumnType.STRING, collection.getColumnType(4));
+    assertEquals(ColumnarEntityCollection.ColumnType.OBJECT, collection.getColumnType(5));
+    assertEquals(EdmPrimitiveTypeKind.Decimal, collection.getColumnKind(5));
+
+    try {
+      collection.addColumn("String", EdmPrimitiveTypeKind.Guid);
+      fail("Expected IllegalArgumentException");
+    } catch (final IllegalArgumentException e) {
+      assertTrue(e.getMessage().contains("String"));
+    }
+  }
+
+  @Test
+  public void values() {
+    ColumnarEntityCollection collection = new ColumnarEntityCollection(null);
+    final int int16 = collection.addColumn("Int16", EdmPrimitiveTypeKind.Int16);
+    final int int64 = collection.addColumn("Int64", EdmPrimitiveTypeKind.Int64);
+    final int string = collection.addColumn("String", EdmPrimitiveTypeKind.String);
+    final int decimal = collection.addColumn("Decimal", EdmPrimitiveTypeKind.Decimal);
+    for (int i = 0; i < 100; i++) {
+      final int row = collection.addRow();
+      assertEquals(i, row);
+      collection.setInt(row, int16, i);
+      collection.setInt(row, int64, i);
+      if (i % 3 != 0) {
+        collection.setString(row, string, i % 2 == 0 ? "even" : "odd");
+      }
+    }
+    collection.setValue(99, decimal, BigDecimal.TEN);
+    collection.setValue(98, int64, Long.MAX_VALUE);
+
+    assertEquals(100, collection.getRowCount());
+    assertEquals(42, collection.getInt(42, int16));
+    assertEquals(Short.valueOf((short) 42), collection.getValue(42, int16));
+    assertEquals(42L, collection.getLong(42, int64));
+    assertEquals(Long.MAX_VALUE, collection.getValue(98, int64));
+    assertTrue(collection.isNull(99, string));
+    assertNull(collection.getString(99, string));
+    assertEquals("even", collection.getString(98, string));
+    assertEquals("odd", collection.getValue(97, string));
+    assertTrue(collection.isNull(98, decimal));
+    assertEquals(BigDecimal.TEN, collection.getValue(99, decimal));
+
+    collection.setNull(42, int16);
+    assertTrue(collection.isNull(42, int16));
+    assertNull(collection.getValue(42, int16));
+    assertFalse(collection.isNull(43, int16));
+  }
+
+  @Test
+  public void addColumnAfterRows() {
+    ColumnarEntityCollection collection = new ColumnarEntityCollection(null);
+    collection.addRow();
+    collection.addRow();
+    final int column = collection.addColumn("Double", EdmPrimitiveTypeKind.Double);
+    assertTrue(collection.isNull(1, column));
+    collection.setValue(1, column, 1.5F);
+    assertEquals(1.5, collection.getDouble(1, column), 0);
+    assertEquals(1.5, collection.getValue(1, column));
+  }
+
+  @Test
+  public void wrongValues() {
+    ColumnarEntityCollection collection = new ColumnarEntityCollection(null);
+    final int int32 = collection.addColumn("Int32", EdmPrimitiveTypeKind.Int32);
+    final int row = collection.addRow();
+    try {
+      collection.setValue(row, int32, 1L);
+      fail("Expected IllegalArgumentException");
+    } catch (final IllegalArgumentException e) {
+      assertTrue(e.getMessage().contains("Int32"));
+    }
+    try {
+      collection.setString(row, int32, "1");
+      fail("Expected IllegalArgumentException");
+    } catch (final IllegalArgumentException e) {
+      assertTrue(e.getMessage().contains("Int32"));
+    }
+    try {
+      collection.getInt(1, int32);
+      fail("Expected IndexOutOfBoundsException");
+    } catch (final IndexOutOfBoundsException e) {
+      assertTrue(e.getMessage().contains("1"));
+    }
+  }
+
+  @Test
+  public void entities() {
+    ColumnarEntityCollection collection = new ColumnarEntityCollection("Namespace.Type");
+    final int key = collection.addColumn("Key", EdmPrimitiveTypeKind.Int32);
+    final int name = collection.addColumn("Name", EdmPrimitiveTypeKind.String);
+    collection.setValue(collection.addRow(), key, 1);
+    final int row = collection.addRow();
+    collection.setValue(row, key, 2);
+    collection.setValue(row, name, "Second");
+
+    Iterator<Entity> iterator = collection.iterator();
+    Entity entity = iterator.next();
+    assertEquals("Namespace.Type", entity.getType());
+    assertEquals(1, entity.getProperty("Key").getValue());
+    assertEquals("Edm.Int32", entity.getProperty("Key").getType());
+    assertTrue(entity.getProperty("Name").isNull());
+    entity = iterator.next();
+    assertEquals("Second", entity.getProperty("Name").getValue());
+    assertFalse(iterator.hasNext());
+  }
+}
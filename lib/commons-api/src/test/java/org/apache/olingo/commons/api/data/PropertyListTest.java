@@ -0,0 +1,112 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.commons.api.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class PropertyListTest {
+
+  private static Property property(final String name) {
+    return new Property("Edm.String", name, ValueType.PRIMITIVE, name);
+  }
+
+  private static PropertyList create(final int size) {
+    PropertyList properties = new PropertyList();
+    for (int i = 0; i < size; i++) {
+      properties.add(property("P" + i));
+    }
+    return properties;
+  }
+
+  @Test
+  public void small() {
+    final PropertyList properties = create(3);
+    assertSame(properties.get(1), properties.getProperty("P1"));
+    assertNull(properties.getProperty("P3"));
+  }
+
+  @Test
+  public void large() {
+    PropertyList properties = create(200);
+    for (int i = 0; i < 200; i++) {
+      assertSame(properties.get(i), properties.getProperty("P" + i));
+    }
+    assertNull(properties.getProperty("P200"));
+
+    properties.remove(0);
+    assertNull(properties.getProperty("P0"));
+    assertSame(properties.get(0), properties.getProperty("P1"));
+    properties.add(0, property("P0"));
+    assertSame(properties.get(0), properties.getProperty("P0"));
+    properties.subList(10, 20).clear();
+    assertNull(properties.getProperty("P15"));
+    assertEquals("P20", properties.getProperty("P20").getName());
+  }
+
+  @Test
+  public void modificationsWithoutStructuralChange() {
+    PropertyList properties = create(20);
+    assertSame(properties.get(5), properties.getProperty("P5"));
+    final Property replacement = property("Replacement");
+    properties.set(5, replacement);
+    assertNull(properties.getProperty("P5"));
+    assertSame(replacement, properties.getProperty("Replacement"));
+    properties.subList(4, 8).set(2, property("P6"));
+    assertSame(properties.get(6), properties.getProperty("P6"));
+    // Renaming in place is not supported; the old name is not found, though.
+    properties.get(6).setName("Renamed");
+    assertNull(properties.getProperty("P6"));
+    assertSame(properties.get(7), properties.getProperty("P7"));
+  }
+
+  @Test
+  public void duplicates() {
+    PropertyList properties = create(20);
+    final Property duplicate = property("P3");
+    properties.add(duplicate);
+    assertSame(properties.get(3), properties.getProperty("P3"));
+    properties.remove(3);
+    assertSame(duplicate, properties.getProperty("P3"));
+  }
+
+  @Test
+  public void find() {
+    final Property property = property("P1");
+    assertSame(property, PropertyList.find(Arrays.asList(property("P0"), property), "P1"));
+    assertNull(PropertyList.find(Arrays.asList(property), "P0"));
+    final PropertyList properties = create(10);
+    assertSame(properties.get(9), PropertyList.find(properties, "P9"));
+  }
+
+  @Test
+  public void entity() {
+    Entity entity = new Entity();
+    for (int i = 0; i < 150; i++) {
+      entity.addProperty(property("P" + i));
+    }
+    assertSame(entity.getProperties().get(149), entity.getProperty("P149"));
+    assertEquals(150, entity.getProperties().size());
+  }
+}
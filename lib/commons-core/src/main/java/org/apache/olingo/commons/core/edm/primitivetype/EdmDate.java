@@ -19,8 +19,6 @@
 package org.apache.olingo.commons.core.edm.primitivetype;
 
 import java.util.Calendar;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import org.apache.olingo.commons.api.edm.EdmPrimitiveTypeException;
 
@@ -29,8 +27,6 @@ import org.apache.olingo.commons.api.edm.EdmPrimitiveTypeException;
  */
 public final class EdmDate extends SingletonPrimitiveType {
 
-  private static final Pattern PATTERN = Pattern.compile("(-?\\p{Digit}{4,})-(\\p{Digit}{2})-(\\p{Digit}{2})");
-
   private static final EdmDate INSTANCE = new EdmDate();
 
   public static EdmDate getInstance() {
@@ -47,18 +43,21 @@ public final class EdmDate extends SingletonPrimitiveType {
       final Boolean isNullable, final Integer maxLength, final Integer precision,
       final Integer scale, final Boolean isUnicode, final Class<T> returnType) throws EdmPrimitiveTypeException {
 
-    final Calendar dateTimeValue = Calendar.getInstance();
-    dateTimeValue.clear();
-
-    final Matcher matcher = PATTERN.matcher(value);
-    if (!matcher.matches()) {
+    // The literal has the form [-]yyyy-mm-dd with at least four digits for the year.
+    final int yearEnd = value.indexOf('-', 1);
+    final int year = yearEnd > 0 ? EdmDateTimeOffset.parseYear(value, yearEnd) : Integer.MIN_VALUE;
+    if (year == Integer.MIN_VALUE || value.length() != yearEnd + 6 || value.charAt(yearEnd + 3) != '-') {
+      throw new EdmPrimitiveTypeException("The literal '" + value + "' has illegal content.");
+    }
+    final int month = EdmDateTimeOffset.parseDigits(value, yearEnd + 1, yearEnd + 3);
+    final int day = EdmDateTimeOffset.parseDigits(value, yearEnd + 4, yearEnd + 6);
+    if (month == -1 || day == -1) {
       throw new EdmPrimitiveTypeException("The literal '" + value + "' has illegal content.");
     }
 
-    dateTimeValue.set(
-        Integer.parseInt(matcher.group(1)),
-        Byte.parseByte(matcher.group(2)) - 1, // month is zero-based
-        Byte.parseByte(matcher.group(3)));
+    final Calendar dateTimeValue = Calendar.getInstance();
+    dateTimeValue.clear();
+    dateTimeValue.set(year, month - 1, day); // month is zero-based
 
     try {
       return EdmDateTimeOffset.convertDateTime(dateTimeValue, 0, returnType);
@@ -23,8 +23,6 @@ import java.sql.Timestamp;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.TimeZone;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import org.apache.olingo.commons.api.edm.EdmPrimitiveTypeException;
 
@@ -33,10 +31,9 @@ import org.apache.olingo.commons.api.edm.EdmPrimitiveTypeException;
  */
 public final class EdmDateTimeOffset extends SingletonPrimitiveType {
 
-  private static final Pattern PATTERN = Pattern.compile(
-      "(-?\\p{Digit}{4,})-(\\p{Digit}{2})-(\\p{Digit}{2})"
-          + "T(\\p{Digit}{2}):(\\p{Digit}{2})(?::(\\p{Digit}{2})(\\.(\\p{Digit}{0,12}?)0*)?)?"
-          + "(Z|([-+]\\p{Digit}{2}:\\p{Digit}{2}))?");
+  private static final int MAX_OFFSET_MINUTES = 24 * 60 - 1;
+  private static final TimeZone[] TIME_ZONES = new TimeZone[2 * MAX_OFFSET_MINUTES + 1];
+  private static final int[] POWERS_OF_TEN = { 1, 10, 100, 1000, 10000, 100000, 1000000, 10000000, 100000000 };
 
   private static final EdmDateTimeOffset INSTANCE = new EdmDateTimeOffset();
 
@@ -54,54 +51,61 @@ public final class EdmDateTimeOffset extends SingletonPrimitiveType {
       final Boolean isNullable, final Integer maxLength, final Integer precision,
       final Integer scale, final Boolean isUnicode, final Class<T> returnType) throws EdmPrimitiveTypeException {
 
-    final Matcher matcher = PATTERN.matcher(value);
-    if (!matcher.matches()) {
+    // The literal has the form [-]yyyy-mm-ddThh:mm[:ss[.fffffffffff]][Z|(+|-)hh:mm].
+    final int length = value.length();
+    final int yearEnd = value.indexOf('-', 1);
+    final int year = yearEnd > 0 ? parseYear(value, yearEnd) : Integer.MIN_VALUE;
+    if (year < Short.MIN_VALUE || year > Short.MAX_VALUE
+        || length < yearEnd + 12
+        || value.charAt(yearEnd + 3) != '-' || value.charAt(yearEnd + 6) != 'T' || value.charAt(yearEnd + 9) != ':') {
       throw new EdmPrimitiveTypeException("The literal '" + value + "' has illegal content.");
     }
-
-    final String timeZoneOffset = matcher.group(9) == null || matcher.group(10) == null
-        || matcher.group(10).matches("[-+]0+:0+") ? "" : matcher.group(10);
-    final Calendar dateTimeValue = Calendar.getInstance(TimeZone.getTimeZone("GMT" + timeZoneOffset));
-    if (dateTimeValue.get(Calendar.ZONE_OFFSET) == 0 && !timeZoneOffset.isEmpty()) {
-      throw new EdmPrimitiveTypeException("The literal '" + value + "' has illegal content.");
+    final int month = parseDigits(value, yearEnd + 1, yearEnd + 3);
+    final int day = parseDigits(value, yearEnd + 4, yearEnd + 6);
+    final int hour = parseDigits(value, yearEnd + 7, yearEnd + 9);
+    final int minute = parseDigits(value, yearEnd + 10, yearEnd + 12);
+    int index = yearEnd + 12;
+    int second = 0;
+    int fractionStart = -1;
+    int fractionDigits = 0;
+    if (index < length && value.charAt(index) == ':') {
+      second = parseDigits(value, index + 1, index + 3);
+      index += 3;
+      if (index < length && value.charAt(index) == '.') {
+        fractionStart = index + 1;
+        fractionDigits = countDigits(value, fractionStart);
+        index = fractionStart + fractionDigits;
+      }
     }
-    dateTimeValue.clear();
-
-    dateTimeValue.set(
-        Short.parseShort(matcher.group(1)),
-        Byte.parseByte(matcher.group(2)) - 1, // month is zero-based
-        Byte.parseByte(matcher.group(3)),
-        Byte.parseByte(matcher.group(4)),
-        Byte.parseByte(matcher.group(5)),
-        matcher.group(6) == null ? 0 : Byte.parseByte(matcher.group(6)));
-
-    int nanoSeconds = 0;
-    if (matcher.group(7) != null) {
-      if (matcher.group(7).length() == 1 || matcher.group(7).length() > 13) {
+    int offsetInMinutes = 0;
+    if (index < length && value.charAt(index) == 'Z') {
+      index++;
+    } else if (index < length && (value.charAt(index) == '+' || value.charAt(index) == '-')
+        && index + 6 == length && value.charAt(index + 3) == ':') {
+      final int offsetHours = parseDigits(value, index + 1, index + 3);
+      final int offsetMinutes = parseDigits(value, index + 4, index + 6);
+      if (offsetHours == -1 || offsetMinutes == -1) {
         throw new EdmPrimitiveTypeException("The literal '" + value + "' has illegal content.");
       }
-      final String decimals = matcher.group(8);
-      if (decimals.length() > (precision == null ? 0 : precision)) {
-        throw new EdmPrimitiveTypeException("The literal '" + value + "' does not match the facets' constraints.");
-      }
-      if (returnType.isAssignableFrom(Timestamp.class)) {
-        if (decimals.length() <= 9) {
-          nanoSeconds = Integer.parseInt(decimals + "000000000".substring(decimals.length()));
-        } else {
-          throw new EdmPrimitiveTypeException("The literal '" + value
-              + "' cannot be converted to value type " + returnType + ".");
-        }
-      } else {
-        if (decimals.length() <= 3) {
-          final String milliSeconds = decimals + "000".substring(decimals.length());
-          dateTimeValue.set(Calendar.MILLISECOND, Short.parseShort(milliSeconds));
-        } else {
-          throw new EdmPrimitiveTypeException("The literal '" + value
-              + "' cannot be converted to value type " + returnType + ".");
-        }
+      // Same limits as for custom time-zone IDs; other offsets are rejected.
+      if (offsetHours > 23 || offsetMinutes > 59) {
+        throw new EdmPrimitiveTypeException("The literal '" + value + "' has illegal content.");
       }
+      offsetInMinutes = (offsetHours * 60 + offsetMinutes) * (value.charAt(index) == '-' ? -1 : 1);
+      index = length;
+    }
+    if (index != length || month == -1 || day == -1 || hour == -1 || minute == -1 || second == -1
+        || fractionDigits > 12) {
+      throw new EdmPrimitiveTypeException("The literal '" + value + "' has illegal content.");
     }
 
+    final Calendar dateTimeValue = Calendar.getInstance(getTimeZone(offsetInMinutes));
+    dateTimeValue.clear();
+    dateTimeValue.set(year, month - 1, day, hour, minute, second); // month is zero-based
+
+    final int nanoSeconds = fractionStart == -1 ? 0
+        : parseFractionalSeconds(value, fractionStart, fractionDigits, dateTimeValue, precision, returnType);
+
     try {
       return convertDateTime(dateTimeValue, nanoSeconds, returnType);
     } catch (final IllegalArgumentException e) {
@@ -198,10 +202,14 @@ public final class EdmDateTimeOffset extends SingletonPrimitiveType {
 
     final int offsetInMinutes = (dateTimeValue.get(Calendar.ZONE_OFFSET)
         + dateTimeValue.get(Calendar.DST_OFFSET)) / 60 / 1000;
-    final int offsetHours = offsetInMinutes / 60;
-    final int offsetMinutes = Math.abs(offsetInMinutes % 60);
-    final String offsetString = offsetInMinutes == 0 ? "Z" : String.format("%+03d:%02d", offsetHours, offsetMinutes);
-    result.append(offsetString);
+    if (offsetInMinutes == 0) {
+      result.append('Z');
+    } else {
+      result.append(offsetInMinutes < 0 ? '-' : '+');
+      appendTwoDigits(result, Math.abs(offsetInMinutes) / 60);
+      result.append(':');
+      appendTwoDigits(result, Math.abs(offsetInMinutes) % 60);
+    }
 
     return result.toString();
   }
@@ -230,6 +238,116 @@ public final class EdmDateTimeOffset extends SingletonPrimitiveType {
     return dateTimeValue;
   }
 
+  /**
+   * Returns the time zone with the given offset from GMT.
+   * Time zones are looked up only once per offset; callers get their own copy.
+   * @param offsetInMinutes the offset in minutes, at most 23:59 hours in both directions
+   */
+  protected static TimeZone getTimeZone(final int offsetInMinutes) {
+    TimeZone timeZone = TIME_ZONES[offsetInMinutes + MAX_OFFSET_MINUTES];
+    if (timeZone == null) {
+      final int absoluteOffset = Math.abs(offsetInMinutes);
+      final StringBuilder id = new StringBuilder(9).append("GMT");
+      if (offsetInMinutes != 0) {
+        id.append(offsetInMinutes < 0 ? '-' : '+');
+        appendTwoDigits(id, absoluteOffset / 60);
+        id.append(':');
+        appendTwoDigits(id, absoluteOffset % 60);
+      }
+      timeZone = TimeZone.getTimeZone(id.toString());
+      TIME_ZONES[offsetInMinutes + MAX_OFFSET_MINUTES] = timeZone;
+    }
+    return (TimeZone) timeZone.clone();
+  }
+
+  /**
+   * Parses the year of a date literal, i.e., an optional minus sign followed by at least four digits.
+   * @param value the literal
+   * @param end the index of the hyphen after the year
+   * @return the year or {@link Integer#MIN_VALUE} if the year is not valid;
+   * years with more than nine digits are not valid
+   */
+  protected static int parseYear(final String value, final int end) {
+    final boolean negative = value.charAt(0) == '-';
+    final int start = negative ? 1 : 0;
+    if (end - start < 4 || end - start > 9) {
+      return -1;
+    }
+    final int year = parseDigits(value, start, end);
+    return year == -1 ? Integer.MIN_VALUE : negative ? -year : year;
+  }
+
+  /**
+   * Parses ASCII digits.
+   * @param value the literal
+   * @param start the index of the first digit
+   * @param end the index after the last digit; at most nine digits are allowed
+   * @return the value of the digits or -1 if the range is empty, exceeds the literal, or contains other characters
+   */
+  protected static int parseDigits(final String value, final int start, final int end) {
+    if (start >= end || end > value.length()) {
+      return -1;
+    }
+    int result = 0;
+    for (int index = start; index < end; index++) {
+      final char c = value.charAt(index);
+      if (c < '0' || c > '9') {
+        return -1;
+      }
+      result = result * 10 + (c - '0');
+    }
+    return result;
+  }
+
+  /**
+   * Counts the consecutive ASCII digits starting at the given index.
+   */
+  protected static int countDigits(final String value, final int start) {
+    int index = start;
+    while (index < value.length() && value.charAt(index) >= '0' && value.charAt(index) <= '9') {
+      index++;
+    }
+    return index - start;
+  }
+
+  /**
+   * Checks the fractional seconds of a literal against the precision facet and the return type.
+   * Milliseconds are set in the given {@link Calendar}, nanoseconds for the {@link Timestamp} type are returned.
+   * @param value the literal
+   * @param start the index of the first digit after the decimal point
+   * @param digits the number of digits after the decimal point, including trailing zeroes
+   * @param dateTimeValue the value to set the milliseconds in
+   * @param precision the precision facet
+   * @param returnType the class of the value to be returned from parsing
+   * @return nanoseconds
+   * @throws EdmPrimitiveTypeException if the fractional seconds are not valid
+   */
+  protected static int parseFractionalSeconds(final String value, final int start, final int digits,
+      final Calendar dateTimeValue, final Integer precision, final Class<?> returnType)
+      throws EdmPrimitiveTypeException {
+    if (digits == 0 || digits > 12) {
+      throw new EdmPrimitiveTypeException("The literal '" + value + "' has illegal content.");
+    }
+    int decimals = digits;
+    while (decimals > 0 && value.charAt(start + decimals - 1) == '0') {
+      decimals--;
+    }
+    if (decimals > (precision == null ? 0 : precision)) {
+      throw new EdmPrimitiveTypeException("The literal '" + value + "' does not match the facets' constraints.");
+    }
+    final int fraction = decimals == 0 || decimals > 9 ? 0 : parseDigits(value, start, start + decimals);
+    if (returnType.isAssignableFrom(Timestamp.class)) {
+      if (decimals <= 9) {
+        return fraction * POWERS_OF_TEN[9 - decimals];
+      }
+    } else if (decimals <= 3) {
+      dateTimeValue.set(Calendar.MILLISECOND, fraction * POWERS_OF_TEN[3 - decimals]);
+      return 0;
+    }
+    throw new EdmPrimitiveTypeException("The literal '" + value
+        + "' cannot be converted to value type " + returnType + ".");
+  }
+
   /**
    * Appends the given number to the given string builder, assuming that the number has at most two digits,
    * performance-optimized.
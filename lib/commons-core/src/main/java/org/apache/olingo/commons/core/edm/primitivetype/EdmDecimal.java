@@ -20,8 +20,6 @@ package org.apache.olingo.commons.core.edm.primitivetype;
 
 import java.math.BigDecimal;
 import java.math.BigInteger;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import org.apache.olingo.commons.api.edm.EdmPrimitiveType;
 import org.apache.olingo.commons.api.edm.EdmPrimitiveTypeException;
@@ -31,9 +29,6 @@ import org.apache.olingo.commons.api.edm.EdmPrimitiveTypeException;
  */
 public final class EdmDecimal extends SingletonPrimitiveType {
 
-  private static final Pattern PATTERN = Pattern.compile(
-          "(?:\\+|-)?(?:0*(\\p{Digit}+?))(?:\\.(\\p{Digit}+?)0*)?((?:E|e)(?:\\+|-)?\\p{Digit}+)?");
-
   private static final EdmDecimal INSTANCE = new EdmDecimal();
 
   public static EdmDecimal getInstance() {
@@ -68,21 +63,71 @@ public final class EdmDecimal extends SingletonPrimitiveType {
   }
 
   private static boolean validateLiteral(final String value) {
-    return PATTERN.matcher(value).matches();
+    return scan(value) != -1;
+  }
+
+  /**
+   * Scans a literal of the form [+|-]digits[.digits][(E|e)[+|-]digits].
+   * @return the index of the exponent (the length of the literal if there is none)
+   * or -1 if the literal is not valid
+   */
+  private static int scan(final String value) {
+    final int length = value.length();
+    int index = length > 0 && (value.charAt(0) == '+' || value.charAt(0) == '-') ? 1 : 0;
+    int digits = EdmDateTimeOffset.countDigits(value, index);
+    if (digits == 0) {
+      return -1;
+    }
+    index += digits;
+    if (index < length && value.charAt(index) == '.') {
+      digits = EdmDateTimeOffset.countDigits(value, index + 1);
+      if (digits == 0) {
+        return -1;
+      }
+      index += 1 + digits;
+    }
+    final int exponent = index;
+    if (index < length && (value.charAt(index) == 'E' || value.charAt(index) == 'e')) {
+      index++;
+      if (index < length && (value.charAt(index) == '+' || value.charAt(index) == '-')) {
+        index++;
+      }
+      digits = EdmDateTimeOffset.countDigits(value, index);
+      if (digits == 0) {
+        return -1;
+      }
+      index += digits;
+    }
+    return index == length ? exponent : -1;
   }
 
   private static boolean validatePrecisionAndScale(final String value, final Integer precision,
       final Integer scale) {
 
-    Matcher matcher = PATTERN.matcher(value);
-    matcher.matches();
-	if (matcher.group(3) != null) {
-		String plainValue = new BigDecimal(value).toPlainString();
-		matcher = PATTERN.matcher(plainValue);
-		matcher.matches();
-	}
-    final int significantIntegerDigits = "0".equals(matcher.group(1)) ? 0 : matcher.group(1).length();
-    final int decimals = matcher.group(2) == null ? 0 : matcher.group(2).length();
+    String plainValue = value;
+    int end = scan(value);
+    if (end < value.length()) {
+      plainValue = new BigDecimal(value).toPlainString();
+      end = plainValue.length();
+    }
+    final int start = plainValue.charAt(0) == '+' || plainValue.charAt(0) == '-' ? 1 : 0;
+    int point = plainValue.indexOf('.', start);
+    if (point == -1) {
+      point = end;
+    }
+    // Leading zeroes are not significant, as are trailing zeroes after the decimal point,
+    // but the first digit after the decimal point is always counted.
+    int integerStart = start;
+    while (integerStart < point - 1 && plainValue.charAt(integerStart) == '0') {
+      integerStart++;
+    }
+    final int significantIntegerDigits =
+        point - integerStart == 1 && plainValue.charAt(integerStart) == '0' ? 0 : point - integerStart;
+    int decimalsEnd = end;
+    while (decimalsEnd > point + 2 && plainValue.charAt(decimalsEnd - 1) == '0') {
+      decimalsEnd--;
+    }
+    final int decimals = point < end ? decimalsEnd - point - 1 : 0;
     return (precision == null || precision >= significantIntegerDigits + decimals)
         && (decimals <= (scale == null ? 0 : scale));
   }
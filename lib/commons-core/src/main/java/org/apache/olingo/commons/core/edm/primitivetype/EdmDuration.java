@@ -20,17 +20,11 @@ package org.apache.olingo.commons.core.edm.primitivetype;
 
 import java.math.BigDecimal;
 import java.math.BigInteger;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import org.apache.olingo.commons.api.edm.EdmPrimitiveTypeException;
 
 public class EdmDuration extends SingletonPrimitiveType {
 
-  private static final Pattern PATTERN = Pattern.compile(
-      "[-+]?P(?:(\\p{Digit}+)D)?(?:T(?:(\\p{Digit}+)H)?(?:(\\p{Digit}+)M)?"
-          + "(?:(\\p{Digit}+(?:\\.(?:\\p{Digit}+?)0*)?)S)?)?");
-
   private static final EdmDuration INSTANCE = new EdmDuration();
 
   {
@@ -52,20 +46,49 @@ public class EdmDuration extends SingletonPrimitiveType {
       final Boolean isNullable, final Integer maxLength, final Integer precision,
       final Integer scale, final Boolean isUnicode, final Class<T> returnType) throws EdmPrimitiveTypeException {
 
-    final Matcher matcher = PATTERN.matcher(value);
-    if (!matcher.matches()
-        || matcher.group(1) == null && matcher.group(2) == null && matcher.group(3) == null
-        && matcher.group(4) == null) {
+    // The literal has the form [-|+]P[nD][T[nH][nM][n[.n]S]] with at least one component.
+    final int length = value.length();
+    int index = length > 0 && (value.charAt(0) == '-' || value.charAt(0) == '+') ? 1 : 0;
+    if (index >= length || value.charAt(index) != 'P') {
+      throw new EdmPrimitiveTypeException("The literal '" + value + "' has illegal content.");
+    }
+    index++;
+    BigDecimal result = null;
+    int digits = EdmDateTimeOffset.countDigits(value, index);
+    if (digits > 0 && index + digits < length && value.charAt(index + digits) == 'D') {
+      result = component(value, index, index + digits, 24 * 60 * 60, null);
+      index += digits + 1;
+    }
+    if (index < length && value.charAt(index) == 'T') {
+      index++;
+      digits = EdmDateTimeOffset.countDigits(value, index);
+      if (digits > 0 && index + digits < length && value.charAt(index + digits) == 'H') {
+        result = component(value, index, index + digits, 60 * 60, result);
+        index += digits + 1;
+        digits = EdmDateTimeOffset.countDigits(value, index);
+      }
+      if (digits > 0 && index + digits < length && value.charAt(index + digits) == 'M') {
+        result = component(value, index, index + digits, 60, result);
+        index += digits + 1;
+        digits = EdmDateTimeOffset.countDigits(value, index);
+      }
+      if (digits > 0) {
+        int end = index + digits;
+        if (end < length && value.charAt(end) == '.') {
+          final int decimals = EdmDateTimeOffset.countDigits(value, end + 1);
+          end = decimals == 0 ? -1 : end + 1 + decimals;
+        }
+        if (end > 0 && end < length && value.charAt(end) == 'S') {
+          result = end > index + digits ?
+              add(result, new BigDecimal(value.substring(index, end))) :
+              component(value, index, end, 1, result);
+          index = end + 1;
+        }
+      }
+    }
+    if (index != length || result == null) {
       throw new EdmPrimitiveTypeException("The literal '" + value + "' has illegal content.");
     }
-
-    BigDecimal result = (matcher.group(1) == null ? BigDecimal.ZERO
-        : new BigDecimal(matcher.group(1)).multiply(BigDecimal.valueOf(24 * 60 * 60))).
-        add(matcher.group(2) == null ? BigDecimal.ZERO
-            : new BigDecimal(matcher.group(2)).multiply(BigDecimal.valueOf(60 * 60))).
-            add(matcher.group(3) == null ? BigDecimal.ZERO
-                : new BigDecimal(matcher.group(3)).multiply(BigDecimal.valueOf(60))).
-                add(matcher.group(4) == null ? BigDecimal.ZERO : new BigDecimal(matcher.group(4)));
 
     if (result.scale() <= (precision == null ? 0 : precision)) {
       result = value.charAt(0) == '-' ? result.negate() : result;
@@ -83,6 +106,28 @@ public class EdmDuration extends SingletonPrimitiveType {
     }
   }
 
+  /**
+   * Returns the number of seconds given by the digits between start and end and the given factor,
+   * added to a previous result.
+   */
+  private static BigDecimal component(final String value, final int start, final int end, final int factor,
+      final BigDecimal previous) {
+    final BigDecimal seconds = end - start > 9 ?
+        new BigDecimal(value.substring(start, end)).multiply(BigDecimal.valueOf(factor)) :
+        BigDecimal.valueOf((long) EdmDateTimeOffset.parseDigits(value, start, end) * factor);
+    return add(previous, seconds);
+  }
+
+  private static void appendComponent(final StringBuilder result, final long number, final char designator) {
+    if (number != 0) {
+      result.append(number).append(designator);
+    }
+  }
+
+  private static BigDecimal add(final BigDecimal previous, final BigDecimal seconds) {
+    return previous == null ? seconds : previous.add(seconds);
+  }
+
   @Override
   protected <T> String internalValueToString(final T value,
       final Boolean isNullable, final Integer maxLength, final Integer precision,
@@ -109,26 +154,40 @@ public class EdmDuration extends SingletonPrimitiveType {
       valueDecimal = valueDecimal.negate();
     }
     result.append('P');
-    BigInteger seconds = valueDecimal.toBigInteger();
-    final BigInteger days = seconds.divide(BigInteger.valueOf(24 * 60 * 60));
-    if (!days.equals(BigInteger.ZERO)) {
-      result.append(days.toString());
-      result.append('D');
-    }
-    result.append('T');
-    seconds = seconds.subtract(days.multiply(BigInteger.valueOf(24 * 60 * 60)));
-    final BigInteger hours = seconds.divide(BigInteger.valueOf(60 * 60));
-    if (!hours.equals(BigInteger.ZERO)) {
-      result.append(hours.toString());
-      result.append('H');
+    final BigInteger integerSeconds = valueDecimal.toBigInteger();
+    if (integerSeconds.bitLength() < Long.SIZE) {
+      // Most durations fit into a long; avoid the BigInteger arithmetic.
+      final long seconds = integerSeconds.longValue();
+      appendComponent(result, seconds / (24 * 60 * 60), 'D');
+      result.append('T');
+      appendComponent(result, seconds % (24 * 60 * 60) / (60 * 60), 'H');
+      appendComponent(result, seconds % (60 * 60) / 60, 'M');
+    } else {
+      BigInteger seconds = integerSeconds;
+      final BigInteger days = seconds.divide(BigInteger.valueOf(24 * 60 * 60));
+      if (!days.equals(BigInteger.ZERO)) {
+        result.append(days.toString());
+        result.append('D');
+      }
+      result.append('T');
+      seconds = seconds.subtract(days.multiply(BigInteger.valueOf(24 * 60 * 60)));
+      final BigInteger hours = seconds.divide(BigInteger.valueOf(60 * 60));
+      if (!hours.equals(BigInteger.ZERO)) {
+        result.append(hours.toString());
+        result.append('H');
+      }
+      seconds = seconds.subtract(hours.multiply(BigInteger.valueOf(60 * 60)));
+      final BigInteger minutes = seconds.divide(BigInteger.valueOf(60));
+      if (!minutes.equals(BigInteger.ZERO)) {
+        result.append(minutes.toString());
+        result.append('M');
+      }
     }
-    seconds = seconds.subtract(hours.multiply(BigInteger.valueOf(60 * 60)));
-    final BigInteger minutes = seconds.divide(BigInteger.valueOf(60));
-    if (!minutes.equals(BigInteger.ZERO)) {
-      result.append(minutes.toString());
-      result.append('M');
+    if (valueDecimal.scale() <= 0 && integerSeconds.bitLength() < Long.SIZE) {
+      result.append(integerSeconds.longValue() % 60);
+    } else {
+      result.append(valueDecimal.remainder(BigDecimal.valueOf(60)).toPlainString());
     }
-    result.append(valueDecimal.remainder(BigDecimal.valueOf(60)).toPlainString());
     result.append('S');
 
     return result.toString();
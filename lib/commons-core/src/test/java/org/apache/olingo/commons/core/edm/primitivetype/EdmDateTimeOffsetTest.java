@@ -59,6 +59,9 @@ public class EdmDateTimeOffsetTest extends PrimitiveTypeBaseTest {
     dateTime.setTimeZone(TimeZone.getTimeZone("GMT-1:30"));
     assertEquals("2012-02-29T01:02:03-01:30", instance.valueToString(dateTime, null, null, null, null, null));
 
+    dateTime.setTimeZone(TimeZone.getTimeZone("GMT-0:30"));
+    assertEquals("2012-02-29T01:02:03-00:30", instance.valueToString(dateTime, null, null, null, null, null));
+
     dateTime.setTimeZone(TimeZone.getTimeZone("GMT+11:00"));
     assertEquals("2012-02-29T01:02:03+11:00", instance.valueToString(dateTime, null, null, null, null, null));
 
@@ -144,10 +147,24 @@ public class EdmDateTimeOffsetTest extends PrimitiveTypeBaseTest {
         Time.class));
     assertEquals(new Time(0), instance.valueOfString("1970-01-01T00:00:00.12", null, null, 2, null, null, Time.class));
 
+    dateTime.clear();
+    dateTime.setTimeZone(TimeZone.getTimeZone("GMT-00:30"));
+    dateTime.set(1, 11, 31, 23, 59, 0);
+    assertEquals(dateTime, instance.valueOfString("0001-12-31T23:59-00:30", null, null, null, null, null,
+        Calendar.class));
+    assertEquals(dateTime.getTimeZone().getID(), instance.valueOfString("2012-02-29T01:02:03-00:30", null, null,
+        null, null, null, Calendar.class).getTimeZone().getID());
+
     expectFacetsErrorInValueOfString(instance, "2012-02-29T23:32:02.9Z", null, null, null, null, null);
     expectFacetsErrorInValueOfString(instance, "2012-02-29T23:32:02.9Z", null, null, 0, null, null);
     expectContentErrorInValueOfString(instance, "2012-02-29T23:32:02X");
     expectContentErrorInValueOfString(instance, "2012-02-29T23:32:02+24:00");
+    expectContentErrorInValueOfString(instance, "2012-02-29T23:32:02+01:60");
+    expectContentErrorInValueOfString(instance, "2012-02-29T23:32:02+01:00Z");
+    expectContentErrorInValueOfString(instance, "2012-02-29T23:32.5");
+    expectContentErrorInValueOfString(instance, "12-02-29T23:32:02");
+    expectContentErrorInValueOfString(instance, "99999-02-29T23:32:02");
+    expectContentErrorInValueOfString(instance, "2012-2-29T23:32:02");
     expectContentErrorInValueOfString(instance, "2012-02-30T01:02:03");
     expectContentErrorInValueOfString(instance, "2012-02-29T23:32:02.");
     expectContentErrorInValueOfString(instance, "2012-02-29T23:32:02.0000000000000");
@@ -102,7 +102,12 @@ public class EdmDecimalTest extends PrimitiveTypeBaseTest {
     assertEquals(new BigDecimal("31991163.34"),
         instance.valueOfString("3.199116334E7", null, null, 10, 2, null, BigDecimal.class));
     
+    assertEquals(new BigDecimal("1.0"), instance.valueOfString("+001.0", null, null, 2, 1, null, BigDecimal.class));
+    assertEquals(new BigDecimal("1E+3"), instance.valueOfString("1e+3", null, null, 4, null, null, BigDecimal.class));
+
     expectFacetsErrorInValueOfString(instance, "0.5", null, null, null, null, null);
+    expectFacetsErrorInValueOfString(instance, "1.0", null, null, null, null, null);
+    expectFacetsErrorInValueOfString(instance, "1.5e-3", null, null, null, 3, null);
     expectFacetsErrorInValueOfString(instance, "-1234", null, null, 2, null, null);
     expectFacetsErrorInValueOfString(instance, "1234", null, null, 3, null, null);
     expectFacetsErrorInValueOfString(instance, "12.34", null, null, 3, null, null);
@@ -116,6 +121,9 @@ public class EdmDecimalTest extends PrimitiveTypeBaseTest {
     expectContentErrorInValueOfString(instance, "1.0.1");
     expectContentErrorInValueOfString(instance, "1M");
     expectContentErrorInValueOfString(instance, "0x42");
+    expectContentErrorInValueOfString(instance, "1E");
+    expectContentErrorInValueOfString(instance, "-");
+    expectContentErrorInValueOfString(instance, "");
 
     expectUnconvertibleErrorInValueOfString(instance, "-129", Byte.class);
     expectUnconvertibleErrorInValueOfString(instance, "128", Byte.class);
@@ -84,7 +84,13 @@ public class EdmDurationTest extends PrimitiveTypeBaseTest {
     assertEquals(BigInteger.ONE.shiftLeft(42), instance.valueOfString("P50903316DT2H25M4S", null, null, null, null,
         null, BigInteger.class));
 
+    assertEquals(new BigDecimal("86400.50"), instance.valueOfString("+P1DT0.50S", null, null, 2, null, null,
+        BigDecimal.class));
+    assertEquals(BigDecimal.valueOf(86400), instance.valueOfString("P1DT", null, null, null, null, null,
+        BigDecimal.class));
+
     expectFacetsErrorInValueOfString(instance, "PT1.1S", null, null, null, null, null);
+    expectFacetsErrorInValueOfString(instance, "PT1.10S", null, null, 1, null, null);
     expectFacetsErrorInValueOfString(instance, "PT1H2M3.123S", null, null, 2, null, null);
     expectFacetsErrorInValueOfString(instance, "PT13H2M3.9S", null, null, 0, null, null);
 
@@ -92,6 +98,10 @@ public class EdmDurationTest extends PrimitiveTypeBaseTest {
     expectContentErrorInValueOfString(instance, "P2012Y2M29DT23H32M2S");
     expectContentErrorInValueOfString(instance, "PT-1H");
     expectContentErrorInValueOfString(instance, "PT");
+    expectContentErrorInValueOfString(instance, "P");
+    expectContentErrorInValueOfString(instance, "PT1S2M");
+    expectContentErrorInValueOfString(instance, "PT1.S");
+    expectContentErrorInValueOfString(instance, "P1H");
 
     expectUnconvertibleErrorInValueOfString(instance, "-PT2M9S", Byte.class);
     expectUnconvertibleErrorInValueOfString(instance, "PT2M8S", Byte.class);
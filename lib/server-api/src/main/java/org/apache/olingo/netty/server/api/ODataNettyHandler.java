@@ -43,5 +43,14 @@ public interface ODataNettyHandler {
    * "not implemented" exception will happen.</p>
    */
   void register(Processor processor);
+
+  /**
+   * <p>Enables compression of response bodies for clients sending an Accept-Encoding header
+   * with <tt>gzip</tt> or <tt>deflate</tt>; request bodies with one of these Content-Encodings
+   * are decompressed before they reach the processors.</p>
+   * @param minimumSize the minimum response size in bytes worth compressing
+   * @param level the compression level from 0 (none) to 9 (best), or -1 for the default level
+   */
+  void setCompression(int minimumSize, int level);
   
 }
@@ -46,6 +46,17 @@ public interface ODataHttpHandler extends ODataHandler {
    */
   void setSplit(int split);
 
+  /**
+   * <p>Enables compression of response bodies for clients sending an Accept-Encoding header
+   * with <tt>gzip</tt> or <tt>deflate</tt>; request bodies with one of these Content-Encodings
+   * are decompressed before they reach the processors.</p>
+   * <p>Responses are compressed while they are streamed; responses smaller than
+   * <tt>minimumSize</tt> bytes are sent uncompressed.</p>
+   * @param minimumSize the minimum response size in bytes worth compressing
+   * @param level the compression level from 0 (none) to 9 (best), or -1 for the default level
+   */
+  void setCompression(int minimumSize, int level);
+
 
   /**
    * Registers the debug support handler.
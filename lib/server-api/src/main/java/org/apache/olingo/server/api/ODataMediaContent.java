@@ -0,0 +1,274 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.api;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Seekable source of the content of a media entity or a stream property.
+ * <br/>
+ * In contrast to an input stream, media content can be read starting at any position,
+ * so the library can answer range requests without reading the skipped bytes,
+ * and content held in files or buffers can be transferred to the client without copying it
+ * into intermediate byte arrays.
+ * <br/>
+ * Use one of the <code>of</code> methods for content in byte arrays, buffers, or files;
+ * other sources (e.g., a callback into a storage service) can be supported by subclassing.
+ * @see ODataResponse#setMediaContent(ODataMediaContent)
+ */
+public abstract class ODataMediaContent implements Closeable {
+
+  private static final int COPY_BUFFER_SIZE = 8192;
+
+  /**
+   * Gets the length of the content in bytes.
+   * @return the length or <code>-1</code> if it is not known in advance
+   */
+  public abstract long getLength();
+
+  /**
+   * Opens a channel reading a part of the content.
+   * @param position the position of the first byte to read
+   * @param count the maximum number of bytes to read
+   */
+  public abstract ReadableByteChannel getChannel(long position, long count) throws IOException;
+
+  /**
+   * Writes a part of the content to a channel.
+   * The default implementation copies from the channel returned by {@link #getChannel(long, long)}.
+   * @param channel the target channel
+   * @param position the position of the first byte to write
+   * @param count the maximum number of bytes to write
+   */
+  public void write(final WritableByteChannel channel, final long position, final long count) throws IOException {
+    final ReadableByteChannel input = getChannel(position, count);
+    try {
+      ByteBuffer buffer = ByteBuffer.allocate(COPY_BUFFER_SIZE);
+      while (input.read(buffer) >= 0) {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+          channel.write(buffer);
+        }
+        buffer.clear();
+      }
+    } finally {
+      input.close();
+    }
+  }
+
+  /**
+   * Gets the file channel if the content is the content of a file; the file position is not used.
+   * Handlers can transfer such content directly from the file.
+   * @return the file channel or <code>null</code>
+   */
+  public FileChannel getFileChannel() {
+    return null;
+  }
+
+  /**
+   * Gets the buffer if the content is held in a buffer; the content is the region
+   * between the position and the limit of the returned buffer.
+   * @return a duplicate of the buffer or <code>null</code>
+   */
+  public ByteBuffer getByteBuffer() {
+    return null;
+  }
+
+  /** Releases the resources of the content, e.g., closes the file. The default implementation does nothing. */
+  @Override
+  public void close() throws IOException {
+    // nothing to release
+  }
+
+  /** Creates media content from a byte array. */
+  public static ODataMediaContent of(final byte[] content) {
+    return of(ByteBuffer.wrap(content));
+  }
+
+  /** Creates media content from the region between the position and the limit of a buffer. */
+  public static ODataMediaContent of(final ByteBuffer content) {
+    return new BufferContent(content.duplicate());
+  }
+
+  /**
+   * Creates media content from the content of a file, e.g., from
+   * <code>new RandomAccessFile(file, "r").getChannel()</code>.
+   * The channel is closed when the media content is closed.
+   */
+  public static ODataMediaContent of(final FileChannel content) {
+    return new FileContent(content);
+  }
+
+  private static final class BufferContent extends ODataMediaContent {
+    private final ByteBuffer buffer;
+
+    private BufferContent(final ByteBuffer buffer) {
+      this.buffer = buffer;
+    }
+
+    @Override
+    public long getLength() {
+      return buffer.remaining();
+    }
+
+    @Override
+    public ByteBuffer getByteBuffer() {
+      return buffer.duplicate();
+    }
+
+    private ByteBuffer slice(final long position, final long count) {
+      ByteBuffer slice = buffer.duplicate();
+      slice.position(buffer.position() + (int) Math.min(position, buffer.remaining()));
+      slice.limit(slice.position() + (int) Math.min(count, slice.remaining()));
+      return slice;
+    }
+
+    @Override
+    public ReadableByteChannel getChannel(final long position, final long count) {
+      final ByteBuffer slice = slice(position, count);
+      return new ReadableByteChannel() {
+        private boolean open = true;
+
+        @Override
+        public int read(final ByteBuffer target) {
+          if (!slice.hasRemaining()) {
+            return -1;
+          }
+          final int length = Math.min(target.remaining(), slice.remaining());
+          ByteBuffer part = slice.duplicate();
+          part.limit(part.position() + length);
+          target.put(part);
+          slice.position(slice.position() + length);
+          return length;
+        }
+
+        @Override
+        public boolean isOpen() {
+          return open;
+        }
+
+        @Override
+        public void close() {
+          open = false;
+        }
+      };
+    }
+
+    @Override
+    public void write(final WritableByteChannel channel, final long position, final long count)
+        throws IOException {
+      final ByteBuffer slice = slice(position, count);
+      while (slice.hasRemaining()) {
+        channel.write(slice);
+      }
+    }
+  }
+
+  private static final class FileContent extends ODataMediaContent {
+    private final FileChannel file;
+
+    private FileContent(final FileChannel file) {
+      this.file = file;
+    }
+
+    @Override
+    public long getLength() {
+      try {
+        return file.size();
+      } catch (final IOException e) {
+        return -1;
+      }
+    }
+
+    @Override
+    public FileChannel getFileChannel() {
+      return file;
+    }
+
+    @Override
+    public ReadableByteChannel getChannel(final long position, final long count) {
+      return new ReadableByteChannel() {
+        private long current = position;
+        private long remaining = count;
+        private boolean open = true;
+
+        @Override
+        public int read(final ByteBuffer target) throws IOException {
+          if (remaining <= 0) {
+            return -1;
+          }
+          final int limit = target.limit();
+          if (target.remaining() > remaining) {
+            target.limit(target.position() + (int) remaining);
+          }
+          try {
+            // Positional reads leave the channel position untouched, so several readers can share the file.
+            final int read = file.read(target, current);
+            if (read > 0) {
+              current += read;
+              remaining -= read;
+            } else if (read < 0) {
+              remaining = 0;
+            }
+            return read;
+          } finally {
+            target.limit(limit);
+          }
+        }
+
+        @Override
+        public boolean isOpen() {
+          return open;
+        }
+
+        @Override
+        public void close() {
+          open = false;
+        }
+      };
+    }
+
+    /** Transfers the bytes with {@link FileChannel#transferTo}, avoiding copies where the platform allows it. */
+    @Override
+    public void write(final WritableByteChannel channel, final long position, final long count)
+        throws IOException {
+      long current = position;
+      final long end = Math.min(position + count, file.size());
+      while (current < end) {
+        final long transferred = file.transferTo(current, end - current, channel);
+        if (transferred <= 0) {
+          // The target does not accept more bytes at the moment; copy the rest.
+          super.write(channel, current, end - current);
+          return;
+        }
+        current += transferred;
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      file.close();
+    }
+  }
+}
@@ -90,6 +90,15 @@ public class ODataRequest {
     headers.addHeader(name, values);
   }
 
+  /**
+   * Removes a header from the request.
+   * @param name case-insensitive header name
+   * @return the removed header values or null if the header was not set
+   */
+  public List<String> removeHeader(final String name) {
+    return headers.removeHeader(name);
+  }
+
   /**
    * Gets header values for a given name.
    * @param name the header name as a case-insensitive key
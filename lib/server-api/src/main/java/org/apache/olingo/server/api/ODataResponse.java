@@ -20,7 +20,10 @@ package org.apache.olingo.server.api;
 
 import org.apache.olingo.commons.api.http.HttpStatusCode;
 
+import java.io.FilterInputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.nio.channels.Channels;
 import java.util.List;
 import java.util.Map;
 
@@ -32,6 +35,9 @@ public class ODataResponse {
   private int statusCode = HttpStatusCode.INTERNAL_SERVER_ERROR.getStatusCode();
   private final HttpHeaders headers = new HttpHeaders();
   private InputStream content;
+  private ODataMediaContent mediaContent;
+  private long mediaContentPosition;
+  private long mediaContentCount = -1;
 
   /**
    * Sets the status code.
@@ -121,16 +127,84 @@ public class ODataResponse {
    */
   public void setContent(final InputStream content) {
     this.content = content;
+    mediaContent = null;
   }
 
   /**
    * Gets the content (body).
+   * If media content has been set, a stream reading the selected range of the media content is returned;
+   * closing this stream closes the media content.
    * @return the content as {@link InputStream}
    */
   public InputStream getContent() {
+    if (content == null && mediaContent != null) {
+      final ODataMediaContent media = mediaContent;
+      try {
+        content = new FilterInputStream(Channels.newInputStream(
+            media.getChannel(mediaContentPosition, getMediaContentCount()))) {
+          @Override
+          public void close() throws IOException {
+            try {
+              super.close();
+            } finally {
+              media.close();
+            }
+          }
+        };
+      } catch (final IOException e) {
+        throw new IllegalStateException("Media content could not be read.", e);
+      }
+    }
     return content;
   }
 
+  /**
+   * Sets the content (body) of a media entity or stream property as seekable media content.
+   * In contrast to {@link #setContent(InputStream)}, this allows the library to answer range requests
+   * and handlers to transfer the content without intermediate copies.
+   * The media content is closed after it has been written.
+   * @param mediaContent the media content
+   */
+  public void setMediaContent(final ODataMediaContent mediaContent) {
+    this.mediaContent = mediaContent;
+    content = null;
+    mediaContentPosition = 0;
+    mediaContentCount = -1;
+  }
+
+  /**
+   * Gets the media content (body).
+   * @return the media content or <code>null</code> if the content has not been set as media content
+   */
+  public ODataMediaContent getMediaContent() {
+    return mediaContent;
+  }
+
+  /**
+   * Restricts the response to a range of the media content, e.g., for a partial response to a range request.
+   * @param position the position of the first byte
+   * @param count the number of bytes
+   */
+  public void setMediaContentRange(final long position, final long count) {
+    mediaContentPosition = position;
+    mediaContentCount = count;
+    content = null;
+  }
+
+  /** Gets the position of the first byte of the media content to be sent. */
+  public long getMediaContentPosition() {
+    return mediaContentPosition;
+  }
+
+  /** Gets the number of bytes of the media content to be sent; if no range has been set, the remaining length. */
+  public long getMediaContentCount() {
+    if (mediaContentCount >= 0 || mediaContent == null) {
+      return mediaContentCount;
+    }
+    final long length = mediaContent.getLength();
+    return length < 0 ? Long.MAX_VALUE : length - mediaContentPosition;
+  }
+
   private ODataContent odataContent;
 
   public void setODataContent(ODataContent result) {
@@ -36,6 +36,8 @@ public class DebugInformation {
   private Exception exception;
   private Map<String, String> serverEnvironmentVariables;
   private List<RuntimeMeasurement> runtimeInformation;
+  private List<StackTraceElement[]> stackSamples;
+  private int samplingInterval;
 
   /**
    * This method will return the ODataRequest the library created. This request will never be null but might be filled
@@ -115,4 +117,29 @@ public class DebugInformation {
     this.runtimeInformation = runtimeInformation;
   }
 
+  /**
+   * This method will return the stack traces of the request-handling thread sampled during the processing
+   * of the request if profiling has been requested. Will be null if no profiling has been requested.
+   * @return stack samples, each one starting with the innermost frame
+   */
+  public List<StackTraceElement[]> getStackSamples() {
+    return stackSamples;
+  }
+
+  public void setStackSamples(final List<StackTraceElement[]> stackSamples) {
+    this.stackSamples = stackSamples;
+  }
+
+  /**
+   * The interval in milliseconds between two stack samples.
+   * @return sampling interval
+   */
+  public int getSamplingInterval() {
+    return samplingInterval;
+  }
+
+  public void setSamplingInterval(final int samplingInterval) {
+    this.samplingInterval = samplingInterval;
+  }
+
 }
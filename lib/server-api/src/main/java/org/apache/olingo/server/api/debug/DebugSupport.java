@@ -30,6 +30,11 @@ public interface DebugSupport {
   String ODATA_DEBUG_JSON = "json";
   String ODATA_DEBUG_HTML = "html";
   String ODATA_DEBUG_DOWNLOAD = "download";
+  /**
+   * Query parameter requesting, in addition to the debug output, a sampling profile of the request processing;
+   * its value is the sampling interval in milliseconds.
+   */
+  String ODATA_DEBUG_PROFILE_QUERY_PARAMETER = "odata-debug-profile";
 
   /**
    * Initializes the debug support implementation.
@@ -0,0 +1,44 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.api.deserializer;
+
+/**
+ * Result type for {@link ODataDeserializer} methods
+ * which support streaming (read on demand).
+ * The entities of a collection are read from the request body one at a time,
+ * so the whole collection does not have to be kept in memory.
+ */
+public interface DeserializerStreamResult {
+
+  /**
+   * Checks whether there is another entity in the collection.
+   * @return <code>true</code> if {@link #next()} returns another entity
+   * @throws DeserializerException if the content is invalid
+   */
+  boolean hasNext() throws DeserializerException;
+
+  /**
+   * Reads the next entity of the collection.
+   * @return {@link DeserializerResult#getEntity()} and {@link DeserializerResult#getExpandTree()}
+   * with the inline entities of this entity (deep insert)
+   * @throws DeserializerException if the content is invalid
+   * @throws java.util.NoSuchElementException if there is no further entity
+   */
+  DeserializerResult next() throws DeserializerException;
+}
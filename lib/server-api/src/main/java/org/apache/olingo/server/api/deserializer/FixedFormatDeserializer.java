@@ -37,6 +37,16 @@ public interface FixedFormatDeserializer {
    */
   public byte[] binary(InputStream content) throws DeserializerException;
 
+  /**
+   * Wraps an InputStream with binary data, e.g., the body of a media upload, so that it can be
+   * streamed to its storage without holding it in memory while its length is limited.
+   * Reading more than the maximum length results in an {@link java.io.IOException}.
+   * @param content the binary data as input stream
+   * @param maximumLength the maximum number of bytes
+   * @return the binary data as input stream
+   */
+  public InputStream binaryStream(InputStream content, long maximumLength) throws DeserializerException;
+
   /**
    * Reads primitive-type data from an InputStream.
    * @param content the textual value as input stream
@@ -51,6 +51,18 @@ public interface ODataDeserializer {
    */
   DeserializerResult entityCollection(InputStream stream, EdmEntityType edmEntityType) throws DeserializerException;
 
+  /**
+   * Deserializes an entity collection stream entity by entity.
+   * The entities are read from the stream while they are requested from the result,
+   * each one together with the expand tree of its inline entities.
+   * @param stream
+   * @param edmEntityType
+   * @return the entities of the collection
+   * @throws DeserializerException if the start of the content is invalid
+   */
+  DeserializerStreamResult entityCollectionStreamed(InputStream stream, EdmEntityType edmEntityType)
+      throws DeserializerException;
+
   /**
    * Deserializes an action-parameters stream into a map of key/value pairs.
    * Validates: parameter types, no double parameters, correct json types.
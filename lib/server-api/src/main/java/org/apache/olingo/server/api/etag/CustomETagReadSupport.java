@@ -0,0 +1,45 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.api.etag;
+
+import org.apache.olingo.server.api.ODataApplicationException;
+import org.apache.olingo.server.api.uri.UriInfo;
+
+/**
+ * <p>Extension of {@link CustomETagSupport} for conditional read requests.</p>
+ * <p>If a GET or HEAD request carries an if-match or if-none-match header, the current ETag
+ * of the requested resource is retrieved from this interface before the request is dispatched to a processor.
+ * If the if-none-match header matches, the library answers with a "Not Modified" response
+ * without calling the processor at all; if the if-match header does not match,
+ * the library answers with a "Precondition Failed" response.
+ * In all other cases the request is processed as usual.</p>
+ * <p>Implementations should determine the ETag cheaply, e.g., from a version column,
+ * without loading the requested data.</p>
+ */
+public interface CustomETagReadSupport extends CustomETagSupport {
+
+  /**
+   * Gets the current ETag of the resource addressed by the request URI.
+   * @param uriInfo the information about the request URI
+   * @return the current ETag or <code>null</code> if it is unknown,
+   *         in which case the request is processed as usual
+   * @throws ODataApplicationException if the ETag could not be determined
+   */
+  String getReadETag(UriInfo uriInfo) throws ODataApplicationException;
+}
@@ -0,0 +1,127 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.api.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * <p>Thread-safe histogram of non-negative long values with a relative precision of about three percent.</p>
+ * <p>Values are counted in buckets of logarithmically growing width: values below 64 have their own buckets,
+ * larger values share a bucket with the values having the same six most significant bits.
+ * Recording a value neither locks nor allocates memory.</p>
+ */
+public class Histogram {
+
+  private static final int SUB_BUCKET_BITS = 5;
+  private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+  private static final int LINEAR_LIMIT = 2 * SUB_BUCKET_COUNT;
+  private static final int BUCKET_COUNT = LINEAR_LIMIT + (62 - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT;
+
+  private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+  private final AtomicLong count = new AtomicLong();
+  private final AtomicLong sum = new AtomicLong();
+  private final AtomicLong max = new AtomicLong();
+
+  /**
+   * Records a value; negative values are recorded as zero.
+   * @param value the value
+   */
+  public void record(final long value) {
+    final long recorded = Math.max(0, value);
+    counts.incrementAndGet(getIndex(recorded));
+    count.incrementAndGet();
+    sum.addAndGet(recorded);
+    long current = max.get();
+    while (recorded > current && !max.compareAndSet(current, recorded)) {
+      current = max.get();
+    }
+  }
+
+  /** Gets the number of recorded values. */
+  public long getCount() {
+    return count.get();
+  }
+
+  /** Gets the sum of the recorded values. */
+  public long getSum() {
+    return sum.get();
+  }
+
+  /** Gets the largest recorded value. */
+  public long getMax() {
+    return max.get();
+  }
+
+  /** Gets the mean of the recorded values or zero if there are none. */
+  public double getMean() {
+    final long currentCount = count.get();
+    return currentCount == 0 ? 0 : (double) sum.get() / currentCount;
+  }
+
+  /**
+   * Gets the value below or at which the given percentage of the recorded values lies,
+   * rounded up to the upper bound of its bucket but not beyond the largest recorded value.
+   * @param percentile the percentage between 0 and 100
+   * @return the value or zero if there are no recorded values
+   */
+  public long getValueAtPercentile(final double percentile) {
+    final long currentCount = count.get();
+    if (currentCount == 0) {
+      return 0;
+    }
+    final long rank = Math.max(1, (long) Math.ceil(Math.min(100, Math.max(0, percentile)) / 100 * currentCount));
+    long seen = 0;
+    for (int index = 0; index < BUCKET_COUNT; index++) {
+      seen += counts.get(index);
+      if (seen >= rank) {
+        return Math.min(getUpperBound(index), max.get());
+      }
+    }
+    return max.get();
+  }
+
+  /** Removes all recorded values. */
+  public void reset() {
+    for (int index = 0; index < BUCKET_COUNT; index++) {
+      counts.set(index, 0);
+    }
+    count.set(0);
+    sum.set(0);
+    max.set(0);
+  }
+
+  private static int getIndex(final long value) {
+    if (value < LINEAR_LIMIT) {
+      return (int) value;
+    }
+    final int exponent = 63 - Long.numberOfLeadingZeros(value);
+    final int shift = exponent - SUB_BUCKET_BITS;
+    return LINEAR_LIMIT + (shift - 1) * SUB_BUCKET_COUNT + (int) (value >>> shift) - SUB_BUCKET_COUNT;
+  }
+
+  private static long getUpperBound(final int index) {
+    if (index < LINEAR_LIMIT) {
+      return index;
+    }
+    final int shift = (index - LINEAR_LIMIT) / SUB_BUCKET_COUNT + 1;
+    final long mantissa = SUB_BUCKET_COUNT + (index - LINEAR_LIMIT) % SUB_BUCKET_COUNT;
+    return ((mantissa + 1) << shift) - 1;
+  }
+}
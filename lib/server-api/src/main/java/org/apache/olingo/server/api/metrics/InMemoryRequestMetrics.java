@@ -0,0 +1,118 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.api.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.apache.olingo.commons.api.http.HttpMethod;
+
+/**
+ * Request metrics kept in memory: a {@link Histogram} of the durations in nanoseconds
+ * for each phase and for the complete requests, and counters for the requests per HTTP method
+ * and status class, the bytes written, and the batch parts.
+ */
+public class InMemoryRequestMetrics implements RequestMetrics {
+
+  private final Histogram[] phases = new Histogram[Phase.values().length];
+  private final Histogram requests = new Histogram();
+  private final AtomicLongArray methodCounts = new AtomicLongArray(HttpMethod.values().length);
+  private final AtomicLongArray statusClassCounts = new AtomicLongArray(6);
+  private final AtomicLong bytesWritten = new AtomicLong();
+  private final AtomicLong batchParts = new AtomicLong();
+
+  public InMemoryRequestMetrics() {
+    for (int index = 0; index < phases.length; index++) {
+      phases[index] = new Histogram();
+    }
+  }
+
+  @Override
+  public void recordPhase(final Phase phase, final long durationNanos) {
+    phases[phase.ordinal()].record(durationNanos);
+  }
+
+  @Override
+  public void recordRequest(final HttpMethod method, final int statusCode, final long durationNanos) {
+    requests.record(durationNanos);
+    if (method != null) {
+      methodCounts.incrementAndGet(method.ordinal());
+    }
+    statusClassCounts.incrementAndGet(statusCode >= 100 && statusCode < 600 ? statusCode / 100 : 0);
+  }
+
+  @Override
+  public void recordBytesWritten(final long bytes) {
+    bytesWritten.addAndGet(bytes);
+  }
+
+  @Override
+  public void recordBatchPart() {
+    batchParts.incrementAndGet();
+  }
+
+  /** Gets the durations of the given phase in nanoseconds. */
+  public Histogram getPhase(final Phase phase) {
+    return phases[phase.ordinal()];
+  }
+
+  /** Gets the total durations of the requests in nanoseconds. */
+  public Histogram getRequests() {
+    return requests;
+  }
+
+  /** Gets the number of requests with the given HTTP method. */
+  public long getRequestCount(final HttpMethod method) {
+    return methodCounts.get(method.ordinal());
+  }
+
+  /**
+   * Gets the number of responses in the given status class.
+   * @param statusClass the first digit of the status code, e.g., 5 for server errors
+   */
+  public long getStatusClassCount(final int statusClass) {
+    return statusClass > 0 && statusClass < 6 ? statusClassCounts.get(statusClass) : 0;
+  }
+
+  /** Gets the total number of bytes written. */
+  public long getBytesWritten() {
+    return bytesWritten.get();
+  }
+
+  /** Gets the number of processed batch parts. */
+  public long getBatchParts() {
+    return batchParts.get();
+  }
+
+  /** Removes all recorded values. */
+  public void reset() {
+    for (final Histogram histogram : phases) {
+      histogram.reset();
+    }
+    requests.reset();
+    for (int index = 0; index < methodCounts.length(); index++) {
+      methodCounts.set(index, 0);
+    }
+    for (int index = 0; index < statusClassCounts.length(); index++) {
+      statusClassCounts.set(index, 0);
+    }
+    bytesWritten.set(0);
+    batchParts.set(0);
+  }
+}
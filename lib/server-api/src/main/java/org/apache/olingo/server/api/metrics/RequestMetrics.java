@@ -0,0 +1,75 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.api.metrics;
+
+import org.apache.olingo.commons.api.http.HttpMethod;
+import org.apache.olingo.server.api.OlingoExtension;
+
+/**
+ * <p>Receives the durations of the processing phases and other figures of every request;
+ * register an implementation at the handler to monitor the service.</p>
+ * <p>In contrast to the runtime measurements of the debug support, the methods are called for all requests,
+ * so implementations must be thread-safe and fast, and should not allocate memory.
+ * Registering an implementation is not completely free, though: the HTTP handler then wraps the servlet response
+ * and its output stream in order to count the bytes written, i.e., it allocates two small objects per request.</p>
+ * <p>The phases are recorded for the requests received by the handler only; the processing of the requests
+ * contained in a batch request is part of the batch request's {@link Phase#PROCESS PROCESS} phase.</p>
+ * <p>{@link InMemoryRequestMetrics} keeps the values in histograms; implementations forwarding them to
+ * the meter registry of a monitoring system can be registered instead.</p>
+ */
+public interface RequestMetrics extends OlingoExtension {
+
+  /** Phases of the processing of a request. */
+  enum Phase {
+    /** Conversion of the HTTP request into an OData request */
+    READ_REQUEST,
+    /** Parsing of the request URI */
+    PARSE_URI,
+    /** Validation of the parsed request URI */
+    VALIDATE_URI,
+    /** Dispatching to and processing by the processor, including the serialization of non-streamed content */
+    PROCESS,
+    /** Writing the response to the HTTP response, including the serialization of streamed content */
+    WRITE_RESPONSE
+  }
+
+  /**
+   * Records the duration of a processing phase.
+   * @param phase the phase
+   * @param durationNanos the duration in nanoseconds
+   */
+  void recordPhase(Phase phase, long durationNanos);
+
+  /**
+   * Records a completely processed HTTP request.
+   * @param method the HTTP method
+   * @param statusCode the HTTP status code of the response
+   * @param durationNanos the total duration in nanoseconds
+   */
+  void recordRequest(HttpMethod method, int statusCode, long durationNanos);
+
+  /**
+   * Records the size of a response body as written to the HTTP response, i.e., after compression.
+   * @param bytes the number of bytes
+   */
+  void recordBytesWritten(long bytes);
+
+  /** Records the processing of a request contained in a batch request. */
+  void recordBatchPart();
+}
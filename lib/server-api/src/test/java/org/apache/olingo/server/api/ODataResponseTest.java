@@ -18,9 +18,19 @@
  */
 package org.apache.olingo.server.api;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -49,4 +59,66 @@ public class ODataResponseTest {
     r.setInnerError(map);
     assertNotNull(r.getInnerError());
   }
+
+  @Test
+  public void mediaContent() throws Exception {
+    ODataResponse response = new ODataResponse();
+    response.setMediaContent(ODataMediaContent.of("0123456789".getBytes("UTF-8")));
+    assertEquals(10, response.getMediaContent().getLength());
+    assertEquals(10, response.getMediaContentCount());
+    response.setMediaContentRange(2, 5);
+    assertEquals("23456", read(response.getContent()));
+
+    response.setContent(null);
+    assertNull(response.getMediaContent());
+    assertNull(response.getContent());
+  }
+
+  @Test
+  public void mediaContentWrite() throws Exception {
+    final ODataMediaContent media = ODataMediaContent.of("0123456789".getBytes("UTF-8"));
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    media.write(Channels.newChannel(output), 7, 10);
+    assertEquals("789", output.toString("UTF-8"));
+    assertNull(media.getFileChannel());
+    assertEquals(10, media.getByteBuffer().remaining());
+  }
+
+  @Test
+  public void mediaContentFile() throws Exception {
+    File file = File.createTempFile("media", ".bin");
+    file.deleteOnExit();
+    FileOutputStream fileOutput = new FileOutputStream(file);
+    fileOutput.write("0123456789".getBytes("UTF-8"));
+    fileOutput.close();
+
+    final FileChannel channel = new RandomAccessFile(file, "r").getChannel();
+    final ODataMediaContent media = ODataMediaContent.of(channel);
+    assertEquals(10, media.getLength());
+    assertEquals(channel, media.getFileChannel());
+    assertNull(media.getByteBuffer());
+
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    media.write(Channels.newChannel(output), 3, 4);
+    assertEquals("3456", output.toString("UTF-8"));
+
+    ODataResponse response = new ODataResponse();
+    response.setMediaContent(media);
+    response.setMediaContentRange(8, 5);
+    final InputStream content = response.getContent();
+    assertEquals("89", read(content));
+    assertTrue(channel.isOpen());
+    content.close();
+    assertFalse(channel.isOpen());
+  }
+
+  private String read(final InputStream input) throws Exception {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    byte[] buffer = new byte[3];
+    int count;
+    while ((count = input.read(buffer)) >= 0) {
+      output.write(buffer, 0, count);
+    }
+    return output.toString("UTF-8");
+  }
 }
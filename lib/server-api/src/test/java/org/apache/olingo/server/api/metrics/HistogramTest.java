@@ -0,0 +1,108 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.api.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.olingo.commons.api.http.HttpMethod;
+import org.junit.Test;
+
+public class HistogramTest {
+
+  @Test
+  public void empty() {
+    final Histogram histogram = new Histogram();
+    assertEquals(0, histogram.getCount());
+    assertEquals(0, histogram.getValueAtPercentile(99), 0);
+    assertEquals(0, histogram.getMean(), 0);
+  }
+
+  @Test
+  public void smallValuesAreExact() {
+    final Histogram histogram = new Histogram();
+    for (int value = 1; value <= 50; value++) {
+      histogram.record(value);
+    }
+    assertEquals(50, histogram.getCount());
+    assertEquals(1275, histogram.getSum());
+    assertEquals(25.5, histogram.getMean(), 0);
+    assertEquals(1, histogram.getValueAtPercentile(0));
+    assertEquals(25, histogram.getValueAtPercentile(50));
+    assertEquals(50, histogram.getValueAtPercentile(99));
+    assertEquals(50, histogram.getMax());
+  }
+
+  @Test
+  public void largeValuesArePrecise() {
+    final Histogram histogram = new Histogram();
+    for (long value = 1000; value <= 1000000; value += 1000) {
+      histogram.record(value * 1000);
+    }
+    assertEquals(1000, histogram.getCount());
+    assertPrecise(500000000L, histogram.getValueAtPercentile(50));
+    assertPrecise(990000000L, histogram.getValueAtPercentile(99));
+    assertEquals(1000000000L, histogram.getValueAtPercentile(100));
+
+    histogram.record(Long.MAX_VALUE);
+    assertEquals(Long.MAX_VALUE, histogram.getValueAtPercentile(100));
+    histogram.record(-5);
+    assertEquals(0, histogram.getValueAtPercentile(0));
+  }
+
+  @Test
+  public void reset() {
+    final Histogram histogram = new Histogram();
+    histogram.record(42);
+    histogram.reset();
+    assertEquals(0, histogram.getCount());
+    assertEquals(0, histogram.getMax());
+    assertEquals(0, histogram.getValueAtPercentile(50));
+  }
+
+  @Test
+  public void inMemoryRequestMetrics() {
+    final InMemoryRequestMetrics metrics = new InMemoryRequestMetrics();
+    metrics.recordPhase(RequestMetrics.Phase.PARSE_URI, 100);
+    metrics.recordRequest(HttpMethod.GET, 200, 1000);
+    metrics.recordRequest(HttpMethod.POST, 404, 2000);
+    metrics.recordRequest(null, 999, 10);
+    metrics.recordBytesWritten(512);
+    metrics.recordBatchPart();
+    assertEquals(1, metrics.getPhase(RequestMetrics.Phase.PARSE_URI).getCount());
+    assertEquals(0, metrics.getPhase(RequestMetrics.Phase.PROCESS).getCount());
+    assertEquals(3, metrics.getRequests().getCount());
+    assertEquals(1, metrics.getRequestCount(HttpMethod.GET));
+    assertEquals(1, metrics.getStatusClassCount(2));
+    assertEquals(1, metrics.getStatusClassCount(4));
+    assertEquals(0, metrics.getStatusClassCount(9));
+    assertEquals(512, metrics.getBytesWritten());
+    assertEquals(1, metrics.getBatchParts());
+
+    metrics.reset();
+    assertEquals(0, metrics.getRequests().getCount());
+    assertEquals(0, metrics.getRequestCount(HttpMethod.GET));
+    assertEquals(0, metrics.getBytesWritten());
+  }
+
+  private void assertPrecise(final long expected, final long actual) {
+    assertTrue("expected about " + expected + " but was " + actual,
+        Math.abs(actual - expected) <= expected / 32);
+  }
+}
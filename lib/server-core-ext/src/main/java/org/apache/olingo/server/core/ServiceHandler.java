@@ -279,7 +279,9 @@ public interface ServiceHandler extends Processor {
   void rollback(String txnId) throws ODataLibraryException, ODataApplicationException;;
 
   /**
-   * This is not complete, more URL parsing changes required. Cross join between two entities.
+   * Cross join between entity sets. The rows can be computed with the
+   * {@link org.apache.olingo.server.core.crossjoin.CrossJoinEvaluator} and written with the
+   * {@link org.apache.olingo.server.core.responses.CrossJoinResponse}.
    * @param dataRequest
    * @param entitySetNames
    * @param response
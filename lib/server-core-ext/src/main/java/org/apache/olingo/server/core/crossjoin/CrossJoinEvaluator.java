@@ -0,0 +1,614 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.core.crossjoin;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.apache.olingo.commons.api.Constants;
+import org.apache.olingo.commons.api.data.Entity;
+import org.apache.olingo.commons.api.data.Property;
+import org.apache.olingo.commons.api.data.PropertyList;
+import org.apache.olingo.commons.api.edm.EdmEntitySet;
+import org.apache.olingo.commons.api.edm.EdmPrimitiveType;
+import org.apache.olingo.commons.api.edm.EdmPrimitiveTypeException;
+import org.apache.olingo.commons.api.ex.ODataRuntimeException;
+import org.apache.olingo.commons.api.http.HttpStatusCode;
+import org.apache.olingo.server.api.ODataApplicationException;
+import org.apache.olingo.server.api.uri.UriResource;
+import org.apache.olingo.server.api.uri.UriResourceEntitySet;
+import org.apache.olingo.server.api.uri.UriResourceKind;
+import org.apache.olingo.server.api.uri.UriResourceLambdaAll;
+import org.apache.olingo.server.api.uri.UriResourceLambdaAny;
+import org.apache.olingo.server.api.uri.UriResourceProperty;
+import org.apache.olingo.server.api.uri.queryoption.expression.Binary;
+import org.apache.olingo.server.api.uri.queryoption.expression.BinaryOperatorKind;
+import org.apache.olingo.server.api.uri.queryoption.expression.Expression;
+import org.apache.olingo.server.api.uri.queryoption.expression.Literal;
+import org.apache.olingo.server.api.uri.queryoption.expression.Member;
+import org.apache.olingo.server.api.uri.queryoption.expression.Method;
+import org.apache.olingo.server.api.uri.queryoption.expression.Unary;
+import org.apache.olingo.server.api.uri.queryoption.expression.UnaryOperatorKind;
+
+/**
+ * Evaluates <code>$crossjoin</code> requests in memory.
+ * <br/>
+ * The conjuncts of the <code>$filter</code> expression that compare properties of two different entity sets
+ * for equality are used as join conditions: all entity sets but the first one are read into hash tables
+ * keyed by their join properties, and the entities of the first entity set are streamed and probed against them.
+ * Entity sets without join condition to the entity sets joined before are combined as cartesian product.
+ * All other conjuncts are evaluated as early as possible: conjuncts referring to a single entity set
+ * while reading it, the remaining ones as soon as all entity sets they refer to have been joined.
+ * The result rows are produced lazily, so the combined result is never kept in memory.
+ * <br/>
+ * Logical operators, comparisons, literals, and property paths are evaluated directly,
+ * all other expressions are delegated to a {@link RowEvaluator}.
+ * <br/>
+ * Note that <code>null</code> values are equal to each other as defined by the <code>eq</code> operator.
+ */
+public class CrossJoinEvaluator {
+
+  /** Provides the entities of the entity sets to be joined. */
+  public interface EntitySource {
+    /**
+     * Reads the entities of an entity set.
+     * @param entitySet the entity set
+     * @return the entities
+     * @throws ODataApplicationException if the entities cannot be read
+     */
+    Iterator<Entity> read(EdmEntitySet entitySet) throws ODataApplicationException;
+  }
+
+  /** Evaluates expressions that the {@link CrossJoinEvaluator} does not evaluate itself. */
+  public interface RowEvaluator {
+    /**
+     * Evaluates an expression for a (partial) result row.
+     * @param expression the expression
+     * @param row the entities of the row, by entity-set name; it contains all entity sets the expression refers to
+     * @return the primitive value of the expression, e.g., a {@link Boolean} for filter expressions
+     * @throws ODataApplicationException if the expression cannot be evaluated
+     */
+    Object evaluate(Expression expression, Map<String, Entity> row) throws ODataApplicationException;
+  }
+
+  private final List<EdmEntitySet> entitySets;
+  private final RowEvaluator evaluator;
+  private final Map<String, Integer> positions = new HashMap<String, Integer>();
+  private final List<Stage> stages = new ArrayList<Stage>();
+  private final Map<Literal, Object> literalValues = new IdentityHashMap<Literal, Object>();
+
+  /**
+   * Creates an evaluator and plans the joins.
+   * @param entitySets the entity sets of the <code>$crossjoin</code>; the first one is streamed,
+   *                   so it should be the largest one
+   * @param filter the <code>$filter</code> expression or <code>null</code>
+   * @param evaluator evaluator for expressions that are not evaluated directly; may be <code>null</code>
+   */
+  public CrossJoinEvaluator(final List<EdmEntitySet> entitySets, final Expression filter,
+      final RowEvaluator evaluator) {
+    this.entitySets = entitySets;
+    this.evaluator = evaluator;
+
+    List<Expression> conjuncts = new ArrayList<Expression>();
+    if (filter != null) {
+      addConjuncts(filter, conjuncts);
+    }
+    List<JoinCondition> joinConditions = new ArrayList<JoinCondition>();
+    List<Expression> filters = new ArrayList<Expression>();
+    for (final Expression conjunct : conjuncts) {
+      final JoinCondition joinCondition = getJoinCondition(conjunct);
+      if (joinCondition == null) {
+        filters.add(conjunct);
+      } else {
+        joinConditions.add(joinCondition);
+      }
+    }
+
+    planJoinOrder(joinConditions);
+    for (final Expression expression : filters) {
+      final Set<Integer> referenced = new TreeSet<Integer>();
+      collectEntitySets(expression, referenced);
+      final int last = referenced.isEmpty() ? 0 : Collections.max(referenced);
+      if (referenced.size() == 1 && last > 0) {
+        stages.get(last).localFilters.add(expression);
+      } else {
+        stages.get(last).filters.add(expression);
+      }
+    }
+  }
+
+  /**
+   * Gets the names of the entity sets in the order they are joined.
+   * @return the entity-set names
+   */
+  public List<String> getJoinOrder() {
+    List<String> result = new ArrayList<String>(stages.size());
+    for (final Stage stage : stages) {
+      result.add(stage.entitySet.getName());
+    }
+    return result;
+  }
+
+  /**
+   * Evaluates the cross join.
+   * All entity sets but the first one are read immediately, the first one is read while the result is iterated.
+   * The rows contain the entities by entity-set name in the order of the entity sets in the request.
+   * Without {@link RowEvaluator}, the filter is checked for unsupported expressions before anything is read.
+   * Since iterators cannot throw checked exceptions, errors while iterating
+   * are wrapped in an {@link ODataRuntimeException}.
+   * @param source the source of the entities
+   * @return the result rows
+   * @throws ODataApplicationException if the entities cannot be read or the filter cannot be evaluated
+   */
+  public Iterator<Map<String, Entity>> evaluate(final EntitySource source) throws ODataApplicationException {
+    if (evaluator == null) {
+      for (final Stage stage : stages) {
+        for (final Expression filter : stage.localFilters) {
+          checkSupported(filter);
+        }
+        for (final Expression filter : stage.filters) {
+          checkSupported(filter);
+        }
+      }
+    }
+    for (int position = 1; position < stages.size(); position++) {
+      stages.get(position).build(source.read(stages.get(position).entitySet));
+    }
+    return new RowIterator(source.read(stages.get(0).entitySet));
+  }
+
+  private void addConjuncts(final Expression expression, final List<Expression> conjuncts) {
+    if (expression instanceof Binary && ((Binary) expression).getOperator() == BinaryOperatorKind.AND) {
+      addConjuncts(((Binary) expression).getLeftOperand(), conjuncts);
+      addConjuncts(((Binary) expression).getRightOperand(), conjuncts);
+    } else {
+      conjuncts.add(expression);
+    }
+  }
+
+  /** Determines whether the expression compares properties of two different entity sets for equality. */
+  private JoinCondition getJoinCondition(final Expression expression) {
+    if (expression instanceof Binary && ((Binary) expression).getOperator() == BinaryOperatorKind.EQ) {
+      final PropertyPath left = getPropertyPath(((Binary) expression).getLeftOperand());
+      final PropertyPath right = getPropertyPath(((Binary) expression).getRightOperand());
+      if (left != null && right != null && !left.entitySetName.equals(right.entitySetName)) {
+        return new JoinCondition(left, right);
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Determines the join order: starting with the first entity set, the next entity set is the first one
+   * in the request that has a join condition with the entity sets joined so far, or simply the next one
+   * if there is no such entity set.
+   */
+  private void planJoinOrder(final List<JoinCondition> joinConditions) {
+    List<EdmEntitySet> remaining = new ArrayList<EdmEntitySet>(entitySets);
+    while (!remaining.isEmpty()) {
+      EdmEntitySet next = remaining.get(0);
+      for (final EdmEntitySet candidate : remaining) {
+        if (!getJoinConditions(candidate.getName(), joinConditions).isEmpty()) {
+          next = candidate;
+          break;
+        }
+      }
+      remaining.remove(next);
+      Stage stage = new Stage(next);
+      for (final JoinCondition joinCondition : getJoinConditions(next.getName(), joinConditions)) {
+        final boolean leftIsNext = joinCondition.left.entitySetName.equals(next.getName());
+        stage.buildPaths.add(leftIsNext ? joinCondition.left : joinCondition.right);
+        stage.probePaths.add(leftIsNext ? joinCondition.right : joinCondition.left);
+      }
+      positions.put(next.getName(), stages.size());
+      stages.add(stage);
+    }
+  }
+
+  /** Gets the join conditions between the given entity set and the entity sets joined so far. */
+  private List<JoinCondition> getJoinConditions(final String entitySetName, final List<JoinCondition> joinConditions) {
+    List<JoinCondition> result = new ArrayList<JoinCondition>();
+    for (final JoinCondition joinCondition : joinConditions) {
+      if (joinCondition.left.entitySetName.equals(entitySetName)
+          && positions.containsKey(joinCondition.right.entitySetName)
+          || joinCondition.right.entitySetName.equals(entitySetName)
+          && positions.containsKey(joinCondition.left.entitySetName)) {
+        result.add(joinCondition);
+      }
+    }
+    return result;
+  }
+
+  /** Collects the positions of the entity sets the expression refers to. */
+  private void collectEntitySets(final Expression expression, final Set<Integer> referenced) {
+    if (expression instanceof Binary) {
+      collectEntitySets(((Binary) expression).getLeftOperand(), referenced);
+      collectEntitySets(((Binary) expression).getRightOperand(), referenced);
+    } else if (expression instanceof Unary) {
+      collectEntitySets(((Unary) expression).getOperand(), referenced);
+    } else if (expression instanceof Method) {
+      for (final Expression parameter : ((Method) expression).getParameters()) {
+        collectEntitySets(parameter, referenced);
+      }
+    } else if (expression instanceof Member) {
+      for (final UriResource segment : ((Member) expression).getResourcePath().getUriResourceParts()) {
+        if (segment instanceof UriResourceEntitySet) {
+          final Integer position = positions.get(((UriResourceEntitySet) segment).getEntitySet().getName());
+          if (position != null) {
+            referenced.add(position);
+          }
+        } else if (segment instanceof UriResourceLambdaAny) {
+          collectEntitySets(((UriResourceLambdaAny) segment).getExpression(), referenced);
+        } else if (segment instanceof UriResourceLambdaAll) {
+          collectEntitySets(((UriResourceLambdaAll) segment).getExpression(), referenced);
+        }
+      }
+    }
+  }
+
+  /**
+   * Gets the path of a member expression if it starts with an entity set of the cross join
+   * followed by single-valued structural properties.
+   * @return the path or <code>null</code>
+   */
+  private PropertyPath getPropertyPath(final Expression expression) {
+    if (!(expression instanceof Member) || ((Member) expression).getStartTypeFilter() != null) {
+      return null;
+    }
+    final List<UriResource> segments = ((Member) expression).getResourcePath().getUriResourceParts();
+    if (segments.size() < 2 || !(segments.get(0) instanceof UriResourceEntitySet)
+        || ((UriResourceEntitySet) segments.get(0)).getTypeFilterOnCollection() != null) {
+      return null;
+    }
+    List<String> names = new ArrayList<String>(segments.size() - 1);
+    for (final UriResource segment : segments.subList(1, segments.size())) {
+      if (segment.getKind() != UriResourceKind.primitiveProperty
+          && segment.getKind() != UriResourceKind.complexProperty
+          || ((UriResourceProperty) segment).isCollection()
+          || ((UriResourceProperty) segment).getProperty() == null) {
+        return null;
+      }
+      names.add(((UriResourceProperty) segment).getProperty().getName());
+    }
+    return new PropertyPath(((UriResourceEntitySet) segments.get(0)).getEntitySet().getName(), names);
+  }
+
+  private Object getValue(final PropertyPath path, final Entity entity) {
+    List<Property> properties = entity.getProperties();
+    Property property = null;
+    for (final String name : path.propertyNames) {
+      if (properties == null) {
+        return null;
+      }
+      property = PropertyList.find(properties, name);
+      properties = property == null || !property.isComplex() || property.isNull() ?
+          null :
+          property.asComplex().getValue();
+    }
+    return property == null ? null : normalize(property.getValue());
+  }
+
+  /** Checks that the expression can be evaluated without {@link RowEvaluator}. */
+  private void checkSupported(final Expression expression) throws ODataApplicationException {
+    if (expression instanceof Binary) {
+      final BinaryOperatorKind operator = ((Binary) expression).getOperator();
+      if (operator != BinaryOperatorKind.AND && operator != BinaryOperatorKind.OR && !isComparison(operator)) {
+        throw notSupported();
+      }
+      checkSupported(((Binary) expression).getLeftOperand());
+      checkSupported(((Binary) expression).getRightOperand());
+    } else if (expression instanceof Unary && ((Unary) expression).getOperator() == UnaryOperatorKind.NOT) {
+      checkSupported(((Unary) expression).getOperand());
+    } else if (expression instanceof Literal) {
+      getLiteralValue((Literal) expression);
+    } else if (!(expression instanceof Member) || getPropertyPath(expression) == null) {
+      throw notSupported();
+    }
+  }
+
+  private ODataApplicationException notSupported() {
+    return new ODataApplicationException(
+        "Only logical operators, comparisons, literals, and property paths are supported in cross joins.",
+        HttpStatusCode.NOT_IMPLEMENTED.getStatusCode(), Locale.ROOT);
+  }
+
+  private boolean accept(final List<Expression> filters, final Entity[] row) throws ODataApplicationException {
+    for (final Expression filter : filters) {
+      if (!Boolean.TRUE.equals(evaluate(filter, row))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** Evaluates an expression for a (partial) result row with the entities in join order. */
+  private Object evaluate(final Expression expression, final Entity[] row) throws ODataApplicationException {
+    if (expression instanceof Binary) {
+      final BinaryOperatorKind operator = ((Binary) expression).getOperator();
+      final Expression leftOperand = ((Binary) expression).getLeftOperand();
+      final Expression rightOperand = ((Binary) expression).getRightOperand();
+      if (operator == BinaryOperatorKind.AND || operator == BinaryOperatorKind.OR) {
+        // Three-valued logic: the result is null (unknown) if it depends on a null operand.
+        final Boolean decisive = operator == BinaryOperatorKind.OR;
+        final Object left = evaluate(leftOperand, row);
+        if (decisive.equals(left)) {
+          return decisive;
+        }
+        final Object right = evaluate(rightOperand, row);
+        return decisive.equals(right) ? decisive : left == null || right == null ? null : !decisive;
+      } else if (isComparison(operator)) {
+        return compare(operator, evaluate(leftOperand, row), evaluate(rightOperand, row));
+      }
+    } else if (expression instanceof Unary && ((Unary) expression).getOperator() == UnaryOperatorKind.NOT) {
+      final Object operand = evaluate(((Unary) expression).getOperand(), row);
+      return operand == null ? null : !((Boolean) operand);
+    } else if (expression instanceof Literal) {
+      return getLiteralValue((Literal) expression);
+    } else if (expression instanceof Member) {
+      final PropertyPath path = getPropertyPath(expression);
+      if (path != null) {
+        final Entity entity = row[positions.get(path.entitySetName)];
+        return entity == null ? null : getValue(path, entity);
+      }
+    }
+    if (evaluator == null) {
+      throw notSupported();
+    }
+    return normalize(evaluator.evaluate(expression, createRow(row)));
+  }
+
+  private boolean isComparison(final BinaryOperatorKind operator) {
+    return operator == BinaryOperatorKind.EQ || operator == BinaryOperatorKind.NE
+        || operator == BinaryOperatorKind.GT || operator == BinaryOperatorKind.GE
+        || operator == BinaryOperatorKind.LT || operator == BinaryOperatorKind.LE;
+  }
+
+  @SuppressWarnings("unchecked")
+  private Boolean compare(final BinaryOperatorKind operator, final Object left, final Object right)
+      throws ODataApplicationException {
+    if (operator == BinaryOperatorKind.EQ || operator == BinaryOperatorKind.NE) {
+      final boolean equal = left == null ? right == null : left.equals(right);
+      return operator == BinaryOperatorKind.EQ ? equal : !equal;
+    }
+    if (left == null || right == null) {
+      return false;
+    }
+    if (!(left instanceof Comparable) || left.getClass() != right.getClass()) {
+      throw new ODataApplicationException("The values '" + left + "' and '" + right + "' cannot be compared.",
+          HttpStatusCode.BAD_REQUEST.getStatusCode(), Locale.ROOT);
+    }
+    final int result = ((Comparable<Object>) left).compareTo(right);
+    return operator == BinaryOperatorKind.GT ? result > 0
+        : operator == BinaryOperatorKind.GE ? result >= 0
+        : operator == BinaryOperatorKind.LT ? result < 0
+        : result <= 0;
+  }
+
+  private Object getLiteralValue(final Literal literal) throws ODataApplicationException {
+    if (literal.getType() == null) {
+      return null;
+    }
+    if (literalValues.containsKey(literal)) {
+      return literalValues.get(literal);
+    }
+    if (!(literal.getType() instanceof EdmPrimitiveType)) {
+      throw new ODataApplicationException("Only primitive literals are supported.",
+          HttpStatusCode.NOT_IMPLEMENTED.getStatusCode(), Locale.ROOT);
+    }
+    final EdmPrimitiveType type = (EdmPrimitiveType) literal.getType();
+    try {
+      final Object value = normalize(type.valueOfString(type.fromUriLiteral(literal.getText()),
+          null, null, Constants.DEFAULT_PRECISION, Constants.DEFAULT_SCALE, null, type.getDefaultType()));
+      literalValues.put(literal, value);
+      return value;
+    } catch (final EdmPrimitiveTypeException e) {
+      throw new ODataApplicationException("Invalid literal '" + literal.getText() + "'.",
+          HttpStatusCode.BAD_REQUEST.getStatusCode(), Locale.ROOT, e);
+    }
+  }
+
+  /**
+   * Normalizes a primitive value so that equal values of different Java types are equal and have the same
+   * hash code: numbers become decimals, date and time values become dates, and binary values byte buffers.
+   */
+  private static Object normalize(final Object value) {
+    if (value instanceof Number && !(value instanceof BigDecimal)) {
+      if (value instanceof Double || value instanceof Float) {
+        final double doubleValue = ((Number) value).doubleValue();
+        return Double.isNaN(doubleValue) || Double.isInfinite(doubleValue) ?
+            Double.valueOf(doubleValue) :
+            normalize(BigDecimal.valueOf(doubleValue));
+      }
+      return normalize(new BigDecimal(value.toString()));
+    } else if (value instanceof BigDecimal) {
+      return ((BigDecimal) value).signum() == 0 ? BigDecimal.ZERO : ((BigDecimal) value).stripTrailingZeros();
+    } else if (value instanceof Calendar) {
+      return new Date(((Calendar) value).getTimeInMillis());
+    } else if (value instanceof Date && value.getClass() != Date.class) {
+      return new Date(((Date) value).getTime());
+    } else if (value instanceof byte[]) {
+      return ByteBuffer.wrap((byte[]) value);
+    }
+    return value;
+  }
+
+  private Map<String, Entity> createRow(final Entity[] row) {
+    Map<String, Entity> result = new LinkedHashMap<String, Entity>();
+    for (final EdmEntitySet entitySet : entitySets) {
+      final Entity entity = row[positions.get(entitySet.getName())];
+      if (entity != null) {
+        result.put(entitySet.getName(), entity);
+      }
+    }
+    return result;
+  }
+
+  /** Path from an entity set of the cross join to a single-valued structural property. */
+  private static final class PropertyPath {
+    private final String entitySetName;
+    private final List<String> propertyNames;
+
+    private PropertyPath(final String entitySetName, final List<String> propertyNames) {
+      this.entitySetName = entitySetName;
+      this.propertyNames = propertyNames;
+    }
+  }
+
+  /** Equality of properties of two different entity sets. */
+  private static final class JoinCondition {
+    private final PropertyPath left;
+    private final PropertyPath right;
+
+    private JoinCondition(final PropertyPath left, final PropertyPath right) {
+      this.left = left;
+      this.right = right;
+    }
+  }
+
+  /**
+   * Joins an entity set to the entity sets before it in the join order; the hash table is keyed
+   * by the values of the build paths of its entities and probed with the values of the probe paths
+   * of the entities joined so far. Without join conditions all entities have the same (empty) key.
+   */
+  private final class Stage {
+    private final EdmEntitySet entitySet;
+    private final List<PropertyPath> buildPaths = new ArrayList<PropertyPath>();
+    private final List<PropertyPath> probePaths = new ArrayList<PropertyPath>();
+    private final List<Expression> localFilters = new ArrayList<Expression>();
+    private final List<Expression> filters = new ArrayList<Expression>();
+    private final Map<List<Object>, List<Entity>> hashTable = new HashMap<List<Object>, List<Entity>>();
+
+    private Stage(final EdmEntitySet entitySet) {
+      this.entitySet = entitySet;
+    }
+
+    private void build(final Iterator<Entity> entities) throws ODataApplicationException {
+      Entity[] row = new Entity[stages.size()];
+      final int position = positions.get(entitySet.getName());
+      while (entities.hasNext()) {
+        final Entity entity = entities.next();
+        row[position] = entity;
+        if (accept(localFilters, row)) {
+          List<Object> key = new ArrayList<Object>(buildPaths.size());
+          for (final PropertyPath path : buildPaths) {
+            key.add(getValue(path, entity));
+          }
+          List<Entity> bucket = hashTable.get(key);
+          if (bucket == null) {
+            bucket = new ArrayList<Entity>(1);
+            hashTable.put(key, bucket);
+          }
+          bucket.add(entity);
+        }
+      }
+    }
+
+    private Iterator<Entity> probe(final Entity[] row) {
+      List<Object> key = new ArrayList<Object>(probePaths.size());
+      for (final PropertyPath path : probePaths) {
+        key.add(getValue(path, row[positions.get(path.entitySetName)]));
+      }
+      final List<Entity> bucket = hashTable.get(key);
+      return bucket == null ? Collections.<Entity>emptyList().iterator() : bucket.iterator();
+    }
+  }
+
+  /**
+   * Produces the result rows by streaming the entities of the first entity set and probing
+   * the hash tables of the following entity sets depth-first.
+   */
+  private final class RowIterator implements Iterator<Map<String, Entity>> {
+    private final Entity[] row = new Entity[stages.size()];
+    @SuppressWarnings("unchecked")
+    private final Iterator<Entity>[] candidates = new Iterator[stages.size()];
+    private int level = 0;
+    private Map<String, Entity> next;
+
+    private RowIterator(final Iterator<Entity> entities) {
+      candidates[0] = entities;
+    }
+
+    @Override
+    public boolean hasNext() {
+      if (next == null) {
+        try {
+          next = fetch();
+        } catch (final ODataApplicationException e) {
+          throw new ODataRuntimeException("Evaluating the cross join has failed.", e);
+        }
+      }
+      return next != null;
+    }
+
+    @Override
+    public Map<String, Entity> next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      final Map<String, Entity> result = next;
+      next = null;
+      return result;
+    }
+
+    @Override
+    public void remove() {
+      throw new UnsupportedOperationException();
+    }
+
+    private Map<String, Entity> fetch() throws ODataApplicationException {
+      while (level >= 0) {
+        if (level == stages.size()) {
+          // The next row continues with the next candidate of the last entity set.
+          level--;
+          return createRow(row);
+        }
+        if (candidates[level] == null) {
+          candidates[level] = stages.get(level).probe(row);
+        }
+        if (candidates[level].hasNext()) {
+          row[level] = candidates[level].next();
+          if (accept(stages.get(level).filters, row)) {
+            level++;
+          }
+        } else if (level == 0) {
+          level = -1;
+        } else {
+          candidates[level] = null;
+          row[level] = null;
+          level--;
+        }
+      }
+      return null;
+    }
+  }
+}
@@ -759,7 +759,8 @@ public class DataRequest extends ServiceRequest {
 
     @Override
     public ContextURL getContextURL(OData odata) throws SerializerException {
-      ContextURL.Builder builder = ContextURL.with().asCollection();
+      ContextURL.Builder builder = ContextURL.with().asCollection().entitySetOrSingletonOrType("Edm.ComplexType");
+      setServiceRoot(builder, getODataRequest());
       return builder.build();
     }
   }
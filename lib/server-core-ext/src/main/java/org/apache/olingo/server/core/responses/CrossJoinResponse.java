@@ -0,0 +1,197 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.core.responses;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.codec.DecoderException;
+import org.apache.olingo.commons.api.Constants;
+import org.apache.olingo.commons.api.data.ContextURL;
+import org.apache.olingo.commons.api.data.Entity;
+import org.apache.olingo.commons.api.edm.EdmEntitySet;
+import org.apache.olingo.commons.api.ex.ODataRuntimeException;
+import org.apache.olingo.commons.api.format.ContentType;
+import org.apache.olingo.server.api.ODataApplicationException;
+import org.apache.olingo.server.api.ODataContent;
+import org.apache.olingo.server.api.ODataLibraryException;
+import org.apache.olingo.server.api.ODataResponse;
+import org.apache.olingo.server.api.ServiceMetadata;
+import org.apache.olingo.server.api.serializer.SerializerException;
+import org.apache.olingo.server.api.uri.UriResource;
+import org.apache.olingo.server.api.uri.UriResourceEntitySet;
+import org.apache.olingo.server.api.uri.queryoption.ExpandItem;
+import org.apache.olingo.server.api.uri.queryoption.ExpandOption;
+import org.apache.olingo.server.core.ContentNegotiatorException;
+import org.apache.olingo.server.core.ServiceRequest;
+import org.apache.olingo.server.core.serializer.json.ODataJsonSerializer;
+import org.apache.olingo.server.core.serializer.utils.ContentTypeHelper;
+import org.apache.olingo.server.core.serializer.utils.ContextURLBuilder;
+import org.apache.olingo.server.core.uri.UriHelperImpl;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+/**
+ * Response to a <code>$crossjoin</code> request.
+ * <br/>
+ * The rows are written in JSON while the response is sent, so they can be produced lazily,
+ * e.g., by the {@link org.apache.olingo.server.core.crossjoin.CrossJoinEvaluator}.
+ * Each row has a navigation link to the entity of each entity set,
+ * or the entity itself if the entity set is expanded.
+ */
+public class CrossJoinResponse extends ServiceResponse {
+  private final List<EdmEntitySet> entitySets;
+  private final ContextURL contextURL;
+  private final ExpandOption expand;
+  private final ContentType responseContentType;
+
+  private CrossJoinResponse(ServiceMetadata metadata, ODataResponse response, List<EdmEntitySet> entitySets,
+      ContextURL contextURL, ExpandOption expand, ContentType responseContentType,
+      Map<String, String> preferences) {
+    super(metadata, response, preferences);
+    this.entitySets = entitySets;
+    this.contextURL = contextURL;
+    this.expand = expand;
+    this.responseContentType = responseContentType;
+  }
+
+  public static CrossJoinResponse getInstance(ServiceRequest request, ContextURL contextURL,
+      List<EdmEntitySet> entitySets, ODataResponse response) throws ContentNegotiatorException {
+    return new CrossJoinResponse(request.getServiceMetaData(), response, entitySets, contextURL,
+        request.getUriInfo().getExpandOption(), request.getResponseContentType(), request.getPreferences());
+  }
+
+  /**
+   * Writes the rows of the cross join; they are consumed while the response is sent.
+   * @param rows the entities of each row by entity-set name
+   * @throws SerializerException if the response format is not JSON
+   */
+  public void writeCrossJoin(Iterator<Map<String, Entity>> rows) throws SerializerException {
+    assert (!isClosed());
+
+    if (!this.responseContentType.isCompatible(ContentType.APPLICATION_JSON)) {
+      throw new SerializerException("Cross joins can only be serialized in JSON.",
+          SerializerException.MessageKeys.UNSUPPORTED_FORMAT, this.responseContentType.toContentTypeString());
+    }
+    this.response.setODataContent(new CrossJoinContent(rows));
+    writeOK(this.responseContentType);
+    close();
+  }
+
+  @Override
+  public void accepts(ServiceResponseVisior visitor) throws ODataLibraryException,
+      ODataApplicationException {
+    visitor.visit(this);
+  }
+
+  private ExpandItem getExpandItem(String entitySetName) {
+    if (this.expand != null) {
+      for (ExpandItem item : this.expand.getExpandItems()) {
+        if (item.isStar()) {
+          return item;
+        }
+        final List<UriResource> path = item.getResourcePath().getUriResourceParts();
+        if (path.size() == 1 && path.get(0) instanceof UriResourceEntitySet
+            && ((UriResourceEntitySet) path.get(0)).getEntitySet().getName().equals(entitySetName)) {
+          return item;
+        }
+      }
+    }
+    return null;
+  }
+
+  private class CrossJoinContent implements ODataContent {
+    private final Iterator<Map<String, Entity>> rows;
+
+    CrossJoinContent(Iterator<Map<String, Entity>> rows) {
+      this.rows = rows;
+    }
+
+    @Override
+    public void write(WritableByteChannel channel) {
+      write(Channels.newOutputStream(channel));
+    }
+
+    @Override
+    public void write(OutputStream stream) {
+      try {
+        new RowSerializer(responseContentType).writeRows(rows, stream);
+      } catch (final IOException e) {
+        throw new ODataRuntimeException("Failed cross-join serialization", e);
+      } catch (final SerializerException e) {
+        throw new ODataRuntimeException("Failed cross-join serialization", e);
+      } catch (final DecoderException e) {
+        throw new ODataRuntimeException("Failed cross-join serialization", e);
+      }
+    }
+  }
+
+  /** Uses the entity serialization of the JSON serializer for expanded entity sets. */
+  private class RowSerializer extends ODataJsonSerializer {
+    private final boolean isODataMetadataNone;
+    private final UriHelperImpl uriHelper = new UriHelperImpl();
+
+    RowSerializer(ContentType contentType) {
+      super(contentType);
+      this.isODataMetadataNone = ContentTypeHelper.isODataMetadataNone(contentType);
+    }
+
+    void writeRows(Iterator<Map<String, Entity>> rows, OutputStream stream)
+        throws IOException, SerializerException, DecoderException {
+      JsonGenerator json = new JsonFactory().createGenerator(stream);
+      json.writeStartObject();
+      if (!this.isODataMetadataNone && contextURL != null) {
+        json.writeStringField(Constants.JSON_CONTEXT, ContextURLBuilder.create(contextURL).toASCIIString());
+      }
+      json.writeArrayFieldStart(Constants.VALUE);
+      while (rows.hasNext()) {
+        writeRow(rows.next(), json);
+      }
+      json.writeEndArray();
+      json.writeEndObject();
+      json.close();
+    }
+
+    private void writeRow(Map<String, Entity> row, JsonGenerator json)
+        throws IOException, SerializerException, DecoderException {
+      json.writeStartObject();
+      for (EdmEntitySet entitySet : entitySets) {
+        final Entity entity = row.get(entitySet.getName());
+        final ExpandItem item = getExpandItem(entitySet.getName());
+        if (entity == null) {
+          continue;
+        } else if (item != null) {
+          json.writeFieldName(entitySet.getName());
+          writeEntity(metadata, entitySet.getEntityType(), entity, null, item.getExpandOption(), null,
+              item.getSelectOption(), false, null, entitySet.getName(), json);
+        } else if (!this.isODataMetadataNone) {
+          json.writeStringField(entitySet.getName() + Constants.JSON_NAVIGATION_LINK,
+              this.uriHelper.buildCanonicalURL(entitySet, entity));
+        }
+      }
+      json.writeEndObject();
+    }
+  }
+}
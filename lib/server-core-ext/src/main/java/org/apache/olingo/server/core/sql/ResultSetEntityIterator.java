@@ -0,0 +1,160 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.core.sql;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.sql.Blob;
+import java.sql.Clob;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+
+import org.apache.olingo.commons.api.data.ComplexValue;
+import org.apache.olingo.commons.api.data.Entity;
+import org.apache.olingo.commons.api.data.EntityIterator;
+import org.apache.olingo.commons.api.data.Property;
+import org.apache.olingo.commons.api.data.PropertyList;
+import org.apache.olingo.commons.api.data.ValueType;
+import org.apache.olingo.commons.api.edm.EdmEntityType;
+import org.apache.olingo.commons.api.ex.ODataRuntimeException;
+import org.apache.olingo.server.core.sql.SqlQuery.Column;
+
+/**
+ * Streams the rows of the result of a {@link SqlQuery} as entities, e.g., into
+ * {@link org.apache.olingo.server.api.serializer.ODataSerializer#entityCollectionStreamed}.
+ * <br/>
+ * Each row is read only when the next entity is requested; the result set is closed
+ * when all rows have been read or when {@link #close()} is called.
+ * Database errors are reported as {@link ODataRuntimeException}s since the iterator methods
+ * cannot throw checked exceptions.
+ */
+public class ResultSetEntityIterator extends EntityIterator {
+
+  private final ResultSet resultSet;
+  private final List<Column> columns;
+  private final String typeName;
+  private Boolean hasNext;
+
+  /**
+   * Creates an iterator.
+   * @param query the query that has been executed
+   * @param resultSet the result of the query
+   * @param entityType the type of the entities or <code>null</code> for aggregated results
+   */
+  public ResultSetEntityIterator(final SqlQuery query, final ResultSet resultSet, final EdmEntityType entityType) {
+    this.resultSet = resultSet;
+    columns = query.getColumns();
+    typeName = entityType == null ? null : entityType.getFullQualifiedName().getFullQualifiedNameAsString();
+  }
+
+  @Override
+  public boolean hasNext() {
+    if (hasNext == null) {
+      try {
+        hasNext = resultSet.next();
+        if (!hasNext) {
+          resultSet.close();
+        }
+      } catch (final SQLException e) {
+        throw new ODataRuntimeException("Reading from the database has failed.", e);
+      }
+    }
+    return hasNext;
+  }
+
+  @Override
+  public Entity next() {
+    if (!hasNext()) {
+      throw new ODataRuntimeException("There are no more entities.");
+    }
+    hasNext = null;
+    Entity entity = new Entity();
+    entity.setType(typeName);
+    try {
+      for (int index = 0; index < columns.size(); index++) {
+        addProperty(entity.getProperties(), columns.get(index), convert(resultSet.getObject(index + 1)));
+      }
+    } catch (final SQLException e) {
+      throw new ODataRuntimeException("Reading from the database has failed.", e);
+    } catch (final IOException e) {
+      throw new ODataRuntimeException("Reading from the database has failed.", e);
+    }
+    return entity;
+  }
+
+  /** Closes the underlying result set. */
+  public void close() {
+    try {
+      resultSet.close();
+    } catch (final SQLException e) {
+      throw new ODataRuntimeException("Closing the result set has failed.", e);
+    }
+  }
+
+  /** Adds the value as property at the path of the column, creating complex properties along the path. */
+  private void addProperty(List<Property> properties, final Column column, final Object value) {
+    final List<String> path = column.getPath();
+    final List<String> types = column.getTypes();
+    for (int index = 0; index < path.size() - 1; index++) {
+      Property complex = PropertyList.find(properties, path.get(index));
+      if (complex == null) {
+        complex = new Property(types.get(index), path.get(index), ValueType.COMPLEX, new ComplexValue());
+        properties.add(complex);
+      }
+      properties = complex.asComplex().getValue();
+    }
+    properties.add(new Property(types.get(path.size() - 1), path.get(path.size() - 1), column.getValueType(), value));
+  }
+
+  /** Converts large objects into values. */
+  protected Object convert(final Object value) throws SQLException, IOException {
+    if (value instanceof Clob) {
+      final Reader reader = ((Clob) value).getCharacterStream();
+      try {
+        StringBuilder result = new StringBuilder();
+        char[] buffer = new char[4096];
+        int count;
+        while ((count = reader.read(buffer)) >= 0) {
+          result.append(buffer, 0, count);
+        }
+        return result.toString();
+      } finally {
+        reader.close();
+      }
+    } else if (value instanceof Blob) {
+      final InputStream stream = ((Blob) value).getBinaryStream();
+      try {
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int count;
+        while ((count = stream.read(buffer)) >= 0) {
+          result.write(buffer, 0, count);
+        }
+        return result.toByteArray();
+      } finally {
+        stream.close();
+      }
+    } else {
+      return value;
+    }
+  }
+}
@@ -0,0 +1,186 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.core.sql;
+
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.UUID;
+
+import org.apache.olingo.commons.api.edm.EdmEnumType;
+import org.apache.olingo.commons.api.edm.EdmPrimitiveType;
+import org.apache.olingo.commons.api.edm.EdmPrimitiveTypeException;
+import org.apache.olingo.commons.api.edm.EdmPrimitiveTypeKind;
+import org.apache.olingo.commons.core.edm.primitivetype.EdmPrimitiveTypeFactory;
+import org.apache.olingo.server.api.uri.queryoption.expression.MethodKind;
+
+/**
+ * Hooks for the differences between SQL databases.
+ * <br/>
+ * The default implementation generates standard SQL (SQL:2008) as understood, e.g., by Apache Derby, H2,
+ * PostgreSQL, and recent versions of Oracle and SQL Server; subclasses adapt it to other databases.
+ */
+public class SqlDialect {
+
+  /** The escape character for patterns in <code>LIKE</code> predicates. */
+  protected static final char LIKE_ESCAPE = '\\';
+
+  /** Quotes an identifier (the name of a table or a column). */
+  public String quoteIdentifier(final String identifier) {
+    return '"' + identifier.replace("\"", "\"\"") + '"';
+  }
+
+  /**
+   * Appends the clause restricting the result to the rows with the given offset and count.
+   * @param sql the query
+   * @param skip the number of rows to skip or <code>null</code>
+   * @param top the maximum number of rows to return or <code>null</code>
+   */
+  public void appendPaging(final SqlFragment sql, final Integer skip, final Integer top) {
+    if (skip != null || top != null) {
+      sql.append(" OFFSET ").appendParameter(skip == null ? 0 : skip).append(" ROWS");
+    }
+    if (top != null) {
+      sql.append(" FETCH FIRST ").appendParameter(top).append(" ROWS ONLY");
+    }
+  }
+
+  /** Creates the concatenation of two strings. */
+  public SqlFragment concat(final SqlFragment left, final SqlFragment right) {
+    return SqlFragment.of("(").append(left).append(" || ").append(right).append(")");
+  }
+
+  /**
+   * Creates the negation of a condition that may be unknown;
+   * the negation is true if the condition is false or unknown.
+   */
+  public SqlFragment negate(final SqlFragment condition) {
+    return SqlFragment.of("(NOT COALESCE(").append(condition).append(", FALSE))").setNullable(false);
+  }
+
+  /**
+   * Creates a <code>LIKE</code> predicate.
+   * @param value the value to be matched
+   * @param pattern the pattern with SQL wildcards and {@link #LIKE_ESCAPE} as escape character
+   */
+  public SqlFragment like(final SqlFragment value, final SqlFragment pattern) {
+    return SqlFragment.of("(").append(value).append(" LIKE ").append(pattern)
+        .append(" ESCAPE '" + LIKE_ESCAPE + "')");
+  }
+
+  /**
+   * Creates the call of a built-in function other than the string-matching ones.
+   * @param method the OData method
+   * @param parameters the parameters
+   * @return the SQL expression or <code>null</code> if the method is not supported
+   */
+  public SqlFragment methodCall(final MethodKind method, final List<SqlFragment> parameters) {
+    switch (method) {
+    case TOLOWER:
+      return function("LOWER", parameters);
+    case TOUPPER:
+      return function("UPPER", parameters);
+    case TRIM:
+      return function("TRIM", parameters);
+    case LENGTH:
+      return function("CHAR_LENGTH", parameters);
+    case CONCAT:
+      return concat(parameters.get(0), parameters.get(1));
+    case INDEXOF:
+      return SqlFragment.of("(POSITION(").append(parameters.get(1)).append(" IN ").append(parameters.get(0))
+          .append(") - 1)");
+    case SUBSTRING:
+      SqlFragment substring = SqlFragment.of("SUBSTRING(").append(parameters.get(0))
+          .append(" FROM ").append(parameters.get(1)).append(" + 1");
+      if (parameters.size() > 2) {
+        substring.append(" FOR ").append(parameters.get(2));
+      }
+      return substring.append(")");
+    case YEAR:
+      return extract("YEAR", parameters.get(0));
+    case MONTH:
+      return extract("MONTH", parameters.get(0));
+    case DAY:
+      return extract("DAY", parameters.get(0));
+    case HOUR:
+      return extract("HOUR", parameters.get(0));
+    case MINUTE:
+      return extract("MINUTE", parameters.get(0));
+    case SECOND:
+      return SqlFragment.of("FLOOR(").append(extract("SECOND", parameters.get(0))).append(")");
+    case ROUND:
+      return function("ROUND", parameters);
+    case FLOOR:
+      return function("FLOOR", parameters);
+    case CEILING:
+      return function("CEILING", parameters);
+    case NOW:
+      return SqlFragment.of("CURRENT_TIMESTAMP");
+    default:
+      return null;
+    }
+  }
+
+  /**
+   * Converts the value of a literal into the value of a JDBC parameter.
+   * Temporal values are converted into their <code>java.sql</code> representations and
+   * GUIDs into strings; all other values are represented by the default type of their EDM type.
+   * @param type the type of the literal
+   * @param literal the literal in URI syntax
+   */
+  public Object toParameter(final EdmPrimitiveType type, final String literal) throws EdmPrimitiveTypeException {
+    final String value = type.fromUriLiteral(literal);
+    final Class<?> parameterClass =
+        type == EdmPrimitiveTypeFactory.getInstance(EdmPrimitiveTypeKind.Date) ? java.sql.Date.class :
+        type == EdmPrimitiveTypeFactory.getInstance(EdmPrimitiveTypeKind.DateTimeOffset) ? Timestamp.class :
+        type == EdmPrimitiveTypeFactory.getInstance(EdmPrimitiveTypeKind.TimeOfDay) ? Time.class :
+        type.getDefaultType();
+    final Object result = type.valueOfString(value, null, null, null, null, null, parameterClass);
+    return result instanceof UUID ? result.toString() : result;
+  }
+
+  /**
+   * Converts enumeration members into the value of a JDBC parameter.
+   * By default, enumeration values are stored as values of their underlying integer type.
+   * @param type the enumeration type
+   * @param members the names of the members, more than one only for flags
+   */
+  public Object toParameter(final EdmEnumType type, final List<String> members) throws EdmPrimitiveTypeException {
+    StringBuilder value = new StringBuilder();
+    for (final String member : members) {
+      value.append(value.length() == 0 ? "" : ",").append(member);
+    }
+    return type.valueOfString(value.toString(), null, null, null, null, null,
+        type.getUnderlyingType().getDefaultType());
+  }
+
+  protected SqlFragment function(final String name, final List<SqlFragment> parameters) {
+    SqlFragment result = SqlFragment.of(name).append("(");
+    boolean first = true;
+    for (final SqlFragment parameter : parameters) {
+      result.append(first ? "" : ", ").append(parameter);
+      first = false;
+    }
+    return result.append(")");
+  }
+
+  protected SqlFragment extract(final String field, final SqlFragment value) {
+    return SqlFragment.of("EXTRACT(" + field + " FROM ").append(value).append(")");
+  }
+}
@@ -0,0 +1,289 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.core.sql;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import org.apache.olingo.commons.api.edm.EdmEnumType;
+import org.apache.olingo.commons.api.edm.EdmPrimitiveType;
+import org.apache.olingo.commons.api.edm.EdmPrimitiveTypeException;
+import org.apache.olingo.commons.api.edm.EdmProperty;
+import org.apache.olingo.commons.api.edm.EdmType;
+import org.apache.olingo.commons.api.http.HttpStatusCode;
+import org.apache.olingo.server.api.ODataApplicationException;
+import org.apache.olingo.server.api.uri.UriResource;
+import org.apache.olingo.server.api.uri.UriResourceKind;
+import org.apache.olingo.server.api.uri.UriResourceProperty;
+import org.apache.olingo.server.api.uri.queryoption.expression.BinaryOperatorKind;
+import org.apache.olingo.server.api.uri.queryoption.expression.Expression;
+import org.apache.olingo.server.api.uri.queryoption.expression.ExpressionVisitException;
+import org.apache.olingo.server.api.uri.queryoption.expression.ExpressionVisitor;
+import org.apache.olingo.server.api.uri.queryoption.expression.Literal;
+import org.apache.olingo.server.api.uri.queryoption.expression.Member;
+import org.apache.olingo.server.api.uri.queryoption.expression.MethodKind;
+import org.apache.olingo.server.api.uri.queryoption.expression.UnaryOperatorKind;
+
+/**
+ * Translates expressions, e.g., of the system query options <code>$filter</code> and <code>$orderby</code>,
+ * into SQL with bound parameters.
+ * <br/>
+ * Members must be paths of primitive properties, possibly through complex properties;
+ * navigation, lambda expressions, type casts, and aliases are not supported.
+ * <br/>
+ * Where SQL's three-valued logic differs from OData's null semantics, the translation compensates:
+ * <code>eq</code> and <code>ne</code> treat null as a value, and <code>not</code> negates
+ * a comparison with null, which is false in OData and unknown in SQL, to true.
+ */
+public class SqlExpressionVisitor implements ExpressionVisitor<SqlFragment> {
+
+  private final SqlDialect dialect;
+  private final SqlMapping mapping;
+
+  public SqlExpressionVisitor(final SqlDialect dialect, final SqlMapping mapping) {
+    this.dialect = dialect;
+    this.mapping = mapping;
+  }
+
+  /** Translates an expression into SQL. */
+  public SqlFragment translate(final Expression expression) throws ODataApplicationException {
+    try {
+      return expression.accept(this);
+    } catch (final ExpressionVisitException e) {
+      throw new ODataApplicationException("The expression cannot be translated into SQL.",
+          HttpStatusCode.BAD_REQUEST.getStatusCode(), Locale.ROOT, e);
+    }
+  }
+
+  @Override
+  public SqlFragment visitBinaryOperator(final BinaryOperatorKind operator, final SqlFragment left,
+      final SqlFragment right) throws ODataApplicationException {
+    if (operator == BinaryOperatorKind.EQ || operator == BinaryOperatorKind.NE) {
+      if (left.isNull() || right.isNull()) {
+        return SqlFragment.of("(").append(left.isNull() ? right : left)
+            .append(operator == BinaryOperatorKind.EQ ? " IS NULL)" : " IS NOT NULL)").setNullable(false);
+      }
+      if (operator == BinaryOperatorKind.EQ ? left.isNullable() && right.isNullable()
+          : left.isNullable() || right.isNullable()) {
+        return compareNullable(operator == BinaryOperatorKind.EQ, left, right);
+      }
+    }
+    if (operator == BinaryOperatorKind.MOD) {
+      return SqlFragment.of("MOD(").append(left).append(", ").append(right).append(")");
+    }
+    final String sqlOperator = getOperator(operator);
+    if (sqlOperator == null) {
+      throw notImplemented("The operator '" + operator.toString() + "' is not supported.");
+    }
+    return SqlFragment.of("(").append(left).append(" " + sqlOperator + " ").append(right).append(")");
+  }
+
+  /**
+   * Compares operands at least one of which may be null; in contrast to SQL, OData considers
+   * null to be equal to null and not equal to any other value.
+   */
+  private SqlFragment compareNullable(final boolean equal, final SqlFragment left, final SqlFragment right) {
+    SqlFragment result = SqlFragment.of("((").append(left).append(equal ? " = " : " <> ").append(right).append(")");
+    if (equal) {
+      result.append(" OR ").append(left).append(" IS NULL AND ").append(right).append(" IS NULL");
+    } else {
+      appendNullOnlyOnOneSide(result, left, right);
+      appendNullOnlyOnOneSide(result, right, left);
+    }
+    return result.append(")").setNullable(false);
+  }
+
+  private void appendNullOnlyOnOneSide(final SqlFragment result, final SqlFragment operand,
+      final SqlFragment other) {
+    if (operand.isNullable()) {
+      result.append(" OR ").append(operand).append(" IS NULL");
+      if (other.isNullable()) {
+        result.append(" AND ").append(other).append(" IS NOT NULL");
+      }
+    }
+  }
+
+  private String getOperator(final BinaryOperatorKind operator) {
+    switch (operator) {
+    case AND:
+      return "AND";
+    case OR:
+      return "OR";
+    case EQ:
+      return "=";
+    case NE:
+      return "<>";
+    case GT:
+      return ">";
+    case GE:
+      return ">=";
+    case LT:
+      return "<";
+    case LE:
+      return "<=";
+    case ADD:
+      return "+";
+    case SUB:
+      return "-";
+    case MUL:
+      return "*";
+    case DIV:
+      return "/";
+    default:
+      return null;
+    }
+  }
+
+  @Override
+  public SqlFragment visitUnaryOperator(final UnaryOperatorKind operator, final SqlFragment operand) {
+    if (operator == UnaryOperatorKind.NOT) {
+      return operand.isNullable() ? dialect.negate(operand) : SqlFragment.of("(NOT ").append(operand).append(")");
+    }
+    return SqlFragment.of("(-").append(operand).append(")");
+  }
+
+  @Override
+  public SqlFragment visitMethodCall(final MethodKind methodCall, final List<SqlFragment> parameters)
+      throws ODataApplicationException {
+    if (methodCall == MethodKind.CONTAINS || methodCall == MethodKind.STARTSWITH
+        || methodCall == MethodKind.ENDSWITH) {
+      final boolean wildcardBefore = methodCall != MethodKind.STARTSWITH;
+      final boolean wildcardAfter = methodCall != MethodKind.ENDSWITH;
+      final SqlFragment value = parameters.get(1);
+      if (value.isParameter() && value.getParameters().get(0) instanceof String) {
+        // The pattern is bound as a whole so that wildcard characters in the literal can be escaped.
+        final String pattern = (wildcardBefore ? "%" : "") + escapeLike((String) value.getParameters().get(0))
+            + (wildcardAfter ? "%" : "");
+        return dialect.like(parameters.get(0), SqlFragment.parameter(pattern));
+      }
+      SqlFragment pattern = value;
+      if (wildcardBefore) {
+        pattern = dialect.concat(SqlFragment.parameter("%"), pattern);
+      }
+      if (wildcardAfter) {
+        pattern = dialect.concat(pattern, SqlFragment.parameter("%"));
+      }
+      return dialect.like(parameters.get(0), pattern);
+    }
+    final SqlFragment result = dialect.methodCall(methodCall, parameters);
+    if (result == null) {
+      throw notImplemented("The method '" + methodCall.toString() + "' is not supported.");
+    }
+    return result;
+  }
+
+  private String escapeLike(final String value) {
+    StringBuilder result = new StringBuilder(value.length() + 2);
+    for (final char character : value.toCharArray()) {
+      if (character == '%' || character == '_' || character == SqlDialect.LIKE_ESCAPE) {
+        result.append(SqlDialect.LIKE_ESCAPE);
+      }
+      result.append(character);
+    }
+    return result.toString();
+  }
+
+  @Override
+  public SqlFragment visitLiteral(final Literal literal) throws ODataApplicationException {
+    if (literal.getType() == null) {
+      return SqlFragment.nullValue();
+    }
+    if (!(literal.getType() instanceof EdmPrimitiveType)) {
+      throw notImplemented("Only primitive literals are supported.");
+    }
+    try {
+      return SqlFragment.parameter(dialect.toParameter((EdmPrimitiveType) literal.getType(), literal.getText()));
+    } catch (final EdmPrimitiveTypeException e) {
+      throw new ODataApplicationException("Invalid literal '" + literal.getText() + "'.",
+          HttpStatusCode.BAD_REQUEST.getStatusCode(), Locale.ROOT, e);
+    }
+  }
+
+  @Override
+  public SqlFragment visitMember(final Member member) throws ODataApplicationException {
+    final List<EdmProperty> path = getPropertyPath(member.getResourcePath().getUriResourceParts());
+    if (path == null || member.getStartTypeFilter() != null) {
+      throw notImplemented("Only paths to primitive properties are supported.");
+    }
+    boolean nullable = false;
+    for (final EdmProperty property : path) {
+      nullable |= property.isNullable();
+    }
+    return SqlFragment.of(dialect.quoteIdentifier(mapping.getColumnName(path))).setNullable(nullable);
+  }
+
+  /**
+   * Gets the properties along the path if the path leads to a single primitive value.
+   * @return the properties or <code>null</code> if the path is not a path of structural properties
+   */
+  static List<EdmProperty> getPropertyPath(final List<UriResource> segments) {
+    if (segments == null || segments.isEmpty()
+        || segments.get(segments.size() - 1).getKind() != UriResourceKind.primitiveProperty) {
+      return null;
+    }
+    List<EdmProperty> path = new ArrayList<EdmProperty>(segments.size());
+    for (final UriResource segment : segments) {
+      if (segment.getKind() != UriResourceKind.primitiveProperty
+          && segment.getKind() != UriResourceKind.complexProperty
+          || ((UriResourceProperty) segment).isCollection()
+          || ((UriResourceProperty) segment).getProperty() == null) {
+        return null;
+      }
+      path.add(((UriResourceProperty) segment).getProperty());
+    }
+    return path;
+  }
+
+  @Override
+  public SqlFragment visitEnum(final EdmEnumType type, final List<String> enumValues)
+      throws ODataApplicationException {
+    try {
+      return SqlFragment.parameter(dialect.toParameter(type, enumValues));
+    } catch (final EdmPrimitiveTypeException e) {
+      throw new ODataApplicationException("Invalid enumeration value.",
+          HttpStatusCode.BAD_REQUEST.getStatusCode(), Locale.ROOT, e);
+    }
+  }
+
+  @Override
+  public SqlFragment visitLambdaExpression(final String lambdaFunction, final String lambdaVariable,
+      final Expression expression) throws ODataApplicationException {
+    throw notImplemented("Lambda expressions are not supported.");
+  }
+
+  @Override
+  public SqlFragment visitAlias(final String aliasName) throws ODataApplicationException {
+    throw notImplemented("Aliases are not supported.");
+  }
+
+  @Override
+  public SqlFragment visitTypeLiteral(final EdmType type) throws ODataApplicationException {
+    throw notImplemented("Type literals are not supported.");
+  }
+
+  @Override
+  public SqlFragment visitLambdaReference(final String variableName) throws ODataApplicationException {
+    throw notImplemented("Lambda expressions are not supported.");
+  }
+
+  static ODataApplicationException notImplemented(final String message) {
+    return new ODataApplicationException(message, HttpStatusCode.NOT_IMPLEMENTED.getStatusCode(), Locale.ROOT);
+  }
+}
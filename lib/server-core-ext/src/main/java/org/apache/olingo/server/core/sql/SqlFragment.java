@@ -0,0 +1,108 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.core.sql;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Piece of SQL together with the values of its parameters, in the order of their placeholders.
+ * Literal values are never inlined into the SQL text but always bound as parameters.
+ * <br/>
+ * A fragment appending a nullable fragment is nullable itself, i.e., it may evaluate to the SQL null value
+ * (or to unknown, for conditions).
+ */
+public final class SqlFragment {
+
+  private static final String NULL = "NULL";
+  private static final String PLACEHOLDER = "?";
+
+  private final StringBuilder sql = new StringBuilder();
+  private final List<Object> parameters = new ArrayList<Object>();
+  private boolean nullable;
+
+  /** Creates a fragment with the given SQL text. */
+  public static SqlFragment of(final String text) {
+    return new SqlFragment().append(text);
+  }
+
+  /** Creates a fragment consisting of one parameter placeholder. */
+  public static SqlFragment parameter(final Object value) {
+    return new SqlFragment().appendParameter(value);
+  }
+
+  /** Creates the fragment for the SQL null value. */
+  public static SqlFragment nullValue() {
+    return of(NULL);
+  }
+
+  public SqlFragment append(final String text) {
+    sql.append(text);
+    return this;
+  }
+
+  public SqlFragment append(final SqlFragment fragment) {
+    sql.append(fragment.sql);
+    parameters.addAll(fragment.parameters);
+    nullable |= fragment.nullable;
+    return this;
+  }
+
+  /** Appends a placeholder and binds the given value to it. */
+  public SqlFragment appendParameter(final Object value) {
+    sql.append(PLACEHOLDER);
+    parameters.add(value);
+    return this;
+  }
+
+  public String getSql() {
+    return sql.toString();
+  }
+
+  public List<Object> getParameters() {
+    return Collections.unmodifiableList(parameters);
+  }
+
+  /** Sets whether this fragment may evaluate to the SQL null value. */
+  public SqlFragment setNullable(final boolean nullable) {
+    this.nullable = nullable;
+    return this;
+  }
+
+  /** Determines whether this fragment may evaluate to the SQL null value. */
+  public boolean isNullable() {
+    return nullable;
+  }
+
+  /** Determines whether this fragment is the SQL null value. */
+  public boolean isNull() {
+    return NULL.contentEquals(sql);
+  }
+
+  /** Determines whether this fragment consists of exactly one parameter placeholder. */
+  public boolean isParameter() {
+    return PLACEHOLDER.contentEquals(sql) && parameters.size() == 1;
+  }
+
+  @Override
+  public String toString() {
+    return sql + " " + parameters;
+  }
+}
@@ -0,0 +1,52 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.core.sql;
+
+import java.util.List;
+
+import org.apache.olingo.commons.api.edm.EdmEntitySet;
+import org.apache.olingo.commons.api.edm.EdmProperty;
+
+/**
+ * Maps entity sets to tables and (paths of) properties to columns.
+ * <br/>
+ * By default, tables are named like the entity sets and columns like the properties;
+ * a property of a complex property is mapped to a column named after the whole path
+ * with underscores as separators, e.g., <code>Address_City</code>.
+ * Subclasses can override the methods for other naming schemes.
+ */
+public class SqlMapping {
+
+  /** Gets the (unquoted) name of the table storing the entities of the entity set. */
+  public String getTableName(final EdmEntitySet entitySet) {
+    return entitySet.getName();
+  }
+
+  /**
+   * Gets the (unquoted) name of the column storing the primitive property at the end of the path.
+   * @param path the path from the entity type to the primitive property, through complex properties
+   */
+  public String getColumnName(final List<EdmProperty> path) {
+    StringBuilder name = new StringBuilder();
+    for (final EdmProperty property : path) {
+      name.append(name.length() == 0 ? "" : "_").append(property.getName());
+    }
+    return name.toString();
+  }
+}
@@ -0,0 +1,143 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.core.sql;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.olingo.commons.api.data.Entity;
+import org.apache.olingo.commons.api.data.ValueType;
+import org.apache.olingo.commons.api.edm.EdmEnumType;
+import org.apache.olingo.commons.api.edm.EdmProperty;
+import org.apache.olingo.server.api.ODataApplicationException;
+import org.apache.olingo.server.core.KeysetPaging;
+import org.apache.olingo.server.core.KeysetPaging.SortKey;
+
+/**
+ * SQL query generated by the {@link SqlQueryBuilder}, with the values of its parameters
+ * and the information needed to map the rows of its result to entities.
+ */
+public class SqlQuery {
+
+  private final SqlFragment statement;
+  private final List<Column> columns;
+  private final List<SortKey> sortKeys;
+  private final KeysetPaging keysetPaging;
+
+  SqlQuery(final SqlFragment statement, final List<Column> columns, final List<SortKey> sortKeys,
+      final KeysetPaging keysetPaging) {
+    this.statement = statement;
+    this.columns = columns;
+    this.sortKeys = sortKeys;
+    this.keysetPaging = keysetPaging;
+  }
+
+  public String getSql() {
+    return statement.getSql();
+  }
+
+  public List<Object> getParameters() {
+    return statement.getParameters();
+  }
+
+  /** Gets the selected columns, in the order of the select list. */
+  public List<Column> getColumns() {
+    return Collections.unmodifiableList(columns);
+  }
+
+  /**
+   * Prepares the query on the connection and binds its parameters.
+   * The caller is responsible for closing the statement.
+   */
+  public PreparedStatement prepare(final Connection connection) throws SQLException {
+    PreparedStatement preparedStatement = connection.prepareStatement(getSql());
+    try {
+      int index = 1;
+      for (final Object parameter : getParameters()) {
+        preparedStatement.setObject(index++, parameter);
+      }
+      return preparedStatement;
+    } catch (final SQLException e) {
+      preparedStatement.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Creates the skip token for the page following the given entity, the last one of the current page.
+   * The token contains the values of the sort keys, i.e., of the properties in <code>$orderby</code>
+   * followed by the key properties; it can be passed as <code>$skiptoken</code> to continue after the entity.
+   * @param lastEntity the last entity of the current page
+   * @return the skip token
+   * @throws ODataApplicationException if the order is not suitable for keyset pagination
+   * @see KeysetPaging
+   */
+  public String createSkipToken(final Entity lastEntity) throws ODataApplicationException {
+    if (sortKeys == null) {
+      throw SqlExpressionVisitor.notImplemented("Keyset pagination requires ordering by properties.");
+    }
+    return keysetPaging.createSkipToken(sortKeys, lastEntity);
+  }
+
+  /** Column of the result, mapped to a (possibly nested) property. */
+  public static final class Column {
+    private final List<String> path;
+    private final List<String> types;
+    private final ValueType valueType;
+
+    Column(final List<String> path, final List<String> types, final ValueType valueType) {
+      this.path = path;
+      this.types = types;
+      this.valueType = valueType;
+    }
+
+    /** Creates the column for the primitive property at the end of the path. */
+    static Column of(final List<EdmProperty> properties) {
+      List<String> path = new ArrayList<String>(properties.size());
+      List<String> types = new ArrayList<String>(properties.size());
+      for (final EdmProperty property : properties) {
+        path.add(property.getName());
+        types.add(property.getType() == null ? null :
+            property.getType().getFullQualifiedName().getFullQualifiedNameAsString());
+      }
+      return new Column(path, types,
+          properties.get(properties.size() - 1).getType() instanceof EdmEnumType ?
+              ValueType.ENUM : ValueType.PRIMITIVE);
+    }
+
+    /** Gets the names of the properties along the path to the primitive property. */
+    public List<String> getPath() {
+      return Collections.unmodifiableList(path);
+    }
+
+    /** Gets the kind of value of the property, {@link ValueType#PRIMITIVE} or {@link ValueType#ENUM}. */
+    public ValueType getValueType() {
+      return valueType;
+    }
+
+    /** Gets the full-qualified type names of the properties along the path; unknown types are <code>null</code>. */
+    public List<String> getTypes() {
+      return Collections.unmodifiableList(types);
+    }
+  }
+}
@@ -0,0 +1,432 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.core.sql;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+import org.apache.olingo.commons.api.data.ValueType;
+import org.apache.olingo.commons.api.edm.EdmComplexType;
+import org.apache.olingo.commons.api.edm.EdmEntitySet;
+import org.apache.olingo.commons.api.edm.EdmEntityType;
+import org.apache.olingo.commons.api.edm.EdmKeyPropertyRef;
+import org.apache.olingo.commons.api.edm.EdmPrimitiveType;
+import org.apache.olingo.commons.api.edm.EdmPrimitiveTypeException;
+import org.apache.olingo.commons.api.edm.EdmPrimitiveTypeKind;
+import org.apache.olingo.commons.api.edm.EdmProperty;
+import org.apache.olingo.commons.api.edm.EdmStructuredType;
+import org.apache.olingo.commons.api.edm.EdmType;
+import org.apache.olingo.commons.api.http.HttpStatusCode;
+import org.apache.olingo.commons.core.edm.primitivetype.EdmPrimitiveTypeFactory;
+import org.apache.olingo.server.api.ODataApplicationException;
+import org.apache.olingo.server.api.uri.UriInfoResource;
+import org.apache.olingo.server.api.uri.UriResource;
+import org.apache.olingo.server.api.uri.UriResourceKind;
+import org.apache.olingo.server.api.uri.UriResourceProperty;
+import org.apache.olingo.server.api.uri.queryoption.ApplyItem;
+import org.apache.olingo.server.api.uri.queryoption.ApplyOption;
+import org.apache.olingo.server.api.uri.queryoption.OrderByItem;
+import org.apache.olingo.server.api.uri.queryoption.OrderByOption;
+import org.apache.olingo.server.api.uri.queryoption.SelectItem;
+import org.apache.olingo.server.api.uri.queryoption.SelectOption;
+import org.apache.olingo.server.api.uri.queryoption.apply.Aggregate;
+import org.apache.olingo.server.api.uri.queryoption.apply.AggregateExpression;
+import org.apache.olingo.server.api.uri.queryoption.apply.Filter;
+import org.apache.olingo.server.api.uri.queryoption.apply.GroupBy;
+import org.apache.olingo.server.api.uri.queryoption.apply.GroupByItem;
+import org.apache.olingo.server.api.uri.queryoption.expression.Member;
+import org.apache.olingo.server.core.KeysetPaging;
+import org.apache.olingo.server.core.KeysetPaging.SortKey;
+import org.apache.olingo.server.core.sql.SqlQuery.Column;
+
+/**
+ * Builds SQL queries for reading entity collections, pushing the system query options down to the database.
+ * <br/>
+ * <code>$select</code> determines the selected columns (the key columns are always selected),
+ * <code>$filter</code> and <code>$orderby</code> are translated by the {@link SqlExpressionVisitor},
+ * which maps OData's null semantics for <code>eq</code>, <code>ne</code>, and <code>not</code>
+ * onto SQL's three-valued logic,
+ * and <code>$skip</code> and <code>$top</code> restrict the result.
+ * The result is always ordered by the key properties after the properties in <code>$orderby</code>;
+ * a <code>$skiptoken</code> created with {@link SqlQuery#createSkipToken(org.apache.olingo.commons.api.data.Entity)}
+ * continues after the last entity of the previous page (keyset pagination), so that the database
+ * does not have to skip rows. This requires the properties in <code>$orderby</code> not to be nullable.
+ * The skip tokens are signed by the {@link KeysetPaging} set with {@link #setKeysetPaging(KeysetPaging)}.
+ * <br/>
+ * <code>$apply</code> is supported for filtering, grouping, and aggregating with the standard methods.
+ */
+public class SqlQueryBuilder {
+
+  private static final EdmPrimitiveType DECIMAL = EdmPrimitiveTypeFactory.getInstance(EdmPrimitiveTypeKind.Decimal);
+  private static final EdmPrimitiveType STREAM = EdmPrimitiveTypeFactory.getInstance(EdmPrimitiveTypeKind.Stream);
+
+  private final SqlDialect dialect;
+  private final SqlMapping mapping;
+  /** Default for all builders, so that skip tokens are valid across requests (but not across restarts). */
+  private static final KeysetPaging DEFAULT_KEYSET_PAGING = new KeysetPaging();
+
+  private final SqlExpressionVisitor visitor;
+  private Integer pageSize;
+  private KeysetPaging keysetPaging = DEFAULT_KEYSET_PAGING;
+
+  public SqlQueryBuilder(final SqlDialect dialect, final SqlMapping mapping) {
+    this.dialect = dialect;
+    this.mapping = mapping;
+    visitor = new SqlExpressionVisitor(dialect, mapping);
+  }
+
+  /**
+   * Sets the maximum number of rows of one page (server-driven paging).
+   * @param pageSize the page size or <code>null</code> for no limit
+   */
+  public void setPageSize(final Integer pageSize) {
+    this.pageSize = pageSize;
+  }
+
+  /**
+   * Sets the keyset paging creating and checking the skip tokens.
+   * Set an instance with a fixed secret if skip tokens must remain valid across restarts or service instances.
+   * @param keysetPaging the keyset paging
+   */
+  public void setKeysetPaging(final KeysetPaging keysetPaging) {
+    this.keysetPaging = keysetPaging;
+  }
+
+  /**
+   * Builds the query reading the entities of an entity set.
+   * @param entitySet the entity set
+   * @param uriInfo the parsed request URI
+   * @return the query
+   * @throws ODataApplicationException if the query options cannot be translated into SQL
+   */
+  public SqlQuery build(final EdmEntitySet entitySet, final UriInfoResource uriInfo)
+      throws ODataApplicationException {
+    if (uriInfo.getApplyOption() != null) {
+      return buildAggregation(entitySet, uriInfo);
+    }
+    final EdmEntityType entityType = entitySet.getEntityType();
+    List<List<EdmProperty>> paths = new ArrayList<List<EdmProperty>>();
+    for (final EdmKeyPropertyRef keyPropertyRef : entityType.getKeyPropertyRefs()) {
+      addPrimitivePaths(paths, Collections.<EdmProperty> emptyList(), keyPropertyRef.getProperty());
+    }
+    addSelectedPaths(paths, entityType, uriInfo.getSelectOption());
+
+    List<Column> columns = new ArrayList<Column>(paths.size());
+    SqlFragment statement = SqlFragment.of("SELECT ");
+    for (final List<EdmProperty> path : paths) {
+      statement.append(columns.isEmpty() ? "" : ", ").append(getColumn(path));
+      columns.add(Column.of(path));
+    }
+    statement.append(" FROM ").append(dialect.quoteIdentifier(mapping.getTableName(entitySet)));
+
+    final List<SortKey> sortKeys = KeysetPaging.getSortKeys(entityType, uriInfo.getOrderByOption());
+    List<SqlFragment> conditions = new ArrayList<SqlFragment>();
+    if (uriInfo.getFilterOption() != null) {
+      conditions.add(visitor.translate(uriInfo.getFilterOption().getExpression()));
+    }
+    if (uriInfo.getSkipTokenOption() != null) {
+      if (sortKeys == null) {
+        throw SqlExpressionVisitor.notImplemented("Keyset pagination requires ordering by properties.");
+      }
+      conditions.add(getKeysetCondition(sortKeys, uriInfo.getSkipTokenOption().getValue()));
+    }
+    appendWhere(statement, conditions);
+
+    statement.append(" ORDER BY ");
+    if (sortKeys == null) {
+      appendOrderBy(statement, uriInfo.getOrderByOption());
+      boolean first = uriInfo.getOrderByOption().getOrders().isEmpty();
+      for (final EdmKeyPropertyRef keyPropertyRef : entityType.getKeyPropertyRefs()) {
+        statement.append(first ? "" : ", ")
+            .append(getColumn(Collections.singletonList(keyPropertyRef.getProperty())));
+        first = false;
+      }
+    } else {
+      boolean first = true;
+      for (final SortKey sortKey : sortKeys) {
+        statement.append(first ? "" : ", ").append(getColumn(sortKey.getPath()))
+            .append(sortKey.isDescending() ? " DESC" : "");
+        first = false;
+      }
+    }
+
+    appendPaging(statement, uriInfo);
+    return new SqlQuery(statement, columns, sortKeys, keysetPaging);
+  }
+
+  private SqlQuery buildAggregation(final EdmEntitySet entitySet, final UriInfoResource uriInfo)
+      throws ODataApplicationException {
+    if (uriInfo.getFilterOption() != null || uriInfo.getSkipTokenOption() != null) {
+      throw SqlExpressionVisitor.notImplemented("$filter and $skiptoken are not supported together with $apply.");
+    }
+    List<SqlFragment> conditions = new ArrayList<SqlFragment>();
+    List<List<EdmProperty>> groupingPaths = null;
+    Aggregate aggregate = null;
+    for (final ApplyItem item : uriInfo.getApplyOption().getApplyItems()) {
+      if (groupingPaths != null || aggregate != null) {
+        throw SqlExpressionVisitor.notImplemented("Only filters can precede the aggregation in $apply.");
+      }
+      if (item.getKind() == ApplyItem.Kind.FILTER) {
+        conditions.add(visitor.translate(((Filter) item).getFilterOption().getExpression()));
+      } else if (item.getKind() == ApplyItem.Kind.AGGREGATE) {
+        aggregate = (Aggregate) item;
+      } else if (item.getKind() == ApplyItem.Kind.GROUP_BY) {
+        groupingPaths = getGroupingPaths((GroupBy) item);
+        final ApplyOption nested = ((GroupBy) item).getApplyOption();
+        if (nested != null) {
+          if (nested.getApplyItems().size() != 1
+              || nested.getApplyItems().get(0).getKind() != ApplyItem.Kind.AGGREGATE) {
+            throw SqlExpressionVisitor.notImplemented("Only aggregation is supported within groupby.");
+          }
+          aggregate = (Aggregate) nested.getApplyItems().get(0);
+        }
+      } else if (item.getKind() != ApplyItem.Kind.IDENTITY) {
+        throw SqlExpressionVisitor.notImplemented("The transformation " + item.getKind() + " is not supported.");
+      }
+    }
+
+    List<Column> columns = new ArrayList<Column>();
+    SqlFragment statement = SqlFragment.of("SELECT ");
+    SqlFragment groupBy = new SqlFragment();
+    if (groupingPaths != null) {
+      for (final List<EdmProperty> path : groupingPaths) {
+        statement.append(columns.isEmpty() ? "" : ", ").append(getColumn(path));
+        groupBy.append(columns.isEmpty() ? "" : ", ").append(getColumn(path));
+        columns.add(Column.of(path));
+      }
+    }
+    if (aggregate != null) {
+      for (final AggregateExpression expression : aggregate.getExpressions()) {
+        statement.append(columns.isEmpty() ? "" : ", ").append(getAggregate(expression))
+            .append(" AS " + dialect.quoteIdentifier(expression.getAlias()));
+        columns.add(new Column(Collections.singletonList(expression.getAlias()),
+            Collections.singletonList(getAggregateType(expression)), ValueType.PRIMITIVE));
+      }
+    }
+    if (columns.isEmpty()) {
+      throw SqlExpressionVisitor.notImplemented("$apply must group or aggregate.");
+    }
+    statement.append(" FROM ").append(dialect.quoteIdentifier(mapping.getTableName(entitySet)));
+    appendWhere(statement, conditions);
+    if (groupingPaths != null) {
+      statement.append(" GROUP BY ").append(groupBy);
+    }
+    if (uriInfo.getOrderByOption() != null) {
+      statement.append(" ORDER BY ");
+      appendOrderBy(statement, uriInfo.getOrderByOption());
+    }
+    appendPaging(statement, uriInfo);
+    return new SqlQuery(statement, columns, null, keysetPaging);
+  }
+
+  private List<List<EdmProperty>> getGroupingPaths(final GroupBy groupBy) throws ODataApplicationException {
+    List<List<EdmProperty>> paths = new ArrayList<List<EdmProperty>>();
+    for (final GroupByItem item : groupBy.getGroupByItems()) {
+      final List<EdmProperty> path = SqlExpressionVisitor.getPropertyPath(item.getPath());
+      if (path == null || item.isRollupAll() || !item.getRollup().isEmpty()) {
+        throw SqlExpressionVisitor.notImplemented("Only primitive properties are supported for grouping.");
+      }
+      paths.add(path);
+    }
+    return paths;
+  }
+
+  private SqlFragment getAggregate(final AggregateExpression expression) throws ODataApplicationException {
+    if (expression.getInlineAggregateExpression() != null
+        || expression.getFrom() != null && !expression.getFrom().isEmpty()) {
+      throw SqlExpressionVisitor.notImplemented("Aggregation along navigation or with 'from' is not supported.");
+    }
+    if (expression.getExpression() == null) {
+      final List<UriResource> path = expression.getPath();
+      if (path != null && path.size() == 1 && path.get(0).getKind() == UriResourceKind.count) {
+        return SqlFragment.of("COUNT(*)");
+      }
+      throw SqlExpressionVisitor.notImplemented("Custom aggregates are not supported.");
+    }
+    if (expression.getStandardMethod() == null) {
+      throw SqlExpressionVisitor.notImplemented("Custom aggregation methods are not supported.");
+    }
+    final SqlFragment value = visitor.translate(expression.getExpression());
+    switch (expression.getStandardMethod()) {
+    case SUM:
+      return SqlFragment.of("SUM(").append(value).append(")");
+    case AVERAGE:
+      return SqlFragment.of("AVG(").append(value).append(")");
+    case MIN:
+      return SqlFragment.of("MIN(").append(value).append(")");
+    case MAX:
+      return SqlFragment.of("MAX(").append(value).append(")");
+    case COUNT_DISTINCT:
+    default:
+      return SqlFragment.of("COUNT(DISTINCT ").append(value).append(")");
+    }
+  }
+
+  private String getAggregateType(final AggregateExpression expression) {
+    EdmType type = DECIMAL;
+    if (expression.getStandardMethod() == AggregateExpression.StandardMethod.MIN
+        || expression.getStandardMethod() == AggregateExpression.StandardMethod.MAX) {
+      type = expression.getExpression() instanceof Member ? ((Member) expression.getExpression()).getType() : null;
+    }
+    return type == null ? null : type.getFullQualifiedName().getFullQualifiedNameAsString();
+  }
+
+  /** Adds the paths of the selected primitive properties which are not already present. */
+  private void addSelectedPaths(List<List<EdmProperty>> paths, final EdmStructuredType type,
+      final SelectOption select) {
+    boolean all = select == null || select.getSelectItems().isEmpty();
+    if (!all) {
+      for (final SelectItem item : select.getSelectItems()) {
+        all |= item.isStar();
+      }
+    }
+    if (all) {
+      for (final String name : type.getPropertyNames()) {
+        addPrimitivePaths(paths, Collections.<EdmProperty> emptyList(), type.getStructuralProperty(name));
+      }
+      return;
+    }
+    for (final SelectItem item : select.getSelectItems()) {
+      if (item.getResourcePath() == null || item.getStartTypeFilter() != null) {
+        continue;
+      }
+      List<EdmProperty> prefix = new ArrayList<EdmProperty>();
+      for (final UriResource segment : item.getResourcePath().getUriResourceParts()) {
+        if (segment.getKind() != UriResourceKind.primitiveProperty
+            && segment.getKind() != UriResourceKind.complexProperty) {
+          prefix = null;
+          break;
+        }
+        prefix.add(((UriResourceProperty) segment).getProperty());
+      }
+      if (prefix != null && !prefix.isEmpty()) {
+        final EdmProperty last = prefix.remove(prefix.size() - 1);
+        addPrimitivePaths(paths, prefix, last);
+      }
+    }
+  }
+
+  /**
+   * Adds the path of the primitive or enumeration property or of all such properties within the complex property;
+   * collections and streams cannot be mapped to columns and are omitted.
+   */
+  private void addPrimitivePaths(List<List<EdmProperty>> paths, final List<EdmProperty> prefix,
+      final EdmProperty property) {
+    if (property == null || property.isCollection() || property.getType() == STREAM) {
+      return;
+    }
+    List<EdmProperty> path = new ArrayList<EdmProperty>(prefix);
+    path.add(property);
+    if (!(property.getType() instanceof EdmComplexType)) {
+      if (!paths.contains(path)) {
+        paths.add(path);
+      }
+    } else {
+      final EdmComplexType complexType = (EdmComplexType) property.getType();
+      for (final String name : complexType.getPropertyNames()) {
+        addPrimitivePaths(paths, path, complexType.getStructuralProperty(name));
+      }
+    }
+  }
+
+  /**
+   * Creates the condition selecting the rows after the row with the sort-key values from the skip token:
+   * <code>(k1 &gt; v1) OR (k1 = v1 AND k2 &gt; v2) OR ...</code>
+   */
+  private SqlFragment getKeysetCondition(final List<SortKey> sortKeys, final String skipToken)
+      throws ODataApplicationException {
+    final List<Object> seekValues = keysetPaging.parseSkipToken(sortKeys, skipToken).getValues();
+    List<Object> values = new ArrayList<Object>(seekValues.size());
+    for (int index = 0; index < seekValues.size(); index++) {
+      values.add(toParameter(sortKeys.get(index).getProperty(), seekValues.get(index)));
+    }
+
+    SqlFragment condition = SqlFragment.of("(");
+    boolean first = true;
+    for (int index = 0; index < sortKeys.size(); index++) {
+      if (values.get(index) == null) {
+        // Nothing is greater or less than null.
+        continue;
+      }
+      condition.append(first ? "(" : " OR (");
+      first = false;
+      for (int previous = 0; previous < index; previous++) {
+        condition.append(getColumn(sortKeys.get(previous).getPath()));
+        if (values.get(previous) == null) {
+          condition.append(" IS NULL AND ");
+        } else {
+          condition.append(" = ").appendParameter(values.get(previous)).append(" AND ");
+        }
+      }
+      condition.append(getColumn(sortKeys.get(index).getPath()))
+          .append(sortKeys.get(index).isDescending() ? " < " : " > ").appendParameter(values.get(index))
+          .append(")");
+    }
+    if (first) {
+      throw new ODataApplicationException("Invalid skip token.", HttpStatusCode.BAD_REQUEST.getStatusCode(),
+          Locale.ROOT);
+    }
+    return condition.append(")");
+  }
+
+  /** Converts a sort-key value into the value of a JDBC parameter, with the conversions of the dialect. */
+  private Object toParameter(final EdmProperty property, final Object value) throws ODataApplicationException {
+    if (value == null) {
+      return null;
+    }
+    final EdmPrimitiveType type = (EdmPrimitiveType) property.getType();
+    try {
+      return dialect.toParameter(type, type.toUriLiteral(type.valueToString(value, property.isNullable(),
+          property.getMaxLength(), property.getPrecision(), property.getScale(), property.isUnicode())));
+    } catch (final EdmPrimitiveTypeException e) {
+      throw new ODataApplicationException("Invalid skip token.", HttpStatusCode.BAD_REQUEST.getStatusCode(),
+          Locale.ROOT, e);
+    }
+  }
+
+  private void appendWhere(SqlFragment statement, final List<SqlFragment> conditions) {
+    for (int index = 0; index < conditions.size(); index++) {
+      statement.append(index == 0 ? " WHERE " : " AND ").append(conditions.get(index));
+    }
+  }
+
+  private void appendOrderBy(SqlFragment statement, final OrderByOption orderBy) throws ODataApplicationException {
+    boolean first = true;
+    for (final OrderByItem item : orderBy.getOrders()) {
+      statement.append(first ? "" : ", ").append(visitor.translate(item.getExpression()))
+          .append(item.isDescending() ? " DESC" : "");
+      first = false;
+    }
+  }
+
+  private void appendPaging(SqlFragment statement, final UriInfoResource uriInfo) {
+    Integer top = uriInfo.getTopOption() == null ? null : uriInfo.getTopOption().getValue();
+    if (pageSize != null && (top == null || top > pageSize)) {
+      top = pageSize;
+    }
+    dialect.appendPaging(statement,
+        uriInfo.getSkipOption() == null ? null : uriInfo.getSkipOption().getValue(), top);
+  }
+
+  private SqlFragment getColumn(final List<EdmProperty> path) {
+    return SqlFragment.of(dialect.quoteIdentifier(mapping.getColumnName(path)));
+  }
+}
@@ -0,0 +1,187 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.core.crossjoin;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.FileReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.olingo.commons.api.data.Entity;
+import org.apache.olingo.commons.api.data.Property;
+import org.apache.olingo.commons.api.data.ValueType;
+import org.apache.olingo.commons.api.edm.Edm;
+import org.apache.olingo.commons.api.edm.EdmEntitySet;
+import org.apache.olingo.commons.api.edmx.EdmxReference;
+import org.apache.olingo.commons.api.http.HttpStatusCode;
+import org.apache.olingo.server.api.OData;
+import org.apache.olingo.server.api.ODataApplicationException;
+import org.apache.olingo.server.api.uri.UriInfo;
+import org.apache.olingo.server.api.uri.queryoption.expression.Expression;
+import org.apache.olingo.server.api.uri.queryoption.expression.Literal;
+import org.apache.olingo.server.api.uri.queryoption.expression.Method;
+import org.apache.olingo.server.core.MetadataParser;
+import org.apache.olingo.server.core.uri.parser.Parser;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class CrossJoinEvaluatorTest {
+
+  private static final OData odata = OData.newInstance();
+  private static Edm edm;
+  private final Map<String, List<Entity>> data = new HashMap<String, List<Entity>>();
+
+  @BeforeClass
+  public static void beforeClass() throws Exception {
+    edm = odata.createServiceMetadata(
+        new MetadataParser().buildEdmProvider(new FileReader("src/test/resources/trippin.xml")),
+        Collections.<EdmxReference> emptyList()).getEdm();
+  }
+
+  public CrossJoinEvaluatorTest() {
+    data.put("People", Arrays.asList(
+        entity("UserName", "anna", "FirstName", "Anna", "LastName", "Berlin", "Concurrency", 1L),
+        entity("UserName", "bob", "FirstName", "Bob", "LastName", "Paris", "Concurrency", 2L),
+        entity("UserName", "carl", "FirstName", null, "LastName", "Oslo", "Concurrency", 3L)));
+    data.put("Airlines", Arrays.asList(
+        entity("AirlineCode", "AN", "Name", "Anna"),
+        entity("AirlineCode", "BO", "Name", "Bob"),
+        entity("AirlineCode", "B2", "Name", "Bob"),
+        entity("AirlineCode", "XX", "Name", null)));
+    data.put("Airports", Arrays.asList(
+        entity("IcaoCode", "EDDB", "Name", "Berlin", "IataCode", "BER"),
+        entity("IcaoCode", "LFPG", "Name", "Paris", "IataCode", "CDG"),
+        entity("IcaoCode", "ENGM", "Name", "Oslo", "IataCode", "OSL")));
+  }
+
+  @Test
+  public void hashJoin() throws Exception {
+    final List<String> rows = evaluate("People,Airlines", "People/FirstName eq Airlines/Name", null);
+    // Null values are equal, too.
+    assertEquals(Arrays.asList("anna|AN", "bob|BO", "bob|B2", "carl|XX"), rows);
+  }
+
+  @Test
+  public void joinOrderAndFilters() throws Exception {
+    final CrossJoinEvaluator evaluator = create("People,Airlines,Airports",
+        "Airlines/Name eq 'Bob' and Airports/Name eq People/LastName and People/Concurrency lt 3", null);
+    assertEquals(Arrays.asList("People", "Airports", "Airlines"), evaluator.getJoinOrder());
+    assertEquals(Arrays.asList("anna|BO|EDDB", "anna|B2|EDDB", "bob|BO|LFPG", "bob|B2|LFPG"),
+        toStrings(evaluator.evaluate(new Source())));
+  }
+
+  @Test
+  public void residualFilter() throws Exception {
+    final List<String> rows = evaluate("People,Airports",
+        "People/LastName gt Airports/Name or not (People/UserName ne 'carl')", null);
+    assertEquals(Arrays.asList("bob|EDDB", "bob|ENGM", "carl|EDDB", "carl|LFPG", "carl|ENGM"), rows);
+    assertEquals(9, evaluate("People,Airports", null, null).size());
+  }
+
+  @Test
+  public void delegation() throws Exception {
+    final String filter = "People/FirstName eq Airlines/Name and startswith(Airlines/AirlineCode,'B')";
+    try {
+      evaluate("People,Airlines", filter, null);
+      fail("Expected an ODataApplicationException");
+    } catch (final ODataApplicationException e) {
+      assertEquals(HttpStatusCode.NOT_IMPLEMENTED.getStatusCode(), e.getStatusCode());
+    }
+
+    final List<String> rows = evaluate("People,Airlines", filter, new CrossJoinEvaluator.RowEvaluator() {
+      @Override
+      public Object evaluate(final Expression expression, final Map<String, Entity> row) {
+        assertEquals(Collections.singleton("Airlines"), row.keySet());
+        final String code = (String) row.get("Airlines").getProperty("AirlineCode").getValue();
+        final Literal prefix = (Literal) ((Method) expression).getParameters().get(1);
+        return code.startsWith(prefix.getText().replace("'", ""));
+      }
+    });
+    assertEquals(Arrays.asList("bob|BO", "bob|B2"), rows);
+  }
+
+  @Test
+  public void unsupportedExpressionOnStreamedEntitySet() throws Exception {
+    // The filters of the first entity set are evaluated only while iterating,
+    // so they must be rejected before the iterator is returned.
+    for (final String filter : new String[] { "contains(People/UserName,'r')",
+        "Airlines/Name eq 'Bob' and (People/LastName gt Airlines/Name or length(People/LastName) eq 4)" }) {
+      final CrossJoinEvaluator evaluator = create("People,Airlines", filter, null);
+      try {
+        evaluator.evaluate(new Source());
+        fail("Expected an ODataApplicationException");
+      } catch (final ODataApplicationException e) {
+        assertEquals(HttpStatusCode.NOT_IMPLEMENTED.getStatusCode(), e.getStatusCode());
+      }
+    }
+  }
+
+  private List<String> evaluate(final String entitySetNames, final String filter,
+      final CrossJoinEvaluator.RowEvaluator evaluator) throws Exception {
+    return toStrings(create(entitySetNames, filter, evaluator).evaluate(new Source()));
+  }
+
+  private CrossJoinEvaluator create(final String entitySetNames, final String filter,
+      final CrossJoinEvaluator.RowEvaluator evaluator) throws Exception {
+    final UriInfo uriInfo = new Parser(edm, odata).parseUri("$crossjoin(" + entitySetNames + ")",
+        filter == null ? null : "$filter=" + filter, null, null);
+    List<EdmEntitySet> entitySets = new ArrayList<EdmEntitySet>();
+    for (final String name : uriInfo.getEntitySetNames()) {
+      entitySets.add(edm.getEntityContainer().getEntitySet(name));
+    }
+    return new CrossJoinEvaluator(entitySets,
+        filter == null ? null : uriInfo.getFilterOption().getExpression(), evaluator);
+  }
+
+  /** Represents each row by the first property values of its entities in request order. */
+  private List<String> toStrings(final Iterator<Map<String, Entity>> rows) {
+    List<String> result = new ArrayList<String>();
+    while (rows.hasNext()) {
+      StringBuilder row = new StringBuilder();
+      for (final Entity entity : rows.next().values()) {
+        row.append(row.length() == 0 ? "" : "|").append(entity.getProperties().get(0).getValue());
+      }
+      result.add(row.toString());
+    }
+    return result;
+  }
+
+  private static Entity entity(final Object... namesAndValues) {
+    Entity entity = new Entity();
+    for (int index = 0; index < namesAndValues.length; index += 2) {
+      entity.addProperty(new Property(null, (String) namesAndValues[index], ValueType.PRIMITIVE,
+          namesAndValues[index + 1]));
+    }
+    return entity;
+  }
+
+  private class Source implements CrossJoinEvaluator.EntitySource {
+    @Override
+    public Iterator<Entity> read(final EdmEntitySet entitySet) {
+      return data.get(entitySet.getName()).iterator();
+    }
+  }
+}
@@ -0,0 +1,238 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.core.sql;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.FileReader;
+import java.sql.ResultSet;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.olingo.commons.api.data.Entity;
+import org.apache.olingo.commons.api.data.Property;
+import org.apache.olingo.commons.api.data.ValueType;
+import org.apache.olingo.commons.api.edm.Edm;
+import org.apache.olingo.commons.api.edm.EdmEntitySet;
+import org.apache.olingo.commons.api.edmx.EdmxReference;
+import org.apache.olingo.commons.api.http.HttpStatusCode;
+import org.apache.olingo.server.api.OData;
+import org.apache.olingo.server.api.ODataApplicationException;
+import org.apache.olingo.server.core.MetadataParser;
+import org.apache.olingo.server.core.uri.parser.Parser;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class SqlQueryBuilderTest {
+
+  private static final OData odata = OData.newInstance();
+  private static Edm edm;
+  private final SqlQueryBuilder builder = new SqlQueryBuilder(new SqlDialect(), new SqlMapping());
+
+  @BeforeClass
+  public static void beforeClass() throws Exception {
+    edm = odata.createServiceMetadata(
+        new MetadataParser().buildEdmProvider(new FileReader("src/test/resources/trippin.xml")),
+        Collections.<EdmxReference> emptyList()).getEdm();
+  }
+
+  @Test
+  public void selectAndFilter() throws Exception {
+    final SqlQuery query = build("People", "$select=FirstName&$filter=LastName eq 'O''Brien' and Concurrency gt 5");
+    assertEquals("SELECT \"UserName\", \"FirstName\" FROM \"People\""
+        + " WHERE ((\"LastName\" = ?) AND (\"Concurrency\" > ?)) ORDER BY \"UserName\"", query.getSql());
+    assertEquals(2, query.getParameters().size());
+    assertEquals("O'Brien", query.getParameters().get(0));
+    assertEquals(5, ((Number) query.getParameters().get(1)).intValue());
+    assertEquals(Arrays.asList("FirstName"), query.getColumns().get(1).getPath());
+  }
+
+  @Test
+  public void allColumns() throws Exception {
+    final String sql = build("People", null).getSql();
+    assertTrue(sql.startsWith("SELECT \"UserName\", \"FirstName\", \"LastName\", \"Gender\", \"Concurrency\""));
+    // Collections cannot be mapped to columns.
+    assertFalse(sql.contains("Emails"));
+  }
+
+  @Test
+  public void complexProperty() throws Exception {
+    final SqlQuery query = build("Airports", "$select=Location&$filter=Location/City/Region eq 'CA'");
+    assertTrue(query.getSql().contains("\"Location_City_Name\""));
+    assertTrue(query.getSql().contains("WHERE (\"Location_City_Region\" = ?)"));
+    assertEquals(Arrays.asList("Location", "City", "CountryRegion"), query.getColumns().get(2).getPath());
+  }
+
+  @Test
+  public void methods() throws Exception {
+    SqlQuery query = build("People", "$filter=contains(FirstName,'50%25_') and tolower(LastName) eq 'x'");
+    assertEquals("SELECT \"UserName\" FROM \"People\" WHERE ((\"FirstName\" LIKE ? ESCAPE '\\')"
+        + " AND (LOWER(\"LastName\") = ?)) ORDER BY \"UserName\"",
+        query.getSql().replaceFirst("\"UserName\", .* FROM", "\"UserName\" FROM"));
+    assertEquals(Arrays.<Object> asList("%50\\%\\_%", "x"), query.getParameters());
+
+    query = build("People", "$filter=indexof(FirstName,'a') eq 1");
+    assertTrue(query.getSql().contains("WHERE ((POSITION(? IN \"FirstName\") - 1) = ?)"));
+    assertEquals("a", query.getParameters().get(0));
+  }
+
+  @Test
+  public void enumeration() throws Exception {
+    final SqlQuery query = build("People",
+        "$filter=Gender eq Microsoft.OData.SampleService.Models.TripPin.PersonGender'Female'");
+    assertTrue(query.getSql().contains("WHERE (\"Gender\" = ?)"));
+    assertEquals(1, ((Number) query.getParameters().get(0)).intValue());
+  }
+
+  @Test
+  public void nullComparison() throws Exception {
+    assertTrue(build("People", "$filter=FirstName eq null").getSql().contains("WHERE (\"FirstName\" IS NULL)"));
+    assertTrue(build("People", "$filter=null ne FirstName").getSql()
+        .contains("WHERE (\"FirstName\" IS NOT NULL)"));
+  }
+
+  @Test
+  public void nullableProperty() throws Exception {
+    SqlQuery query = build("People", "$filter=FirstName ne 'x'");
+    assertTrue(query.getSql().contains("WHERE ((\"FirstName\" <> ?) OR \"FirstName\" IS NULL)"));
+    assertEquals(Arrays.<Object> asList("x"), query.getParameters());
+
+    query = build("People", "$filter=tolower(FirstName) ne FirstName");
+    assertTrue(query.getSql().contains("WHERE ((LOWER(\"FirstName\") <> \"FirstName\")"
+        + " OR LOWER(\"FirstName\") IS NULL AND \"FirstName\" IS NOT NULL"
+        + " OR \"FirstName\" IS NULL AND LOWER(\"FirstName\") IS NOT NULL)"));
+
+    query = build("People", "$filter=tolower(FirstName) eq FirstName");
+    assertTrue(query.getSql().contains("WHERE ((LOWER(\"FirstName\") = \"FirstName\")"
+        + " OR LOWER(\"FirstName\") IS NULL AND \"FirstName\" IS NULL)"));
+
+    query = build("People", "$filter=not startswith(FirstName,'x')");
+    assertTrue(query.getSql().contains("WHERE (NOT COALESCE((\"FirstName\" LIKE ? ESCAPE '\\'), FALSE))"));
+
+    // Comparisons of non-nullable properties are translated as before.
+    query = build("People", "$filter=not (LastName ne 'x')");
+    assertTrue(query.getSql().contains("WHERE (NOT (\"LastName\" <> ?))"));
+  }
+
+  @Test
+  public void orderAndPage() throws Exception {
+    final SqlQuery query = build("People", "$select=LastName&$orderby=LastName desc&$top=10&$skip=20");
+    assertEquals("SELECT \"UserName\", \"LastName\" FROM \"People\""
+        + " ORDER BY \"LastName\" DESC, \"UserName\" OFFSET ? ROWS FETCH FIRST ? ROWS ONLY", query.getSql());
+    assertEquals(Arrays.<Object> asList(20, 10), query.getParameters());
+  }
+
+  @Test
+  public void pageSize() throws Exception {
+    builder.setPageSize(50);
+    assertEquals(Arrays.<Object> asList(0, 50), build("People", null).getParameters());
+    assertEquals(Arrays.<Object> asList(0, 5), build("People", "$top=5").getParameters());
+  }
+
+  @Test
+  public void keysetPagination() throws Exception {
+    final SqlQuery query = build("People", "$select=LastName&$orderby=LastName");
+    Entity last = new Entity()
+        .addProperty(new Property(null, "UserName", ValueType.PRIMITIVE, "russell,whyte"))
+        .addProperty(new Property(null, "LastName", ValueType.PRIMITIVE, "O'Whyte"));
+    final String skipToken = query.createSkipToken(last);
+    assertTrue(skipToken, skipToken.matches("[A-Za-z0-9_-]+"));
+
+    final SqlQuery next = build("People", "$select=LastName&$orderby=LastName&$skiptoken=" + skipToken);
+    assertEquals("SELECT \"UserName\", \"LastName\" FROM \"People\""
+        + " WHERE ((\"LastName\" > ?) OR (\"LastName\" = ? AND \"UserName\" > ?))"
+        + " ORDER BY \"LastName\", \"UserName\"",
+        next.getSql());
+    assertEquals(Arrays.<Object> asList("O'Whyte", "O'Whyte", "russell,whyte"), next.getParameters());
+  }
+
+  @Test
+  public void invalidSkipToken() throws Exception {
+    try {
+      build("People", "$skiptoken='a','b'");
+      fail("Expected exception not thrown.");
+    } catch (final ODataApplicationException e) {
+      assertEquals(HttpStatusCode.BAD_REQUEST.getStatusCode(), e.getStatusCode());
+    }
+    // A skip token for another order is rejected.
+    final String skipToken = build("People", "$orderby=LastName").createSkipToken(new Entity()
+        .addProperty(new Property(null, "UserName", ValueType.PRIMITIVE, "russellwhyte"))
+        .addProperty(new Property(null, "LastName", ValueType.PRIMITIVE, "Whyte")));
+    try {
+      build("People", "$orderby=FirstName&$skiptoken=" + skipToken);
+      fail("Expected exception not thrown.");
+    } catch (final ODataApplicationException e) {
+      assertEquals(HttpStatusCode.BAD_REQUEST.getStatusCode(), e.getStatusCode());
+    }
+  }
+
+  @Test
+  public void aggregation() throws Exception {
+    final SqlQuery query = build("People",
+        "$apply=filter(Concurrency gt 0)/groupby((LastName),aggregate(Concurrency with sum as Total,$count as Count))"
+        + "&$orderby=Total desc");
+    assertEquals("SELECT \"LastName\", SUM(\"Concurrency\") AS \"Total\", COUNT(*) AS \"Count\" FROM \"People\""
+        + " WHERE (\"Concurrency\" > ?) GROUP BY \"LastName\" ORDER BY \"Total\" DESC", query.getSql());
+    assertEquals(Arrays.asList("Edm.Decimal"), query.getColumns().get(1).getTypes());
+  }
+
+  @Test
+  public void unsupportedExpression() throws Exception {
+    try {
+      build("People", "$filter=Friends/any(f:f/FirstName eq 'x')");
+      fail("Expected exception not thrown.");
+    } catch (final ODataApplicationException e) {
+      assertEquals(HttpStatusCode.NOT_IMPLEMENTED.getStatusCode(), e.getStatusCode());
+    }
+  }
+
+  @Test
+  public void resultSetIterator() throws Exception {
+    final EdmEntitySet entitySet = edm.getEntityContainer().getEntitySet("Airports");
+    final SqlQuery query = build("Airports", "$select=Name,Location/City/Name");
+    ResultSet resultSet = mock(ResultSet.class);
+    when(resultSet.next()).thenReturn(true, false);
+    when(resultSet.getObject(1)).thenReturn("KSFO");
+    when(resultSet.getObject(2)).thenReturn("San Francisco International Airport");
+    when(resultSet.getObject(3)).thenReturn("San Francisco");
+
+    ResultSetEntityIterator iterator = new ResultSetEntityIterator(query, resultSet, entitySet.getEntityType());
+    assertTrue(iterator.hasNext());
+    final Entity entity = iterator.next();
+    assertEquals("Microsoft.OData.SampleService.Models.TripPin.Airport", entity.getType());
+    assertEquals("KSFO", entity.getProperty("IcaoCode").getValue());
+    final List<Property> location = entity.getProperty("Location").asComplex().getValue();
+    assertEquals("San Francisco", location.get(0).asComplex().getValue().get(0).getValue());
+    assertEquals("Edm.String", location.get(0).asComplex().getValue().get(0).getType());
+    assertFalse(iterator.hasNext());
+    verify(resultSet).close();
+  }
+
+  private SqlQuery build(final String entitySetName, final String query) throws Exception {
+    return builder.build(edm.getEntityContainer().getEntitySet(entitySetName),
+        new Parser(edm, odata).parseUri(entitySetName, query, null, null));
+  }
+}
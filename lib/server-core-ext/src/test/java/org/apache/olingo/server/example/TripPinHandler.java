@@ -22,8 +22,11 @@ import java.io.ByteArrayInputStream;
 import java.io.InputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Random;
 
 import org.apache.olingo.commons.api.data.Entity;
@@ -48,7 +51,9 @@ import org.apache.olingo.server.api.ODataServerError;
 import org.apache.olingo.server.api.ServiceMetadata;
 import org.apache.olingo.server.api.uri.UriParameter;
 import org.apache.olingo.server.api.uri.UriResourceNavigation;
+import org.apache.olingo.server.api.uri.queryoption.FilterOption;
 import org.apache.olingo.server.core.ServiceHandler;
+import org.apache.olingo.server.core.crossjoin.CrossJoinEvaluator;
 import org.apache.olingo.server.core.requests.ActionRequest;
 import org.apache.olingo.server.core.requests.DataRequest;
 import org.apache.olingo.server.core.requests.FunctionRequest;
@@ -56,6 +61,7 @@ import org.apache.olingo.server.core.requests.MediaRequest;
 import org.apache.olingo.server.core.requests.MetadataRequest;
 import org.apache.olingo.server.core.requests.ServiceDocumentRequest;
 import org.apache.olingo.server.core.responses.CountResponse;
+import org.apache.olingo.server.core.responses.CrossJoinResponse;
 import org.apache.olingo.server.core.responses.EntityResponse;
 import org.apache.olingo.server.core.responses.EntitySetResponse;
 import org.apache.olingo.server.core.responses.ErrorResponse;
@@ -538,8 +544,23 @@ public class TripPinHandler implements ServiceHandler {
   }
 
   @Override
-  public void crossJoin(DataRequest dataRequest, List<String> entitySetNames, ODataResponse response) {
-    response.setStatusCode(200);
+  public void crossJoin(DataRequest dataRequest, List<String> entitySetNames, ODataResponse response)
+      throws ODataLibraryException, ODataApplicationException {
+    List<EdmEntitySet> entitySets = new ArrayList<EdmEntitySet>();
+    for (String name : entitySetNames) {
+      entitySets.add(this.serviceMetadata.getEdm().getEntityContainer().getEntitySet(name));
+    }
+    FilterOption filter = dataRequest.getUriInfo().getFilterOption();
+    CrossJoinEvaluator evaluator = new CrossJoinEvaluator(entitySets,
+        filter == null ? null : filter.getExpression(), null);
+    Iterator<Map<String, Entity>> rows = evaluator.evaluate(new CrossJoinEvaluator.EntitySource() {
+      @Override
+      public Iterator<Entity> read(EdmEntitySet entitySet) {
+        return dataModel.getEntitySet(entitySet.getName()).getEntities().iterator();
+      }
+    });
+    CrossJoinResponse.getInstance(dataRequest, dataRequest.getContextURL(this.odata), entitySets, response)
+        .writeCrossJoin(rows);
   }
 
   @Override
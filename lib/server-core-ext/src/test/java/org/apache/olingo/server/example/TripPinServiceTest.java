@@ -799,7 +799,21 @@ public class TripPinServiceTest {
     String editUrl = baseURL + "/$crossjoin(People,Airlines)?$filter="
         + "People/UserName%20eq%20Airlines/AirlineCode";
     HttpResponse response = httpGET(editUrl, 200);
-    EntityUtils.consumeQuietly(response.getEntity());
+    JsonNode node = getJSONNode(response);
+    assertTrue(node.get("@odata.context").asText().endsWith("$metadata#Collection(Edm.ComplexType)"));
+    assertEquals(0, node.get("value").size());
+  }
+
+  @Test
+  public void crossJoinWithExpand() throws Exception {
+    String editUrl = baseURL + "/$crossjoin(Airports,Airlines)?$filter="
+        + "Airports/IataCode%20eq%20'SFO'%20and%20Airlines/AirlineCode%20eq%20'AA'&$expand=Airlines";
+    HttpResponse response = httpGET(editUrl, 200);
+    JsonNode node = getJSONNode(response);
+    JsonNode rows = node.get("value");
+    assertEquals(1, rows.size());
+    assertEquals("Airports('KSFO')", rows.get(0).get("Airports@odata.navigationLink").asText());
+    assertEquals("American Airlines", rows.get(0).get("Airlines").get("Name").asText());
   }
   
   @Test
@@ -20,9 +20,11 @@ package org.apache.olingo.netty.server.core;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.ByteBuffer;
 import java.nio.channels.Channel;
 import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.nio.channels.ReadableByteChannel;
 import java.nio.channels.WritableByteChannel;
 import java.util.Iterator;
@@ -38,11 +40,14 @@ import org.apache.olingo.netty.server.api.ODataNettyHandler;
 import org.apache.olingo.server.api.OData;
 import org.apache.olingo.server.api.ODataContent;
 import org.apache.olingo.server.api.ODataLibraryException;
+import org.apache.olingo.server.api.ODataMediaContent;
 import org.apache.olingo.server.api.ODataRequest;
 import org.apache.olingo.server.api.ODataResponse;
 import org.apache.olingo.server.api.ODataServerError;
 import org.apache.olingo.server.api.ServiceMetadata;
 import org.apache.olingo.server.api.processor.Processor;
+import org.apache.olingo.server.core.AsyncRequestService;
+import org.apache.olingo.server.core.ContentCompression;
 import org.apache.olingo.server.core.ODataExceptionHelper;
 import org.apache.olingo.server.core.ODataHandlerException;
 import org.apache.olingo.server.core.ODataHandlerImpl;
@@ -68,6 +73,7 @@ public class ODataNettyHandlerImpl implements ODataNettyHandler {
   private static final String SPLIT = "split";
 
   private int split = 0;
+  private ContentCompression compression;
 
   public ODataNettyHandlerImpl(final OData odata, final ServiceMetadata serviceMetadata) {
     debugger = new ServerCoreDebugger(odata);
@@ -94,20 +100,45 @@ public class ODataNettyHandlerImpl implements ODataNettyHandler {
    * @param odResponse
    */
   static void convertToHttp(final HttpResponse response, final ODataResponse odResponse) {
-	    response.setStatus(HttpResponseStatus.valueOf(odResponse.getStatusCode()));
+    convertToHttp(response, odResponse, null, null);
+  }
 
-	    for (Entry<String, List<String>> entry : odResponse.getAllHeaders().entrySet()) {
-	      for (String headerValue : entry.getValue()) {
-	        ((HttpMessage)response).headers().add(entry.getKey(), headerValue);
-	      }
-	    }
+  /**
+   * Convert the OData Response to Netty Response, compressing the content with the given content coding
+   * @param response
+   * @param odResponse
+   * @param compression compression settings or null
+   * @param coding negotiated content coding or null
+   */
+  static void convertToHttp(final HttpResponse response, final ODataResponse odResponse,
+      final ContentCompression compression, final String coding) {
+    response.setStatus(HttpResponseStatus.valueOf(odResponse.getStatusCode()));
+    final boolean compress = compression != null && compression.isCompressible(odResponse, coding);
 
-	    if (odResponse.getContent() != null) {
-	      copyContent(odResponse.getContent(), response);
-	    } else if (odResponse.getODataContent() != null) {
-	      writeContent(odResponse, response);
-	    }
-	  }
+    for (Entry<String, List<String>> entry : odResponse.getAllHeaders().entrySet()) {
+      if (compress && HttpHeader.CONTENT_LENGTH.equalsIgnoreCase(entry.getKey())) {
+        continue;
+      }
+      for (String headerValue : entry.getValue()) {
+        ((HttpMessage)response).headers().add(entry.getKey(), headerValue);
+      }
+    }
+    final ODataMediaContent media = odResponse.getMediaContent();
+    if (compression != null && media == null
+        && (odResponse.getContent() != null || odResponse.getODataContent() != null)) {
+      ((HttpMessage)response).headers().add(HttpHeader.VARY, HttpHeader.ACCEPT_ENCODING);
+    }
+
+    final int threshold = compress ? compression.getThreshold(odResponse) : 0;
+    if (media != null) {
+      writeMediaContent(odResponse, response);
+    } else if (odResponse.getContent() != null) {
+      copyContent(Channels.newChannel(odResponse.getContent()), response, compress ? coding : null, compression,
+          threshold);
+    } else if (odResponse.getODataContent() != null) {
+      writeContent(odResponse, response, compress ? coding : null, compression, threshold);
+    }
+  }
   
   /**
    * Write the odata content to netty response content
@@ -115,8 +146,78 @@ public class ODataNettyHandlerImpl implements ODataNettyHandler {
    * @param response
    */
   static void writeContent(final ODataResponse odataResponse, final HttpResponse response) {
+    writeContent(odataResponse, response, null, null, 0);
+  }
+
+  private static void writeContent(final ODataResponse odataResponse, final HttpResponse response,
+      final String coding, final ContentCompression compression, final int threshold) {
     ODataContent res = odataResponse.getODataContent();
-    res.write(Channels.newChannel(new ByteBufOutputStream(((HttpContent)response).content())));
+    final OutputStream output = getOutputStream(response, coding, compression, threshold);
+    res.write(Channels.newChannel(output));
+    if (output instanceof ContentCompression.CompressingOutputStream) {
+      try {
+        ((ContentCompression.CompressingOutputStream) output).finish();
+      } catch (IOException e) {
+        throw new ODataRuntimeException("Error on compressing response content", e);
+      }
+    }
+  }
+
+  /**
+   * Writes the selected range of the media content to the netty response content.
+   * Content in files or buffers is put into the response buffer directly, without intermediate arrays.
+   */
+  private static void writeMediaContent(final ODataResponse odataResponse, final HttpResponse response) {
+    final ODataMediaContent media = odataResponse.getMediaContent();
+    final ByteBuf content = ((HttpContent) response).content();
+    final long position = odataResponse.getMediaContentPosition();
+    final long count = odataResponse.getMediaContentCount();
+    try {
+      final FileChannel file = media.getFileChannel();
+      final ByteBuffer buffer = file == null ? media.getByteBuffer() : null;
+      if (file != null) {
+        long current = position;
+        final long end = Math.min(position + count, file.size());
+        while (current < end) {
+          final int read = content.writeBytes(file, current, (int) Math.min(end - current, Integer.MAX_VALUE));
+          if (read <= 0) {
+            break;
+          }
+          current += read;
+        }
+      } else if (buffer != null) {
+        buffer.position(buffer.position() + (int) Math.min(position, buffer.remaining()));
+        buffer.limit(buffer.position() + (int) Math.min(count, buffer.remaining()));
+        content.writeBytes(buffer);
+      } else {
+        media.write(Channels.newChannel(new ByteBufOutputStream(content)), position, count);
+      }
+    } catch (IOException e) {
+      throw new ODataRuntimeException("Error on writing media content", e);
+    } finally {
+      try {
+        media.close();
+      } catch (IOException e) {
+        // ignore
+      }
+    }
+  }
+
+  /**
+   * Returns a stream on the netty response content, compressing if a content coding has been selected
+   */
+  private static OutputStream getOutputStream(final HttpResponse response, final String coding,
+      final ContentCompression compression, final int threshold) {
+    final OutputStream output = new ByteBufOutputStream(((HttpContent)response).content());
+    if (coding == null) {
+      return output;
+    }
+    return new ContentCompression.CompressingOutputStream(output, coding, compression.getLevel(), threshold) {
+      @Override
+      protected void startCompression(final String contentCoding) {
+        ((HttpMessage)response).headers().set(HttpHeader.CONTENT_ENCODING, contentCoding);
+      }
+    };
   }
   
   static void copyContent(final InputStream inputStream, final HttpResponse response) {
@@ -129,10 +230,15 @@ public class ODataNettyHandlerImpl implements ODataNettyHandler {
    * @param response
    */
   static void copyContent(final ReadableByteChannel input, final HttpResponse response) {
+    copyContent(input, response, null, null, 0);
+  }
+
+  private static void copyContent(final ReadableByteChannel input, final HttpResponse response,
+      final String coding, final ContentCompression compression, final int threshold) {
     WritableByteChannel output = null;
     try {
       ByteBuffer inBuffer = ByteBuffer.allocate(COPY_BUFFER_SIZE);
-      output = Channels.newChannel(new ByteBufOutputStream(((HttpContent)response).content()));
+      output = Channels.newChannel(getOutputStream(response, coding, compression, threshold));
       while (input.read(inBuffer) > 0) {
         inBuffer.flip();
         output.write(inBuffer);
@@ -181,6 +287,9 @@ public class ODataNettyHandlerImpl implements ODataNettyHandler {
 	      innerHandle = debugger.startRuntimeMeasurement("ODataNettyHandlerImpl", "fillUriInformation");
 	      fillUriInformationFromHttpRequest(odRequest, httpRequest, split, contextPath);
 	      debugger.stopRuntimeMeasurement(innerHandle);
+	      if (compression != null) {
+	        ContentCompression.decodeRequest(odRequest);
+	      }
 
 	      return odRequest;
 	    } finally {
@@ -320,10 +429,18 @@ public void processNettyRequest(HttpRequest request, HttpResponse response,
     }
     debugger.stopRuntimeMeasurement(processMethodHandle);
 
-    convertToHttp(response, odResponse);
+    convertToHttp(response, odResponse, compression,
+        compression == null ? null : ContentCompression.negotiate(request.headers().get(HttpHeader.ACCEPT_ENCODING)));
   }
 
   public ODataResponse process(ODataRequest request) {
+    final AsyncRequestService asyncRequestService = handler.getAsyncRequestService();
+    if (asyncRequestService != null) {
+      final ODataResponse asyncResponse = asyncRequestService.process(request, handler);
+      if (asyncResponse != null) {
+        return asyncResponse;
+      }
+    }
     return handler.process(request);
   }
 
@@ -331,4 +448,9 @@ public void processNettyRequest(HttpRequest request, HttpResponse response,
   public void register(Processor processor) {
     handler.register(processor);
   }
+
+  @Override
+  public void setCompression(final int minimumSize, final int level) {
+    compression = new ContentCompression(minimumSize, level);
+  }
 }
@@ -0,0 +1,494 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.core;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.olingo.commons.api.ex.ODataRuntimeException;
+import org.apache.olingo.commons.api.format.ContentType;
+import org.apache.olingo.commons.api.format.PreferenceName;
+import org.apache.olingo.commons.api.http.HttpHeader;
+import org.apache.olingo.commons.api.http.HttpMethod;
+import org.apache.olingo.commons.api.http.HttpStatusCode;
+import org.apache.olingo.server.api.ODataRequest;
+import org.apache.olingo.server.api.ODataResponse;
+import org.apache.olingo.server.api.OlingoExtension;
+import org.apache.olingo.server.api.serializer.SerializerException;
+import org.apache.olingo.server.core.prefer.PreferencesImpl;
+import org.apache.olingo.server.core.serializer.AsyncResponseSerializer;
+
+/**
+ * <p>Asynchronous processing of requests with the preference <code>respond-async</code>,
+ * to be registered as extension at the handler.</p>
+ * <p>The service is thread-safe; register the same instance at all handlers of a service.
+ * Such requests are answered immediately with <code>202 Accepted</code> and the URL of a status monitor
+ * in the <code>Location</code> header; they are then processed in the background by a copy of the handler.
+ * A <code>GET</code> request to the status monitor returns <code>202 Accepted</code> as long as the
+ * processing is running and the complete response in <code>application/http</code> format afterwards,
+ * exactly once. A <code>DELETE</code> request to the status monitor cancels the processing.
+ * The status monitors have the URLs <code><i>service root</i>/$async/<i>id</i></code>
+ * with random identifiers.</p>
+ * <p>If the maximum number of requests is already queued or running, further requests with
+ * the preference are rejected with <code>503 Service Unavailable</code>;
+ * a cancelled request counts until its processing has actually stopped.
+ * Request bodies and responses larger than the spool threshold are kept in temporary files.
+ * Results not retrieved within the time to live are discarded.</p>
+ */
+public class AsyncRequestService implements OlingoExtension {
+
+  /** Path segment of the status-monitor URLs below the service root. */
+  public static final String STATUS_MONITOR_SEGMENT = "$async";
+
+  private static final String STATUS_MONITOR_PREFIX = '/' + STATUS_MONITOR_SEGMENT + '/';
+  private static final int DEFAULT_THREADS = 10;
+  private static final int DEFAULT_MAXIMUM_REQUESTS = 100;
+  private static final int DEFAULT_SPOOL_THRESHOLD = 1024 * 1024;
+  private static final int BUFFER_SIZE = 8192;
+
+  private final ExecutorService executor;
+  private final Semaphore permits;
+  private final Map<String, Job> jobs = new ConcurrentHashMap<String, Job>();
+  private long timeToLive = TimeUnit.MINUTES.toMillis(10);
+  private int retryAfter = 1;
+  private int spoolThreshold = DEFAULT_SPOOL_THRESHOLD;
+  private File spoolDirectory;
+
+  /** Creates a service with the executor from {@link #createDefaultExecutor(int)} and default limits. */
+  public AsyncRequestService() {
+    this(createDefaultExecutor(DEFAULT_THREADS), DEFAULT_MAXIMUM_REQUESTS);
+  }
+
+  /**
+   * @param executor the executor processing the requests
+   * @param maximumRequests maximum number of requests queued or running at the same time
+   */
+  public AsyncRequestService(final ExecutorService executor, final int maximumRequests) {
+    if (executor == null) {
+      throw new IllegalArgumentException("Executor must not be null.");
+    }
+    if (maximumRequests <= 0) {
+      throw new IllegalArgumentException("Maximum number of requests must be positive.");
+    }
+    this.executor = executor;
+    permits = new Semaphore(maximumRequests);
+  }
+
+  /**
+   * Creates an executor with a virtual thread per request if the Java runtime supports
+   * virtual threads, otherwise an executor with a fixed number of daemon threads.
+   * @param threads the number of threads of the fixed-size executor
+   */
+  public static ExecutorService createDefaultExecutor(final int threads) {
+    try {
+      final Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+      return (ExecutorService) factory.invoke(null);
+    } catch (final Exception e) {
+      // Virtual threads are not available in this runtime.
+    }
+    final AtomicInteger count = new AtomicInteger();
+    return Executors.newFixedThreadPool(threads, new ThreadFactory() {
+      @Override
+      public Thread newThread(final Runnable runnable) {
+        Thread thread = new Thread(runnable, "olingo-async-" + count.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+      }
+    });
+  }
+
+  /** Sets the time after which results that have not been retrieved are discarded. */
+  public void setTimeToLive(final long duration, final TimeUnit unit) {
+    timeToLive = unit.toMillis(duration);
+  }
+
+  /** Sets the number of seconds clients are asked to wait before polling the status monitor again. */
+  public void setRetryAfter(final int seconds) {
+    retryAfter = seconds;
+  }
+
+  /**
+   * Sets when request bodies and results are kept in temporary files instead of memory.
+   * @param threshold size in bytes above which data is spooled; {@link Integer#MAX_VALUE} disables spooling
+   * @param directory directory for the temporary files or <code>null</code> for the default temporary directory
+   */
+  public void setSpooling(final int threshold, final File directory) {
+    spoolThreshold = threshold;
+    spoolDirectory = directory;
+  }
+
+  /** Gets the number of requests queued or running. */
+  public int getActiveRequests() {
+    int count = 0;
+    for (final Job job : jobs.values()) {
+      if (!job.task.isDone()) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /** Cancels all requests, discards all results, and shuts down the executor. */
+  public void shutdown() {
+    for (final Iterator<Job> iterator = jobs.values().iterator(); iterator.hasNext();) {
+      iterator.next().discard();
+      iterator.remove();
+    }
+    executor.shutdownNow();
+  }
+
+  /**
+   * Handles status-monitor requests and starts the asynchronous processing of requests
+   * with the preference <code>respond-async</code>.
+   * @param request the OData request
+   * @param handler the handler that would process the request synchronously
+   * @return the response or <code>null</code> if the request has to be processed synchronously
+   */
+  public ODataResponse process(final ODataRequest request, final ODataHandlerImpl handler) {
+    final String path = request.getRawODataPath();
+    if (path != null && path.startsWith(STATUS_MONITOR_PREFIX)) {
+      purgeExpired();
+      return handleStatusMonitor(request, path.substring(STATUS_MONITOR_PREFIX.length()));
+    }
+    if (new PreferencesImpl(request.getHeaders(HttpHeader.PREFER)).hasRespondAsync()) {
+      purgeExpired();
+      return submit(request, handler.copy());
+    }
+    return null;
+  }
+
+  private ODataResponse handleStatusMonitor(final ODataRequest request, final String id) {
+    ODataResponse response = new ODataResponse();
+    final Job job = jobs.get(id);
+    if (job == null) {
+      response.setStatusCode(HttpStatusCode.NOT_FOUND.getStatusCode());
+    } else if (request.getMethod() == HttpMethod.DELETE) {
+      if (jobs.remove(id) != null) {
+        job.discard();
+      }
+      response.setStatusCode(HttpStatusCode.NO_CONTENT.getStatusCode());
+    } else if (request.getMethod() != HttpMethod.GET) {
+      response.setStatusCode(HttpStatusCode.METHOD_NOT_ALLOWED.getStatusCode());
+      response.setHeader(HttpHeader.ALLOW, HttpMethod.GET + ", " + HttpMethod.DELETE);
+    } else if (!job.task.isDone()) {
+      response.setStatusCode(HttpStatusCode.ACCEPTED.getStatusCode());
+      response.setHeader(HttpHeader.LOCATION, job.location);
+      response.setHeader(HttpHeader.RETRY_AFTER, Integer.toString(retryAfter));
+    } else if (jobs.remove(id) == null) {
+      // The result has been retrieved or discarded concurrently.
+      response.setStatusCode(HttpStatusCode.NOT_FOUND.getStatusCode());
+    } else if (job.result == null) {
+      // The response could not be written.
+      response.setStatusCode(HttpStatusCode.INTERNAL_SERVER_ERROR.getStatusCode());
+    } else {
+      response.setStatusCode(HttpStatusCode.OK.getStatusCode());
+      response.setHeader(HttpHeader.CONTENT_TYPE, ContentType.APPLICATION_HTTP.toContentTypeString());
+      response.setHeader("Content-Transfer-Encoding", "binary");
+      try {
+        response.setContent(job.result.getInputStream(true));
+      } catch (final IOException e) {
+        job.result.delete();
+        throw new ODataRuntimeException("Error on reading the asynchronous response.", e);
+      }
+    }
+    return response;
+  }
+
+  private ODataResponse submit(final ODataRequest request, final ODataHandlerImpl handler) {
+    ODataResponse response = new ODataResponse();
+    if (!permits.tryAcquire()) {
+      response.setStatusCode(HttpStatusCode.SERVICE_UNAVAILABLE.getStatusCode());
+      response.setHeader(HttpHeader.RETRY_AFTER, Integer.toString(retryAfter));
+      return response;
+    }
+    final String id = UUID.randomUUID().toString();
+    final String location = request.getRawBaseUri() + STATUS_MONITOR_PREFIX + id;
+    Job job;
+    try {
+      job = new Job(location, copyRequest(request), handler);
+    } catch (final IOException e) {
+      permits.release();
+      throw new ODataRuntimeException("Error on reading the request body.", e);
+    }
+    jobs.put(id, job);
+    try {
+      executor.execute(job.task);
+    } catch (final RejectedExecutionException e) {
+      jobs.remove(id);
+      job.discard();
+      response.setStatusCode(HttpStatusCode.SERVICE_UNAVAILABLE.getStatusCode());
+      response.setHeader(HttpHeader.RETRY_AFTER, Integer.toString(retryAfter));
+      return response;
+    }
+    response.setStatusCode(HttpStatusCode.ACCEPTED.getStatusCode());
+    response.setHeader(HttpHeader.LOCATION, location);
+    response.setHeader(HttpHeader.PREFERENCE_APPLIED, PreferenceName.RESPOND_ASYNC.getName());
+    response.setHeader(HttpHeader.RETRY_AFTER, Integer.toString(retryAfter));
+    return response;
+  }
+
+  /**
+   * Copies the request so that it can be processed after the original request has been answered;
+   * the body is read completely and the preference <code>respond-async</code> is removed.
+   */
+  private ODataRequest copyRequest(final ODataRequest request) throws IOException {
+    ODataRequest copy = new ODataRequest();
+    copy.setMethod(request.getMethod());
+    copy.setProtocol(request.getProtocol());
+    copy.setRawBaseUri(request.getRawBaseUri());
+    copy.setRawODataPath(request.getRawODataPath());
+    copy.setRawQueryPath(request.getRawQueryPath());
+    copy.setRawRequestUri(request.getRawRequestUri());
+    copy.setRawServiceResolutionUri(request.getRawServiceResolutionUri());
+    for (final Map.Entry<String, List<String>> header : request.getAllHeaders().entrySet()) {
+      final List<String> values = HttpHeader.PREFER.equalsIgnoreCase(header.getKey()) ?
+          removeRespondAsync(header.getValue()) :
+          header.getValue();
+      if (!values.isEmpty()) {
+        copy.addHeader(header.getKey(), values);
+      }
+    }
+    if (request.getBody() != null) {
+      Spool body = new Spool(spoolThreshold, spoolDirectory);
+      try {
+        copy(request.getBody(), body);
+      } catch (final IOException e) {
+        body.delete();
+        throw e;
+      }
+      copy.setBody(body.getInputStream(true));
+    }
+    return copy;
+  }
+
+  private List<String> removeRespondAsync(final List<String> preferHeaders) {
+    List<String> result = new ArrayList<String>();
+    for (final String header : preferHeaders) {
+      StringBuilder value = new StringBuilder();
+      for (final String preference : header.split(",")) {
+        final String name = preference.split("[=;]", 2)[0].trim();
+        if (!PreferenceName.RESPOND_ASYNC.getName().equalsIgnoreCase(name) && !name.isEmpty()) {
+          value.append(value.length() == 0 ? "" : ",").append(preference);
+        }
+      }
+      if (value.length() > 0) {
+        result.add(value.toString().trim());
+      }
+    }
+    return result;
+  }
+
+  private void purgeExpired() {
+    final long now = System.currentTimeMillis();
+    for (final Iterator<Job> iterator = jobs.values().iterator(); iterator.hasNext();) {
+      final Job job = iterator.next();
+      if (job.task.isDone() && job.completed + timeToLive < now) {
+        iterator.remove();
+        job.discard();
+      }
+    }
+  }
+
+  private static void copy(final InputStream input, final OutputStream output) throws IOException {
+    try {
+      byte[] buffer = new byte[BUFFER_SIZE];
+      int count;
+      while ((count = input.read(buffer)) >= 0) {
+        output.write(buffer, 0, count);
+      }
+    } finally {
+      output.close();
+    }
+  }
+
+  /** A request processed in the background together with its result. */
+  private final class Job implements Callable<Spool> {
+    private final String location;
+    private final ODataRequest request;
+    private final ODataHandlerImpl handler;
+    private final FutureTask<Spool> task;
+    private volatile Spool result;
+    private volatile long completed;
+    /** Set by the first of the worker starting and the task being cancelled; its setter releases the permit. */
+    private final AtomicBoolean claimed = new AtomicBoolean();
+
+    private Job(final String location, final ODataRequest request, final ODataHandlerImpl handler) {
+      this.location = location;
+      this.request = request;
+      this.handler = handler;
+      task = new FutureTask<Spool>(this) {
+        @Override
+        protected void done() {
+          completed = System.currentTimeMillis();
+          if (claimed.compareAndSet(false, true)) {
+            // cancelled before the worker has started
+            permits.release();
+          }
+        }
+      };
+    }
+
+    @Override
+    public Spool call() throws IOException {
+      if (!claimed.compareAndSet(false, true)) {
+        return null;
+      }
+      try {
+        return process();
+      } finally {
+        permits.release();
+      }
+    }
+
+    private Spool process() throws IOException {
+      Spool spool = new Spool(spoolThreshold, spoolDirectory);
+      try {
+        final ODataResponse response = handler.process(request);
+        try {
+          new AsyncResponseSerializer().serialize(response, spool);
+        } catch (final SerializerException e) {
+          spool.delete();
+          spool = new Spool(spoolThreshold, spoolDirectory);
+          ODataResponse error = new ODataResponse();
+          error.setStatusCode(HttpStatusCode.INTERNAL_SERVER_ERROR.getStatusCode());
+          new AsyncResponseSerializer().serialize(error, spool);
+        }
+        spool.close();
+        result = spool;
+        if (task.isCancelled()) {
+          spool.delete();
+        }
+        return spool;
+      } catch (final SerializerException e) {
+        spool.delete();
+        throw new IOException(e);
+      } finally {
+        if (request.getBody() != null) {
+          request.getBody().close();
+        }
+      }
+    }
+
+    private void discard() {
+      task.cancel(true);
+      if (result != null) {
+        result.delete();
+      }
+    }
+  }
+
+  /** Output stream keeping its data in memory up to a threshold and in a temporary file beyond. */
+  private static final class Spool extends OutputStream {
+    private final int threshold;
+    private final File directory;
+    private ByteArrayOutputStream memory = new ByteArrayOutputStream();
+    private File file;
+    private OutputStream fileOutput;
+
+    private Spool(final int threshold, final File directory) {
+      this.threshold = threshold;
+      this.directory = directory;
+    }
+
+    @Override
+    public void write(final int b) throws IOException {
+      write(new byte[] { (byte) b }, 0, 1);
+    }
+
+    @Override
+    public void write(final byte[] bytes, final int offset, final int length) throws IOException {
+      if (fileOutput == null && memory.size() + length > threshold) {
+        file = File.createTempFile("olingo-async", ".tmp", directory);
+        fileOutput = new FileOutputStream(file);
+        memory.writeTo(fileOutput);
+        memory = null;
+      }
+      if (fileOutput == null) {
+        memory.write(bytes, offset, length);
+      } else {
+        fileOutput.write(bytes, offset, length);
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (fileOutput != null) {
+        fileOutput.close();
+      }
+    }
+
+    /**
+     * Opens a stream on the spooled data.
+     * @param deleteOnClose whether the data has to be deleted when the stream is closed
+     */
+    private InputStream getInputStream(final boolean deleteOnClose) throws IOException {
+      if (file == null) {
+        return new ByteArrayInputStream(memory == null ? new byte[0] : memory.toByteArray());
+      }
+      return new FilterInputStream(new FileInputStream(file)) {
+        @Override
+        public void close() throws IOException {
+          try {
+            super.close();
+          } finally {
+            if (deleteOnClose) {
+              delete();
+            }
+          }
+        }
+      };
+    }
+
+    private void delete() {
+      try {
+        close();
+      } catch (final IOException e) {
+        // ignore
+      }
+      if (file != null && !file.delete()) {
+        file.deleteOnExit();
+      }
+      memory = null;
+    }
+  }
+}
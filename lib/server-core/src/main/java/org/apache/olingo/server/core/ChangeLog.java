@@ -0,0 +1,413 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.core;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.olingo.commons.api.data.DeletedEntity;
+import org.apache.olingo.commons.api.data.DeletedEntity.Reason;
+import org.apache.olingo.commons.api.data.Delta;
+import org.apache.olingo.commons.api.data.DeltaLink;
+import org.apache.olingo.commons.api.data.Entity;
+import org.apache.olingo.commons.api.ex.ODataRuntimeException;
+
+/**
+ * <p>Log of the changes to entities and links, to answer delta requests.</p>
+ * <p>Each recorded change gets a token greater than all tokens before; {@link #getCurrentToken()} is the
+ * delta token to be put into a delta link, and {@link #getDelta(String, String, EntityResolver)} returns
+ * the changes of an entity set after such a token, in time proportional to the number of these changes.
+ * Multiple changes of the same entity or link are reported only once, with their latest state.</p>
+ * <p>The log keeps the most recent changes of each entity set, up to a capacity; older delta tokens are
+ * no longer valid and require the client to read the entity set again. If a file is given, the changes are
+ * appended to it and read again on construction, so that delta tokens survive restarts of the service.</p>
+ * <p>The log is thread-safe.</p>
+ */
+public class ChangeLog implements Closeable {
+
+  /** Gives access to the current state of changed entities. */
+  public interface EntityResolver {
+    /**
+     * Reads an entity.
+     * @param entitySetName the name of the entity set
+     * @param id the id of the entity
+     * @return the entity or <code>null</code> if it does not exist (any longer)
+     */
+    Entity resolve(String entitySetName, URI id);
+  }
+
+  private enum Kind {
+    ENTITY_CHANGED, ENTITY_DELETED, ENTITY_REMOVED, LINK_ADDED, LINK_DELETED
+  }
+
+  private static final char SEPARATOR = '\t';
+  private static final String START = "#";
+
+  private final int capacity;
+  private final Map<String, Log> logs = new HashMap<String, Log>();
+  /** The token up to which changes are unknown because the log did not exist yet. */
+  private long start;
+  private long currentToken;
+  private Writer writer;
+
+  /**
+   * Creates a change log in memory.
+   * @param capacity the maximum number of changes kept for each entity set
+   */
+  public ChangeLog(final int capacity) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("The capacity must be positive.");
+    }
+    this.capacity = capacity;
+    // Tokens of an earlier instance (or process) are smaller and therefore no longer valid.
+    start = System.currentTimeMillis() * 1000;
+    currentToken = start;
+  }
+
+  /**
+   * Creates a change log persisted in an append-only file.
+   * If the file exists, the changes in it are read so that the tokens issued before are still valid.
+   * @param capacity the maximum number of changes kept in memory for each entity set
+   * @param file the file
+   * @throws IOException if the file cannot be read or written
+   */
+  public ChangeLog(final int capacity, final File file) throws IOException {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("The capacity must be positive.");
+    }
+    this.capacity = capacity;
+    long fileStart = -1;
+    if (file.exists()) {
+      truncateIncompleteLine(file);
+      final BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+      try {
+        String line;
+        while ((line = reader.readLine()) != null) {
+          if (line.startsWith(START)) {
+            fileStart = Long.parseLong(line.substring(START.length()).trim());
+            start = fileStart;
+            currentToken = fileStart;
+          } else if (fileStart >= 0) {
+            final Change change = Change.parse(line);
+            // An invalid line is skipped.
+            if (change != null && change.token > currentToken) {
+              append(change);
+            }
+          }
+        }
+      } catch (final NumberFormatException e) {
+        throw new IOException("Invalid change log " + file, e);
+      } finally {
+        reader.close();
+      }
+    }
+    writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file, true), "UTF-8"));
+    if (fileStart < 0) {
+      start = System.currentTimeMillis() * 1000;
+      currentToken = start;
+      writer.write(START + start + '\n');
+      writer.flush();
+    }
+  }
+
+  /**
+   * Removes a last line not written completely (e.g., because of a crash),
+   * so that the changes appended later start on a line of their own.
+   */
+  private static void truncateIncompleteLine(final File file) throws IOException {
+    final RandomAccessFile access = new RandomAccessFile(file, "rw");
+    try {
+      long length = access.length();
+      while (length > 0) {
+        access.seek(length - 1);
+        if (access.read() == '\n') {
+          break;
+        }
+        length--;
+      }
+      access.setLength(length);
+    } finally {
+      access.close();
+    }
+  }
+
+  /**
+   * Gets the token of the latest change; requesting the delta after this token returns all changes to come.
+   * Get the token for the next delta link before calling {@link #getDelta(String, String, EntityResolver)}
+   * so that no change in between is missed.
+   */
+  public synchronized String getCurrentToken() {
+    return String.valueOf(currentToken);
+  }
+
+  /**
+   * Records the creation or the modification of an entity.
+   * @param entitySetName the name of the entity set
+   * @param id the id of the entity
+   */
+  public void entityChanged(final String entitySetName, final URI id) {
+    record(Kind.ENTITY_CHANGED, entitySetName, id, null, null);
+  }
+
+  /**
+   * Records the deletion of an entity, or its removal from the entity set for another reason.
+   * @param entitySetName the name of the entity set
+   * @param id the id of the entity
+   * @param reason the reason; <code>null</code> is treated as {@link Reason#deleted}
+   */
+  public void entityDeleted(final String entitySetName, final URI id, final Reason reason) {
+    record(reason == Reason.changed ? Kind.ENTITY_REMOVED : Kind.ENTITY_DELETED, entitySetName, id, null, null);
+  }
+
+  /**
+   * Records the addition of a link.
+   * @param entitySetName the name of the entity set of the source entity
+   * @param source the id of the source entity
+   * @param relationship the name of the navigation property
+   * @param target the id of the target entity
+   */
+  public void linkAdded(final String entitySetName, final URI source, final String relationship, final URI target) {
+    record(Kind.LINK_ADDED, entitySetName, source, relationship, target);
+  }
+
+  /**
+   * Records the deletion of a link.
+   * @param entitySetName the name of the entity set of the source entity
+   * @param source the id of the source entity
+   * @param relationship the name of the navigation property
+   * @param target the id of the target entity
+   */
+  public void linkDeleted(final String entitySetName, final URI source, final String relationship,
+      final URI target) {
+    record(Kind.LINK_DELETED, entitySetName, source, relationship, target);
+  }
+
+  /**
+   * Gets the changes of an entity set after a delta token.
+   * Changed entities are read with the resolver; entities that cannot be read any longer are reported as deleted.
+   * @param entitySetName the name of the entity set
+   * @param deltaToken the delta token from an earlier {@link #getCurrentToken()}
+   * @param resolver the resolver for the current state of changed entities
+   * @return the delta (without count and delta link),
+   *         or <code>null</code> if the token is invalid or too old to know all changes after it
+   */
+  public Delta getDelta(final String entitySetName, final String deltaToken, final EntityResolver resolver) {
+    final long token;
+    try {
+      token = Long.parseLong(deltaToken);
+    } catch (final NumberFormatException e) {
+      return null;
+    }
+    final List<Change> changes;
+    synchronized (this) {
+      final Log log = logs.get(entitySetName);
+      final long floor = log == null ? start : log.floor;
+      if (token < floor || token > currentToken) {
+        return null;
+      }
+      changes = log == null ? new ArrayList<Change>() : log.after(token);
+    }
+
+    // Only the latest change of an entity or a link counts, in the order of these latest changes.
+    Map<URI, Change> entityChanges = new LinkedHashMap<URI, Change>();
+    Map<String, Change> linkChanges = new LinkedHashMap<String, Change>();
+    for (final Change change : changes) {
+      if (change.relationship == null) {
+        entityChanges.remove(change.id);
+        entityChanges.put(change.id, change);
+      } else {
+        final String key = change.id + " " + change.relationship + " " + change.target;
+        linkChanges.remove(key);
+        linkChanges.put(key, change);
+      }
+    }
+
+    Delta delta = new Delta();
+    for (final Change change : entityChanges.values()) {
+      final Entity entity = change.kind == Kind.ENTITY_CHANGED ? resolver.resolve(entitySetName, change.id) : null;
+      if (entity == null) {
+        DeletedEntity deletedEntity = new DeletedEntity();
+        deletedEntity.setId(change.id);
+        deletedEntity.setReason(change.kind == Kind.ENTITY_REMOVED ? Reason.changed : Reason.deleted);
+        delta.getDeletedEntities().add(deletedEntity);
+      } else {
+        delta.getEntities().add(entity);
+      }
+    }
+    for (final Change change : linkChanges.values()) {
+      DeltaLink link = new DeltaLink();
+      link.setSource(change.id);
+      link.setRelationship(change.relationship);
+      link.setTarget(change.target);
+      (change.kind == Kind.LINK_ADDED ? delta.getAddedLinks() : delta.getDeletedLinks()).add(link);
+    }
+    return delta;
+  }
+
+  /** Closes the file, if any; changes recorded afterwards are kept in memory only. */
+  @Override
+  public synchronized void close() throws IOException {
+    if (writer != null) {
+      writer.close();
+      writer = null;
+    }
+  }
+
+  private synchronized void record(final Kind kind, final String entitySetName, final URI id,
+      final String relationship, final URI target) {
+    if (entitySetName == null || id == null) {
+      throw new IllegalArgumentException("The entity set and the entity id are mandatory.");
+    }
+    final Change change = new Change(currentToken + 1, kind, entitySetName, id, relationship, target);
+    if (writer != null) {
+      try {
+        writer.write(change.format());
+        writer.flush();
+      } catch (final IOException e) {
+        throw new ODataRuntimeException("Unable to write the change log", e);
+      }
+    }
+    append(change);
+  }
+
+  private void append(final Change change) {
+    Log log = logs.get(change.entitySetName);
+    if (log == null) {
+      log = new Log(capacity, start);
+      logs.put(change.entitySetName, log);
+    }
+    log.add(change);
+    currentToken = change.token;
+  }
+
+  /** Ring buffer of the changes of one entity set, in the order of their tokens. */
+  private static class Log {
+    private final Change[] ring;
+    private int first;
+    private int size;
+    /** The smallest token after which all changes are known. */
+    private long floor;
+
+    private Log(final int capacity, final long floor) {
+      ring = new Change[capacity];
+      this.floor = floor;
+    }
+
+    private void add(final Change change) {
+      if (size == ring.length) {
+        floor = ring[first].token;
+        ring[first] = change;
+        first = (first + 1) % ring.length;
+      } else {
+        ring[(first + size) % ring.length] = change;
+        size++;
+      }
+    }
+
+    private Change get(final int index) {
+      return ring[(first + index) % ring.length];
+    }
+
+    private List<Change> after(final long token) {
+      int low = 0;
+      int high = size;
+      while (low < high) {
+        final int middle = (low + high) >>> 1;
+        if (get(middle).token <= token) {
+          low = middle + 1;
+        } else {
+          high = middle;
+        }
+      }
+      List<Change> result = new ArrayList<Change>(size - low);
+      for (int index = low; index < size; index++) {
+        result.add(get(index));
+      }
+      return result;
+    }
+  }
+
+  private static class Change {
+    private final long token;
+    private final Kind kind;
+    private final String entitySetName;
+    private final URI id;
+    private final String relationship;
+    private final URI target;
+
+    private Change(final long token, final Kind kind, final String entitySetName, final URI id,
+        final String relationship, final URI target) {
+      this.token = token;
+      this.kind = kind;
+      this.entitySetName = entitySetName;
+      this.id = id;
+      this.relationship = relationship;
+      this.target = target;
+    }
+
+    private String format() {
+      StringBuilder line = new StringBuilder();
+      line.append(token).append(SEPARATOR).append(kind.name())
+          .append(SEPARATOR).append(entitySetName)
+          .append(SEPARATOR).append(id.toASCIIString());
+      if (relationship != null) {
+        line.append(SEPARATOR).append(relationship).append(SEPARATOR).append(target.toASCIIString());
+      }
+      return line.append('\n').toString();
+    }
+
+    private static Change parse(final String line) {
+      final String[] fields = line.split(String.valueOf(SEPARATOR), -1);
+      if (fields.length != 4 && fields.length != 6) {
+        return null;
+      }
+      try {
+        final Kind kind = Kind.valueOf(fields[1]);
+        final boolean isLink = kind == Kind.LINK_ADDED || kind == Kind.LINK_DELETED;
+        for (final String field : fields) {
+          if (field.isEmpty()) {
+            return null;
+          }
+        }
+        if (isLink != (fields.length == 6)) {
+          return null;
+        }
+        return new Change(Long.parseLong(fields[0]), kind, fields[2], URI.create(fields[3]),
+            isLink ? fields[4] : null, isLink ? URI.create(fields[5]) : null);
+      } catch (final IllegalArgumentException e) {
+        return null;
+      }
+    }
+  }
+}
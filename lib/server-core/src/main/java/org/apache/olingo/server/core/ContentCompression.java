@@ -0,0 +1,313 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.core;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Locale;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import org.apache.olingo.commons.api.http.HttpHeader;
+import org.apache.olingo.server.api.ODataRequest;
+import org.apache.olingo.server.api.ODataResponse;
+
+/**
+ * Negotiates and applies the HTTP content coding (<tt>gzip</tt> or <tt>deflate</tt>)
+ * of request and response bodies.
+ * <br/>Responses are compressed while they are written so that streamed content
+ * is never buffered as a whole; only the first <tt>minimumSize</tt> bytes are held back
+ * to decide whether compressing a response of unknown length is worth it.
+ */
+public class ContentCompression {
+
+  public static final String GZIP = "gzip";
+  public static final String DEFLATE = "deflate";
+  public static final String IDENTITY = "identity";
+
+  private static final int BUFFER_SIZE = 8192;
+
+  private final int minimumSize;
+  private final int level;
+
+  /**
+   * @param minimumSize responses smaller than this number of bytes are sent uncompressed
+   * @param level compression level from 0 to 9 or -1 for the default level
+   */
+  public ContentCompression(final int minimumSize, final int level) {
+    if (minimumSize < 0) {
+      throw new IllegalArgumentException("Minimum size must not be negative.");
+    }
+    if (level != Deflater.DEFAULT_COMPRESSION
+        && (level < Deflater.NO_COMPRESSION || level > Deflater.BEST_COMPRESSION)) {
+      throw new IllegalArgumentException("Invalid compression level: " + level);
+    }
+    this.minimumSize = minimumSize;
+    this.level = level;
+  }
+
+  public int getMinimumSize() {
+    return minimumSize;
+  }
+
+  public int getLevel() {
+    return level;
+  }
+
+  /**
+   * Selects the content coding for the response from the value of the Accept-Encoding header.
+   * <tt>gzip</tt> is preferred over <tt>deflate</tt> if both have the same quality.
+   * @param acceptEncoding the value of the Accept-Encoding header, may be null
+   * @return <tt>gzip</tt>, <tt>deflate</tt>, or null if the response should not be compressed
+   */
+  public static String negotiate(final String acceptEncoding) {
+    if (acceptEncoding == null) {
+      return null;
+    }
+    float gzip = -1;
+    float deflate = -1;
+    float any = -1;
+    for (String coding : acceptEncoding.split(",")) {
+      final String[] parts = coding.split(";");
+      final String name = parts[0].trim().toLowerCase(Locale.ENGLISH);
+      float quality = 1;
+      for (int i = 1; i < parts.length; i++) {
+        final String parameter = parts[i].trim();
+        if (parameter.startsWith("q=") || parameter.startsWith("Q=")) {
+          try {
+            quality = Float.parseFloat(parameter.substring(2).trim());
+          } catch (final NumberFormatException e) {
+            quality = 0;
+          }
+        }
+      }
+      if (GZIP.equals(name) || "x-gzip".equals(name)) {
+        gzip = quality;
+      } else if (DEFLATE.equals(name)) {
+        deflate = quality;
+      } else if ("*".equals(name)) {
+        any = quality;
+      }
+    }
+    if (gzip < 0) {
+      gzip = any;
+    }
+    if (deflate < 0) {
+      deflate = any;
+    }
+    if (gzip > 0 && gzip >= deflate) {
+      return GZIP;
+    } else if (deflate > 0) {
+      return DEFLATE;
+    }
+    return null;
+  }
+
+  /**
+   * Replaces the body of the request by a decoding stream if the request declares
+   * a Content-Encoding; the Content-Encoding header is removed afterwards
+   * because the body seen by the processors is no longer encoded.
+   * @param request the OData request with headers and body already filled
+   * @throws ODataHandlerException if the content coding is not supported
+   */
+  public static void decodeRequest(final ODataRequest request) throws ODataHandlerException {
+    final String contentEncoding = request.getHeader(HttpHeader.CONTENT_ENCODING);
+    if (contentEncoding == null || request.getBody() == null) {
+      return;
+    }
+    final String coding = contentEncoding.trim().toLowerCase(Locale.ENGLISH);
+    try {
+      if (GZIP.equals(coding) || "x-gzip".equals(coding)) {
+        request.setBody(new GZIPInputStream(request.getBody(), BUFFER_SIZE));
+      } else if (DEFLATE.equals(coding)) {
+        request.setBody(new InflaterInputStream(request.getBody()));
+      } else if (!IDENTITY.equals(coding)) {
+        throw new ODataHandlerException("Unsupported content encoding: " + contentEncoding,
+            ODataHandlerException.MessageKeys.UNSUPPORTED_CONTENT_ENCODING, contentEncoding);
+      }
+    } catch (final IOException e) {
+      throw new ODataHandlerException("Invalid " + coding + " request body.", e,
+          ODataHandlerException.MessageKeys.UNSUPPORTED_CONTENT_ENCODING, contentEncoding);
+    }
+    request.removeHeader(HttpHeader.CONTENT_ENCODING);
+  }
+
+  /**
+   * Determines whether the response is a candidate for compression at all.
+   * @param response the OData response
+   * @param coding the negotiated content coding
+   * @return <code>true</code> if the response body has to be written through
+   * a {@link CompressingOutputStream}
+   */
+  public boolean isCompressible(final ODataResponse response, final String coding) {
+    // Media content is sent as is so that byte ranges refer to the stored representation.
+    if (coding == null
+        || response.getMediaContent() != null
+        || response.getContent() == null && response.getODataContent() == null
+        || response.getHeader(HttpHeader.CONTENT_ENCODING) != null) {
+      return false;
+    }
+    final String length = response.getHeader(HttpHeader.CONTENT_LENGTH);
+    if (length != null) {
+      try {
+        return Long.parseLong(length.trim()) >= minimumSize;
+      } catch (final NumberFormatException e) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns the number of bytes a {@link CompressingOutputStream} has to hold back for the response:
+   * nothing if the length of the response is known to be large enough, the minimum size otherwise.
+   * @param response the OData response
+   */
+  public int getThreshold(final ODataResponse response) {
+    return response.getHeader(HttpHeader.CONTENT_LENGTH) == null ? minimumSize : 0;
+  }
+
+  /**
+   * Output stream that compresses the data once a threshold of bytes has been written.
+   * If the stream is finished before, the data is written uncompressed.
+   * Subclasses are notified by {@link #startCompression(String)} just before the first
+   * compressed byte is written so that the response headers can be set.
+   */
+  public static class CompressingOutputStream extends OutputStream {
+
+    private final OutputStream output;
+    private final String coding;
+    private final int level;
+    private final int threshold;
+    private ByteArrayOutputStream pending;
+    private DeflaterOutputStream compressor;
+    private boolean finished = false;
+
+    public CompressingOutputStream(final OutputStream output, final String coding, final int level,
+        final int threshold) {
+      this.output = output;
+      this.coding = coding;
+      this.level = level;
+      this.threshold = threshold;
+      pending = new ByteArrayOutputStream(Math.min(Math.max(threshold, 32), BUFFER_SIZE));
+    }
+
+    /**
+     * Called once before compressed data is written to the underlying stream.
+     * The default implementation does nothing; subclasses set the Content-Encoding header here.
+     * @param coding the content coding used
+     */
+    protected void startCompression(final String coding) {
+      // nothing to do by default
+    }
+
+    /** @return <code>true</code> if the data written so far has been compressed */
+    public boolean isCompressing() {
+      return compressor != null;
+    }
+
+    @Override
+    public void write(final int b) throws IOException {
+      write(new byte[] { (byte) b }, 0, 1);
+    }
+
+    @Override
+    public void write(final byte[] b, final int off, final int len) throws IOException {
+      if (finished) {
+        throw new IOException("Stream already finished.");
+      }
+      if (compressor != null) {
+        compressor.write(b, off, len);
+      } else {
+        pending.write(b, off, len);
+        if (pending.size() >= threshold) {
+          beginCompression();
+        }
+      }
+    }
+
+    private void beginCompression() throws IOException {
+      startCompression(coding);
+      if (GZIP.equals(coding)) {
+        compressor = new GZIPOutputStream(output, BUFFER_SIZE) {
+          {
+            def.setLevel(level);
+          }
+
+          @Override
+          public void finish() throws IOException {
+            super.finish();
+            def.end();
+          }
+        };
+      } else {
+        compressor = new DeflaterOutputStream(output, new Deflater(level), BUFFER_SIZE) {
+          @Override
+          public void finish() throws IOException {
+            super.finish();
+            def.end();
+          }
+        };
+      }
+      pending.writeTo(compressor);
+      pending = null;
+    }
+
+    @Override
+    public void flush() throws IOException {
+      // Flushing a deflater before the end would only degrade the compression ratio;
+      // the data reaches the client when the stream is finished.
+      if (compressor == null) {
+        return;
+      }
+      output.flush();
+    }
+
+    /**
+     * Writes all remaining data to the underlying stream without closing it.
+     */
+    public void finish() throws IOException {
+      if (finished) {
+        return;
+      }
+      if (compressor == null) {
+        pending.writeTo(output);
+        pending = null;
+      } else {
+        compressor.finish();
+      }
+      finished = true;
+      output.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+      try {
+        finish();
+      } finally {
+        output.close();
+      }
+    }
+  }
+}
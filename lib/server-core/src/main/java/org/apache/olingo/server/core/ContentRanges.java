@@ -0,0 +1,145 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.core;
+
+import org.apache.olingo.commons.api.http.HttpHeader;
+import org.apache.olingo.commons.api.http.HttpMethod;
+import org.apache.olingo.commons.api.http.HttpStatusCode;
+import org.apache.olingo.server.api.ODataMediaContent;
+import org.apache.olingo.server.api.ODataRequest;
+import org.apache.olingo.server.api.ODataResponse;
+
+/**
+ * Answers range requests for media content.
+ * <br/>Only single byte ranges are supported; requests for several ranges
+ * or with invalid range specifications are answered with the complete content
+ * which is allowed by <a href="http://www.rfc-editor.org/rfc/rfc7233.txt">RFC 7233</a>.
+ */
+final class ContentRanges {
+
+  private static final String BYTES_UNIT = "bytes";
+
+  private ContentRanges() {
+    // static helper
+  }
+
+  /**
+   * Restricts a successful response with media content to the range requested in the
+   * <code>Range</code> header of the request and advertises range support.
+   * @param request the OData request
+   * @param response the OData response; status code, headers, and media-content range are adjusted
+   */
+  static void apply(final ODataRequest request, final ODataResponse response) {
+    final ODataMediaContent media = response.getMediaContent();
+    if (media == null || media.getLength() < 0
+        || response.getStatusCode() != HttpStatusCode.OK.getStatusCode()
+        || request.getMethod() != HttpMethod.GET && request.getMethod() != HttpMethod.HEAD) {
+      return;
+    }
+    final long length = media.getLength();
+    response.setHeader(HttpHeader.ACCEPT_RANGES, BYTES_UNIT);
+    response.setHeader(HttpHeader.CONTENT_LENGTH, Long.toString(length));
+
+    final String range = request.getHeader(HttpHeader.RANGE);
+    if (range == null || request.getMethod() != HttpMethod.GET || !isCurrent(request, response)) {
+      return;
+    }
+    final long[] bounds = parse(range.trim(), length);
+    if (bounds == null) {
+      return;
+    }
+    if (bounds.length == 0) {
+      response.setStatusCode(HttpStatusCode.RANGE_NOT_SATISFIABLE.getStatusCode());
+      response.setHeader(HttpHeader.CONTENT_RANGE, BYTES_UNIT + " */" + length);
+      response.setHeader(HttpHeader.CONTENT_LENGTH, "0");
+      response.setMediaContentRange(0, 0);
+      return;
+    }
+    final long count = bounds[1] - bounds[0] + 1;
+    response.setStatusCode(HttpStatusCode.PARTIAL_CONTENT.getStatusCode());
+    response.setHeader(HttpHeader.CONTENT_RANGE,
+        BYTES_UNIT + ' ' + bounds[0] + '-' + bounds[1] + '/' + length);
+    response.setHeader(HttpHeader.CONTENT_LENGTH, Long.toString(count));
+    response.setMediaContentRange(bounds[0], count);
+  }
+
+  /**
+   * Evaluates the <code>If-Range</code> header: the range applies only if the
+   * entity tag matches strongly or the date equals the last-modification date.
+   */
+  private static boolean isCurrent(final ODataRequest request, final ODataResponse response) {
+    final String ifRange = request.getHeader(HttpHeader.IF_RANGE);
+    if (ifRange == null) {
+      return true;
+    }
+    final String validator = ifRange.trim();
+    if (validator.startsWith("\"") || validator.startsWith("W/")) {
+      final String eTag = response.getHeader(HttpHeader.ETAG);
+      return !validator.startsWith("W/") && eTag != null && !eTag.startsWith("W/") && eTag.equals(validator);
+    }
+    return validator.equals(response.getHeader(HttpHeader.LAST_MODIFIED));
+  }
+
+  /**
+   * Parses a single byte-range specification.
+   * @return the first and the last position, an empty array if the range cannot be satisfied,
+   * or <code>null</code> if the header has to be ignored
+   */
+  private static long[] parse(final String range, final long length) {
+    final int equals = range.indexOf('=');
+    if (equals < 0 || !BYTES_UNIT.equalsIgnoreCase(range.substring(0, equals).trim())) {
+      return null;
+    }
+    final String spec = range.substring(equals + 1).trim();
+    final int dash = spec.indexOf('-');
+    if (dash < 0 || spec.indexOf(',') >= 0) {
+      return null;
+    }
+    final long first = parseNumber(spec.substring(0, dash).trim());
+    final long last = parseNumber(spec.substring(dash + 1).trim());
+    if (first == -1 && last == -1 || first < -1 || last < -1 || first != -1 && last != -1 && last < first) {
+      return null;
+    }
+    if (first == -1) {
+      // suffix range: the last bytes of the content
+      return last == 0 || length == 0 ? new long[0] : new long[] { Math.max(0, length - last), length - 1 };
+    }
+    if (first >= length) {
+      return new long[0];
+    }
+    return new long[] { first, last == -1 || last >= length ? length - 1 : last };
+  }
+
+  /** Returns the non-negative number, <code>-1</code> for an empty string, or <code>-2</code> if invalid. */
+  private static long parseNumber(final String number) {
+    if (number.isEmpty()) {
+      return -1;
+    }
+    for (int index = 0; index < number.length(); index++) {
+      if (number.charAt(index) < '0' || number.charAt(index) > '9') {
+        return -2;
+      }
+    }
+    try {
+      return Long.parseLong(number);
+    } catch (final NumberFormatException e) {
+      return -2;
+    }
+  }
+}
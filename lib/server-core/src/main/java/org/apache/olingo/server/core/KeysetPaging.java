@@ -0,0 +1,408 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.core;
+
+import java.io.ByteArrayOutputStream;
+import java.io.UnsupportedEncodingException;
+import java.math.BigDecimal;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.apache.commons.codec.binary.Base64;
+import org.apache.olingo.commons.api.data.Entity;
+import org.apache.olingo.commons.api.data.Property;
+import org.apache.olingo.commons.api.data.PropertyList;
+import org.apache.olingo.commons.api.edm.EdmEntityType;
+import org.apache.olingo.commons.api.edm.EdmKeyPropertyRef;
+import org.apache.olingo.commons.api.edm.EdmPrimitiveType;
+import org.apache.olingo.commons.api.edm.EdmPrimitiveTypeException;
+import org.apache.olingo.commons.api.edm.EdmProperty;
+import org.apache.olingo.commons.api.ex.ODataRuntimeException;
+import org.apache.olingo.commons.api.http.HttpStatusCode;
+import org.apache.olingo.server.api.ODataApplicationException;
+import org.apache.olingo.server.api.uri.UriResource;
+import org.apache.olingo.server.api.uri.UriResourceKind;
+import org.apache.olingo.server.api.uri.UriResourceProperty;
+import org.apache.olingo.server.api.uri.queryoption.OrderByItem;
+import org.apache.olingo.server.api.uri.queryoption.OrderByOption;
+import org.apache.olingo.server.api.uri.queryoption.expression.Expression;
+import org.apache.olingo.server.api.uri.queryoption.expression.Member;
+
+/**
+ * <p>Keyset-based server-driven paging.</p>
+ * <p>Instead of the number of entities to skip, the skip token contains the values of the sort keys
+ * of the last entity of the previous page. The sort keys are the properties in <code>$orderby</code>
+ * followed by the key properties not contained in it, so that the order is total.
+ * A processor continues after these values with the {@link Seek} predicate from
+ * {@link #parseSkipToken(List, String)}, e.g., in a <code>WHERE</code> clause or with a binary search
+ * in sorted data, so that reading a page does not depend on the number of pages before.</p>
+ * <p>Skip tokens are compact binary encodings in the URL-safe Base64 alphabet, signed with
+ * a message authentication code; tokens modified by the client or created for a different order
+ * are rejected. Use the same secret in all instances of a service that must accept each other's tokens.</p>
+ */
+public class KeysetPaging {
+
+  private static final String ALGORITHM = "HmacSHA256";
+  private static final int SIGNATURE_LENGTH = 12;
+  private static final byte VERSION = 1;
+  private static final String CHARSET = "UTF-8";
+
+  private final SecretKeySpec key;
+
+  /** Creates keyset paging with a random secret; its skip tokens are valid only for this instance. */
+  public KeysetPaging() {
+    final byte[] secret = new byte[32];
+    new SecureRandom().nextBytes(secret);
+    key = new SecretKeySpec(secret, ALGORITHM);
+  }
+
+  /**
+   * Creates keyset paging with the given secret.
+   * @param secret the secret to sign the skip tokens with
+   */
+  public KeysetPaging(final byte[] secret) {
+    if (secret == null || secret.length == 0) {
+      throw new IllegalArgumentException("The secret must not be empty.");
+    }
+    key = new SecretKeySpec(secret.clone(), ALGORITHM);
+  }
+
+  /**
+   * Gets the sort keys: the properties in <code>$orderby</code> followed by the key properties.
+   * @param entityType the type of the entities
+   * @param orderBy the <code>$orderby</code> option or <code>null</code>
+   * @return the sort keys or <code>null</code> if <code>$orderby</code> contains other expressions than
+   *         paths to primitive properties
+   */
+  public static List<SortKey> getSortKeys(final EdmEntityType entityType, final OrderByOption orderBy) {
+    List<SortKey> sortKeys = new ArrayList<SortKey>();
+    List<List<EdmProperty>> paths = new ArrayList<List<EdmProperty>>();
+    if (orderBy != null) {
+      for (final OrderByItem item : orderBy.getOrders()) {
+        final List<EdmProperty> path = getPropertyPath(item.getExpression());
+        if (path == null) {
+          return null;
+        }
+        if (!paths.contains(path)) {
+          paths.add(path);
+          sortKeys.add(new SortKey(path, item.isDescending()));
+        }
+      }
+    }
+    for (final EdmKeyPropertyRef keyPropertyRef : entityType.getKeyPropertyRefs()) {
+      final List<EdmProperty> path = Collections.singletonList(keyPropertyRef.getProperty());
+      if (!paths.contains(path)) {
+        paths.add(path);
+        sortKeys.add(new SortKey(path, false));
+      }
+    }
+    return sortKeys;
+  }
+
+  private static List<EdmProperty> getPropertyPath(final Expression expression) {
+    if (!(expression instanceof Member) || ((Member) expression).getStartTypeFilter() != null) {
+      return null;
+    }
+    final List<UriResource> parts = ((Member) expression).getResourcePath().getUriResourceParts();
+    if (parts.isEmpty() || parts.get(parts.size() - 1).getKind() != UriResourceKind.primitiveProperty) {
+      return null;
+    }
+    List<EdmProperty> path = new ArrayList<EdmProperty>(parts.size());
+    for (final UriResource part : parts) {
+      if (part.getKind() != UriResourceKind.primitiveProperty && part.getKind() != UriResourceKind.complexProperty
+          || ((UriResourceProperty) part).isCollection()
+          || ((UriResourceProperty) part).getProperty() == null) {
+        return null;
+      }
+      path.add(((UriResourceProperty) part).getProperty());
+    }
+    return path;
+  }
+
+  /**
+   * Creates the skip token for the page following the given entity, the last one of the current page.
+   * @param sortKeys the sort keys from {@link #getSortKeys(EdmEntityType, OrderByOption)}
+   * @param lastEntity the last entity of the current page
+   * @return the skip token
+   * @throws ODataApplicationException if a value cannot be formatted
+   */
+  public String createSkipToken(final List<SortKey> sortKeys, final Entity lastEntity)
+      throws ODataApplicationException {
+    ByteArrayOutputStream content = new ByteArrayOutputStream();
+    content.write(VERSION);
+    for (final SortKey sortKey : sortKeys) {
+      final Object value = sortKey.getValue(lastEntity);
+      if (value == null) {
+        writeLength(content, 0);
+      } else {
+        final EdmProperty property = sortKey.getProperty();
+        final byte[] bytes;
+        try {
+          bytes = ((EdmPrimitiveType) property.getType()).valueToString(value, property.isNullable(),
+              property.getMaxLength(), property.getPrecision(), property.getScale(), property.isUnicode())
+              .getBytes(CHARSET);
+        } catch (final EdmPrimitiveTypeException e) {
+          throw new ODataApplicationException("The value of '" + property.getName() + "' cannot be formatted.",
+              HttpStatusCode.INTERNAL_SERVER_ERROR.getStatusCode(), Locale.ROOT, e);
+        } catch (final UnsupportedEncodingException e) {
+          throw new ODataRuntimeException(e);
+        }
+        writeLength(content, bytes.length + 1);
+        content.write(bytes, 0, bytes.length);
+      }
+    }
+    final byte[] payload = content.toByteArray();
+    final byte[] signature = sign(sortKeys, payload);
+    content.write(signature, 0, signature.length);
+    return Base64.encodeBase64URLSafeString(content.toByteArray());
+  }
+
+  /**
+   * Parses a skip token created with {@link #createSkipToken(List, Entity)} for the same sort keys.
+   * @param sortKeys the sort keys from {@link #getSortKeys(EdmEntityType, OrderByOption)}
+   * @param skipToken the skip token
+   * @return the predicate selecting the entities after the last entity of the previous page
+   * @throws ODataApplicationException with status 400 if the skip token is invalid
+   */
+  public Seek parseSkipToken(final List<SortKey> sortKeys, final String skipToken)
+      throws ODataApplicationException {
+    final byte[] token = skipToken == null || !Base64.isBase64(skipToken) ? null : Base64.decodeBase64(skipToken);
+    if (token == null || token.length < 1 + SIGNATURE_LENGTH || token[0] != VERSION) {
+      throw invalidSkipToken(null);
+    }
+    final byte[] payload = Arrays.copyOf(token, token.length - SIGNATURE_LENGTH);
+    if (!MessageDigest.isEqual(sign(sortKeys, payload),
+        Arrays.copyOfRange(token, payload.length, token.length))) {
+      throw invalidSkipToken(null);
+    }
+
+    List<Object> values = new ArrayList<Object>(sortKeys.size());
+    int position = 1;
+    for (final SortKey sortKey : sortKeys) {
+      int length = 0;
+      int shift = 0;
+      byte lengthByte;
+      do {
+        if (position >= payload.length) {
+          throw invalidSkipToken(null);
+        }
+        lengthByte = payload[position++];
+        length |= (lengthByte & 0x7F) << shift;
+        shift += 7;
+      } while ((lengthByte & 0x80) != 0);
+      if (length == 0) {
+        values.add(null);
+      } else if (position + length - 1 > payload.length) {
+        throw invalidSkipToken(null);
+      } else {
+        final EdmProperty property = sortKey.getProperty();
+        final EdmPrimitiveType type = (EdmPrimitiveType) property.getType();
+        try {
+          values.add(type.valueOfString(new String(payload, position, length - 1, CHARSET),
+              property.isNullable(), property.getMaxLength(), property.getPrecision(), property.getScale(),
+              property.isUnicode(), type.getDefaultType()));
+        } catch (final EdmPrimitiveTypeException e) {
+          throw invalidSkipToken(e);
+        } catch (final UnsupportedEncodingException e) {
+          throw new ODataRuntimeException(e);
+        }
+        position += length - 1;
+      }
+    }
+    if (position != payload.length) {
+      throw invalidSkipToken(null);
+    }
+    return new Seek(sortKeys, values);
+  }
+
+  private static void writeLength(ByteArrayOutputStream content, final int length) {
+    int remaining = length;
+    while (remaining >= 0x80) {
+      content.write(remaining & 0x7F | 0x80);
+      remaining >>>= 7;
+    }
+    content.write(remaining);
+  }
+
+  /** Signs the payload together with the sort keys so that a token is only valid for the same order. */
+  private byte[] sign(final List<SortKey> sortKeys, final byte[] payload) {
+    try {
+      Mac mac = Mac.getInstance(ALGORITHM);
+      mac.init(key);
+      for (final SortKey sortKey : sortKeys) {
+        for (final EdmProperty property : sortKey.getPath()) {
+          mac.update(property.getName().getBytes(CHARSET));
+          mac.update((byte) '/');
+        }
+        mac.update((byte) (sortKey.isDescending() ? 'D' : 'A'));
+      }
+      mac.update(payload);
+      return Arrays.copyOf(mac.doFinal(), SIGNATURE_LENGTH);
+    } catch (final GeneralSecurityException e) {
+      throw new ODataRuntimeException(e);
+    } catch (final UnsupportedEncodingException e) {
+      throw new ODataRuntimeException(e);
+    }
+  }
+
+  private static ODataApplicationException invalidSkipToken(final Exception cause) {
+    return new ODataApplicationException("Invalid skip token.", HttpStatusCode.BAD_REQUEST.getStatusCode(),
+        Locale.ROOT, cause);
+  }
+
+  /** Property the result is sorted by. */
+  public static final class SortKey {
+    private final List<EdmProperty> path;
+    private final boolean descending;
+
+    private SortKey(final List<EdmProperty> path, final boolean descending) {
+      this.path = path;
+      this.descending = descending;
+    }
+
+    /** Gets the path to the primitive property, starting at a property of the entity type. */
+    public List<EdmProperty> getPath() {
+      return Collections.unmodifiableList(path);
+    }
+
+    /** Gets the primitive property at the end of the path. */
+    public EdmProperty getProperty() {
+      return path.get(path.size() - 1);
+    }
+
+    public boolean isDescending() {
+      return descending;
+    }
+
+    /** Gets the value of the property in the given entity, or <code>null</code>. */
+    public Object getValue(final Entity entity) {
+      List<Property> properties = entity.getProperties();
+      Property property = null;
+      for (final EdmProperty edmProperty : path) {
+        if (properties == null) {
+          return null;
+        }
+        property = PropertyList.find(properties, edmProperty.getName());
+        properties = property == null || property.isNull() || !property.isComplex() ?
+            null :
+            property.asComplex().getValue();
+      }
+      return property == null ? null : property.getValue();
+    }
+  }
+
+  /**
+   * Predicate selecting the entities after a given position in the order of the sort keys:
+   * <code>(k1 &gt; v1) OR (k1 = v1 AND k2 &gt; v2) OR ...</code>,
+   * with <code>&lt;</code> instead of <code>&gt;</code> for descending sort keys;
+   * <code>null</code> is less than all other values.
+   */
+  public static final class Seek {
+    private final List<SortKey> sortKeys;
+    private final List<Object> values;
+
+    private Seek(final List<SortKey> sortKeys, final List<Object> values) {
+      this.sortKeys = sortKeys;
+      this.values = values;
+    }
+
+    public List<SortKey> getSortKeys() {
+      return Collections.unmodifiableList(sortKeys);
+    }
+
+    /**
+     * Gets the values of the sort keys at the position, in the default types of their properties;
+     * values can be <code>null</code>.
+     */
+    public List<Object> getValues() {
+      return Collections.unmodifiableList(values);
+    }
+
+    /** Determines whether the entity comes after the position. */
+    public boolean isAfter(final Entity entity) {
+      return compareTo(entity) < 0;
+    }
+
+    /**
+     * Gets the index of the first entity after the position in a list sorted by the sort keys,
+     * with a binary search.
+     * @return the index, or the size of the list if all entities come before the position
+     */
+    public int indexAfter(final List<Entity> sortedEntities) {
+      int low = 0;
+      int high = sortedEntities.size();
+      while (low < high) {
+        final int middle = (low + high) >>> 1;
+        if (isAfter(sortedEntities.get(middle))) {
+          high = middle;
+        } else {
+          low = middle + 1;
+        }
+      }
+      return low;
+    }
+
+    /** Compares the position with the position of the entity. */
+    private int compareTo(final Entity entity) {
+      for (int index = 0; index < sortKeys.size(); index++) {
+        final int result = compare(values.get(index), sortKeys.get(index).getValue(entity));
+        if (result != 0) {
+          return sortKeys.get(index).isDescending() ? -result : result;
+        }
+      }
+      return 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static int compare(final Object value1, final Object value2) {
+      if (value1 == null || value2 == null) {
+        return value1 == null ? value2 == null ? 0 : -1 : 1;
+      } else if (value1.getClass() == value2.getClass() && value1 instanceof Comparable) {
+        return ((Comparable<Object>) value1).compareTo(value2);
+      } else if (value1 instanceof Number && value2 instanceof Number) {
+        return new BigDecimal(value1.toString()).compareTo(new BigDecimal(value2.toString()));
+      } else if (isTemporal(value1) && isTemporal(value2)) {
+        final long time1 = getTime(value1);
+        final long time2 = getTime(value2);
+        return time1 < time2 ? -1 : time1 == time2 ? 0 : 1;
+      } else {
+        return value1.toString().compareTo(value2.toString());
+      }
+    }
+
+    private static boolean isTemporal(final Object value) {
+      return value instanceof Calendar || value instanceof Date;
+    }
+
+    private static long getTime(final Object value) {
+      return value instanceof Calendar ? ((Calendar) value).getTimeInMillis() : ((Date) value).getTime();
+    }
+  }
+}
@@ -18,8 +18,13 @@
  */
 package org.apache.olingo.server.core;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
 import java.util.List;
 
+import org.apache.olingo.commons.api.Constants;
 import org.apache.olingo.commons.api.edm.EdmAction;
 import org.apache.olingo.commons.api.edm.EdmEntityType;
 import org.apache.olingo.commons.api.edm.EdmFunction;
@@ -36,6 +41,7 @@ import org.apache.olingo.server.api.ODataApplicationException;
 import org.apache.olingo.server.api.ODataLibraryException;
 import org.apache.olingo.server.api.ODataRequest;
 import org.apache.olingo.server.api.ODataResponse;
+import org.apache.olingo.server.api.deserializer.DeserializerException;
 import org.apache.olingo.server.api.etag.CustomETagSupport;
 import org.apache.olingo.server.api.etag.PreconditionException;
 import org.apache.olingo.server.api.processor.ActionComplexCollectionProcessor;
@@ -52,6 +58,7 @@ import org.apache.olingo.server.api.processor.CountComplexCollectionProcessor;
 import org.apache.olingo.server.api.processor.CountEntityCollectionProcessor;
 import org.apache.olingo.server.api.processor.CountPrimitiveCollectionProcessor;
 import org.apache.olingo.server.api.processor.EntityCollectionProcessor;
+import org.apache.olingo.server.api.processor.EntityCollectionCreateProcessor;
 import org.apache.olingo.server.api.processor.EntityProcessor;
 import org.apache.olingo.server.api.processor.MediaEntityProcessor;
 import org.apache.olingo.server.api.processor.MetadataProcessor;
@@ -75,6 +82,10 @@ import org.apache.olingo.server.api.uri.UriResourceSingleton;
 import org.apache.olingo.server.core.batchhandler.BatchHandler;
 import org.apache.olingo.server.core.etag.PreconditionsValidator;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
 public class ODataDispatcher {
 
   private static final String NOT_IMPLEMENTED_MESSAGE = "not implemented";
@@ -82,6 +93,8 @@ public class ODataDispatcher {
   private final ODataHandlerImpl handler;
   private static final String RETURN_MINIMAL = "return=minimal";
   private static final String RETURN_REPRESENTATION = "return=representation";
+  /** Number of bytes read from the request body to determine whether it contains a collection of entities. */
+  private static final int PAYLOAD_START_SIZE = 4096;
 
   public ODataDispatcher(final UriInfo uriInfo, final ODataHandlerImpl handler) {
     this.uriInfo = uriInfo;
@@ -540,14 +553,66 @@ public class ODataDispatcher {
         final ContentType requestFormat = getSupportedContentType(
             request.getHeader(HttpHeader.CONTENT_TYPE),
             RepresentationType.ENTITY, true);
-        handler.selectProcessor(EntityProcessor.class)
-            .createEntity(request, response, uriInfo, requestFormat, responseFormat);
+        if (isEntityCollectionPayload(request, requestFormat)) {
+          handler.selectProcessor(EntityCollectionCreateProcessor.class)
+              .createEntityCollection(request, response, uriInfo, requestFormat, responseFormat);
+        } else {
+          handler.selectProcessor(EntityProcessor.class)
+              .createEntity(request, response, uriInfo, requestFormat, responseFormat);
+        }
       }
     } else {
       throwMethodNotAllowed(method);
     }
   }
 
+  /**
+   * Determines whether the JSON body of a POST request to an entity collection is a collection
+   * of entities: its first member that is not control information is a <code>value</code> array,
+   * and the entity type has no property <code>value</code>.
+   * Only the start of the body is read; the body of the request is replaced by an equivalent stream.
+   */
+  private boolean isEntityCollectionPayload(final ODataRequest request, final ContentType requestFormat)
+      throws DeserializerException {
+    final UriResource lastResource = uriInfo.getUriResourceParts().get(uriInfo.getUriResourceParts().size() - 1);
+    final EdmType type = lastResource instanceof UriResourcePartTyped ?
+        ((UriResourcePartTyped) lastResource).getType() : null;
+    if (request.getBody() == null || !requestFormat.isCompatible(ContentType.APPLICATION_JSON)
+        || !(type instanceof EdmEntityType) || ((EdmEntityType) type).getStructuralProperty(Constants.VALUE) != null) {
+      return false;
+    }
+    final InputStream body = request.getBody();
+    byte[] start = new byte[PAYLOAD_START_SIZE];
+    int length = 0;
+    try {
+      int count;
+      while (length < start.length && (count = body.read(start, length, start.length - length)) >= 0) {
+        length += count;
+      }
+    } catch (final IOException e) {
+      throw new DeserializerException("An IOException occurred.", e, DeserializerException.MessageKeys.IO_EXCEPTION);
+    }
+    request.setBody(new SequenceInputStream(new ByteArrayInputStream(start, 0, length), body));
+
+    try {
+      final JsonParser parser = new JsonFactory().createParser(start, 0, length);
+      if (parser.nextToken() != JsonToken.START_OBJECT) {
+        return false;
+      }
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        final String name = parser.getCurrentName();
+        final JsonToken token = parser.nextToken();
+        if (!name.startsWith("@")) {
+          return Constants.VALUE.equals(name) && token == JsonToken.START_ARRAY;
+        }
+        parser.skipChildren();
+      }
+    } catch (final IOException e) {
+      // The start is not enough to decide, or the content is invalid; the entity deserializer will tell.
+    }
+    return false;
+  }
+
   /**Checks if Prefer header is set with return=minimal or 
    * return=representation for GET and DELETE requests
    * @param request
@@ -26,6 +26,7 @@ import org.apache.olingo.commons.api.ex.ODataRuntimeException;
 import org.apache.olingo.commons.api.format.ContentType;
 import org.apache.olingo.commons.api.http.HttpHeader;
 import org.apache.olingo.commons.api.http.HttpMethod;
+import org.apache.olingo.commons.api.http.HttpStatusCode;
 import org.apache.olingo.server.api.OData;
 import org.apache.olingo.server.api.ODataApplicationException;
 import org.apache.olingo.server.api.ODataHandler;
@@ -36,8 +37,10 @@ import org.apache.olingo.server.api.ODataServerError;
 import org.apache.olingo.server.api.OlingoExtension;
 import org.apache.olingo.server.api.ServiceMetadata;
 import org.apache.olingo.server.api.deserializer.DeserializerException;
+import org.apache.olingo.server.api.etag.CustomETagReadSupport;
 import org.apache.olingo.server.api.etag.CustomETagSupport;
 import org.apache.olingo.server.api.etag.PreconditionException;
+import org.apache.olingo.server.api.metrics.RequestMetrics;
 import org.apache.olingo.server.api.processor.DefaultProcessor;
 import org.apache.olingo.server.api.processor.ErrorProcessor;
 import org.apache.olingo.server.api.processor.Processor;
@@ -65,6 +68,10 @@ public class ODataHandlerImpl implements ODataHandler {
 
   private CustomContentTypeSupport customContentTypeSupport;
   private CustomETagSupport customETagSupport;
+  private ResponseCache responseCache;
+  private RequestMetrics requestMetrics;
+  private AsyncRequestService asyncRequestService;
+  private int processDepth;
 
   private UriInfo uriInfo;
   private Exception lastThrownException;
@@ -78,9 +85,29 @@ public class ODataHandlerImpl implements ODataHandler {
     register(new DefaultProcessor());
   }
 
+  /**
+   * Creates a handler with the same processors and extensions but its own request state,
+   * e.g., to process a request in the background while this handler serves the next one.
+   */
+  ODataHandlerImpl copy() {
+    ODataHandlerImpl copy = new ODataHandlerImpl(odata, serviceMetadata, new ServerCoreDebugger(odata));
+    copy.processors.clear();
+    copy.processors.addAll(processors);
+    copy.customContentTypeSupport = customContentTypeSupport;
+    copy.customETagSupport = customETagSupport;
+    copy.responseCache = responseCache;
+    copy.requestMetrics = requestMetrics;
+    copy.asyncRequestService = asyncRequestService;
+    return copy;
+  }
+
   public ODataResponse process(final ODataRequest request) {
     ODataResponse response = new ODataResponse();
     final int responseHandle = debugger.startRuntimeMeasurement("ODataHandler", "process");
+    // Batch requests process their parts with this handler.
+    if (processDepth++ > 0 && requestMetrics != null) {
+      requestMetrics.recordBatchPart();
+    }
     try {
       processInternal(request, response);
     } catch (final UriValidationException e) {
@@ -119,6 +146,8 @@ public class ODataHandlerImpl implements ODataHandler {
     } catch (Exception e) {
       ODataServerError serverError = ODataExceptionHelper.createServerErrorObject(e);
       handleException(request, response, serverError, e);
+    } finally {
+      processDepth--;
     }
     debugger.stopRuntimeMeasurement(responseHandle);
     return response;
@@ -138,6 +167,7 @@ public class ODataHandlerImpl implements ODataHandler {
     }
 
     final int measurementUriParser = debugger.startRuntimeMeasurement("Parser", "parseUri");
+    long phaseStart = startPhase();
     try {
       uriInfo = new Parser(serviceMetadata.getEdm(), odata)
           .parseUri(request.getRawODataPath(), request.getRawQueryPath(), null, request.getRawBaseUri());
@@ -147,6 +177,7 @@ public class ODataHandlerImpl implements ODataHandler {
       throw e;
     }
     debugger.stopRuntimeMeasurement(measurementUriParser);
+    phaseStart = stopPhase(RequestMetrics.Phase.PARSE_URI, phaseStart);
 
     final int measurementUriValidator = debugger.startRuntimeMeasurement("UriValidator", "validate");
     final HttpMethod method = request.getMethod();
@@ -158,16 +189,86 @@ public class ODataHandlerImpl implements ODataHandler {
       throw e;
     }
     debugger.stopRuntimeMeasurement(measurementUriValidator);
+    phaseStart = stopPhase(RequestMetrics.Phase.VALIDATE_URI, phaseStart);
 
+    try {
+      if (isNotModified(request, response)
+          || responseCache != null && responseCache.read(request, uriInfo, response)) {
+        debugger.stopRuntimeMeasurement(measurementHandle);
+        return;
+      }
+    } catch (final ODataLibraryException e) {
+      debugger.stopRuntimeMeasurement(measurementHandle);
+      throw e;
+    } catch (final ODataApplicationException e) {
+      debugger.stopRuntimeMeasurement(measurementHandle);
+      throw e;
+    }
+
+    // Batch requests process their parts with this handler and overwrite the URI info.
+    final UriInfo requestUriInfo = uriInfo;
     final int measurementDispatcher = debugger.startRuntimeMeasurement("ODataDispatcher", "dispatch");
     try {
       new ODataDispatcher(uriInfo, this).dispatch(request, response);
+      ContentRanges.apply(request, response);
+      if (responseCache != null) {
+        responseCache.update(request, requestUriInfo, response);
+      }
+      stopPhase(RequestMetrics.Phase.PROCESS, phaseStart);
     } finally {
       debugger.stopRuntimeMeasurement(measurementDispatcher);
       debugger.stopRuntimeMeasurement(measurementHandle);
     }
   }
 
+  /**
+   * Checks whether phases are to be recorded: only if metrics are registered and only for the
+   * outermost request; the phases of batch parts are part of the batch request's processing phase.
+   */
+  private boolean isRecordingPhases() {
+    return requestMetrics != null && processDepth == 1;
+  }
+
+  private long startPhase() {
+    return isRecordingPhases() ? System.nanoTime() : 0;
+  }
+
+  /**
+   * Records the duration of a phase if phases are recorded.
+   * @return the start time of the next phase
+   */
+  private long stopPhase(final RequestMetrics.Phase phase, final long start) {
+    if (!isRecordingPhases()) {
+      return 0;
+    }
+    final long now = System.nanoTime();
+    requestMetrics.recordPhase(phase, now - start);
+    return now;
+  }
+
+  /**
+   * Checks the preconditions of a conditional read request against the ETag provided by
+   * a registered {@link CustomETagReadSupport}, before any data are read.
+   * If the resource has not been modified, the response is set to "Not Modified".
+   * @return <code>true</code> if the response is complete and the request must not be dispatched
+   * @throws PreconditionException if an if-match precondition fails
+   */
+  private boolean isNotModified(final ODataRequest request, final ODataResponse response)
+      throws ODataApplicationException, PreconditionException {
+    if ((request.getMethod() == HttpMethod.GET || request.getMethod() == HttpMethod.HEAD)
+        && customETagSupport instanceof CustomETagReadSupport
+        && (request.getHeader(HttpHeader.IF_NONE_MATCH) != null || request.getHeader(HttpHeader.IF_MATCH) != null)) {
+      final String eTag = ((CustomETagReadSupport) customETagSupport).getReadETag(uriInfo);
+      if (eTag != null && odata.createETagHelper().checkReadPreconditions(eTag,
+          request.getHeaders(HttpHeader.IF_MATCH), request.getHeaders(HttpHeader.IF_NONE_MATCH))) {
+        response.setStatusCode(HttpStatusCode.NOT_MODIFIED.getStatusCode());
+        response.setHeader(HttpHeader.ETAG, eTag);
+        return true;
+      }
+    }
+    return false;
+  }
+
   public void handleException(final ODataRequest request, final ODataResponse response,
       final ODataServerError serverError, final Exception exception) {
     final int measurementHandle = debugger.startRuntimeMeasurement("ODataHandler", "handleException");
@@ -261,6 +362,12 @@ public class ODataHandlerImpl implements ODataHandler {
       this.customContentTypeSupport = (CustomContentTypeSupport) extension;
     } else if(extension instanceof CustomETagSupport) {
       this.customETagSupport = (CustomETagSupport) extension;
+    } else if(extension instanceof ResponseCache) {
+      this.responseCache = (ResponseCache) extension;
+    } else if(extension instanceof RequestMetrics) {
+      this.requestMetrics = (RequestMetrics) extension;
+    } else if(extension instanceof AsyncRequestService) {
+      this.asyncRequestService = (AsyncRequestService) extension;
     } else {
       throw new ODataRuntimeException("Got not supported exception with class name " +
           extension.getClass().getSimpleName());
@@ -271,6 +378,14 @@ public class ODataHandlerImpl implements ODataHandler {
     return customContentTypeSupport;
   }
 
+  public RequestMetrics getRequestMetrics() {
+    return requestMetrics;
+  }
+
+  public AsyncRequestService getAsyncRequestService() {
+    return asyncRequestService;
+  }
+
   public CustomETagSupport getCustomETagSupport() {
     return customETagSupport;
   }
@@ -20,6 +20,7 @@ package org.apache.olingo.server.core;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.ByteBuffer;
 import java.nio.channels.Channel;
 import java.nio.channels.Channels;
@@ -32,8 +33,10 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 
+import javax.servlet.ServletOutputStream;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
 
 import org.apache.olingo.commons.api.ex.ODataRuntimeException;
 import org.apache.olingo.commons.api.http.HttpHeader;
@@ -42,6 +45,7 @@ import org.apache.olingo.server.api.OData;
 import org.apache.olingo.server.api.ODataContent;
 import org.apache.olingo.server.api.ODataHttpHandler;
 import org.apache.olingo.server.api.ODataLibraryException;
+import org.apache.olingo.server.api.ODataMediaContent;
 import org.apache.olingo.server.api.ODataRequest;
 import org.apache.olingo.server.api.ODataResponse;
 import org.apache.olingo.server.api.ODataServerError;
@@ -50,6 +54,7 @@ import org.apache.olingo.server.api.ServiceMetadata;
 import org.apache.olingo.server.api.debug.DebugSupport;
 import org.apache.olingo.server.api.deserializer.DeserializerException;
 import org.apache.olingo.server.api.etag.CustomETagSupport;
+import org.apache.olingo.server.api.metrics.RequestMetrics;
 import org.apache.olingo.server.api.processor.Processor;
 import org.apache.olingo.server.api.serializer.CustomContentTypeSupport;
 import org.apache.olingo.server.core.debug.ServerCoreDebugger;
@@ -63,6 +68,7 @@ public class ODataHttpHandlerImpl implements ODataHttpHandler {
   private final ServerCoreDebugger debugger;
 
   private int split = 0;
+  private ContentCompression compression;
 
   public ODataHttpHandlerImpl(final OData odata, final ServiceMetadata serviceMetadata) {
     debugger = new ServerCoreDebugger(odata);
@@ -71,6 +77,13 @@ public class ODataHttpHandlerImpl implements ODataHttpHandler {
 
   @Override
   public ODataResponse process(ODataRequest request) {
+    final AsyncRequestService asyncRequestService = handler.getAsyncRequestService();
+    if (asyncRequestService != null) {
+      final ODataResponse asyncResponse = asyncRequestService.process(request, handler);
+      if (asyncResponse != null) {
+        return asyncResponse;
+      }
+    }
     return handler.process(request);
   }
 
@@ -80,10 +93,15 @@ public class ODataHttpHandlerImpl implements ODataHttpHandler {
     Exception exception = null;
     ODataResponse odResponse;
     debugger.resolveDebugMode(request);
+    final RequestMetrics metrics = handler.getRequestMetrics();
+    final long start = metrics == null ? 0 : System.nanoTime();
 
     final int processMethodHandle = debugger.startRuntimeMeasurement("ODataHttpHandlerImpl", "process");
     try {
       fillODataRequest(odRequest, request, split);
+      if (metrics != null) {
+        metrics.recordPhase(RequestMetrics.Phase.READ_REQUEST, System.nanoTime() - start);
+      }
 
       odResponse = process(odRequest);
       // ALL future methods after process must not throw exceptions!
@@ -104,7 +122,22 @@ public class ODataHttpHandlerImpl implements ODataHttpHandler {
               serverEnvironmentVariables);
     }
 
-    convertToHttp(response, odResponse);
+    final String coding =
+        compression == null ? null : ContentCompression.negotiate(request.getHeader(HttpHeader.ACCEPT_ENCODING));
+    if (metrics == null) {
+      convertToHttp(response, odResponse, compression, coding);
+    } else {
+      final long writeStart = System.nanoTime();
+      final CountingResponse countingResponse = new CountingResponse(response);
+      try {
+        convertToHttp(countingResponse, odResponse, compression, coding);
+      } finally {
+        final long end = System.nanoTime();
+        metrics.recordPhase(RequestMetrics.Phase.WRITE_RESPONSE, end - writeStart);
+        metrics.recordBytesWritten(countingResponse.getCount());
+        metrics.recordRequest(odRequest.getMethod(), odResponse.getStatusCode(), end - start);
+      }
+    }
   }
 
   private Map<String, String> createEnvironmentVariablesMap(final HttpServletRequest request) {
@@ -135,6 +168,11 @@ public class ODataHttpHandlerImpl implements ODataHttpHandler {
     this.split = split;
   }
 
+  @Override
+  public void setCompression(final int minimumSize, final int level) {
+    compression = new ContentCompression(minimumSize, level);
+  }
+
   private ODataResponse handleException(final ODataRequest odRequest, final Exception e) {
     ODataResponse resp = new ODataResponse();
     ODataServerError serverError;
@@ -150,39 +188,92 @@ public class ODataHttpHandlerImpl implements ODataHttpHandler {
   }
 
   static void convertToHttp(final HttpServletResponse response, final ODataResponse odResponse) {
+    convertToHttp(response, odResponse, null, null);
+  }
+
+  static void convertToHttp(final HttpServletResponse response, final ODataResponse odResponse,
+      final ContentCompression compression, final String coding) {
     response.setStatus(odResponse.getStatusCode());
+    final boolean compress = compression != null && compression.isCompressible(odResponse, coding);
 
     for (Entry<String, List<String>> entry : odResponse.getAllHeaders().entrySet()) {
+      if (compress && HttpHeader.CONTENT_LENGTH.equalsIgnoreCase(entry.getKey())) {
+        continue;
+      }
       for (String headerValue : entry.getValue()) {
         response.addHeader(entry.getKey(), headerValue);
       }
     }
+    final ODataMediaContent media = odResponse.getMediaContent();
+    if (compression != null && media == null
+        && (odResponse.getContent() != null || odResponse.getODataContent() != null)) {
+      response.addHeader(HttpHeader.VARY, HttpHeader.ACCEPT_ENCODING);
+    }
 
-    if (odResponse.getContent() != null) {
-      copyContent(odResponse.getContent(), response);
+    final int threshold = compress ? compression.getThreshold(odResponse) : 0;
+    if (media != null) {
+      writeMediaContent(odResponse, response);
+    } else if (odResponse.getContent() != null) {
+      copyContent(Channels.newChannel(odResponse.getContent()), response, compress ? coding : null, compression,
+          threshold);
     } else if (odResponse.getODataContent() != null) {
-      writeContent(odResponse, response);
+      writeContent(odResponse, response, compress ? coding : null, compression, threshold);
     }
   }
   
   static void writeContent(final ODataResponse odataResponse, final HttpServletResponse servletResponse) {
+    writeContent(odataResponse, servletResponse, null, null, 0);
+  }
+
+  private static void writeContent(final ODataResponse odataResponse, final HttpServletResponse servletResponse,
+      final String coding, final ContentCompression compression, final int threshold) {
     try {
       ODataContent res = odataResponse.getODataContent();
-      res.write(Channels.newChannel(servletResponse.getOutputStream()));
+      final OutputStream output = getOutputStream(servletResponse, coding, compression, threshold);
+      res.write(Channels.newChannel(output));
+      if (output instanceof ContentCompression.CompressingOutputStream) {
+        ((ContentCompression.CompressingOutputStream) output).finish();
+      }
     } catch (IOException e) {
       throw new ODataRuntimeException("Error on reading request content", e);
     }
   }
 
+  /**
+   * Writes the selected range of the media content directly to the servlet output stream;
+   * content in files is transferred with {@link java.nio.channels.FileChannel#transferTo}.
+   */
+  private static void writeMediaContent(final ODataResponse odataResponse,
+      final HttpServletResponse servletResponse) {
+    final ODataMediaContent media = odataResponse.getMediaContent();
+    try {
+      media.write(Channels.newChannel(servletResponse.getOutputStream()),
+          odataResponse.getMediaContentPosition(), odataResponse.getMediaContentCount());
+    } catch (IOException e) {
+      throw new ODataRuntimeException("Error on writing media content", e);
+    } finally {
+      try {
+        media.close();
+      } catch (IOException e) {
+        // ignore
+      }
+    }
+  }
+
   static void copyContent(final InputStream inputStream, final HttpServletResponse servletResponse) {
     copyContent(Channels.newChannel(inputStream), servletResponse);
   }
 
   static void copyContent(final ReadableByteChannel input, final HttpServletResponse servletResponse) {
+    copyContent(input, servletResponse, null, null, 0);
+  }
+
+  private static void copyContent(final ReadableByteChannel input, final HttpServletResponse servletResponse,
+      final String coding, final ContentCompression compression, final int threshold) {
     WritableByteChannel output = null;
     try {
       ByteBuffer inBuffer = ByteBuffer.allocate(COPY_BUFFER_SIZE);
-      output = Channels.newChannel(servletResponse.getOutputStream());
+      output = Channels.newChannel(getOutputStream(servletResponse, coding, compression, threshold));
       while (input.read(inBuffer) > 0) {
         inBuffer.flip();
         output.write(inBuffer);
@@ -196,6 +287,69 @@ public class ODataHttpHandlerImpl implements ODataHttpHandler {
     }
   }
   
+  /**
+   * Returns the output stream of the servlet response, wrapped into a compressing stream
+   * if a content coding has been selected.
+   */
+  private static OutputStream getOutputStream(final HttpServletResponse servletResponse, final String coding,
+      final ContentCompression compression, final int threshold) throws IOException {
+    if (coding == null) {
+      return servletResponse.getOutputStream();
+    }
+    return new ContentCompression.CompressingOutputStream(servletResponse.getOutputStream(), coding,
+        compression.getLevel(), threshold) {
+      @Override
+      protected void startCompression(final String contentCoding) {
+        servletResponse.setHeader(HttpHeader.CONTENT_ENCODING, contentCoding);
+      }
+    };
+  }
+
+  /** Servlet response counting the bytes written to its output stream. */
+  private static class CountingResponse extends HttpServletResponseWrapper {
+    private ServletOutputStream output;
+    private long count;
+
+    private CountingResponse(final HttpServletResponse response) {
+      super(response);
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException {
+      if (output == null) {
+        final ServletOutputStream delegate = super.getOutputStream();
+        output = new ServletOutputStream() {
+          @Override
+          public void write(final int b) throws IOException {
+            delegate.write(b);
+            count++;
+          }
+
+          @Override
+          public void write(final byte[] b, final int off, final int len) throws IOException {
+            delegate.write(b, off, len);
+            count += len;
+          }
+
+          @Override
+          public void flush() throws IOException {
+            delegate.flush();
+          }
+
+          @Override
+          public void close() throws IOException {
+            delegate.close();
+          }
+        };
+      }
+      return output;
+    }
+
+    private long getCount() {
+      return count;
+    }
+  }
+
   private static void closeStream(final Channel closeable) {
     if (closeable != null) {
       try {
@@ -219,6 +373,9 @@ public class ODataHttpHandlerImpl implements ODataHttpHandler {
       innerHandle = debugger.startRuntimeMeasurement("ODataHttpHandlerImpl", "fillUriInformation");
       fillUriInformation(odRequest, httpRequest, split);
       debugger.stopRuntimeMeasurement(innerHandle);
+      if (compression != null) {
+        ContentCompression.decodeRequest(odRequest);
+      }
 
       return odRequest;
     } catch (final IOException e) {
@@ -75,6 +75,13 @@ public class ODataWritableContent implements ODataContent {
           final WriteErrorContext errorContext = new WriteErrorContext(e);
           errorCallback.handleError(errorContext, Channels.newChannel(out));
         }
+      } catch (ODataRuntimeException e) {
+        // Entity iterators, including lazily read in-line ones, can only fail with runtime exceptions.
+        final ODataContentWriteErrorCallback errorCallback = options.getODataContentWriteErrorCallback();
+        if (errorCallback == null) {
+          throw e;
+        }
+        errorCallback.handleError(new WriteErrorContext(e), Channels.newChannel(out));
       }
     }
   }
@@ -142,12 +149,16 @@ public class ODataWritableContent implements ODataContent {
   }
 
   public static class WriteErrorContext implements ODataContentWriteErrorContext {
-    private ODataLibraryException exception;
+    private Exception exception;
 
     public WriteErrorContext(ODataLibraryException exception) {
       this.exception = exception;
     }
 
+    public WriteErrorContext(ODataRuntimeException exception) {
+      this.exception = exception;
+    }
+
     @Override
     public Exception getException() {
       return exception;
@@ -155,7 +166,7 @@ public class ODataWritableContent implements ODataContent {
 
     @Override
     public ODataLibraryException getODataLibraryException() {
-      return exception;
+      return exception instanceof ODataLibraryException ? (ODataLibraryException) exception : null;
     }
   }
 
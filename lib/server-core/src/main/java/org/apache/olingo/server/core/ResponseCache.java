@@ -0,0 +1,396 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.core;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.olingo.commons.api.edm.EdmEntitySet;
+import org.apache.olingo.commons.api.ex.ODataRuntimeException;
+import org.apache.olingo.commons.api.http.HttpHeader;
+import org.apache.olingo.commons.api.http.HttpMethod;
+import org.apache.olingo.commons.api.http.HttpStatusCode;
+import org.apache.olingo.server.api.ODataRequest;
+import org.apache.olingo.server.api.ODataResponse;
+import org.apache.olingo.server.api.OlingoExtension;
+import org.apache.olingo.server.api.uri.UriInfo;
+import org.apache.olingo.server.api.uri.UriInfoKind;
+import org.apache.olingo.server.api.uri.UriResource;
+import org.apache.olingo.server.api.uri.UriResourceEntitySet;
+import org.apache.olingo.server.api.uri.UriResourceKind;
+import org.apache.olingo.server.api.uri.queryoption.QueryOption;
+
+/**
+ * <p>Cache for the responses to read requests, to be registered as extension at the handler.</p>
+ * <p>The cache is thread-safe; register the same instance at all handlers of a service.
+ * It keeps the serialized responses to GET requests for entity sets, entities, and their properties
+ * with status code 200, up to a total size in bytes and for a maximum time, evicting the least recently
+ * used responses first. Requests with conditional headers bypass the cache.
+ * The key of a response consists of the base URI, the resource path, the query options (in normalized order),
+ * and the headers influencing the representation, i.e., <code>Accept</code>, <code>Accept-Charset</code>,
+ * <code>Prefer</code>, and <code>OData-MaxVersion</code>.</p>
+ * <p>Each successful modifying request invalidates the responses for the entity set it modifies;
+ * modifying requests that could affect more entity sets (via navigation, actions, or batch requests)
+ * invalidate all responses. Responses that depend on more than one entity set (because of navigation,
+ * expansion, or navigation paths in expressions) are invalidated by every modifying request.</p>
+ * <p>Note that the cache does not distinguish between users. If responses depend on the user,
+ * override {@link #getKey(ODataRequest)} to include the user or {@link #isCacheable(ODataRequest, UriInfo)}
+ * to exclude such requests.</p>
+ */
+public class ResponseCache implements OlingoExtension {
+
+  /** Dependency of responses that could be affected by modifications of any entity set. */
+  private static final String ANY_ENTITY_SET = "";
+
+  private static final List<String> KEY_HEADERS = Arrays.asList(HttpHeader.ACCEPT, HttpHeader.ACCEPT_CHARSET,
+      HttpHeader.PREFER, HttpHeader.ODATA_MAX_VERSION);
+  private static final List<String> CONDITIONAL_HEADERS = Arrays.asList(HttpHeader.IF_MATCH,
+      HttpHeader.IF_NONE_MATCH, HttpHeader.IF_MODIFIED_SINCE, HttpHeader.IF_UNMODIFIED_SINCE);
+
+  private final long maximumSize;
+  private final long maximumEntrySize;
+  private final long timeToLive;
+  private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<String, Entry>(16, 0.75F, true);
+  private long size;
+  private long hitCount;
+  private long missCount;
+  private long evictionCount;
+  private long invalidationCount;
+
+  /**
+   * Creates a response cache.
+   * @param maximumSize the maximum total size of the cached response bodies in bytes;
+   *                    a single response is only cached if it takes at most a quarter of it
+   * @param timeToLive the maximum time in milliseconds a response is kept
+   */
+  public ResponseCache(final long maximumSize, final long timeToLive) {
+    if (maximumSize <= 0 || timeToLive <= 0) {
+      throw new ODataRuntimeException("Maximum size and time to live of the response cache must be positive.");
+    }
+    this.maximumSize = maximumSize;
+    this.timeToLive = timeToLive;
+    maximumEntrySize = Math.max(1, maximumSize / 4);
+  }
+
+  /**
+   * Writes the cached response to the request, if there is one.
+   * @return <code>true</code> if the response has been taken from the cache
+   */
+  boolean read(final ODataRequest request, final UriInfo uriInfo, final ODataResponse response) {
+    if (!isCacheable(request, uriInfo)) {
+      return false;
+    }
+    final String key = getKey(request);
+    Entry entry;
+    synchronized (this) {
+      entry = entries.get(key);
+      if (entry != null && entry.expires < System.currentTimeMillis()) {
+        remove(key);
+        evictionCount++;
+        entry = null;
+      }
+      if (entry == null) {
+        missCount++;
+        return false;
+      }
+      hitCount++;
+    }
+    response.setStatusCode(entry.statusCode);
+    for (final Map.Entry<String, List<String>> header : entry.headers.entrySet()) {
+      response.setHeader(header.getKey(), header.getValue().get(0));
+      if (header.getValue().size() > 1) {
+        response.addHeader(header.getKey(), header.getValue().subList(1, header.getValue().size()));
+      }
+    }
+    response.setContent(entry.content == null ? null : new ByteArrayInputStream(entry.content));
+    return true;
+  }
+
+  /**
+   * Updates the cache after a request has been processed successfully:
+   * stores the response to a read request or invalidates the responses affected by a modifying request.
+   */
+  void update(final ODataRequest request, final UriInfo uriInfo, final ODataResponse response) {
+    if (response.getStatusCode() >= HttpStatusCode.BAD_REQUEST.getStatusCode()) {
+      return;
+    }
+    final HttpMethod method = request.getMethod();
+    if (method == HttpMethod.GET || method == HttpMethod.HEAD) {
+      if (response.getStatusCode() == HttpStatusCode.OK.getStatusCode() && response.getODataContent() == null
+          && response.getMediaContent() == null && isCacheable(request, uriInfo)) {
+        store(getKey(request), getDependency(uriInfo), response);
+      }
+    } else {
+      final String entitySet = uriInfo.getKind() == UriInfoKind.resource ?
+          getModifiedEntitySet(request, uriInfo.getUriResourceParts()) :
+          null;
+      if (entitySet == null) {
+        clear();
+      } else {
+        invalidate(entitySet);
+      }
+    }
+  }
+
+  /**
+   * Determines whether the response to a request can be cached.
+   * @param request the request
+   * @param uriInfo the information about the request URI
+   */
+  protected boolean isCacheable(final ODataRequest request, final UriInfo uriInfo) {
+    if (request.getMethod() != HttpMethod.GET || uriInfo.getKind() != UriInfoKind.resource) {
+      return false;
+    }
+    for (final String header : CONDITIONAL_HEADERS) {
+      if (request.getHeader(header) != null) {
+        return false;
+      }
+    }
+    final List<UriResource> parts = uriInfo.getUriResourceParts();
+    if (!(parts.get(0) instanceof UriResourceEntitySet)) {
+      return false;
+    }
+    for (final UriResource part : parts) {
+      switch (part.getKind()) {
+      case entitySet:
+      case navigationProperty:
+      case primitiveProperty:
+      case complexProperty:
+      case count:
+      case value:
+      case ref:
+        break;
+      default:
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Gets the key of the response to a request.
+   * @param request the request
+   */
+  protected String getKey(final ODataRequest request) {
+    StringBuilder key = new StringBuilder();
+    key.append(request.getRawBaseUri()).append(' ').append(request.getRawODataPath());
+    final String query = request.getRawQueryPath();
+    if (query != null && !query.isEmpty()) {
+      String[] options = query.split("&");
+      Arrays.sort(options);
+      char separator = '?';
+      for (final String option : options) {
+        key.append(separator).append(option);
+        separator = '&';
+      }
+    }
+    for (final String header : KEY_HEADERS) {
+      key.append('\n').append(header).append(':').append(request.getHeaders(header));
+    }
+    return key.toString();
+  }
+
+  /**
+   * Invalidates all cached responses that depend on the given entity set.
+   * @param entitySetName the name of the entity set
+   */
+  public synchronized void invalidate(final String entitySetName) {
+    for (Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator(); iterator.hasNext();) {
+      final Entry entry = iterator.next().getValue();
+      if (entry.dependency.equals(entitySetName) || entry.dependency == ANY_ENTITY_SET) {
+        iterator.remove();
+        size -= entry.size();
+        invalidationCount++;
+      }
+    }
+  }
+
+  /** Invalidates all cached responses. */
+  public synchronized void clear() {
+    invalidationCount += entries.size();
+    entries.clear();
+    size = 0;
+  }
+
+  /** Gets the number of requests answered from the cache. */
+  public synchronized long getHitCount() {
+    return hitCount;
+  }
+
+  /** Gets the number of cacheable requests not found in the cache. */
+  public synchronized long getMissCount() {
+    return missCount;
+  }
+
+  /** Gets the number of responses evicted because of their age or the size limit. */
+  public synchronized long getEvictionCount() {
+    return evictionCount;
+  }
+
+  /** Gets the number of responses invalidated by modifying requests. */
+  public synchronized long getInvalidationCount() {
+    return invalidationCount;
+  }
+
+  /** Gets the number of cached responses. */
+  public synchronized int getEntryCount() {
+    return entries.size();
+  }
+
+  /** Gets the total size of the cached response bodies in bytes. */
+  public synchronized long getSize() {
+    return size;
+  }
+
+  private void store(final String key, final String dependency, final ODataResponse response) {
+    byte[] content = null;
+    if (response.getContent() != null) {
+      final InputStream input = response.getContent();
+      ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+      byte[] bytes = new byte[8192];
+      try {
+        int count;
+        while (buffer.size() <= maximumEntrySize && (count = input.read(bytes)) >= 0) {
+          buffer.write(bytes, 0, count);
+        }
+      } catch (final IOException e) {
+        throw new ODataRuntimeException("Error while reading the response content.", e);
+      }
+      if (buffer.size() > maximumEntrySize) {
+        // Too large to be cached; the rest is still read from the original stream.
+        response.setContent(new SequenceInputStream(new ByteArrayInputStream(buffer.toByteArray()), input));
+        return;
+      }
+      content = buffer.toByteArray();
+      response.setContent(new ByteArrayInputStream(content));
+    }
+    Map<String, List<String>> headers = new HashMap<String, List<String>>();
+    for (final Map.Entry<String, List<String>> header : response.getAllHeaders().entrySet()) {
+      if (!header.getValue().isEmpty()) {
+        headers.put(header.getKey(), new ArrayList<String>(header.getValue()));
+      }
+    }
+    final Entry entry = new Entry(response.getStatusCode(), headers, content, dependency,
+        System.currentTimeMillis() + timeToLive);
+    synchronized (this) {
+      remove(key);
+      entries.put(key, entry);
+      size += entry.size();
+      for (Iterator<Entry> iterator = entries.values().iterator(); size > maximumSize && iterator.hasNext();) {
+        size -= iterator.next().size();
+        iterator.remove();
+        evictionCount++;
+      }
+    }
+  }
+
+  private void remove(final String key) {
+    final Entry entry = entries.remove(key);
+    if (entry != null) {
+      size -= entry.size();
+    }
+  }
+
+  /**
+   * Gets the name of the only entity set the response depends on
+   * or {@link #ANY_ENTITY_SET} if it could depend on more entity sets.
+   */
+  private String getDependency(final UriInfo uriInfo) {
+    final List<UriResource> parts = uriInfo.getUriResourceParts();
+    if (uriInfo.getExpandOption() != null || containsPath(uriInfo.getFilterOption())
+        || containsPath(uriInfo.getOrderByOption()) || containsPath(uriInfo.getApplyOption())
+        || containsPath(uriInfo.getSearchOption())) {
+      return ANY_ENTITY_SET;
+    }
+    for (final UriResource part : parts) {
+      if (part.getKind() == UriResourceKind.navigationProperty) {
+        return ANY_ENTITY_SET;
+      }
+    }
+    return ((UriResourceEntitySet) parts.get(0)).getEntitySet().getName();
+  }
+
+  private boolean containsPath(final QueryOption option) {
+    return option != null && (option.getText() == null || option.getText().indexOf('/') >= 0);
+  }
+
+  /**
+   * Gets the name of the entity set modified by a request
+   * or <code>null</code> if the modification could affect other entity sets.
+   * <br/>A payload can create or change entities of other entity sets with deep inserts or bindings,
+   * so only requests without payload (recognized by the missing content type) are confined to their entity set,
+   * and POST, PUT, and PATCH requests only if the entity type has no navigation properties.
+   */
+  private String getModifiedEntitySet(final ODataRequest request, final List<UriResource> parts) {
+    if (parts.isEmpty() || !(parts.get(0) instanceof UriResourceEntitySet)) {
+      return null;
+    }
+    final EdmEntitySet edmEntitySet = ((UriResourceEntitySet) parts.get(0)).getEntitySet();
+    if (request.getHeader(HttpHeader.CONTENT_TYPE) != null
+        || request.getMethod() != HttpMethod.DELETE
+        && !edmEntitySet.getEntityType().getNavigationPropertyNames().isEmpty()) {
+      return null;
+    }
+    for (final UriResource part : parts) {
+      switch (part.getKind()) {
+      case entitySet:
+      case primitiveProperty:
+      case complexProperty:
+      case value:
+      case ref:
+        break;
+      default:
+        return null;
+      }
+    }
+    return edmEntitySet.getName();
+  }
+
+  /** A cached response. */
+  private static final class Entry {
+    private final int statusCode;
+    private final Map<String, List<String>> headers;
+    private final byte[] content;
+    private final String dependency;
+    private final long expires;
+
+    private Entry(final int statusCode, final Map<String, List<String>> headers, final byte[] content,
+        final String dependency, final long expires) {
+      this.statusCode = statusCode;
+      this.headers = headers;
+      this.content = content;
+      this.dependency = dependency;
+      this.expires = expires;
+    }
+
+    private long size() {
+      return content == null ? 0 : content.length;
+    }
+  }
+}
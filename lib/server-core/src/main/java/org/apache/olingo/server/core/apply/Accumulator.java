@@ -0,0 +1,283 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.core.apply;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+
+import org.apache.olingo.commons.api.http.HttpStatusCode;
+import org.apache.olingo.server.api.ODataApplicationException;
+
+/**
+ * Accumulates the values of one aggregate for one group.
+ * Partial results computed for different parts of the input can be merged.
+ */
+abstract class Accumulator {
+
+  /**
+   * Adds a value; <code>null</code> values are ignored by all aggregation methods except counting.
+   * @param value the value
+   */
+  abstract void add(Object value) throws ODataApplicationException;
+
+  /**
+   * Merges the partial result of another accumulator of the same kind into this one.
+   * @param other the other accumulator
+   */
+  abstract void merge(Accumulator other);
+
+  /** Gets the aggregated value. */
+  abstract Object getResult();
+
+  private static ODataApplicationException notNumeric(final Object value) {
+    return new ODataApplicationException("The value '" + value + "' cannot be aggregated numerically.",
+        HttpStatusCode.BAD_REQUEST.getStatusCode(), Locale.ROOT);
+  }
+
+  /** Counts the entities. */
+  static class Count extends Accumulator {
+    private long count;
+
+    @Override
+    void add(final Object value) {
+      count++;
+    }
+
+    @Override
+    void merge(final Accumulator other) {
+      count += ((Count) other).count;
+    }
+
+    @Override
+    Object getResult() {
+      return BigDecimal.valueOf(count);
+    }
+  }
+
+  /**
+   * Sums numeric values: integral values are added as long as long as no overflow occurs,
+   * decimal values exactly, and floating-point values as doubles.
+   */
+  static class Sum extends Accumulator {
+    private long longSum;
+    private BigDecimal decimalSum = BigDecimal.ZERO;
+    private double doubleSum;
+    private boolean hasDouble;
+    private long count;
+
+    @Override
+    void add(final Object value) throws ODataApplicationException {
+      if (value == null) {
+        return;
+      }
+      if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+        addLong(((Number) value).longValue());
+      } else if (value instanceof Double || value instanceof Float) {
+        doubleSum += ((Number) value).doubleValue();
+        hasDouble = true;
+      } else if (value instanceof BigDecimal) {
+        decimalSum = decimalSum.add((BigDecimal) value);
+      } else if (value instanceof BigInteger) {
+        decimalSum = decimalSum.add(new BigDecimal((BigInteger) value));
+      } else {
+        throw notNumeric(value);
+      }
+      count++;
+    }
+
+    private void addLong(final long value) {
+      final long result = longSum + value;
+      if (((longSum ^ result) & (value ^ result)) < 0) {
+        // overflow
+        decimalSum = decimalSum.add(BigDecimal.valueOf(longSum)).add(BigDecimal.valueOf(value));
+        longSum = 0;
+      } else {
+        longSum = result;
+      }
+    }
+
+    @Override
+    void merge(final Accumulator other) {
+      final Sum sum = (Sum) other;
+      addLong(sum.longSum);
+      decimalSum = decimalSum.add(sum.decimalSum);
+      doubleSum += sum.doubleSum;
+      hasDouble |= sum.hasDouble;
+      count += sum.count;
+    }
+
+    /** Gets the sum or <code>null</code> if no values have been added. */
+    @Override
+    Object getResult() {
+      if (count == 0) {
+        return null;
+      }
+      final BigDecimal exact = decimalSum.add(BigDecimal.valueOf(longSum));
+      if (hasDouble) {
+        if (Double.isNaN(doubleSum) || Double.isInfinite(doubleSum)) {
+          return doubleSum;
+        }
+        return exact.add(BigDecimal.valueOf(doubleSum));
+      }
+      return exact;
+    }
+
+    long getCount() {
+      return count;
+    }
+  }
+
+  /** Computes the average of numeric values. */
+  static class Average extends Accumulator {
+    private final Sum sum = new Sum();
+
+    @Override
+    void add(final Object value) throws ODataApplicationException {
+      sum.add(value);
+    }
+
+    @Override
+    void merge(final Accumulator other) {
+      sum.merge(((Average) other).sum);
+    }
+
+    @Override
+    Object getResult() {
+      final Object total = sum.getResult();
+      if (total instanceof BigDecimal) {
+        return ((BigDecimal) total).divide(BigDecimal.valueOf(sum.getCount()), MathContext.DECIMAL64);
+      } else if (total instanceof Double) {
+        return (Double) total / sum.getCount();
+      } else {
+        return null;
+      }
+    }
+  }
+
+  /** Determines the minimum or maximum of comparable values. */
+  static class Extreme extends Accumulator {
+    private final boolean isMaximum;
+    private Comparable<Object> extreme;
+
+    Extreme(final boolean isMaximum) {
+      this.isMaximum = isMaximum;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    void add(final Object value) throws ODataApplicationException {
+      if (value == null) {
+        return;
+      }
+      if (!(value instanceof Comparable)) {
+        throw new ODataApplicationException("The value '" + value + "' cannot be compared.",
+            HttpStatusCode.BAD_REQUEST.getStatusCode(), Locale.ROOT);
+      }
+      final Comparable<Object> comparable = (Comparable<Object>) value;
+      if (extreme == null || (isMaximum ? comparable.compareTo(extreme) > 0 : comparable.compareTo(extreme) < 0)) {
+        extreme = comparable;
+      }
+    }
+
+    @Override
+    void merge(final Accumulator other) {
+      final Comparable<Object> otherExtreme = ((Extreme) other).extreme;
+      if (otherExtreme != null) {
+        try {
+          add(otherExtreme);
+        } catch (final ODataApplicationException e) {
+          // cannot happen since the value has been added to the other accumulator
+        }
+      }
+    }
+
+    @Override
+    Object getResult() {
+      return extreme;
+    }
+  }
+
+  /** Counts the distinct values exactly. */
+  static class CountDistinct extends Accumulator {
+    private final Set<Object> values = new HashSet<Object>();
+
+    @Override
+    void add(final Object value) {
+      if (value != null) {
+        values.add(value instanceof byte[] ? new BinaryValue((byte[]) value) : value);
+      }
+    }
+
+    @Override
+    void merge(final Accumulator other) {
+      values.addAll(((CountDistinct) other).values);
+    }
+
+    @Override
+    Object getResult() {
+      return BigDecimal.valueOf(values.size());
+    }
+  }
+
+  /** Estimates the number of distinct values with a {@link HyperLogLog} sketch. */
+  static class ApproximateCountDistinct extends Accumulator {
+    private final HyperLogLog sketch = new HyperLogLog();
+
+    @Override
+    void add(final Object value) {
+      if (value != null) {
+        sketch.add(value instanceof byte[] ? Arrays.hashCode((byte[]) value) : value.hashCode());
+      }
+    }
+
+    @Override
+    void merge(final Accumulator other) {
+      sketch.merge(((ApproximateCountDistinct) other).sketch);
+    }
+
+    @Override
+    Object getResult() {
+      return BigDecimal.valueOf(sketch.estimate());
+    }
+  }
+
+  /** Binary value with value semantics for equality. */
+  private static final class BinaryValue {
+    private final byte[] value;
+
+    private BinaryValue(final byte[] value) {
+      this.value = value;
+    }
+
+    @Override
+    public boolean equals(final Object other) {
+      return other instanceof BinaryValue && Arrays.equals(value, ((BinaryValue) other).value);
+    }
+
+    @Override
+    public int hashCode() {
+      return Arrays.hashCode(value);
+    }
+  }
+}
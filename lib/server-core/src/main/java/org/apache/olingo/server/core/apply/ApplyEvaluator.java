@@ -0,0 +1,666 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.core.apply;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.apache.olingo.commons.api.data.ComplexValue;
+import org.apache.olingo.commons.api.data.Entity;
+import org.apache.olingo.commons.api.data.EntityCollection;
+import org.apache.olingo.commons.api.data.Property;
+import org.apache.olingo.commons.api.data.PropertyList;
+import org.apache.olingo.commons.api.data.ValueType;
+import org.apache.olingo.commons.api.edm.EdmPrimitiveTypeKind;
+import org.apache.olingo.commons.api.edm.EdmProperty;
+import org.apache.olingo.commons.api.http.HttpStatusCode;
+import org.apache.olingo.commons.core.edm.EdmTypeInfo;
+import org.apache.olingo.server.api.ODataApplicationException;
+import org.apache.olingo.server.api.uri.UriResource;
+import org.apache.olingo.server.api.uri.UriResourceKind;
+import org.apache.olingo.server.api.uri.UriResourceProperty;
+import org.apache.olingo.server.api.uri.queryoption.ApplyItem;
+import org.apache.olingo.server.api.uri.queryoption.ApplyOption;
+import org.apache.olingo.server.api.uri.queryoption.apply.Aggregate;
+import org.apache.olingo.server.api.uri.queryoption.apply.AggregateExpression;
+import org.apache.olingo.server.api.uri.queryoption.apply.BottomTop;
+import org.apache.olingo.server.api.uri.queryoption.apply.Compute;
+import org.apache.olingo.server.api.uri.queryoption.apply.ComputeExpression;
+import org.apache.olingo.server.api.uri.queryoption.apply.Concat;
+import org.apache.olingo.server.api.uri.queryoption.apply.Filter;
+import org.apache.olingo.server.api.uri.queryoption.apply.GroupBy;
+import org.apache.olingo.server.api.uri.queryoption.apply.GroupByItem;
+import org.apache.olingo.server.api.uri.queryoption.expression.Expression;
+import org.apache.olingo.server.api.uri.queryoption.expression.Literal;
+import org.apache.olingo.server.api.uri.queryoption.expression.Member;
+
+/**
+ * Evaluates the system query option <code>$apply</code> in memory.
+ * <br/>
+ * The transformations <code>aggregate</code>, <code>groupby</code>, <code>filter</code>,
+ * <code>compute</code>, <code>concat</code>, <code>identity</code>, and the bottom/top transformations
+ * are supported for structural properties; aggregation is done with hash tables in one pass over the data.
+ * Property paths are resolved directly, all other expressions are delegated to an {@link ExpressionEvaluator}.
+ * <br/>
+ * Optionally, grouped aggregation can be distributed over several partitions of the input
+ * which are aggregated in parallel and then merged.
+ */
+public class ApplyEvaluator {
+
+  private final ExpressionEvaluator evaluator;
+  private ExecutorService executor;
+  private int partitions = 1;
+  private boolean approximateCountDistinct;
+
+  /**
+   * Creates an evaluator.
+   * @param evaluator evaluator for expressions that are not simple property paths; may be <code>null</code>
+   */
+  public ApplyEvaluator(final ExpressionEvaluator evaluator) {
+    this.evaluator = evaluator;
+  }
+
+  /**
+   * Lets aggregation be done in parallel.
+   * @param executor the executor for the partial aggregations
+   * @param partitions the number of partitions the input is split into
+   */
+  public void setParallelism(final ExecutorService executor, final int partitions) {
+    this.executor = executor;
+    this.partitions = executor == null ? 1 : Math.max(1, partitions);
+  }
+
+  /**
+   * Lets <code>countdistinct</code> be estimated with a HyperLogLog sketch
+   * of fixed size instead of counted exactly.
+   */
+  public void setApproximateCountDistinct(final boolean approximateCountDistinct) {
+    this.approximateCountDistinct = approximateCountDistinct;
+  }
+
+  /**
+   * Applies the transformations to an entity collection.
+   * The returned collection contains new entities where necessary; the input entities are not modified.
+   * @param applyOption the parsed <code>$apply</code> option
+   * @param entityCollection the input
+   * @return the transformed collection
+   * @throws ODataApplicationException if a transformation is not supported or cannot be evaluated
+   */
+  public EntityCollection apply(final ApplyOption applyOption, final EntityCollection entityCollection)
+      throws ODataApplicationException {
+    return apply(applyOption, entityCollection.getEntities().iterator());
+  }
+
+  /**
+   * Applies the transformations to a stream of entities.
+   * If the first transformation is an aggregation, the entities are consumed without being kept in memory.
+   * @param applyOption the parsed <code>$apply</code> option
+   * @param entities the input
+   * @return the transformed collection
+   * @throws ODataApplicationException if a transformation is not supported or cannot be evaluated
+   */
+  public EntityCollection apply(final ApplyOption applyOption, final Iterator<Entity> entities)
+      throws ODataApplicationException {
+    final List<ApplyItem> items = applyOption.getApplyItems();
+    List<Entity> result;
+    int start = 0;
+    if (!items.isEmpty() && items.get(0).getKind() == ApplyItem.Kind.AGGREGATE) {
+      result = Collections.singletonList(aggregate((Aggregate) items.get(0), entities));
+      start = 1;
+    } else if (!items.isEmpty() && items.get(0).getKind() == ApplyItem.Kind.GROUP_BY
+        && getStreamingAggregate((GroupBy) items.get(0)) != null && executor == null) {
+      result = groupBy((GroupBy) items.get(0), entities);
+      start = 1;
+    } else {
+      result = new ArrayList<Entity>();
+      while (entities.hasNext()) {
+        result.add(entities.next());
+      }
+    }
+    result = apply(items.subList(start, items.size()), result);
+
+    EntityCollection entityCollection = new EntityCollection();
+    entityCollection.getEntities().addAll(result);
+    return entityCollection;
+  }
+
+  private List<Entity> apply(final List<ApplyItem> items, final List<Entity> input)
+      throws ODataApplicationException {
+    List<Entity> result = input;
+    for (final ApplyItem item : items) {
+      result = apply(item, result);
+    }
+    return result;
+  }
+
+  private List<Entity> apply(final ApplyItem item, final List<Entity> input) throws ODataApplicationException {
+    switch (item.getKind()) {
+    case IDENTITY:
+      return input;
+    case FILTER:
+      return filter(((Filter) item).getFilterOption().getExpression(), input);
+    case COMPUTE:
+      return compute((Compute) item, input);
+    case AGGREGATE:
+      return Collections.singletonList(aggregate((Aggregate) item, input.iterator()));
+    case GROUP_BY:
+      return getStreamingAggregate((GroupBy) item) == null ?
+          groupByAndApply((GroupBy) item, input) :
+          groupBy((GroupBy) item, input);
+    case CONCAT:
+      List<Entity> result = new ArrayList<Entity>();
+      for (final ApplyOption option : ((Concat) item).getApplyOptions()) {
+        result.addAll(apply(option.getApplyItems(), input));
+      }
+      return result;
+    case BOTTOM_TOP:
+      return bottomTop((BottomTop) item, input);
+    default:
+      throw notImplemented("The transformation " + item.getKind() + " is not supported.");
+    }
+  }
+
+  private List<Entity> filter(final Expression expression, final List<Entity> input)
+      throws ODataApplicationException {
+    List<Entity> result = new ArrayList<Entity>();
+    for (final Entity entity : input) {
+      if (Boolean.TRUE.equals(evaluate(expression, entity))) {
+        result.add(entity);
+      }
+    }
+    return result;
+  }
+
+  private List<Entity> compute(final Compute compute, final List<Entity> input) throws ODataApplicationException {
+    List<Entity> result = new ArrayList<Entity>(input.size());
+    for (final Entity entity : input) {
+      Entity computed = copy(entity);
+      for (final ComputeExpression expression : compute.getExpressions()) {
+        computed.addProperty(createProperty(expression.getAlias(), evaluate(expression.getExpression(), computed)));
+      }
+      result.add(computed);
+    }
+    return result;
+  }
+
+  private Entity aggregate(final Aggregate aggregate, final Iterator<Entity> entities)
+      throws ODataApplicationException {
+    final List<AggregateSpec> specs = getAggregateSpecs(aggregate);
+    final Accumulator[] accumulators = createAccumulators(specs);
+    while (entities.hasNext()) {
+      accumulate(specs, accumulators, entities.next());
+    }
+    Entity result = new Entity();
+    addAggregates(result, specs, accumulators);
+    return result;
+  }
+
+  /** Returns the aggregation that can be computed while grouping, if there is exactly one. */
+  private Aggregate getStreamingAggregate(final GroupBy groupBy) {
+    final ApplyOption applyOption = groupBy.getApplyOption();
+    return applyOption == null || applyOption.getApplyItems().size() != 1
+        || applyOption.getApplyItems().get(0).getKind() != ApplyItem.Kind.AGGREGATE ?
+        null :
+        (Aggregate) applyOption.getApplyItems().get(0);
+  }
+
+  /** Groups the entities and aggregates all groups in one pass, optionally in parallel. */
+  private List<Entity> groupBy(final GroupBy groupBy, final List<Entity> input) throws ODataApplicationException {
+    if (executor == null || partitions < 2 || input.size() < 2 * partitions) {
+      return groupBy(groupBy, input.iterator());
+    }
+    final List<List<UriResource>> paths = getGroupingPaths(groupBy);
+    final Aggregate aggregate = getStreamingAggregate(groupBy);
+    final List<AggregateSpec> specs = aggregate == null ? Collections.<AggregateSpec> emptyList() :
+        getAggregateSpecs(aggregate);
+    List<Callable<Map<GroupKey, Group>>> tasks = new ArrayList<Callable<Map<GroupKey, Group>>>(partitions);
+    final int partitionSize = (input.size() + partitions - 1) / partitions;
+    for (int start = 0; start < input.size(); start += partitionSize) {
+      final List<Entity> partition = input.subList(start, Math.min(start + partitionSize, input.size()));
+      tasks.add(new Callable<Map<GroupKey, Group>>() {
+        @Override
+        public Map<GroupKey, Group> call() throws ODataApplicationException {
+          return group(paths, specs, partition.iterator());
+        }
+      });
+    }
+    Map<GroupKey, Group> groups = null;
+    try {
+      for (final Future<Map<GroupKey, Group>> future : executor.invokeAll(tasks)) {
+        final Map<GroupKey, Group> partial = future.get();
+        if (groups == null) {
+          groups = partial;
+        } else {
+          for (final Map.Entry<GroupKey, Group> entry : partial.entrySet()) {
+            final Group group = groups.get(entry.getKey());
+            if (group == null) {
+              groups.put(entry.getKey(), entry.getValue());
+            } else {
+              for (int index = 0; index < group.accumulators.length; index++) {
+                group.accumulators[index].merge(entry.getValue().accumulators[index]);
+              }
+            }
+          }
+        }
+      }
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new ODataApplicationException("Aggregation has been interrupted.",
+          HttpStatusCode.INTERNAL_SERVER_ERROR.getStatusCode(), Locale.ROOT, e);
+    } catch (final ExecutionException e) {
+      if (e.getCause() instanceof ODataApplicationException) {
+        throw (ODataApplicationException) e.getCause();
+      }
+      throw new ODataApplicationException("Aggregation has failed.",
+          HttpStatusCode.INTERNAL_SERVER_ERROR.getStatusCode(), Locale.ROOT, e.getCause());
+    }
+    return createGroupEntities(paths, specs, groups);
+  }
+
+  private List<Entity> groupBy(final GroupBy groupBy, final Iterator<Entity> entities)
+      throws ODataApplicationException {
+    final List<List<UriResource>> paths = getGroupingPaths(groupBy);
+    final Aggregate aggregate = getStreamingAggregate(groupBy);
+    final List<AggregateSpec> specs = aggregate == null ? Collections.<AggregateSpec> emptyList() :
+        getAggregateSpecs(aggregate);
+    return createGroupEntities(paths, specs, group(paths, specs, entities));
+  }
+
+  private Map<GroupKey, Group> group(final List<List<UriResource>> paths, final List<AggregateSpec> specs,
+      final Iterator<Entity> entities) throws ODataApplicationException {
+    Map<GroupKey, Group> groups = new LinkedHashMap<GroupKey, Group>();
+    while (entities.hasNext()) {
+      final Entity entity = entities.next();
+      final GroupKey key = getGroupKey(paths, entity);
+      Group group = groups.get(key);
+      if (group == null) {
+        group = new Group(entity, createAccumulators(specs));
+        groups.put(key, group);
+      }
+      accumulate(specs, group.accumulators, entity);
+    }
+    return groups;
+  }
+
+  private List<Entity> createGroupEntities(final List<List<UriResource>> paths, final List<AggregateSpec> specs,
+      final Map<GroupKey, Group> groups) throws ODataApplicationException {
+    List<Entity> result = new ArrayList<Entity>(groups.size());
+    for (final Group group : groups.values()) {
+      Entity entity = new Entity();
+      addGroupingProperties(entity, paths, group.first);
+      addAggregates(entity, specs, group.accumulators);
+      result.add(entity);
+    }
+    return result;
+  }
+
+  /** Groups the entities and applies the nested transformations to each group. */
+  private List<Entity> groupByAndApply(final GroupBy groupBy, final List<Entity> input)
+      throws ODataApplicationException {
+    final List<List<UriResource>> paths = getGroupingPaths(groupBy);
+    Map<GroupKey, List<Entity>> groups = new LinkedHashMap<GroupKey, List<Entity>>();
+    for (final Entity entity : input) {
+      final GroupKey key = getGroupKey(paths, entity);
+      List<Entity> group = groups.get(key);
+      if (group == null) {
+        group = new ArrayList<Entity>();
+        groups.put(key, group);
+      }
+      group.add(entity);
+    }
+    List<Entity> result = new ArrayList<Entity>();
+    for (final List<Entity> group : groups.values()) {
+      if (groupBy.getApplyOption() == null) {
+        Entity entity = new Entity();
+        addGroupingProperties(entity, paths, group.get(0));
+        result.add(entity);
+      } else {
+        for (final Entity transformed : apply(groupBy.getApplyOption().getApplyItems(), group)) {
+          Entity entity = new Entity();
+          addGroupingProperties(entity, paths, group.get(0));
+          for (final Property property : transformed.getProperties()) {
+            if (entity.getProperty(property.getName()) == null) {
+              entity.addProperty(property);
+            }
+          }
+          result.add(entity);
+        }
+      }
+    }
+    return result;
+  }
+
+  private List<List<UriResource>> getGroupingPaths(final GroupBy groupBy) throws ODataApplicationException {
+    List<List<UriResource>> paths = new ArrayList<List<UriResource>>();
+    for (final GroupByItem item : groupBy.getGroupByItems()) {
+      if (item.isRollupAll() || !item.getRollup().isEmpty()) {
+        throw notImplemented("Grouping with rollup is not supported.");
+      }
+      final List<UriResource> path = item.getPath();
+      if (!isPropertyPath(path)) {
+        throw notImplemented("Only structural properties can be used for grouping.");
+      }
+      paths.add(path);
+    }
+    return paths;
+  }
+
+  private GroupKey getGroupKey(final List<List<UriResource>> paths, final Entity entity) {
+    Object[] values = new Object[paths.size()];
+    for (int index = 0; index < values.length; index++) {
+      final Property property = findProperty(paths.get(index), entity);
+      values[index] = property == null ? null : property.getValue();
+    }
+    return new GroupKey(values);
+  }
+
+  /** Adds the grouping properties, re-creating the structure of complex properties along the paths. */
+  private void addGroupingProperties(final Entity entity, final List<List<UriResource>> paths, final Entity source) {
+    for (final List<UriResource> path : paths) {
+      List<Property> target = entity.getProperties();
+      List<Property> properties = source.getProperties();
+      for (int index = 0; index < path.size(); index++) {
+        final EdmProperty edmProperty = ((UriResourceProperty) path.get(index)).getProperty();
+        final Property property = properties == null ? null : PropertyList.find(properties, edmProperty.getName());
+        final String type = edmProperty.getType() == null ? null :
+            edmProperty.getType().getFullQualifiedName().getFullQualifiedNameAsString();
+        if (index == path.size() - 1) {
+          if (PropertyList.find(target, edmProperty.getName()) == null) {
+            target.add(property == null ?
+                new Property(type, edmProperty.getName(), ValueType.PRIMITIVE, null) :
+                property);
+          }
+        } else {
+          Property complex = PropertyList.find(target, edmProperty.getName());
+          if (complex == null) {
+            ComplexValue complexValue = new ComplexValue();
+            complex = new Property(type, edmProperty.getName(), ValueType.COMPLEX, complexValue);
+            target.add(complex);
+          }
+          target = complex.asComplex().getValue();
+          properties = property == null || property.isNull() ? null : property.asComplex().getValue();
+        }
+      }
+    }
+  }
+
+  private List<Entity> bottomTop(final BottomTop bottomTop, final List<Entity> input)
+      throws ODataApplicationException {
+    if (!(bottomTop.getNumber() instanceof Literal)) {
+      throw notImplemented("Only literal numbers are supported in bottom/top transformations.");
+    }
+    final BigDecimal number;
+    try {
+      number = new BigDecimal(((Literal) bottomTop.getNumber()).getText());
+    } catch (final NumberFormatException e) {
+      throw new ODataApplicationException("Invalid number.", HttpStatusCode.BAD_REQUEST.getStatusCode(),
+          Locale.ROOT, e);
+    }
+    final BottomTop.Method method = bottomTop.getMethod();
+    final boolean isTop = method == BottomTop.Method.TOP_COUNT || method == BottomTop.Method.TOP_PERCENT
+        || method == BottomTop.Method.TOP_SUM;
+
+    List<Object[]> values = new ArrayList<Object[]>(input.size());
+    for (final Entity entity : input) {
+      final Object value = evaluate(bottomTop.getValue(), entity);
+      if (value != null) {
+        values.add(new Object[] { toDecimal(value), entity });
+      }
+    }
+    Collections.sort(values, new Comparator<Object[]>() {
+      @Override
+      public int compare(final Object[] first, final Object[] second) {
+        final int result = ((BigDecimal) first[0]).compareTo((BigDecimal) second[0]);
+        return isTop ? -result : result;
+      }
+    });
+
+    BigDecimal limit;
+    if (method == BottomTop.Method.BOTTOM_COUNT || method == BottomTop.Method.TOP_COUNT) {
+      limit = null;
+    } else if (method == BottomTop.Method.BOTTOM_PERCENT || method == BottomTop.Method.TOP_PERCENT) {
+      BigDecimal total = BigDecimal.ZERO;
+      for (final Object[] value : values) {
+        total = total.add((BigDecimal) value[0]);
+      }
+      limit = total.multiply(number).movePointLeft(2);
+    } else {
+      limit = number;
+    }
+    List<Entity> result = new ArrayList<Entity>();
+    BigDecimal sum = BigDecimal.ZERO;
+    for (final Object[] value : values) {
+      if (limit == null ? result.size() >= number.intValue() : sum.compareTo(limit) >= 0) {
+        break;
+      }
+      sum = sum.add((BigDecimal) value[0]);
+      result.add((Entity) value[1]);
+    }
+    return result;
+  }
+
+  private List<AggregateSpec> getAggregateSpecs(final Aggregate aggregate) throws ODataApplicationException {
+    List<AggregateSpec> specs = new ArrayList<AggregateSpec>();
+    for (final AggregateExpression expression : aggregate.getExpressions()) {
+      if (expression.getInlineAggregateExpression() != null
+          || expression.getFrom() != null && !expression.getFrom().isEmpty()) {
+        throw notImplemented("Aggregation along navigation or with 'from' is not supported.");
+      }
+      if (expression.getExpression() == null) {
+        final List<UriResource> path = expression.getPath();
+        if (path != null && path.size() == 1 && path.get(0).getKind() == UriResourceKind.count) {
+          specs.add(new AggregateSpec(expression.getAlias(), null, null));
+        } else {
+          throw notImplemented("Custom aggregates are not supported.");
+        }
+      } else if (expression.getStandardMethod() == null) {
+        throw notImplemented("Custom aggregation methods are not supported.");
+      } else {
+        specs.add(new AggregateSpec(expression.getAlias(), expression.getExpression(),
+            expression.getStandardMethod()));
+      }
+    }
+    return specs;
+  }
+
+  private Accumulator[] createAccumulators(final List<AggregateSpec> specs) {
+    Accumulator[] accumulators = new Accumulator[specs.size()];
+    for (int index = 0; index < accumulators.length; index++) {
+      final AggregateExpression.StandardMethod method = specs.get(index).method;
+      if (method == null) {
+        accumulators[index] = new Accumulator.Count();
+      } else {
+        switch (method) {
+        case SUM:
+          accumulators[index] = new Accumulator.Sum();
+          break;
+        case AVERAGE:
+          accumulators[index] = new Accumulator.Average();
+          break;
+        case MIN:
+          accumulators[index] = new Accumulator.Extreme(false);
+          break;
+        case MAX:
+          accumulators[index] = new Accumulator.Extreme(true);
+          break;
+        case COUNT_DISTINCT:
+        default:
+          accumulators[index] = approximateCountDistinct ?
+              new Accumulator.ApproximateCountDistinct() :
+              new Accumulator.CountDistinct();
+          break;
+        }
+      }
+    }
+    return accumulators;
+  }
+
+  private void accumulate(final List<AggregateSpec> specs, final Accumulator[] accumulators, final Entity entity)
+      throws ODataApplicationException {
+    for (int index = 0; index < accumulators.length; index++) {
+      final Expression expression = specs.get(index).expression;
+      accumulators[index].add(expression == null ? entity : evaluate(expression, entity));
+    }
+  }
+
+  private void addAggregates(final Entity entity, final List<AggregateSpec> specs,
+      final Accumulator[] accumulators) {
+    for (int index = 0; index < accumulators.length; index++) {
+      entity.addProperty(createProperty(specs.get(index).alias, accumulators[index].getResult()));
+    }
+  }
+
+  /**
+   * Evaluates an expression; property paths are resolved directly,
+   * all other expressions are delegated to the expression evaluator.
+   */
+  private Object evaluate(final Expression expression, final Entity entity) throws ODataApplicationException {
+    if (expression instanceof Member && ((Member) expression).getStartTypeFilter() == null) {
+      final List<UriResource> path = ((Member) expression).getResourcePath().getUriResourceParts();
+      if (isPropertyPath(path)) {
+        final Property property = findProperty(path, entity);
+        return property == null ? null : property.getValue();
+      }
+    }
+    if (evaluator == null) {
+      throw notImplemented("Only property paths are supported in expressions.");
+    }
+    return evaluator.evaluate(expression, entity);
+  }
+
+  private boolean isPropertyPath(final List<UriResource> path) {
+    if (path == null || path.isEmpty()) {
+      return false;
+    }
+    for (final UriResource segment : path) {
+      if (!(segment.getKind() == UriResourceKind.primitiveProperty
+          || segment.getKind() == UriResourceKind.complexProperty)
+          || ((UriResourceProperty) segment).isCollection()
+          || ((UriResourceProperty) segment).getProperty() == null) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private Property findProperty(final List<UriResource> path, final Entity entity) {
+    List<Property> properties = entity.getProperties();
+    Property property = null;
+    for (final UriResource segment : path) {
+      if (properties == null) {
+        return null;
+      }
+      property = PropertyList.find(properties, ((UriResourceProperty) segment).getProperty().getName());
+      properties = property == null || !property.isComplex() || property.isNull() ?
+          null :
+          property.asComplex().getValue();
+    }
+    return property;
+  }
+
+  private Property createProperty(final String name, final Object value) {
+    final EdmPrimitiveTypeKind kind = value == null ? null : EdmTypeInfo.determineTypeKind(value);
+    return new Property(kind == null ? null : kind.getFullQualifiedName().getFullQualifiedNameAsString(),
+        name, ValueType.PRIMITIVE, value);
+  }
+
+  private Entity copy(final Entity entity) {
+    Entity copy = new Entity();
+    copy.setType(entity.getType());
+    copy.setId(entity.getId());
+    copy.getProperties().addAll(entity.getProperties());
+    copy.getNavigationLinks().addAll(entity.getNavigationLinks());
+    return copy;
+  }
+
+  private BigDecimal toDecimal(final Object value) throws ODataApplicationException {
+    if (value instanceof BigDecimal) {
+      return (BigDecimal) value;
+    } else if (value instanceof Double || value instanceof Float) {
+      return BigDecimal.valueOf(((Number) value).doubleValue());
+    } else if (value instanceof Number) {
+      return new BigDecimal(value.toString());
+    } else {
+      throw new ODataApplicationException("The value '" + value + "' is not numeric.",
+          HttpStatusCode.BAD_REQUEST.getStatusCode(), Locale.ROOT);
+    }
+  }
+
+  private static ODataApplicationException notImplemented(final String message) {
+    return new ODataApplicationException(message, HttpStatusCode.NOT_IMPLEMENTED.getStatusCode(), Locale.ROOT);
+  }
+
+  /** Aggregate with its alias; the expression and the method are <code>null</code> for <code>$count</code>. */
+  private static final class AggregateSpec {
+    private final String alias;
+    private final Expression expression;
+    private final AggregateExpression.StandardMethod method;
+
+    private AggregateSpec(final String alias, final Expression expression,
+        final AggregateExpression.StandardMethod method) {
+      this.alias = alias;
+      this.expression = expression;
+      this.method = method;
+    }
+  }
+
+  /** Values of the grouping properties. */
+  private static final class GroupKey {
+    private final Object[] values;
+    private final int hashCode;
+
+    private GroupKey(final Object[] values) {
+      this.values = values;
+      hashCode = Arrays.deepHashCode(values);
+    }
+
+    @Override
+    public boolean equals(final Object other) {
+      return other instanceof GroupKey && Arrays.deepEquals(values, ((GroupKey) other).values);
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+  }
+
+  /** Group with its first entity (providing the grouping properties) and the aggregation state. */
+  private static final class Group {
+    private final Entity first;
+    private final Accumulator[] accumulators;
+
+    private Group(final Entity first, final Accumulator[] accumulators) {
+      this.first = first;
+      this.accumulators = accumulators;
+    }
+  }
+}
@@ -0,0 +1,39 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.core.apply;
+
+import org.apache.olingo.commons.api.data.Entity;
+import org.apache.olingo.server.api.ODataApplicationException;
+import org.apache.olingo.server.api.uri.queryoption.expression.Expression;
+
+/**
+ * Evaluates expressions for the {@link ApplyEvaluator}.
+ * Implementations must be thread-safe if the evaluator works in parallel.
+ */
+public interface ExpressionEvaluator {
+
+  /**
+   * Evaluates an expression for an entity.
+   * @param expression the expression
+   * @param entity the entity
+   * @return the primitive value of the expression, e.g., a {@link Boolean} for filter expressions
+   * @throws ODataApplicationException if the expression cannot be evaluated
+   */
+  Object evaluate(Expression expression, Entity entity) throws ODataApplicationException;
+}
@@ -0,0 +1,84 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.core.apply;
+
+/**
+ * HyperLogLog sketch estimating the number of distinct hash values
+ * with 2<sup>14</sup> registers, i.e., a standard error of about 0.8 percent and 16 kB of memory.
+ */
+class HyperLogLog {
+
+  private static final int PRECISION = 14;
+  private static final int REGISTER_COUNT = 1 << PRECISION;
+  private static final double ALPHA = 0.7213 / (1 + 1.079 / REGISTER_COUNT);
+
+  private final byte[] registers = new byte[REGISTER_COUNT];
+
+  /**
+   * Adds a hash code.
+   * @param hashCode the (32-bit) hash code of a value
+   */
+  void add(final int hashCode) {
+    final long hash = mix(hashCode);
+    final int index = (int) (hash >>> (64 - PRECISION));
+    // The appended bit limits the rank in case all remaining bits are zero.
+    final int rank = Long.numberOfLeadingZeros(hash << PRECISION | 1L << (PRECISION - 1)) + 1;
+    if (rank > registers[index]) {
+      registers[index] = (byte) rank;
+    }
+  }
+
+  /** Merges another sketch into this one. */
+  void merge(final HyperLogLog other) {
+    for (int index = 0; index < REGISTER_COUNT; index++) {
+      if (other.registers[index] > registers[index]) {
+        registers[index] = other.registers[index];
+      }
+    }
+  }
+
+  /** Estimates the number of distinct hash codes added. */
+  long estimate() {
+    double sum = 0;
+    int zeros = 0;
+    for (final byte register : registers) {
+      sum += 1.0 / (1L << register);
+      if (register == 0) {
+        zeros++;
+      }
+    }
+    double estimate = ALPHA * REGISTER_COUNT * REGISTER_COUNT / sum;
+    if (estimate <= 2.5 * REGISTER_COUNT && zeros > 0) {
+      // linear counting for small cardinalities
+      estimate = REGISTER_COUNT * Math.log((double) REGISTER_COUNT / zeros);
+    }
+    return Math.round(estimate);
+  }
+
+  /** Spreads a 32-bit hash code over 64 bits (finalization step of MurmurHash3). */
+  private static long mix(final int hashCode) {
+    long hash = hashCode & 0xFFFFFFFFL;
+    hash ^= hash >>> 33;
+    hash *= 0xff51afd7ed558ccdL;
+    hash ^= hash >>> 33;
+    hash *= 0xc4ceb9a53dc4e63bL;
+    hash ^= hash >>> 33;
+    return hash;
+  }
+}
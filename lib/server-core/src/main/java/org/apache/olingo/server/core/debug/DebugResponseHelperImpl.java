@@ -122,6 +122,12 @@ public class DebugResponseHelperImpl implements DebugResponseHelper {
       parts.add(new DebugTabRuntime(runtimeInformation));
     }
 
+    // sampling profile
+    final List<StackTraceElement[]> stackSamples = debugInfo.getStackSamples();
+    if (stackSamples != null) {
+      parts.add(new DebugTabProfile(stackSamples, debugInfo.getSamplingInterval()));
+    }
+
     // exceptions
     if (debugInfo.getException() != null) {
       parts.add(new DebugTabStacktrace(debugInfo.getException()));
@@ -0,0 +1,189 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.core.debug;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import org.apache.olingo.server.core.ODataHttpHandlerImpl;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+
+/**
+ * Sampling profile debug information.
+ * <br/>The stack samples are aggregated into a call tree (like in a flame graph) where each node counts
+ * the samples containing its method with the same callers; frames outside the request handling are left out.
+ * Nodes with less than one percent of all samples are omitted.
+ */
+public class DebugTabProfile implements DebugTab {
+
+  private static final String HANDLER_CLASS_NAME = ODataHttpHandlerImpl.class.getName();
+  private static final int MINIMUM_PERCENTAGE = 1;
+
+  private final ProfileNode rootNode = new ProfileNode(null, null);
+  private final int samplingInterval;
+
+  public DebugTabProfile(final List<StackTraceElement[]> stackSamples, final int samplingInterval) {
+    this.samplingInterval = samplingInterval;
+    for (final StackTraceElement[] stack : stackSamples) {
+      add(stack);
+    }
+    rootNode.sort();
+  }
+
+  private void add(final StackTraceElement[] stack) {
+    int start = stack.length - 1;
+    for (int index = stack.length - 1; index >= 0; index--) {
+      if (HANDLER_CLASS_NAME.equals(stack[index].getClassName())) {
+        start = index;
+        break;
+      }
+    }
+    ProfileNode node = rootNode;
+    node.samples++;
+    for (int index = start; index >= 0; index--) {
+      node = node.getChild(stack[index].getClassName(), stack[index].getMethodName());
+      node.samples++;
+    }
+    node.selfSamples++;
+  }
+
+  @Override
+  public String getName() {
+    return "Profile";
+  }
+
+  @Override
+  public void appendJson(final JsonGenerator gen) throws IOException {
+    gen.writeStartObject();
+    gen.writeNumberField("interval", samplingInterval);
+    gen.writeStringField("unit", "ms");
+    gen.writeNumberField("samples", rootNode.samples);
+    gen.writeFieldName("tree");
+    appendJsonChildren(gen, rootNode);
+    gen.writeEndObject();
+  }
+
+  private void appendJsonChildren(final JsonGenerator gen, final ProfileNode node) throws IOException {
+    gen.writeStartArray();
+    for (final ProfileNode child : getVisibleChildren(node)) {
+      gen.writeStartObject();
+      gen.writeStringField("class", child.className);
+      gen.writeStringField("method", child.methodName);
+      gen.writeNumberField("samples", child.samples);
+      gen.writeNumberField("self", child.selfSamples);
+      if (!getVisibleChildren(child).isEmpty()) {
+        gen.writeFieldName("children");
+        appendJsonChildren(gen, child);
+      }
+      gen.writeEndObject();
+    }
+    gen.writeEndArray();
+  }
+
+  @Override
+  public void appendHtml(final Writer writer) throws IOException {
+    writer.append("<p>").append(Integer.toString(rootNode.samples)).append(" samples at an interval of ")
+        .append(Integer.toString(samplingInterval)).append("&nbsp;ms</p>\n");
+    appendProfileNode(rootNode, "", true, writer);
+  }
+
+  private void appendProfileNode(final ProfileNode node, final String draw, final boolean isLast,
+      final Writer writer) throws IOException {
+    if (node.className != null) {
+      writer.append("<li>\n")
+          .append("<span class=\"code\">")
+          .append("<span class=\"draw\">").append(draw)
+          .append(isLast ? "&#x2514;" : "&#x251C;").append("&#x2500;&nbsp;</span>")
+          .append("<span class=\"class\">").append(node.className).append("</span>.")
+          .append("<span class=\"method\">").append(DebugResponseHelperImpl.escapeHtml(node.methodName))
+          .append("(&hellip;)</span></span>")
+          .append("<span class=\"numeric\" title=\"Samples (self)\">")
+          .append(Integer.toString(node.samples)).append(" (").append(Integer.toString(node.selfSamples))
+          .append(")&nbsp;&ndash;&nbsp;").append(Integer.toString(node.samples * 100 / rootNode.samples))
+          .append("&nbsp;%</span>\n");
+    }
+    final List<ProfileNode> children = getVisibleChildren(node);
+    if (!children.isEmpty()) {
+      writer.append("<ol class=\"tree\">\n");
+      for (int index = 0; index < children.size(); index++) {
+        appendProfileNode(children.get(index),
+            node.className == null ? draw : draw + (isLast ? "&nbsp;" : "&#x2502;") + "&nbsp;&nbsp;",
+            index == children.size() - 1,
+            writer);
+      }
+      writer.append("</ol>\n");
+    }
+    if (node.className != null) {
+      writer.append("</li>\n");
+    }
+  }
+
+  private List<ProfileNode> getVisibleChildren(final ProfileNode node) {
+    List<ProfileNode> visible = new ArrayList<ProfileNode>();
+    for (final ProfileNode child : node.children) {
+      if (child.samples * 100 >= rootNode.samples * MINIMUM_PERCENTAGE) {
+        visible.add(child);
+      }
+    }
+    return visible;
+  }
+
+  private static class ProfileNode {
+
+    private final String className;
+    private final String methodName;
+    private int samples;
+    private int selfSamples;
+    private final List<ProfileNode> children = new ArrayList<ProfileNode>();
+
+    private ProfileNode(final String className, final String methodName) {
+      this.className = className;
+      this.methodName = methodName;
+    }
+
+    private ProfileNode getChild(final String className, final String methodName) {
+      for (final ProfileNode child : children) {
+        if (child.methodName.equals(methodName) && child.className.equals(className)) {
+          return child;
+        }
+      }
+      final ProfileNode child = new ProfileNode(className, methodName);
+      children.add(child);
+      return child;
+    }
+
+    /** Sorts the children recursively, the ones with the most samples first. */
+    private void sort() {
+      Collections.sort(children, new Comparator<ProfileNode>() {
+        @Override
+        public int compare(final ProfileNode node1, final ProfileNode node2) {
+          return node2.samples - node1.samples;
+        }
+      });
+      for (final ProfileNode child : children) {
+        child.sort();
+      }
+    }
+  }
+}
@@ -47,6 +47,7 @@ public class ServerCoreDebugger {
   private boolean isDebugMode = false;
   private DebugSupport debugSupport;
   private String debugFormat;
+  private StackSampler stackSampler;
 
   public ServerCoreDebugger(final OData odata) {
     this.odata = odata;
@@ -59,9 +60,33 @@ public class ServerCoreDebugger {
       if (debugFormat != null) {
         debugSupport.init(odata);
         isDebugMode = debugSupport.isUserAuthorized();
+        if (isDebugMode) {
+          startProfiling(request.getParameter(DebugSupport.ODATA_DEBUG_PROFILE_QUERY_PARAMETER));
+        }
       }
     }
   }
+
+  /**
+   * Starts sampling the stack of the current thread if requested.
+   * @param interval the sampling interval in milliseconds or <code>null</code> if no profile has been requested
+   */
+  private void startProfiling(final String interval) {
+    if (stackSampler != null) {
+      stackSampler.stop();
+      stackSampler = null;
+    }
+    if (interval != null) {
+      int milliseconds;
+      try {
+        milliseconds = Integer.parseInt(interval);
+      } catch (final NumberFormatException e) {
+        milliseconds = StackSampler.DEFAULT_INTERVAL;
+      }
+      stackSampler = new StackSampler(Thread.currentThread(), Math.max(1, milliseconds));
+      stackSampler.start();
+    }
+  }
   
   public ODataResponse createDebugResponse(final ODataRequest request, final ODataResponse response,
       final Exception exception, final UriInfo uriInfo, final Map<String, String> serverEnvironmentVariables) {
@@ -103,6 +128,12 @@ public class ServerCoreDebugger {
     debugInfo.setUriInfo(uriInfo);
 
     debugInfo.setRuntimeInformation(runtimeInformation);
+
+    if (stackSampler != null) {
+      debugInfo.setStackSamples(stackSampler.stop());
+      debugInfo.setSamplingInterval(stackSampler.getInterval());
+      stackSampler = null;
+    }
     return debugInfo;
   }
 
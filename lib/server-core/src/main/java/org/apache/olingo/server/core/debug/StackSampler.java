@@ -0,0 +1,92 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.core.debug;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Samples the stack of a thread at a fixed interval in a separate daemon thread
+ * until it is stopped or the maximum number of samples has been taken.
+ */
+class StackSampler implements Runnable {
+
+  static final int DEFAULT_INTERVAL = 10;
+  private static final int MAXIMUM_SAMPLES = 10000;
+  private static final long STOP_TIMEOUT = 1000;
+
+  private final Thread target;
+  private final int interval;
+  private final List<StackTraceElement[]> samples = new ArrayList<StackTraceElement[]>();
+  private final Thread samplingThread;
+  private volatile boolean running = true;
+
+  StackSampler(final Thread target, final int interval) {
+    this.target = target;
+    this.interval = interval;
+    samplingThread = new Thread(this, "olingo-debug-sampler");
+    samplingThread.setDaemon(true);
+  }
+
+  void start() {
+    samplingThread.start();
+  }
+
+  @Override
+  public void run() {
+    while (running) {
+      try {
+        Thread.sleep(interval);
+      } catch (final InterruptedException e) {
+        return;
+      }
+      if (!running) {
+        return;
+      }
+      final StackTraceElement[] stack = target.getStackTrace();
+      synchronized (samples) {
+        samples.add(stack);
+        if (samples.size() >= MAXIMUM_SAMPLES) {
+          return;
+        }
+      }
+    }
+  }
+
+  /**
+   * Stops sampling.
+   * @return the samples taken, each one starting with the innermost frame
+   */
+  List<StackTraceElement[]> stop() {
+    running = false;
+    samplingThread.interrupt();
+    try {
+      samplingThread.join(STOP_TIMEOUT);
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    synchronized (samples) {
+      return new ArrayList<StackTraceElement[]>(samples);
+    }
+  }
+
+  int getInterval() {
+    return interval;
+  }
+}
@@ -19,6 +19,7 @@
 package org.apache.olingo.server.core.deserializer;
 
 import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
@@ -63,6 +64,54 @@ public class FixedFormatDeserializerImpl implements FixedFormatDeserializer {
     return result.toByteArray();
   }
 
+  @Override
+  public InputStream binaryStream(final InputStream content, final long maximumLength)
+      throws DeserializerException {
+    if (maximumLength < 0) {
+      throw new IllegalArgumentException("Maximum length must not be negative.");
+    }
+    return new FilterInputStream(content) {
+      private long count;
+
+      @Override
+      public int read() throws IOException {
+        final int result = super.read();
+        if (result >= 0) {
+          count(1);
+        }
+        return result;
+      }
+
+      @Override
+      public int read(final byte[] buffer, final int offset, final int length) throws IOException {
+        final int result = super.read(buffer, offset, length);
+        if (result > 0) {
+          count(result);
+        }
+        return result;
+      }
+
+      @Override
+      public long skip(final long length) throws IOException {
+        final long result = super.skip(length);
+        count(result);
+        return result;
+      }
+
+      @Override
+      public boolean markSupported() {
+        return false;
+      }
+
+      private void count(final long bytes) throws IOException {
+        count += bytes;
+        if (count > maximumLength) {
+          throw new IOException("The binary content exceeds the maximum length of " + maximumLength + " bytes.");
+        }
+      }
+    };
+  }
+
   @Override
   public Object primitiveValue(final InputStream content, final EdmProperty property) throws DeserializerException {
     if (property == null || !property.isPrimitive()) {
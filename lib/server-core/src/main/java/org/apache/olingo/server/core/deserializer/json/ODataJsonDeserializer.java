@@ -31,6 +31,7 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.NoSuchElementException;
 
 import org.apache.olingo.commons.api.Constants;
 import org.apache.olingo.commons.api.IConstants;
@@ -76,6 +77,7 @@ import org.apache.olingo.server.api.ServiceMetadata;
 import org.apache.olingo.server.api.deserializer.DeserializerException;
 import org.apache.olingo.server.api.deserializer.DeserializerException.MessageKeys;
 import org.apache.olingo.server.api.deserializer.DeserializerResult;
+import org.apache.olingo.server.api.deserializer.DeserializerStreamResult;
 import org.apache.olingo.server.api.deserializer.ODataDeserializer;
 import org.apache.olingo.server.api.serializer.SerializerException;
 import org.apache.olingo.server.core.deserializer.DeserializerResultImpl;
@@ -86,6 +88,7 @@ import org.apache.olingo.server.core.serializer.utils.ContentTypeHelper;
 import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.core.JsonParseException;
 import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.JsonMappingException;
 import com.fasterxml.jackson.databind.JsonNode;
@@ -149,6 +152,60 @@ public class ODataJsonDeserializer implements ODataDeserializer {
     }
   }
 
+  @Override
+  public DeserializerStreamResult entityCollectionStreamed(final InputStream stream,
+      final EdmEntityType edmEntityType) throws DeserializerException {
+    try {
+      ObjectMapper objectMapper = new ObjectMapper();
+      objectMapper.configure(DeserializationFeature.FAIL_ON_READING_DUP_TREE_KEY, true);
+      JsonParser parser = new JsonFactory(objectMapper).createParser(stream);
+      if (parser.nextToken() != JsonToken.START_OBJECT) {
+        throw new DeserializerException("Invalid JSON syntax.",
+            DeserializerException.MessageKeys.JSON_SYNTAX_EXCEPTION);
+      }
+      if (!consumeEntityCollectionFields(parser)) {
+        throw new DeserializerException("Could not find value array.",
+            DeserializerException.MessageKeys.VALUE_ARRAY_NOT_PRESENT);
+      }
+      return new EntityCollectionStream(parser, edmEntityType);
+    } catch (final IOException e) {
+      throw wrapParseException(e);
+    }
+  }
+
+  /**
+   * Consumes the fields of an entity-collection object up to the start of the value array
+   * or the end of the object; control information is ignored as in {@link #removeAnnotations(ObjectNode)}.
+   * @return <code>true</code> if the value array has been reached
+   */
+  private boolean consumeEntityCollectionFields(final JsonParser parser) throws IOException, DeserializerException {
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      final String name = parser.getCurrentName();
+      final JsonToken token = parser.nextToken();
+      if (Constants.VALUE.equals(name)) {
+        if (token != JsonToken.START_ARRAY) {
+          throw new DeserializerException("The content of the value tag must be an Array but is not.",
+              DeserializerException.MessageKeys.VALUE_TAG_MUST_BE_AN_ARRAY);
+        }
+        return true;
+      } else if (name.contains(ODATA_CONTROL_INFORMATION_PREFIX)
+          || name.contains(ODATA_ANNOTATION_MARKER) && constants instanceof Constantsv01) {
+        parser.skipChildren();
+      } else if (name.contains(ODATA_ANNOTATION_MARKER)) {
+        throw new DeserializerException("Custom annotation with field name: " + name + " not supported",
+            DeserializerException.MessageKeys.NOT_IMPLEMENTED);
+      } else {
+        throw new DeserializerException("Tree should be empty but still has content left: " + name,
+            DeserializerException.MessageKeys.UNKNOWN_CONTENT, name);
+      }
+    }
+    if (parser.getCurrentToken() != JsonToken.END_OBJECT) {
+      throw new DeserializerException("Invalid JSON syntax.",
+          DeserializerException.MessageKeys.JSON_SYNTAX_EXCEPTION);
+    }
+    return false;
+  }
+
   private EntityCollection consumeEntityCollectionNode(final EdmEntityType edmEntityType, final ObjectNode tree,
       final ExpandTreeBuilder expandBuilder) throws DeserializerException {
     EntityCollection entitySet = new EntityCollection();
@@ -1123,4 +1180,61 @@ public class ODataJsonDeserializer implements ODataDeserializer {
         && (edmStructuredType.getFullQualifiedName().equals(edmStructuredTypeToAssign.getFullQualifiedName())
             || isAssignable(edmStructuredType, edmStructuredTypeToAssign.getBaseType()));
   }
+
+  /** Reads the entities of the value array one at a time. */
+  private class EntityCollectionStream implements DeserializerStreamResult {
+    private final JsonParser parser;
+    private final EdmEntityType edmEntityType;
+    private Boolean hasNext;
+
+    private EntityCollectionStream(final JsonParser parser, final EdmEntityType edmEntityType) {
+      this.parser = parser;
+      this.edmEntityType = edmEntityType;
+    }
+
+    @Override
+    public boolean hasNext() throws DeserializerException {
+      if (hasNext == null) {
+        try {
+          final JsonToken token = parser.nextToken();
+          if (token == JsonToken.END_ARRAY) {
+            if (consumeEntityCollectionFields(parser)) {
+              throw new DeserializerException("Duplicate value array.",
+                  DeserializerException.MessageKeys.DUPLICATE_PROPERTY);
+            }
+            parser.close();
+            hasNext = false;
+          } else if (token == JsonToken.START_OBJECT) {
+            hasNext = true;
+          } else {
+            throw new DeserializerException(
+                "Nested Arrays and primitive values are not allowed for an entity value.",
+                DeserializerException.MessageKeys.INVALID_ENTITY);
+          }
+        } catch (final IOException e) {
+          throw wrapParseException(e);
+        }
+      }
+      return hasNext;
+    }
+
+    @Override
+    public DeserializerResult next() throws DeserializerException {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      hasNext = null;
+      try {
+        final ObjectNode tree = parser.readValueAsTree();
+        final ExpandTreeBuilder expandBuilder = ExpandTreeBuilderImpl.create();
+        final EdmEntityType derivedEdmEntityType = (EdmEntityType) getDerivedType(edmEntityType, tree);
+        return DeserializerResultImpl.with()
+            .entity(consumeEntityNode(derivedEdmEntityType, tree, expandBuilder))
+            .expandOption(expandBuilder.build())
+            .build();
+      } catch (final IOException e) {
+        throw wrapParseException(e);
+      }
+    }
+  }
 }
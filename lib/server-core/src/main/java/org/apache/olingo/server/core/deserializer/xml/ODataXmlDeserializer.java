@@ -21,6 +21,8 @@ package org.apache.olingo.server.core.deserializer.xml;
 import java.io.InputStream;
 import java.net.URI;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -62,6 +64,7 @@ import org.apache.olingo.server.api.ServiceMetadata;
 import org.apache.olingo.server.api.deserializer.DeserializerException;
 import org.apache.olingo.server.api.deserializer.DeserializerException.MessageKeys;
 import org.apache.olingo.server.api.deserializer.DeserializerResult;
+import org.apache.olingo.server.api.deserializer.DeserializerStreamResult;
 import org.apache.olingo.server.api.deserializer.ODataDeserializer;
 import org.apache.olingo.server.core.deserializer.DeserializerResultImpl;
 
@@ -696,6 +699,31 @@ public class ODataXmlDeserializer implements ODataDeserializer {
     }
   }
 
+  /**
+   * Returns the entries of a feed one at a time.
+   * Since the feed is read completely at once, this does not save memory compared to
+   * {@link #entityCollection(InputStream, EdmEntityType)}.
+   */
+  @Override
+  public DeserializerStreamResult entityCollectionStreamed(final InputStream input,
+      final EdmEntityType edmEntityType) throws DeserializerException {
+    final EntityCollection entityCollection = entityCollection(input, edmEntityType).getEntityCollection();
+    final Iterator<Entity> entities = entityCollection == null ?
+        Collections.<Entity>emptyList().iterator() :
+        entityCollection.getEntities().iterator();
+    return new DeserializerStreamResult() {
+      @Override
+      public boolean hasNext() {
+        return entities.hasNext();
+      }
+
+      @Override
+      public DeserializerResult next() {
+        return DeserializerResultImpl.with().entity(entities.next()).build();
+      }
+    };
+  }
+
   @Override
   public DeserializerResult entityReferences(final InputStream stream) throws DeserializerException {
     try {
@@ -21,6 +21,8 @@ package org.apache.olingo.server.core.serializer;
 import java.io.IOException;
 import java.io.OutputStream;
 
+import org.apache.olingo.commons.api.data.AbstractEntityCollection;
+import org.apache.olingo.commons.api.data.Link;
 import org.apache.olingo.server.api.serializer.ODataSerializer;
 import org.apache.olingo.server.api.serializer.SerializerException;
 
@@ -44,4 +46,15 @@ public abstract class AbstractODataSerializer implements ODataSerializer {
       }
     }
   }
+
+  /**
+   * Gets the expanded entities of a to-many navigation link: its in-line entity set or,
+   * if that is not present, its in-line entity iterator which is then read while writing.
+   * @return the expanded entities or <code>null</code> if the link has none
+   */
+  protected AbstractEntityCollection getInlineEntities(final Link navigationLink) {
+    return navigationLink == null ? null
+        : navigationLink.getInlineEntitySet() == null ? navigationLink.getInlineEntityIterator()
+            : navigationLink.getInlineEntitySet();
+  }
 }
@@ -22,6 +22,7 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
 import java.nio.ByteBuffer;
 import java.nio.channels.Channels;
@@ -31,6 +32,7 @@ import java.util.List;
 import java.util.Map;
 
 import org.apache.olingo.commons.api.http.HttpStatusCode;
+import org.apache.olingo.server.api.ODataMediaContent;
 import org.apache.olingo.server.api.ODataResponse;
 import org.apache.olingo.server.api.serializer.SerializerException;
 
@@ -43,15 +45,22 @@ public class AsyncResponseSerializer {
   private static final String HTTP_VERSION = "HTTP/1.1";
 
   public InputStream serialize(final ODataResponse response) throws SerializerException {
-    try {
-      ByteArrayOutputStream buffer = new ByteArrayOutputStream();
-      appendStatusLine(response, buffer);
-      appendResponseHeader(response, buffer);
-      append(CRLF, buffer);
-      appendBody(response, buffer);
+    ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    serialize(response, buffer);
+    return new ByteArrayInputStream(buffer.toByteArray(), 0, buffer.size());
+  }
 
-      buffer.flush();
-      return new ByteArrayInputStream(buffer.toByteArray(), 0, buffer.size());
+  /**
+   * Writes the response in <code>application/http</code> format to the given stream,
+   * so that large responses need not be held in memory.
+   */
+  public void serialize(final ODataResponse response, final OutputStream output) throws SerializerException {
+    try {
+      appendStatusLine(response, output);
+      appendResponseHeader(response, output);
+      append(CRLF, output);
+      appendBody(response, output);
+      output.flush();
     } catch (IOException e) {
       throw new SerializerException("Exception occurred during serialization of asynchronous response.",
           e, SerializerException.MessageKeys.IO_EXCEPTION);
@@ -59,7 +68,7 @@ public class AsyncResponseSerializer {
   }
 
   private void appendResponseHeader(final ODataResponse response,
-      final ByteArrayOutputStream buffer) throws IOException {
+      final OutputStream buffer) throws IOException {
     final Map<String, List<String>> header = response.getAllHeaders();
 
     for (final Map.Entry<String, List<String>> entry : header.entrySet()) {
@@ -67,22 +76,29 @@ public class AsyncResponseSerializer {
     }
   }
 
-  private void appendHeader(final String name, final List<String> values, final ByteArrayOutputStream buffer)
+  private void appendHeader(final String name, final List<String> values, final OutputStream buffer)
       throws IOException {
     for (String value : values) {
       append(name + COLON + SP + value + CRLF, buffer);
     }
   }
 
-  private void appendStatusLine(final ODataResponse response, final ByteArrayOutputStream buffer)
+  private void appendStatusLine(final ODataResponse response, final OutputStream buffer)
       throws IOException {
     HttpStatusCode status = HttpStatusCode.fromStatusCode(response.getStatusCode());
     append(HTTP_VERSION + SP + response.getStatusCode() + SP + status + CRLF, buffer);
   }
 
-  private void appendBody(final ODataResponse response, final ByteArrayOutputStream buffer) throws IOException {
-    InputStream input = response.getContent();
-    if (input != null) {
+  private void appendBody(final ODataResponse response, final OutputStream buffer) throws IOException {
+    final ODataMediaContent media = response.getMediaContent();
+    final InputStream input = response.getContent();
+    if (media != null) {
+      try {
+        media.write(Channels.newChannel(buffer), response.getMediaContentPosition(), response.getMediaContentCount());
+      } finally {
+        media.close();
+      }
+    } else if (input != null) {
       ByteBuffer inBuffer = ByteBuffer.allocate(BUFFER_SIZE);
       ReadableByteChannel ic = Channels.newChannel(input);
       WritableByteChannel oc = Channels.newChannel(buffer);
@@ -91,10 +107,13 @@ public class AsyncResponseSerializer {
         oc.write(inBuffer);
         inBuffer.rewind();
       }
+    } else if (response.getODataContent() != null) {
+      // streamed content, e.g., of an entity collection serialized while it is read
+      response.getODataContent().write(Channels.newChannel(buffer));
     }
   }
 
-  private void append(final String value, final ByteArrayOutputStream buffer) throws IOException {
+  private void append(final String value, final OutputStream buffer) throws IOException {
     try {
       buffer.write(value.getBytes(HEADER_CHARSET_NAME));
     } catch (UnsupportedEncodingException e) {
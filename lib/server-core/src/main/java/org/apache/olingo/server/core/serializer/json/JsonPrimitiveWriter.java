@@ -0,0 +1,343 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.core.serializer.json;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.UUID;
+
+import org.apache.olingo.commons.api.edm.EdmPrimitiveType;
+import org.apache.olingo.commons.api.edm.EdmPrimitiveTypeKind;
+import org.apache.olingo.commons.core.edm.primitivetype.EdmPrimitiveTypeFactory;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+
+/**
+ * Writes primitive values of the most common types directly to the {@link JsonGenerator}
+ * without formatting them into an intermediate string first.
+ * <br/>A writer only handles the values it can write exactly like the generic
+ * <code>valueToString</code> path; for everything else (unusual value classes,
+ * facet violations, special floating-point values, ...) it returns <code>false</code>
+ * and the caller falls back to the generic path, which also produces the error messages.
+ * <br/>Instances are not thread-safe; each serializer holds its own one.
+ */
+public class JsonPrimitiveWriter {
+
+  /** Writer for the values of one primitive type. */
+  public interface ValueWriter {
+    /**
+     * Writes the non-null value.
+     * @return <code>false</code> if the value has not been written and the generic path must be used
+     */
+    boolean write(JsonPrimitiveWriter context, Object value, Integer precision, Integer scale, JsonGenerator json)
+        throws IOException;
+  }
+
+  private static final Map<EdmPrimitiveType, ValueWriter> WRITERS = new HashMap<EdmPrimitiveType, ValueWriter>();
+
+  private static final TimeZone GMT = TimeZone.getTimeZone("GMT");
+  private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+  private final boolean isIEEE754Compatible;
+  private final char[] buffer = new char[40];
+
+  public JsonPrimitiveWriter(final boolean isIEEE754Compatible) {
+    this.isIEEE754Compatible = isIEEE754Compatible;
+  }
+
+  /**
+   * Writes a non-null primitive value directly.
+   * @return <code>false</code> if no direct writer applies and the generic path must be used
+   */
+  public boolean write(final EdmPrimitiveType type, final Object value, final Integer precision,
+      final Integer scale, final JsonGenerator json) throws IOException {
+    final ValueWriter writer = WRITERS.get(type);
+    return writer != null && writer.write(this, value, precision, scale, json);
+  }
+
+  public boolean isIEEE754Compatible() {
+    return isIEEE754Compatible;
+  }
+
+  private static void register(final EdmPrimitiveTypeKind kind, final ValueWriter writer) {
+    WRITERS.put(EdmPrimitiveTypeFactory.getInstance(kind), writer);
+  }
+
+  /** Returns the value as int if it is an integral value in the given range, otherwise <code>null</code>. */
+  private static Integer intValue(final Object value, final int min, final int max) {
+    if (value instanceof Integer || value instanceof Short || value instanceof Byte || value instanceof Long) {
+      final long longValue = ((Number) value).longValue();
+      return longValue >= min && longValue <= max ? Integer.valueOf((int) longValue) : null;
+    }
+    return null;
+  }
+
+  private static final class IntegerWriter implements ValueWriter {
+    private final int min;
+    private final int max;
+
+    private IntegerWriter(final int min, final int max) {
+      this.min = min;
+      this.max = max;
+    }
+
+    @Override
+    public boolean write(final JsonPrimitiveWriter context, final Object value, final Integer precision,
+        final Integer scale, final JsonGenerator json) throws IOException {
+      final Integer intValue = intValue(value, min, max);
+      if (intValue == null) {
+        return false;
+      }
+      json.writeNumber(intValue.intValue());
+      return true;
+    }
+  }
+
+  static {
+    register(EdmPrimitiveTypeKind.Boolean, new ValueWriter() {
+      @Override
+      public boolean write(final JsonPrimitiveWriter context, final Object value, final Integer precision,
+          final Integer scale, final JsonGenerator json) throws IOException {
+        if (value instanceof Boolean) {
+          json.writeBoolean((Boolean) value);
+          return true;
+        }
+        return false;
+      }
+    });
+    register(EdmPrimitiveTypeKind.Int32, new IntegerWriter(Integer.MIN_VALUE, Integer.MAX_VALUE));
+    register(EdmPrimitiveTypeKind.Int16, new IntegerWriter(Short.MIN_VALUE, Short.MAX_VALUE));
+    register(EdmPrimitiveTypeKind.SByte, new IntegerWriter(Byte.MIN_VALUE, Byte.MAX_VALUE));
+    register(EdmPrimitiveTypeKind.Byte, new IntegerWriter(0, 255));
+    register(EdmPrimitiveTypeKind.Int64, new ValueWriter() {
+      @Override
+      public boolean write(final JsonPrimitiveWriter context, final Object value, final Integer precision,
+          final Integer scale, final JsonGenerator json) throws IOException {
+        if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+          final long longValue = ((Number) value).longValue();
+          if (context.isIEEE754Compatible) {
+            json.writeString(Long.toString(longValue));
+          } else {
+            json.writeNumber(longValue);
+          }
+          return true;
+        }
+        return false;
+      }
+    });
+    register(EdmPrimitiveTypeKind.Double, new ValueWriter() {
+      @Override
+      public boolean write(final JsonPrimitiveWriter context, final Object value, final Integer precision,
+          final Integer scale, final JsonGenerator json) throws IOException {
+        if (value instanceof Double) {
+          final double doubleValue = (Double) value;
+          if (!Double.isNaN(doubleValue) && !Double.isInfinite(doubleValue)) {
+            json.writeNumber(doubleValue);
+            return true;
+          }
+        } else if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+          json.writeNumber(((Number) value).intValue());
+          return true;
+        }
+        return false;
+      }
+    });
+    register(EdmPrimitiveTypeKind.Single, new ValueWriter() {
+      @Override
+      public boolean write(final JsonPrimitiveWriter context, final Object value, final Integer precision,
+          final Integer scale, final JsonGenerator json) throws IOException {
+        if (value instanceof Float) {
+          final float floatValue = (Float) value;
+          if (!Float.isNaN(floatValue) && !Float.isInfinite(floatValue)) {
+            json.writeNumber(floatValue);
+            return true;
+          }
+        } else if (value instanceof Short || value instanceof Byte) {
+          json.writeNumber(((Number) value).intValue());
+          return true;
+        }
+        return false;
+      }
+    });
+    register(EdmPrimitiveTypeKind.Decimal, new ValueWriter() {
+      @Override
+      public boolean write(final JsonPrimitiveWriter context, final Object value, final Integer precision,
+          final Integer scale, final JsonGenerator json) throws IOException {
+        if (!(value instanceof BigDecimal)) {
+          return false;
+        }
+        final BigDecimal decimal = (BigDecimal) value;
+        final int digits = decimal.scale() >= 0
+            ? Math.max(decimal.precision(), decimal.scale())
+            : decimal.precision() - decimal.scale();
+        if (precision != null && precision < digits || decimal.scale() > (scale == null ? 0 : scale)) {
+          return false;
+        }
+        // BigDecimal.toString() is only plain for a non-negative scale and a small negative exponent.
+        final boolean isPlain = decimal.scale() >= 0 && decimal.precision() - decimal.scale() > -6;
+        if (context.isIEEE754Compatible) {
+          json.writeString(isPlain ? decimal.toString() : decimal.toPlainString());
+        } else if (isPlain) {
+          json.writeNumber(decimal);
+        } else {
+          json.writeNumber(decimal.toPlainString());
+        }
+        return true;
+      }
+    });
+    register(EdmPrimitiveTypeKind.Guid, new ValueWriter() {
+      @Override
+      public boolean write(final JsonPrimitiveWriter context, final Object value, final Integer precision,
+          final Integer scale, final JsonGenerator json) throws IOException {
+        if (!(value instanceof UUID)) {
+          return false;
+        }
+        final UUID uuid = (UUID) value;
+        final char[] buffer = context.buffer;
+        final long most = uuid.getMostSignificantBits();
+        final long least = uuid.getLeastSignificantBits();
+        appendHex(buffer, 0, most >>> 32, 8);
+        buffer[8] = '-';
+        appendHex(buffer, 9, most >>> 16, 4);
+        buffer[13] = '-';
+        appendHex(buffer, 14, most, 4);
+        buffer[18] = '-';
+        appendHex(buffer, 19, least >>> 48, 4);
+        buffer[23] = '-';
+        appendHex(buffer, 24, least, 12);
+        json.writeString(buffer, 0, 36);
+        return true;
+      }
+    });
+    register(EdmPrimitiveTypeKind.Date, new ValueWriter() {
+      @Override
+      public boolean write(final JsonPrimitiveWriter context, final Object value, final Integer precision,
+          final Integer scale, final JsonGenerator json) throws IOException {
+        final Calendar calendar = toCalendar(value, TimeZone.getDefault());
+        if (calendar == null) {
+          return false;
+        }
+        final int year = calendar.get(Calendar.YEAR);
+        if (year < 0 || year >= 10000) {
+          return false;
+        }
+        final int length = appendDate(context.buffer, 0, calendar, year);
+        json.writeString(context.buffer, 0, length);
+        return true;
+      }
+    });
+    register(EdmPrimitiveTypeKind.DateTimeOffset, new ValueWriter() {
+      @Override
+      public boolean write(final JsonPrimitiveWriter context, final Object value, final Integer precision,
+          final Integer scale, final JsonGenerator json) throws IOException {
+        if (value instanceof Timestamp) {
+          return false;
+        }
+        final Calendar calendar = toCalendar(value, GMT);
+        if (calendar == null) {
+          return false;
+        }
+        final int year = calendar.get(Calendar.YEAR);
+        if (year < 0 || year >= 10000) {
+          return false;
+        }
+        final char[] buffer = context.buffer;
+        int length = appendDate(buffer, 0, calendar, year);
+        buffer[length++] = 'T';
+        length = appendTwoDigits(buffer, length, calendar.get(Calendar.HOUR_OF_DAY));
+        buffer[length++] = ':';
+        length = appendTwoDigits(buffer, length, calendar.get(Calendar.MINUTE));
+        buffer[length++] = ':';
+        length = appendTwoDigits(buffer, length, calendar.get(Calendar.SECOND));
+        final int millis = calendar.get(Calendar.MILLISECOND);
+        if (millis > 0) {
+          final int digits = millis % 100 == 0 ? 1 : millis % 10 == 0 ? 2 : 3;
+          if (precision != null && precision < digits) {
+            return false;
+          }
+          buffer[length++] = '.';
+          buffer[length++] = (char) ('0' + millis / 100);
+          if (digits > 1) {
+            buffer[length++] = (char) ('0' + millis / 10 % 10);
+          }
+          if (digits > 2) {
+            buffer[length++] = (char) ('0' + millis % 10);
+          }
+        }
+        final int offsetInMinutes = (calendar.get(Calendar.ZONE_OFFSET) + calendar.get(Calendar.DST_OFFSET)) / 60000;
+        if (offsetInMinutes == 0) {
+          buffer[length++] = 'Z';
+        } else {
+          final int absoluteOffset = Math.abs(offsetInMinutes);
+          if (absoluteOffset / 60 > 99) {
+            return false;
+          }
+          buffer[length++] = offsetInMinutes < 0 ? '-' : '+';
+          length = appendTwoDigits(buffer, length, absoluteOffset / 60);
+          buffer[length++] = ':';
+          length = appendTwoDigits(buffer, length, absoluteOffset % 60);
+        }
+        json.writeString(buffer, 0, length);
+        return true;
+      }
+    });
+  }
+
+  /**
+   * Converts the value into a calendar the same way the primitive types do;
+   * returns <code>null</code> for unsupported value classes.
+   */
+  private static Calendar toCalendar(final Object value, final TimeZone timeZone) {
+    if (value instanceof Calendar) {
+      return (Calendar) ((Calendar) value).clone();
+    } else if (value instanceof Date || value instanceof Long) {
+      final Calendar calendar = Calendar.getInstance(timeZone);
+      calendar.setTimeInMillis(value instanceof Date ? ((Date) value).getTime() : (Long) value);
+      return calendar;
+    }
+    return null;
+  }
+
+  private static int appendDate(final char[] buffer, final int start, final Calendar calendar, final int year) {
+    int index = appendTwoDigits(buffer, start, year / 100);
+    index = appendTwoDigits(buffer, index, year % 100);
+    buffer[index++] = '-';
+    index = appendTwoDigits(buffer, index, calendar.get(Calendar.MONTH) + 1); // month is zero-based
+    buffer[index++] = '-';
+    return appendTwoDigits(buffer, index, calendar.get(Calendar.DAY_OF_MONTH));
+  }
+
+  private static int appendTwoDigits(final char[] buffer, final int index, final int number) {
+    buffer[index] = (char) ('0' + number / 10);
+    buffer[index + 1] = (char) ('0' + number % 10);
+    return index + 2;
+  }
+
+  private static void appendHex(final char[] buffer, final int index, final long value, final int digits) {
+    for (int i = digits - 1; i >= 0; i--) {
+      buffer[index + i] = HEX[(int) (value >>> ((digits - 1 - i) * 4)) & 0xF];
+    }
+  }
+}
@@ -34,6 +34,7 @@ import org.apache.olingo.commons.api.Constants;
 import org.apache.olingo.commons.api.IConstants;
 import org.apache.olingo.commons.api.constants.Constantsv00;
 import org.apache.olingo.commons.api.data.AbstractEntityCollection;
+import org.apache.olingo.commons.api.data.ColumnarEntityCollection;
 import org.apache.olingo.commons.api.data.ComplexValue;
 import org.apache.olingo.commons.api.data.ContextURL;
 import org.apache.olingo.commons.api.data.Entity;
@@ -42,6 +43,7 @@ import org.apache.olingo.commons.api.data.Link;
 import org.apache.olingo.commons.api.data.Linked;
 import org.apache.olingo.commons.api.data.Operation;
 import org.apache.olingo.commons.api.data.Property;
+import org.apache.olingo.commons.api.data.PropertyList;
 import org.apache.olingo.commons.api.edm.EdmComplexType;
 import org.apache.olingo.commons.api.edm.EdmEntitySet;
 import org.apache.olingo.commons.api.edm.EdmEntityType;
@@ -90,8 +92,10 @@ import org.apache.olingo.server.core.serializer.utils.CircleStreamBuffer;
 import org.apache.olingo.server.core.serializer.utils.ContentTypeHelper;
 import org.apache.olingo.server.core.serializer.utils.ContextURLBuilder;
 import org.apache.olingo.server.core.serializer.utils.ExpandSelectHelper;
+import org.apache.olingo.server.core.serializer.utils.ExpandSelectProjections;
+import org.apache.olingo.server.core.serializer.utils.ExpandSelectProjections.Navigation;
+import org.apache.olingo.server.core.serializer.utils.ExpandSelectProjections.Selection;
 import org.apache.olingo.server.core.uri.UriHelperImpl;
-import org.apache.olingo.server.core.uri.queryoption.ExpandOptionImpl;
 
 import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.core.JsonGenerator;
@@ -112,12 +116,15 @@ public class ODataJsonSerializer extends AbstractODataSerializer {
   }
 
   private final boolean isIEEE754Compatible;
+  private final JsonPrimitiveWriter primitiveWriter;
+  private final ExpandSelectProjections projections = new ExpandSelectProjections();
   private final boolean isODataMetadataNone;
   private final boolean isODataMetadataFull;
   private IConstants constants;
 
   public ODataJsonSerializer(final ContentType contentType, final IConstants constants) {
     isIEEE754Compatible = ContentTypeHelper.isODataIEEE754Compatible(contentType);
+    primitiveWriter = new JsonPrimitiveWriter(isIEEE754Compatible);
     isODataMetadataNone = ContentTypeHelper.isODataMetadataNone(contentType);
     isODataMetadataFull = ContentTypeHelper.isODataMetadataFull(contentType);
     this.constants = constants;
@@ -125,6 +132,7 @@ public class ODataJsonSerializer extends AbstractODataSerializer {
 
   public ODataJsonSerializer(final ContentType contentType) {
     isIEEE754Compatible = ContentTypeHelper.isODataIEEE754Compatible(contentType);
+    primitiveWriter = new JsonPrimitiveWriter(isIEEE754Compatible);
     isODataMetadataNone = ContentTypeHelper.isODataMetadataNone(contentType);
     isODataMetadataFull = ContentTypeHelper.isODataMetadataFull(contentType);
     this.constants = new Constantsv00();
@@ -345,6 +353,10 @@ public class ODataJsonSerializer extends AbstractODataSerializer {
       final AbstractEntityCollection entitySet, final ExpandOption expand, Integer toDepth, final SelectOption select,
       final boolean onlyReference, final Set<String> ancestors, String name, final JsonGenerator json)
           throws IOException, SerializerException, DecoderException {
+    if (entitySet instanceof ColumnarEntityCollection && !onlyReference && expand == null
+        && writeColumnarEntitySet(metadata, entityType, (ColumnarEntityCollection) entitySet, select, json)) {
+      return;
+    }
     json.writeStartArray();
     for (final Entity entity : entitySet) {
       if (onlyReference) {
@@ -358,6 +370,114 @@ public class ODataJsonSerializer extends AbstractODataSerializer {
     json.writeEndArray();
   }
 
+  /**
+   * Writes the rows of a columnar entity collection directly from its columns,
+   * without creating entity or property objects.
+   * <br/>Only plain rows are handled this way: no expansion, no full metadata, no type cast, no ids, and
+   * only single-valued non-stream primitive properties in columns; in all other cases nothing is written.
+   * @return <code>true</code> if the collection has been written, <code>false</code> if the rows
+   *         must be written as entities
+   */
+  private boolean writeColumnarEntitySet(final ServiceMetadata metadata, final EdmEntityType entityType,
+      final ColumnarEntityCollection entitySet, final SelectOption select, final JsonGenerator json)
+      throws IOException, SerializerException {
+    if (isODataMetadataFull
+        || entitySet.getEntityType() != null
+        && !entitySet.getEntityType().equals(entityType.getFullQualifiedName().getFullQualifiedNameAsString())
+        || !isODataMetadataNone && !areKeyPredicateNamesSelected(select, entityType)) {
+      return false;
+    }
+    final List<EdmProperty> properties = projections.getSelection(select, entityType).getProperties();
+    int[] columns = new int[properties.size()];
+    for (int index = 0; index < properties.size(); index++) {
+      final EdmProperty edmProperty = properties.get(index);
+      final int column = entitySet.getColumnIndex(edmProperty.getName());
+      if (column >= 0 && (!edmProperty.isPrimitive() || edmProperty.isCollection()
+          || isStreamProperty(edmProperty))) {
+        return false;
+      }
+      columns[index] = column;
+    }
+
+    json.writeStartArray();
+    for (int row = 0; row < entitySet.getRowCount(); row++) {
+      json.writeStartObject();
+      for (int index = 0; index < properties.size(); index++) {
+        final EdmProperty edmProperty = properties.get(index);
+        final int column = columns[index];
+        if (column < 0 || entitySet.isNull(row, column)) {
+          writeProperty(metadata, edmProperty, null, null, json, null, null, null);
+        } else {
+          json.writeFieldName(edmProperty.getName());
+          writeColumnValue(edmProperty, entitySet, row, column, json);
+        }
+      }
+      json.writeEndObject();
+    }
+    json.writeEndArray();
+    return true;
+  }
+
+  private void writeColumnValue(final EdmProperty edmProperty, final ColumnarEntityCollection entitySet,
+      final int row, final int column, final JsonGenerator json) throws IOException, SerializerException {
+    final EdmPrimitiveType type = (EdmPrimitiveType) edmProperty.getType();
+    switch (entitySet.getColumnType(column)) {
+    case BOOLEAN:
+      if (type == EdmPrimitiveTypeFactory.getInstance(EdmPrimitiveTypeKind.Boolean)) {
+        json.writeBoolean(entitySet.getBoolean(row, column));
+        return;
+      }
+      break;
+    case INT:
+    case LONG:
+      if (writeIntegralValue(type, entitySet.getLong(row, column), json)) {
+        return;
+      }
+      break;
+    default:
+      break;
+    }
+    final Object value = entitySet.getValue(row, column);
+    try {
+      writePrimitiveValue(edmProperty.getName(), type, value,
+          edmProperty.isNullable(), edmProperty.getMaxLength(),
+          edmProperty.getPrecision(), edmProperty.getScale(), edmProperty.isUnicode(), json);
+    } catch (final EdmPrimitiveTypeException e) {
+      throw new SerializerException("Wrong value for property!", e,
+          SerializerException.MessageKeys.WRONG_PROPERTY_VALUE,
+          edmProperty.getName(), value.toString());
+    }
+  }
+
+  /**
+   * Writes an integral value if it is in the range of the given type.
+   * @return <code>false</code> if the value has not been written
+   */
+  private boolean writeIntegralValue(final EdmPrimitiveType type, final long value, final JsonGenerator json)
+      throws IOException {
+    if (type == EdmPrimitiveTypeFactory.getInstance(EdmPrimitiveTypeKind.Int64)) {
+      if (isIEEE754Compatible) {
+        json.writeString(Long.toString(value));
+      } else {
+        json.writeNumber(value);
+      }
+      return true;
+    }
+    final boolean inRange =
+        type == EdmPrimitiveTypeFactory.getInstance(EdmPrimitiveTypeKind.Int32)
+        && value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE
+        || type == EdmPrimitiveTypeFactory.getInstance(EdmPrimitiveTypeKind.Int16)
+        && value >= Short.MIN_VALUE && value <= Short.MAX_VALUE
+        || type == EdmPrimitiveTypeFactory.getInstance(EdmPrimitiveTypeKind.SByte)
+        && value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE
+        || type == EdmPrimitiveTypeFactory.getInstance(EdmPrimitiveTypeKind.Byte)
+        && value >= 0 && value <= 255;
+    if (inRange) {
+      json.writeNumber((int) value);
+    }
+    return inRange;
+  }
+
   /**
    * Get the ascii representation of the entity id
    * or thrown an {@link SerializerException} if id is <code>null</code>.
@@ -373,24 +493,16 @@ public class ODataJsonSerializer extends AbstractODataSerializer {
           || name == null) {
         throw new SerializerException("Entity id is null.", SerializerException.MessageKeys.MISSING_ID);
       }else{
-        final UriHelper uriHelper = new UriHelperImpl(); 
-        entity.setId(URI.create(name + '(' + uriHelper.buildKeyPredicate(entityType, entity) + ')'));
+        final String id = new UriHelperImpl().buildEntityId(name, entityType, entity);
+        entity.setId(URI.create(id));
+        return id;
       }
     }
     return entity.getId().toASCIIString();
   }
 
   private boolean areKeyPredicateNamesSelected(SelectOption select, EdmEntityType type) {
-    if (select == null || ExpandSelectHelper.isAll(select)) {
-      return true;
-    }
-    final Set<String> selected = ExpandSelectHelper.getSelectedPropertyNames(select.getSelectItems());
-    for (String key : type.getKeyPredicateNames()) {
-      if (!selected.contains(key)) {
-        return false;
-      }
-    }
-    return true;
+    return projections.getSelection(select, type).areKeysSelected();
   }
 
   protected void writeEntity(final ServiceMetadata metadata, final EdmEntityType entityType, final Entity entity,
@@ -399,11 +511,14 @@ public class ODataJsonSerializer extends AbstractODataSerializer {
       String name, final JsonGenerator json)
       throws IOException, SerializerException, DecoderException {
     boolean cycle = false;
+    // The id is computed at most once per entity and reused for the cycle check and the output.
+    String entityId = null;
     if (expand != null) {
       if (ancestors == null) {
         ancestors = new HashSet<String>();
       }
-      cycle = !ancestors.add(getEntityId(entity, entityType, name));
+      entityId = getEntityId(entity, entityType, name);
+      cycle = !ancestors.add(entityId);
     }
     try {
       json.writeStartObject();
@@ -432,14 +547,16 @@ public class ODataJsonSerializer extends AbstractODataSerializer {
         }
       }
       if (cycle || onlyReference) {
-        json.writeStringField(constants.getId(), getEntityId(entity, entityType, name));
+        json.writeStringField(constants.getId(),
+            entityId == null ? getEntityId(entity, entityType, name) : entityId);
       } else {
         final EdmEntityType resolvedType = resolveEntityType(metadata, entityType, entity.getType());
         if ((!isODataMetadataNone && !resolvedType.equals(entityType)) || isODataMetadataFull) {
           json.writeStringField(constants.getType(), "#" + entity.getType());
         }
         if ((!isODataMetadataNone && !areKeyPredicateNamesSelected(select, resolvedType)) || isODataMetadataFull) {
-          json.writeStringField(constants.getId(), getEntityId(entity, resolvedType, name));
+          json.writeStringField(constants.getId(),
+              entityId == null ? getEntityId(entity, resolvedType, name) : entityId);
         }
         
         if (isODataMetadataFull) {
@@ -458,7 +575,7 @@ public class ODataJsonSerializer extends AbstractODataSerializer {
       json.writeEndObject();
     } finally {
       if (expand != null && !cycle && ancestors != null) {
-        ancestors.remove(getEntityId(entity, entityType, name));
+        ancestors.remove(entityId);
       }
     }
   }
@@ -527,30 +644,13 @@ public class ODataJsonSerializer extends AbstractODataSerializer {
       final List<Property> properties,
       final SelectOption select, final JsonGenerator json, Linked linked, ExpandOption expand)
       throws IOException, SerializerException {
-    final boolean all = ExpandSelectHelper.isAll(select);
-    final Set<String> selected = all ? new HashSet<String>() :
-        ExpandSelectHelper.getSelectedPropertyNames(select.getSelectItems());
-    addKeyPropertiesToSelected(selected, type);
-    Set<List<String>> expandedPaths = ExpandSelectHelper.getExpandedItemsPath(expand);
-    for (final String propertyName : type.getPropertyNames()) {
-      if (all || selected.contains(propertyName)) {
-        final EdmProperty edmProperty = type.getStructuralProperty(propertyName);
-        final Property property = findProperty(propertyName, properties);
-        final Set<List<String>> selectedPaths = all || edmProperty.isPrimitive() ? null :
-            ExpandSelectHelper.getSelectedPaths(select.getSelectItems(), propertyName);
-        writeProperty(metadata, edmProperty, property, selectedPaths, json, expandedPaths, linked, expand);
-      }
-    }
-  }
-  
-  private void addKeyPropertiesToSelected(Set<String> selected, EdmStructuredType type) {
-    if (!selected.isEmpty() && type instanceof EdmEntityType) {
-      List<String> keyNames = ((EdmEntityType) type).getKeyPredicateNames();
-      for (String key : keyNames) {
-        if (!selected.contains(key)) {
-          selected.add(key);
-        }
-      }
+    final Selection selection = projections.getSelection(select, type);
+    final Set<List<String>> expandedPaths = projections.getExpandedItemsPath(expand);
+    for (final EdmProperty edmProperty : selection.getProperties()) {
+      final String propertyName = edmProperty.getName();
+      final Property property = findProperty(propertyName, properties);
+      writeProperty(metadata, edmProperty, property, selection.getSelectedPaths(propertyName),
+          json, expandedPaths, linked, expand);
     }
   }
 
@@ -571,10 +671,10 @@ public class ODataJsonSerializer extends AbstractODataSerializer {
       }
     }
     if ((toDepth != null && toDepth > 1) || (toDepth == null && ExpandSelectHelper.hasExpand(expand))) {
-      final ExpandItem expandAll = ExpandSelectHelper.getExpandAll(expand);
+      final Navigation navigation = projections.getNavigation(expand, type, name);
+      final ExpandItem expandAll = navigation.getExpandAll();
       for (final String propertyName : type.getNavigationPropertyNames()) {
-        final ExpandItem innerOptions = ExpandSelectHelper.getExpandItemBasedOnType(expand.getExpandItems(), 
-            propertyName, type, name);
+        final ExpandItem innerOptions = navigation.getExpandItem(propertyName);
         if (innerOptions != null || expandAll != null || toDepth != null) {
           Integer levels = null;
           final EdmNavigationProperty property = type.getNavigationProperty(propertyName);
@@ -583,12 +683,11 @@ public class ODataJsonSerializer extends AbstractODataSerializer {
           LevelsExpandOption levelsOption = null;
           if (innerOptions != null) {
             levelsOption = innerOptions.getLevelsOption();
-            childExpand = levelsOption == null ? innerOptions.getExpandOption() : new ExpandOptionImpl().addExpandItem(
-                innerOptions);
+            childExpand = navigation.getChildExpand(propertyName);
           } else if (expandAll != null) {
             levels = 1;
             levelsOption = expandAll.getLevelsOption();
-            childExpand = new ExpandOptionImpl().addExpandItem(expandAll);
+            childExpand = navigation.getChildExpand(propertyName);
           }
 
           if (levelsOption != null) { 
@@ -655,14 +754,15 @@ public class ODataJsonSerializer extends AbstractODataSerializer {
       String name, final JsonGenerator json) throws IOException, SerializerException, DecoderException {
 
     if (property.isCollection()) {
+      final AbstractEntityCollection inlineEntities = getInlineEntities(navigationLink);
       if (writeOnlyCount) {
-        if (navigationLink == null || navigationLink.getInlineEntitySet() == null) {
+        if (inlineEntities == null) {
           writeInlineCount(property.getName(), 0, json);
         } else {
-          writeInlineCount(property.getName(), navigationLink.getInlineEntitySet().getCount(), json);
+          writeInlineCount(property.getName(), inlineEntities.getCount(), json);
         }
       } else {
-        if (navigationLink == null || navigationLink.getInlineEntitySet() == null) {
+        if (inlineEntities == null) {
           if (innerCount != null && innerCount.getValue()) {
             writeInlineCount(property.getName(), 0, json);
           }
@@ -671,10 +771,10 @@ public class ODataJsonSerializer extends AbstractODataSerializer {
           json.writeEndArray();
         } else {
           if (innerCount != null && innerCount.getValue()) {
-            writeInlineCount(property.getName(), navigationLink.getInlineEntitySet().getCount(), json);
+            writeInlineCount(property.getName(), inlineEntities.getCount(), json);
           }
           json.writeFieldName(property.getName());
-          writeEntitySet(metadata, property.getType(), navigationLink.getInlineEntitySet(), innerExpand, toDepth,
+          writeEntitySet(metadata, property.getType(), inlineEntities, innerExpand, toDepth,
               innerSelect, writeOnlyRef, ancestors, name, json);
         }
       }
@@ -934,6 +1034,9 @@ public class ODataJsonSerializer extends AbstractODataSerializer {
   protected void writePrimitiveValue(final String name, final EdmPrimitiveType type, final Object primitiveValue,
       final Boolean isNullable, final Integer maxLength, final Integer precision, final Integer scale,
       final Boolean isUnicode, final JsonGenerator json) throws EdmPrimitiveTypeException, IOException {
+    if (primitiveValue != null && primitiveWriter.write(type, primitiveValue, precision, scale, json)) {
+      return;
+    }
     final String value = type.valueToString(primitiveValue,
         isNullable, maxLength, precision, scale, isUnicode);
     if (value == null) {
@@ -1109,12 +1212,7 @@ public class ODataJsonSerializer extends AbstractODataSerializer {
     
 
   private Property findProperty(final String propertyName, final List<Property> properties) {
-    for (final Property property : properties) {
-      if (propertyName.equals(property.getName())) {
-        return property;
-      }
-    }
-    return null;
+    return PropertyList.find(properties, propertyName);
   }
 
   @Override
@@ -0,0 +1,237 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.core.serializer.utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.olingo.commons.api.edm.EdmEntityType;
+import org.apache.olingo.commons.api.edm.EdmProperty;
+import org.apache.olingo.commons.api.edm.EdmStructuredType;
+import org.apache.olingo.server.api.uri.queryoption.ExpandItem;
+import org.apache.olingo.server.api.uri.queryoption.ExpandOption;
+import org.apache.olingo.server.api.uri.queryoption.SelectOption;
+import org.apache.olingo.server.core.uri.queryoption.ExpandOptionImpl;
+
+/**
+ * Evaluates $select and $expand options once per structured type and keeps the results,
+ * so that serializers can reuse them for every entity instead of evaluating the options again.
+ * <br/>Options are identified by object identity; the results are immutable.
+ * The number of kept results is bounded, so a serializer instance can be used for many requests.
+ */
+public class ExpandSelectProjections {
+
+  private static final int MAX_ENTRIES = 64;
+
+  private final Map<Key, Selection> selections = new HashMap<Key, Selection>();
+  private final Map<Key, Navigation> navigations = new HashMap<Key, Navigation>();
+  private final Map<Key, Set<List<String>>> expandedPaths = new HashMap<Key, Set<List<String>>>();
+
+  /**
+   * Gets the selected structural properties of a type.
+   * @param select the select option, may be <code>null</code>
+   * @param type the structured type
+   */
+  public synchronized Selection getSelection(final SelectOption select, final EdmStructuredType type) {
+    final Key key = new Key(select, type, null);
+    Selection selection = selections.get(key);
+    if (selection == null) {
+      selection = new Selection(select, type);
+      put(selections, key, selection);
+    }
+    return selection;
+  }
+
+  /**
+   * Gets the expanded navigation properties of a type.
+   * @param expand the expand option
+   * @param type the structured type
+   * @param name the name of the resource the entities belong to, used for type-specific expand items
+   */
+  public synchronized Navigation getNavigation(final ExpandOption expand, final EdmStructuredType type,
+      final String name) {
+    final Key key = new Key(expand, type, name);
+    Navigation navigation = navigations.get(key);
+    if (navigation == null) {
+      navigation = new Navigation(expand, type, name);
+      put(navigations, key, navigation);
+    }
+    return navigation;
+  }
+
+  /**
+   * Gets the paths of the expand items that start with a complex property
+   * (see {@link ExpandSelectHelper#getExpandedItemsPath(ExpandOption)}).
+   * @param expand the expand option, may be <code>null</code>
+   */
+  public synchronized Set<List<String>> getExpandedItemsPath(final ExpandOption expand) {
+    final Key key = new Key(expand, null, null);
+    Set<List<String>> paths = expandedPaths.get(key);
+    if (paths == null) {
+      paths = Collections.unmodifiableSet(ExpandSelectHelper.getExpandedItemsPath(expand));
+      put(expandedPaths, key, paths);
+    }
+    return paths;
+  }
+
+  private static <V> void put(final Map<Key, V> map, final Key key, final V value) {
+    if (map.size() >= MAX_ENTRIES) {
+      map.clear();
+    }
+    map.put(key, value);
+  }
+
+  /** The structural properties of a type selected by a select option. */
+  public static final class Selection {
+    private final boolean all;
+    private final boolean keysSelected;
+    private final List<EdmProperty> properties;
+    private final Map<String, Set<List<String>>> selectedPaths;
+
+    private Selection(final SelectOption select, final EdmStructuredType type) {
+      all = ExpandSelectHelper.isAll(select);
+      final Set<String> selected = all ? new HashSet<String>() :
+          ExpandSelectHelper.getSelectedPropertyNames(select.getSelectItems());
+      boolean allKeys = true;
+      if (type instanceof EdmEntityType) {
+        for (final String key : ((EdmEntityType) type).getKeyPredicateNames()) {
+          allKeys &= all || selected.contains(key);
+          // Key properties are always written if there is a selection.
+          if (!selected.isEmpty()) {
+            selected.add(key);
+          }
+        }
+      }
+      keysSelected = allKeys;
+      List<EdmProperty> selectedProperties = new ArrayList<EdmProperty>();
+      Map<String, Set<List<String>>> paths = new HashMap<String, Set<List<String>>>();
+      for (final String propertyName : type.getPropertyNames()) {
+        if (all || selected.contains(propertyName)) {
+          final EdmProperty edmProperty = type.getStructuralProperty(propertyName);
+          selectedProperties.add(edmProperty);
+          if (!all && !edmProperty.isPrimitive()) {
+            final Set<List<String>> propertyPaths =
+                ExpandSelectHelper.getSelectedPaths(select.getSelectItems(), propertyName);
+            if (propertyPaths != null) {
+              paths.put(propertyName, Collections.unmodifiableSet(propertyPaths));
+            }
+          }
+        }
+      }
+      properties = Collections.unmodifiableList(selectedProperties);
+      selectedPaths = paths;
+    }
+
+    /** Returns whether all properties are selected. */
+    public boolean isAll() {
+      return all;
+    }
+
+    /** Returns whether all key properties have been selected explicitly (or all properties are selected). */
+    public boolean areKeysSelected() {
+      return keysSelected;
+    }
+
+    /** Gets the structural properties to be written, in the order of their definition in the type. */
+    public List<EdmProperty> getProperties() {
+      return properties;
+    }
+
+    /**
+     * Gets the selected paths within a complex property
+     * (see {@link ExpandSelectHelper#getSelectedPaths(List, String)}).
+     * @return the paths or <code>null</code> if the complex property is selected as a whole
+     */
+    public Set<List<String>> getSelectedPaths(final String propertyName) {
+      return selectedPaths.get(propertyName);
+    }
+  }
+
+  /** The navigation properties of a type expanded by an expand option. */
+  public static final class Navigation {
+    private final ExpandItem expandAll;
+    private final Map<String, ExpandItem> expandItems = new HashMap<String, ExpandItem>();
+    private final Map<String, ExpandOption> childExpands = new HashMap<String, ExpandOption>();
+
+    private Navigation(final ExpandOption expand, final EdmStructuredType type, final String name) {
+      expandAll = ExpandSelectHelper.getExpandAll(expand);
+      final ExpandOption childExpandAll = expandAll == null ? null : new ExpandOptionImpl().addExpandItem(expandAll);
+      for (final String propertyName : type.getNavigationPropertyNames()) {
+        final ExpandItem item = ExpandSelectHelper.getExpandItemBasedOnType(expand.getExpandItems(),
+            propertyName, type, name);
+        if (item != null) {
+          expandItems.put(propertyName, item);
+          childExpands.put(propertyName, item.getLevelsOption() == null ? item.getExpandOption() :
+              new ExpandOptionImpl().addExpandItem(item));
+        } else if (childExpandAll != null) {
+          childExpands.put(propertyName, childExpandAll);
+        }
+      }
+    }
+
+    /** Gets the expand item with the star, if any. */
+    public ExpandItem getExpandAll() {
+      return expandAll;
+    }
+
+    /** Gets the expand item for the navigation property, if any. */
+    public ExpandItem getExpandItem(final String propertyName) {
+      return expandItems.get(propertyName);
+    }
+
+    /** Gets the expand option to be applied to the entities of the expanded navigation property. */
+    public ExpandOption getChildExpand(final String propertyName) {
+      return childExpands.get(propertyName);
+    }
+  }
+
+  /** Key with object identity for the option and the type and equality for the name. */
+  private static final class Key {
+    private final Object option;
+    private final Object type;
+    private final String name;
+
+    private Key(final Object option, final Object type, final String name) {
+      this.option = option;
+      this.type = type;
+      this.name = name;
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+      if (!(obj instanceof Key)) {
+        return false;
+      }
+      final Key other = (Key) obj;
+      return option == other.option && type == other.type
+          && (name == null ? other.name == null : name.equals(other.name));
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * (31 * System.identityHashCode(option) + System.identityHashCode(type))
+          + (name == null ? 0 : name.hashCode());
+    }
+  }
+}
@@ -42,6 +42,7 @@ import org.apache.olingo.commons.api.data.Link;
 import org.apache.olingo.commons.api.data.Linked;
 import org.apache.olingo.commons.api.data.Operation;
 import org.apache.olingo.commons.api.data.Property;
+import org.apache.olingo.commons.api.data.PropertyList;
 import org.apache.olingo.commons.api.edm.EdmComplexType;
 import org.apache.olingo.commons.api.edm.EdmEntitySet;
 import org.apache.olingo.commons.api.edm.EdmEntityType;
@@ -68,7 +69,6 @@ import org.apache.olingo.server.api.serializer.ReferenceSerializerOptions;
 import org.apache.olingo.server.api.serializer.SerializerException;
 import org.apache.olingo.server.api.serializer.SerializerResult;
 import org.apache.olingo.server.api.serializer.SerializerStreamResult;
-import org.apache.olingo.server.api.uri.UriHelper;
 import org.apache.olingo.server.api.uri.queryoption.CountOption;
 import org.apache.olingo.server.api.uri.queryoption.ExpandItem;
 import org.apache.olingo.server.api.uri.queryoption.ExpandOption;
@@ -80,8 +80,10 @@ import org.apache.olingo.server.core.serializer.SerializerResultImpl;
 import org.apache.olingo.server.core.serializer.utils.CircleStreamBuffer;
 import org.apache.olingo.server.core.serializer.utils.ContextURLBuilder;
 import org.apache.olingo.server.core.serializer.utils.ExpandSelectHelper;
+import org.apache.olingo.server.core.serializer.utils.ExpandSelectProjections;
+import org.apache.olingo.server.core.serializer.utils.ExpandSelectProjections.Navigation;
+import org.apache.olingo.server.core.serializer.utils.ExpandSelectProjections.Selection;
 import org.apache.olingo.server.core.uri.UriHelperImpl;
-import org.apache.olingo.server.core.uri.queryoption.ExpandOptionImpl;
 
 public class ODataXmlSerializer extends AbstractODataSerializer {
 
@@ -93,6 +95,8 @@ public class ODataXmlSerializer extends AbstractODataSerializer {
   private static final String DATA = Constants.PREFIX_DATASERVICES;
   private static final String NS_DATA = Constants.NS_DATASERVICES;
 
+  private final ExpandSelectProjections projections = new ExpandSelectProjections();
+
   @Override
   public SerializerResult serviceDocument(final ServiceMetadata metadata, final String serviceRoot)
       throws SerializerException {
@@ -435,8 +439,9 @@ public class ODataXmlSerializer extends AbstractODataSerializer {
           || name == null)) {
         throw new SerializerException("Entity id is null.", SerializerException.MessageKeys.MISSING_ID);
       }else{
-        final UriHelper uriHelper = new UriHelperImpl(); 
-        entity.setId(URI.create(name + '(' + uriHelper.buildKeyPredicate(entityType, entity) + ')'));
+        final String id = new UriHelperImpl().buildEntityId(name, entityType, entity);
+        entity.setId(URI.create(id));
+        return id;
       }
     }
     return entity.getId().toASCIIString();
@@ -449,11 +454,14 @@ public class ODataXmlSerializer extends AbstractODataSerializer {
       final XMLStreamWriter writer, final boolean top, final boolean writeOnlyRef,String name,  Set<String> ancestors)
       throws XMLStreamException, SerializerException {
     boolean cycle = false;
+    // The id is computed at most once per entity and reused for the cycle check and the output.
+    String entityId = null;
     if (expand != null) {
       if (ancestors == null) {
         ancestors = new HashSet<String>();
       }
-      cycle = !ancestors.add(getEntityId(entity, entityType, name));
+      entityId = getEntityId(entity, entityType, name);
+      cycle = !ancestors.add(entityId);
     }
 
     if (cycle || writeOnlyRef) {
@@ -477,18 +485,20 @@ public class ODataXmlSerializer extends AbstractODataSerializer {
         writer.writeAttribute(METADATA, NS_METADATA, Constants.ATOM_ATTR_ETAG, entity.getETag());
       }
   
-      if (entity.getId() != null) {
+      final String id = entityId != null ? entityId
+          : entity.getId() == null ? null : entity.getId().toASCIIString();
+      if (id != null) {
         writer.writeStartElement(NS_ATOM, Constants.ATOM_ELEM_ID);
-        writer.writeCharacters(entity.getId().toASCIIString());
+        writer.writeCharacters(id);
         writer.writeEndElement();
       }
   
       writerAuthorInfo(entity.getTitle(), writer);
   
-      if (entity.getId() != null) {
+      if (id != null) {
         writer.writeStartElement(NS_ATOM, Constants.ATOM_ELEM_LINK);
         writer.writeAttribute(Constants.ATTR_REL, Constants.EDIT_LINK_REL);
-        writer.writeAttribute(Constants.ATTR_HREF, entity.getId().toASCIIString());
+        writer.writeAttribute(Constants.ATTR_HREF, id);
         writer.writeEndElement();
       }
   
@@ -498,7 +508,6 @@ public class ODataXmlSerializer extends AbstractODataSerializer {
         if (entity.getMediaContentSource() != null) {
           writer.writeAttribute(Constants.ATOM_ATTR_SRC, entity.getMediaContentSource().toString());
         } else {
-          String id = entity.getId().toASCIIString();
           writer.writeAttribute(Constants.ATOM_ATTR_SRC,
               id + (id.endsWith("/") ? "" : "/") + "$value");
         }
@@ -540,7 +549,7 @@ public class ODataXmlSerializer extends AbstractODataSerializer {
       writer.writeEndElement(); // entry
     } finally {
       if (!cycle && ancestors != null) {
-        ancestors.remove(getEntityId(entity, entityType, name));
+        ancestors.remove(entityId != null ? entityId : getEntityId(entity, entityType, name));
       }
     }
   }
@@ -629,31 +638,13 @@ public class ODataXmlSerializer extends AbstractODataSerializer {
       final List<Property> properties, final SelectOption select, final String xml10InvalidCharReplacement, 
       final XMLStreamWriter writer, Linked linked, ExpandOption expand) 
           throws XMLStreamException, SerializerException {
-    final boolean all = ExpandSelectHelper.isAll(select);
-    final Set<String> selected = all ? new HashSet<String>() :
-        ExpandSelectHelper.getSelectedPropertyNames(select.getSelectItems());
-    addKeyPropertiesToSelected(selected, type);
-    Set<List<String>> expandedPaths = ExpandSelectHelper.getExpandedItemsPath(expand);
-    for (final String propertyName : type.getPropertyNames()) {
-      if (all || selected.contains(propertyName)) {
-        final EdmProperty edmProperty = type.getStructuralProperty(propertyName);
-        final Property property = findProperty(propertyName, properties);
-        final Set<List<String>> selectedPaths = all || edmProperty.isPrimitive() ? null :
-            ExpandSelectHelper.getSelectedPaths(select.getSelectItems(), propertyName);
-        writeProperty(metadata, edmProperty, property, selectedPaths, 
-            xml10InvalidCharReplacement, writer, expandedPaths, linked, expand);
-      }
-    }
-  }
-
-  private void addKeyPropertiesToSelected(Set<String> selected, EdmStructuredType type) {
-    if (!selected.isEmpty() && type instanceof EdmEntityType) {
-      List<String> keyNames = ((EdmEntityType) type).getKeyPredicateNames();
-      for (String key : keyNames) {
-        if (!selected.contains(key)) {
-          selected.add(key);
-        }
-      }
+    final Selection selection = projections.getSelection(select, type);
+    final Set<List<String>> expandedPaths = projections.getExpandedItemsPath(expand);
+    for (final EdmProperty edmProperty : selection.getProperties()) {
+      final String propertyName = edmProperty.getName();
+      final Property property = findProperty(propertyName, properties);
+      writeProperty(metadata, edmProperty, property, selection.getSelectedPaths(propertyName),
+          xml10InvalidCharReplacement, writer, expandedPaths, linked, expand);
     }
   }
   
@@ -662,10 +653,10 @@ public class ODataXmlSerializer extends AbstractODataSerializer {
       final String xml10InvalidCharReplacement, final Set<String> ancestors, String name, final XMLStreamWriter writer) 
           throws SerializerException, XMLStreamException {
     if ((toDepth != null && toDepth > 1) || (toDepth == null && ExpandSelectHelper.hasExpand(expand))) {
-      final ExpandItem expandAll = ExpandSelectHelper.getExpandAll(expand);
+      final Navigation navigation = projections.getNavigation(expand, type, name);
+      final ExpandItem expandAll = navigation.getExpandAll();
       for (final String propertyName : type.getNavigationPropertyNames()) {
-        final ExpandItem innerOptions = ExpandSelectHelper.getExpandItemBasedOnType(expand.getExpandItems(), 
-            propertyName, type, name);
+        final ExpandItem innerOptions = navigation.getExpandItem(propertyName);
         if (expandAll != null || innerOptions != null || toDepth != null) {
           Integer levels = null;
           final EdmNavigationProperty property = type.getNavigationProperty(propertyName);
@@ -674,12 +665,11 @@ public class ODataXmlSerializer extends AbstractODataSerializer {
           LevelsExpandOption levelsOption = null;
           if (innerOptions != null) {
             levelsOption = innerOptions.getLevelsOption();
-            childExpand = levelsOption == null ? innerOptions.getExpandOption() :
-              new ExpandOptionImpl().addExpandItem(innerOptions);
+            childExpand = navigation.getChildExpand(propertyName);
           } else if (expandAll != null) {
             levels = 1;
             levelsOption = expandAll.getLevelsOption();
-            childExpand = new ExpandOptionImpl().addExpandItem(expandAll);
+            childExpand = navigation.getChildExpand(propertyName);
           } 
           
           if (levelsOption != null) {
@@ -762,15 +752,16 @@ public class ODataXmlSerializer extends AbstractODataSerializer {
       final Set<String> ancestors, String name,
       final XMLStreamWriter writer) throws XMLStreamException, SerializerException {
     if (property.isCollection()) {
-      if (navigationLink != null && navigationLink.getInlineEntitySet() != null) {
+      final AbstractEntityCollection inlineEntities = getInlineEntities(navigationLink);
+      if (inlineEntities != null) {
         writer.writeStartElement(ATOM, Constants.ATOM_ELEM_FEED, NS_ATOM);
         if (writeNavigationCount) {
-          writeCount(navigationLink.getInlineEntitySet(), writer);
+          writeCount(inlineEntities, writer);
         } else {
           if (coutOption != null && coutOption.getValue()) {
-            writeCount(navigationLink.getInlineEntitySet(), writer);
+            writeCount(inlineEntities, writer);
           }
-          writeEntitySet(metadata, property.getType(), navigationLink.getInlineEntitySet(), innerExpand, toDepth,
+          writeEntitySet(metadata, property.getType(), inlineEntities, innerExpand, toDepth,
               innerSelect, xml10InvalidCharReplacement, writer, writeOnlyRef, name, ancestors);
         }
         writer.writeEndElement();
@@ -1031,12 +1022,7 @@ public class ODataXmlSerializer extends AbstractODataSerializer {
   }
 
   private Property findProperty(final String propertyName, final List<Property> properties) {
-    for (final Property property : properties) {
-      if (propertyName.equals(property.getName())) {
-        return property;
-      }
-    }
-    return null;
+    return PropertyList.find(properties, propertyName);
   }
 
   @Override
@@ -22,15 +22,18 @@ import java.util.List;
 
 import org.apache.olingo.commons.api.data.Entity;
 import org.apache.olingo.commons.api.data.Property;
+import org.apache.olingo.commons.api.data.PropertyList;
 import org.apache.olingo.commons.api.edm.Edm;
 import org.apache.olingo.commons.api.edm.EdmEntitySet;
 import org.apache.olingo.commons.api.edm.EdmEntityType;
 import org.apache.olingo.commons.api.edm.EdmKeyPropertyRef;
 import org.apache.olingo.commons.api.edm.EdmPrimitiveType;
 import org.apache.olingo.commons.api.edm.EdmPrimitiveTypeException;
+import org.apache.olingo.commons.api.edm.EdmPrimitiveTypeKind;
 import org.apache.olingo.commons.api.edm.EdmProperty;
 import org.apache.olingo.commons.api.edm.EdmStructuredType;
 import org.apache.olingo.commons.core.Encoder;
+import org.apache.olingo.commons.core.edm.primitivetype.EdmPrimitiveTypeFactory;
 import org.apache.olingo.server.api.ODataLibraryException;
 import org.apache.olingo.server.api.deserializer.DeserializerException;
 import org.apache.olingo.server.api.deserializer.DeserializerException.MessageKeys;
@@ -61,12 +64,37 @@ public class UriHelperImpl implements UriHelper {
 
   @Override
   public String buildCanonicalURL(final EdmEntitySet edmEntitySet, final Entity entity) throws SerializerException {
-    return edmEntitySet.getName() + '(' + buildKeyPredicate(edmEntitySet.getEntityType(), entity) + ')';
+    return buildEntityId(edmEntitySet.getName(), edmEntitySet.getEntityType(), entity);
+  }
+
+  /**
+   * Builds the entity id in the form <code>name(key predicate)</code>, e.g., <code>ESAllPrim(1)</code>.
+   * @param name the name of the entity set (or the path to it)
+   * @param edmEntityType the type of the entity
+   * @param entity the entity
+   */
+  public String buildEntityId(final String name, final EdmEntityType edmEntityType, final Entity entity)
+      throws SerializerException {
+    final StringBuilder result = new StringBuilder(name.length() + 16);
+    result.append(name).append('(');
+    appendKeyPredicate(result, edmEntityType, entity);
+    return result.append(')').toString();
   }
 
   @Override
   public String buildKeyPredicate(final EdmEntityType edmEntityType, final Entity entity) throws SerializerException {
     StringBuilder result = new StringBuilder();
+    appendKeyPredicate(result, edmEntityType, entity);
+    return result.toString();
+  }
+
+  /**
+   * Appends the key predicate of the entity to the given buffer.
+   * Integer key values, the most common ones, are appended directly;
+   * all other values are formatted by their primitive type.
+   */
+  public void appendKeyPredicate(final StringBuilder result, final EdmEntityType edmEntityType, final Entity entity)
+      throws SerializerException {
     final List<String> keyNames = edmEntityType.getKeyPredicateNames();
     boolean first = true;
     for (final String keyName : keyNames) {
@@ -86,6 +114,10 @@ public class UriHelperImpl implements UriHelper {
       }
       final EdmPrimitiveType type = (EdmPrimitiveType) edmProperty.getType();
       final Object propertyValue = findPropertyRefValue(entity, refType);
+      if (isIntegerValue(type, propertyValue)) {
+        result.append(((Number) propertyValue).longValue());
+        continue;
+      }
       try {
         final String value = type.toUriLiteral(
             type.valueToString(propertyValue,
@@ -98,9 +130,23 @@ public class UriHelperImpl implements UriHelper {
             propertyValue != null ? propertyValue.toString(): null);
       }
     }
-    return result.toString();
   }
-  
+
+  /**
+   * Determines whether the value can be appended as is, i.e., whether it is an integer value
+   * of the same or a smaller size than the type.
+   */
+  private boolean isIntegerValue(final EdmPrimitiveType type, final Object value) {
+    return value instanceof Integer
+        && (type == EdmPrimitiveTypeFactory.getInstance(EdmPrimitiveTypeKind.Int32)
+            || type == EdmPrimitiveTypeFactory.getInstance(EdmPrimitiveTypeKind.Int64))
+        || value instanceof Long && type == EdmPrimitiveTypeFactory.getInstance(EdmPrimitiveTypeKind.Int64)
+        || value instanceof Short
+        && (type == EdmPrimitiveTypeFactory.getInstance(EdmPrimitiveTypeKind.Int16)
+            || type == EdmPrimitiveTypeFactory.getInstance(EdmPrimitiveTypeKind.Int32)
+            || type == EdmPrimitiveTypeFactory.getInstance(EdmPrimitiveTypeKind.Int64));
+  }
+
   private Object findPropertyRefValue(Entity entity, EdmKeyPropertyRef refType) throws SerializerException {
     final int INDEX_ERROR_CODE = -1;
     final String propertyPath = refType.getName();
@@ -131,12 +177,7 @@ public class UriHelperImpl implements UriHelper {
   }
 
   private Property findProperty(final String propertyName, final List<Property> properties) {
-    for (final Property property : properties) {
-      if (propertyName.equals(property.getName())) {
-        return property;
-      }
-    }
-    return null;
+    return PropertyList.find(properties, propertyName);
   }
   
   @Override
@@ -0,0 +1,196 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.olingo.commons.api.data.DeletedEntity.Reason;
+import org.apache.olingo.commons.api.data.Delta;
+import org.apache.olingo.commons.api.data.Entity;
+import org.junit.Test;
+
+public class ChangeLogTest {
+
+  private static final String ES = "ESAllPrim";
+  private static final URI ID_1 = URI.create("ESAllPrim(1)");
+  private static final URI ID_2 = URI.create("ESAllPrim(2)");
+  private static final URI ID_3 = URI.create("ESAllPrim(3)");
+
+  private final Map<URI, Entity> entities = new HashMap<URI, Entity>();
+  private final ChangeLog.EntityResolver resolver = new ChangeLog.EntityResolver() {
+    @Override
+    public Entity resolve(final String entitySetName, final URI id) {
+      return entities.get(id);
+    }
+  };
+
+  @Test
+  public void changes() throws Exception {
+    ChangeLog changeLog = new ChangeLog(10);
+    final String token = changeLog.getCurrentToken();
+    assertEquals(0, count(changeLog.getDelta(ES, token, resolver)));
+
+    changeLog.entityChanged(ES, createEntity(ID_1));
+    changeLog.entityDeleted(ES, ID_2, null);
+    changeLog.entityDeleted(ES, ID_3, Reason.changed);
+    changeLog.linkAdded(ES, ID_1, "NavPropertyETTwoPrimOne", URI.create("ESTwoPrim(1)"));
+    changeLog.linkDeleted(ES, ID_1, "NavPropertyETTwoPrimMany", URI.create("ESTwoPrim(2)"));
+    changeLog.entityChanged("ESTwoPrim", URI.create("ESTwoPrim(1)"));
+
+    Delta delta = changeLog.getDelta(ES, token, resolver);
+    assertEquals(1, delta.getEntities().size());
+    assertEquals(entities.get(ID_1), delta.getEntities().get(0));
+    assertEquals(2, delta.getDeletedEntities().size());
+    assertEquals(ID_2, delta.getDeletedEntities().get(0).getId());
+    assertEquals(Reason.deleted, delta.getDeletedEntities().get(0).getReason());
+    assertEquals(ID_3, delta.getDeletedEntities().get(1).getId());
+    assertEquals(Reason.changed, delta.getDeletedEntities().get(1).getReason());
+    assertEquals(1, delta.getAddedLinks().size());
+    assertEquals(ID_1, delta.getAddedLinks().get(0).getSource());
+    assertEquals("NavPropertyETTwoPrimOne", delta.getAddedLinks().get(0).getRelationship());
+    assertEquals(URI.create("ESTwoPrim(1)"), delta.getAddedLinks().get(0).getTarget());
+    assertEquals(1, delta.getDeletedLinks().size());
+    assertEquals(URI.create("ESTwoPrim(2)"), delta.getDeletedLinks().get(0).getTarget());
+
+    assertEquals(0, count(changeLog.getDelta(ES, changeLog.getCurrentToken(), resolver)));
+    changeLog.close();
+  }
+
+  @Test
+  public void latestChangeOnly() throws Exception {
+    ChangeLog changeLog = new ChangeLog(10);
+    final String token = changeLog.getCurrentToken();
+    changeLog.entityChanged(ES, createEntity(ID_1));
+    changeLog.entityChanged(ES, createEntity(ID_2));
+    changeLog.entityChanged(ES, ID_1);
+    changeLog.entityDeleted(ES, ID_2, Reason.deleted);
+    changeLog.linkAdded(ES, ID_1, "NavPropertyETTwoPrimOne", ID_3);
+    changeLog.linkDeleted(ES, ID_1, "NavPropertyETTwoPrimOne", ID_3);
+
+    Delta delta = changeLog.getDelta(ES, token, resolver);
+    assertEquals(1, delta.getEntities().size());
+    assertEquals(1, delta.getDeletedEntities().size());
+    assertEquals(ID_2, delta.getDeletedEntities().get(0).getId());
+    assertEquals(0, delta.getAddedLinks().size());
+    assertEquals(1, delta.getDeletedLinks().size());
+
+    // An entity changed but not found any longer has been deleted.
+    entities.remove(ID_1);
+    delta = changeLog.getDelta(ES, token, resolver);
+    assertEquals(0, delta.getEntities().size());
+    assertEquals(2, delta.getDeletedEntities().size());
+  }
+
+  @Test
+  public void invalidTokens() throws Exception {
+    ChangeLog changeLog = new ChangeLog(10);
+    final String token = changeLog.getCurrentToken();
+    assertNull(changeLog.getDelta(ES, "wrong", resolver));
+    assertNull(changeLog.getDelta(ES, String.valueOf(Long.parseLong(token) - 1), resolver));
+    assertNull(changeLog.getDelta(ES, String.valueOf(Long.parseLong(token) + 1), resolver));
+    changeLog.entityChanged(ES, createEntity(ID_1));
+    assertNotNull(changeLog.getDelta(ES, String.valueOf(Long.parseLong(token) + 1), resolver));
+  }
+
+  @Test
+  public void capacity() throws Exception {
+    ChangeLog changeLog = new ChangeLog(2);
+    final String token0 = changeLog.getCurrentToken();
+    changeLog.entityChanged(ES, createEntity(ID_1));
+    final String token1 = changeLog.getCurrentToken();
+    changeLog.entityChanged(ES, createEntity(ID_2));
+    final String token2 = changeLog.getCurrentToken();
+    changeLog.entityChanged(ES, createEntity(ID_3));
+
+    assertNull(changeLog.getDelta(ES, token0, resolver));
+    assertEquals(2, changeLog.getDelta(ES, token1, resolver).getEntities().size());
+    assertEquals(1, changeLog.getDelta(ES, token2, resolver).getEntities().size());
+    // Other entity sets are not affected.
+    assertNotNull(changeLog.getDelta("ESTwoPrim", token0, resolver));
+  }
+
+  @Test
+  public void persistence() throws Exception {
+    File file = File.createTempFile("changes", ".log");
+    assertTrue(file.delete());
+    try {
+      ChangeLog changeLog = new ChangeLog(10, file);
+      final String token = changeLog.getCurrentToken();
+      changeLog.entityChanged(ES, createEntity(ID_1));
+      changeLog.linkAdded(ES, ID_1, "NavPropertyETTwoPrimOne", ID_2);
+      final String token2 = changeLog.getCurrentToken();
+      changeLog.close();
+
+      // A line not written completely is ignored.
+      OutputStream stream = new FileOutputStream(file, true);
+      stream.write("123\tENTITY_CH".getBytes("UTF-8"));
+      stream.close();
+
+      changeLog = new ChangeLog(10, file);
+      assertEquals(token2, changeLog.getCurrentToken());
+      Delta delta = changeLog.getDelta(ES, token, resolver);
+      assertEquals(1, delta.getEntities().size());
+      assertEquals(1, delta.getAddedLinks().size());
+      changeLog.entityDeleted(ES, ID_1, null);
+      final String token3 = changeLog.getCurrentToken();
+      assertTrue(Long.parseLong(token3) > Long.parseLong(token2));
+      assertEquals(1, changeLog.getDelta(ES, token2, resolver).getDeletedEntities().size());
+      changeLog.close();
+
+      // The change recorded after the incomplete line survives the next restart; incomplete fields are rejected.
+      stream = new FileOutputStream(file, true);
+      final long next = Long.parseLong(token3) + 1;
+      stream.write((next + "\tENTITY_CHANGED\t" + ES + "\t\n").getBytes("UTF-8"));
+      stream.write((next + 1 + "\tLINK_ADDED\t" + ES + "\t" + ID_1 + "\tNavPropertyETTwoPrimOne\t\n")
+          .getBytes("UTF-8"));
+      stream.close();
+      changeLog = new ChangeLog(10, file);
+      assertEquals(token3, changeLog.getCurrentToken());
+      delta = changeLog.getDelta(ES, token2, resolver);
+      assertEquals(1, delta.getDeletedEntities().size());
+      assertEquals(ID_1, delta.getDeletedEntities().get(0).getId());
+      assertEquals(0, count(changeLog.getDelta(ES, token3, resolver)));
+      changeLog.close();
+    } finally {
+      file.delete();
+    }
+  }
+
+  private URI createEntity(final URI id) {
+    Entity entity = new Entity();
+    entity.setId(id);
+    entities.put(id, entity);
+    return id;
+  }
+
+  private int count(final Delta delta) {
+    return delta.getEntities().size() + delta.getDeletedEntities().size()
+        + delta.getAddedLinks().size() + delta.getDeletedLinks().size();
+  }
+}
@@ -0,0 +1,209 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.core;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.olingo.commons.api.http.HttpHeader;
+import org.apache.olingo.server.api.ODataRequest;
+import org.apache.olingo.server.api.ODataResponse;
+import org.junit.Test;
+
+public class ContentCompressionTest {
+
+  private static final byte[] DATA = createData(10000);
+
+  @Test
+  public void negotiate() {
+    assertNull(ContentCompression.negotiate(null));
+    assertNull(ContentCompression.negotiate(""));
+    assertNull(ContentCompression.negotiate("identity"));
+    assertNull(ContentCompression.negotiate("br"));
+    assertEquals("gzip", ContentCompression.negotiate("gzip"));
+    assertEquals("gzip", ContentCompression.negotiate("deflate, gzip"));
+    assertEquals("gzip", ContentCompression.negotiate("*"));
+    assertEquals("deflate", ContentCompression.negotiate("deflate"));
+    assertEquals("deflate", ContentCompression.negotiate("gzip;q=0.5, deflate"));
+    assertEquals("deflate", ContentCompression.negotiate("gzip;q=0, *"));
+    assertNull(ContentCompression.negotiate("gzip;q=0, deflate;q=0"));
+    assertNull(ContentCompression.negotiate("*;q=0"));
+    assertEquals("gzip", ContentCompression.negotiate("GZIP ; Q=0.8, deflate;q=0.7"));
+  }
+
+  @Test
+  public void invalidSettings() {
+    try {
+      new ContentCompression(-1, 6);
+      fail("Expected IllegalArgumentException");
+    } catch (final IllegalArgumentException e) {
+      // expected
+    }
+    try {
+      new ContentCompression(0, 10);
+      fail("Expected IllegalArgumentException");
+    } catch (final IllegalArgumentException e) {
+      // expected
+    }
+  }
+
+  @Test
+  public void decodeGzipRequest() throws Exception {
+    ODataRequest request = new ODataRequest();
+    request.setHeader(HttpHeader.CONTENT_ENCODING, "gzip");
+    request.setBody(new ByteArrayInputStream(gzip(DATA)));
+    ContentCompression.decodeRequest(request);
+    assertArrayEquals(DATA, read(request.getBody()));
+    assertNull(request.getHeader(HttpHeader.CONTENT_ENCODING));
+  }
+
+  @Test
+  public void identityRequest() throws Exception {
+    ODataRequest request = new ODataRequest();
+    request.setBody(new ByteArrayInputStream(DATA));
+    ContentCompression.decodeRequest(request);
+    assertArrayEquals(DATA, read(request.getBody()));
+  }
+
+  @Test
+  public void unsupportedRequestEncoding() throws Exception {
+    ODataRequest request = new ODataRequest();
+    request.setHeader(HttpHeader.CONTENT_ENCODING, "br");
+    request.setBody(new ByteArrayInputStream(DATA));
+    try {
+      ContentCompression.decodeRequest(request);
+      fail("Expected ODataHandlerException");
+    } catch (final ODataHandlerException e) {
+      assertEquals(ODataHandlerException.MessageKeys.UNSUPPORTED_CONTENT_ENCODING, e.getMessageKey());
+    }
+  }
+
+  @Test
+  public void smallContentIsNotCompressed() throws Exception {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    ContentCompression.CompressingOutputStream stream =
+        new ContentCompression.CompressingOutputStream(output, ContentCompression.GZIP, 6, 100);
+    stream.write(DATA, 0, 50);
+    stream.finish();
+    assertFalse(stream.isCompressing());
+    assertEquals(50, output.size());
+  }
+
+  @Test
+  public void largeContentIsCompressed() throws Exception {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    ContentCompression.CompressingOutputStream stream =
+        new ContentCompression.CompressingOutputStream(output, ContentCompression.DEFLATE, 9, 100);
+    for (int i = 0; i < DATA.length; i += 10) {
+      stream.write(DATA, i, 10);
+    }
+    stream.finish();
+    assertTrue(stream.isCompressing());
+    assertTrue(output.size() < DATA.length);
+    assertArrayEquals(DATA, read(new InflaterInputStream(new ByteArrayInputStream(output.toByteArray()))));
+  }
+
+  @Test
+  public void convertToHttpWithCompression() throws Exception {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    HttpServletResponse servletResponse = mockResponse(output);
+    ODataResponse response = new ODataResponse();
+    response.setStatusCode(200);
+    response.setHeader(HttpHeader.CONTENT_LENGTH, Integer.toString(DATA.length));
+    response.setContent(new ByteArrayInputStream(DATA));
+
+    ODataHttpHandlerImpl.convertToHttp(servletResponse, response, new ContentCompression(1024, -1), "gzip");
+
+    verify(servletResponse).setHeader(HttpHeader.CONTENT_ENCODING, "gzip");
+    verify(servletResponse).addHeader(HttpHeader.VARY, HttpHeader.ACCEPT_ENCODING);
+    verify(servletResponse, never()).addHeader(HttpHeader.CONTENT_LENGTH, Integer.toString(DATA.length));
+    assertArrayEquals(DATA, read(new GZIPInputStream(new ByteArrayInputStream(output.toByteArray()))));
+  }
+
+  @Test
+  public void convertToHttpBelowMinimumSize() throws Exception {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    HttpServletResponse servletResponse = mockResponse(output);
+    ODataResponse response = new ODataResponse();
+    response.setStatusCode(200);
+    response.setContent(new ByteArrayInputStream(DATA));
+
+    ODataHttpHandlerImpl.convertToHttp(servletResponse, response, new ContentCompression(20000, -1), "gzip");
+
+    verify(servletResponse, never()).setHeader(HttpHeader.CONTENT_ENCODING, "gzip");
+    verify(servletResponse).addHeader(HttpHeader.VARY, HttpHeader.ACCEPT_ENCODING);
+    assertArrayEquals(DATA, output.toByteArray());
+  }
+
+  private static HttpServletResponse mockResponse(final ByteArrayOutputStream output) throws IOException {
+    HttpServletResponse servletResponse = mock(HttpServletResponse.class);
+    when(servletResponse.getOutputStream()).thenReturn(new ServletOutputStream() {
+      @Override
+      public void write(final int b) throws IOException {
+        output.write(b);
+      }
+    });
+    return servletResponse;
+  }
+
+  private static byte[] createData(final int length) {
+    final byte[] data = new byte[length];
+    for (int i = 0; i < length; i++) {
+      data[i] = (byte) ('a' + i % 7);
+    }
+    return data;
+  }
+
+  private static byte[] gzip(final byte[] data) throws IOException {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    GZIPOutputStream gzip = new GZIPOutputStream(output);
+    gzip.write(data);
+    gzip.close();
+    return output.toByteArray();
+  }
+
+  private static byte[] read(final InputStream input) throws IOException {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    byte[] buffer = new byte[1024];
+    int count;
+    while ((count = input.read(buffer)) > 0) {
+      output.write(buffer, 0, count);
+    }
+    return output.toByteArray();
+  }
+}
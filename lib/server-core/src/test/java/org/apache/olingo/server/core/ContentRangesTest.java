@@ -0,0 +1,177 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.olingo.commons.api.http.HttpHeader;
+import org.apache.olingo.commons.api.http.HttpMethod;
+import org.apache.olingo.commons.api.http.HttpStatusCode;
+import org.apache.olingo.server.api.ODataMediaContent;
+import org.apache.olingo.server.api.ODataRequest;
+import org.apache.olingo.server.api.ODataResponse;
+import org.junit.Test;
+
+public class ContentRangesTest {
+
+  private static final String DATA = "0123456789";
+
+  @Test
+  public void noRange() throws Exception {
+    final ODataResponse response = apply(null, null);
+    assertEquals(HttpStatusCode.OK.getStatusCode(), response.getStatusCode());
+    assertEquals("bytes", response.getHeader(HttpHeader.ACCEPT_RANGES));
+    assertEquals("10", response.getHeader(HttpHeader.CONTENT_LENGTH));
+    assertNull(response.getHeader(HttpHeader.CONTENT_RANGE));
+    assertEquals(DATA, read(response));
+  }
+
+  @Test
+  public void range() throws Exception {
+    final ODataResponse response = apply("bytes=2-5", null);
+    assertEquals(HttpStatusCode.PARTIAL_CONTENT.getStatusCode(), response.getStatusCode());
+    assertEquals("bytes 2-5/10", response.getHeader(HttpHeader.CONTENT_RANGE));
+    assertEquals("4", response.getHeader(HttpHeader.CONTENT_LENGTH));
+    assertEquals("2345", read(response));
+  }
+
+  @Test
+  public void openRange() throws Exception {
+    final ODataResponse response = apply("bytes=7-", null);
+    assertEquals(HttpStatusCode.PARTIAL_CONTENT.getStatusCode(), response.getStatusCode());
+    assertEquals("bytes 7-9/10", response.getHeader(HttpHeader.CONTENT_RANGE));
+    assertEquals("789", read(response));
+
+    assertEquals("bytes 8-9/10", apply("bytes=8-100", null).getHeader(HttpHeader.CONTENT_RANGE));
+  }
+
+  @Test
+  public void suffixRange() throws Exception {
+    ODataResponse response = apply("bytes=-3", null);
+    assertEquals(HttpStatusCode.PARTIAL_CONTENT.getStatusCode(), response.getStatusCode());
+    assertEquals("bytes 7-9/10", response.getHeader(HttpHeader.CONTENT_RANGE));
+    assertEquals("789", read(response));
+
+    response = apply("bytes=-20", null);
+    assertEquals("bytes 0-9/10", response.getHeader(HttpHeader.CONTENT_RANGE));
+    assertEquals(DATA, read(response));
+  }
+
+  @Test
+  public void notSatisfiable() throws Exception {
+    final ODataResponse response = apply("bytes=10-", null);
+    assertEquals(HttpStatusCode.RANGE_NOT_SATISFIABLE.getStatusCode(), response.getStatusCode());
+    assertEquals("bytes */10", response.getHeader(HttpHeader.CONTENT_RANGE));
+    assertEquals("", read(response));
+  }
+
+  @Test
+  public void ignoredRanges() throws Exception {
+    for (final String range : new String[] { "bytes=1-2,5-6", "bytes=5-2", "bytes=a-b", "items=1-2", "bytes=-" }) {
+      final ODataResponse response = apply(range, null);
+      assertEquals(range, HttpStatusCode.OK.getStatusCode(), response.getStatusCode());
+      assertEquals(DATA, read(response));
+    }
+  }
+
+  @Test
+  public void ifRange() throws Exception {
+    assertEquals(HttpStatusCode.PARTIAL_CONTENT.getStatusCode(),
+        apply("bytes=1-2", "\"42\"").getStatusCode());
+    assertEquals(HttpStatusCode.OK.getStatusCode(), apply("bytes=1-2", "\"43\"").getStatusCode());
+    assertEquals(HttpStatusCode.OK.getStatusCode(), apply("bytes=1-2", "W/\"42\"").getStatusCode());
+    assertEquals(HttpStatusCode.OK.getStatusCode(),
+        apply("bytes=1-2", "Sun, 06 Nov 1994 08:49:37 GMT").getStatusCode());
+  }
+
+  @Test
+  public void otherRequests() throws Exception {
+    ODataRequest request = new ODataRequest();
+    request.setMethod(HttpMethod.PUT);
+    request.setHeader(HttpHeader.RANGE, "bytes=1-2");
+    ODataResponse response = createResponse();
+    ContentRanges.apply(request, response);
+    assertNull(response.getHeader(HttpHeader.ACCEPT_RANGES));
+
+    request.setMethod(HttpMethod.GET);
+    response = new ODataResponse();
+    response.setStatusCode(HttpStatusCode.OK.getStatusCode());
+    ContentRanges.apply(request, response);
+    assertNull(response.getHeader(HttpHeader.ACCEPT_RANGES));
+  }
+
+  @Test
+  public void servletResponse() throws Exception {
+    final ODataResponse response = apply("bytes=3-4", null);
+    final ByteArrayOutputStream output = new ByteArrayOutputStream();
+    HttpServletResponse servletResponse = mock(HttpServletResponse.class);
+    when(servletResponse.getOutputStream()).thenReturn(new ServletOutputStream() {
+      @Override
+      public void write(final int b) throws IOException {
+        output.write(b);
+      }
+    });
+    ODataHttpHandlerImpl.convertToHttp(servletResponse, response);
+    verify(servletResponse).setStatus(HttpStatusCode.PARTIAL_CONTENT.getStatusCode());
+    verify(servletResponse).addHeader(HttpHeader.CONTENT_RANGE, "bytes 3-4/10");
+    assertEquals("34", output.toString("UTF-8"));
+  }
+
+  private ODataResponse apply(final String range, final String ifRange) throws Exception {
+    ODataRequest request = new ODataRequest();
+    request.setMethod(HttpMethod.GET);
+    if (range != null) {
+      request.setHeader(HttpHeader.RANGE, range);
+    }
+    if (ifRange != null) {
+      request.setHeader(HttpHeader.IF_RANGE, ifRange);
+    }
+    final ODataResponse response = createResponse();
+    ContentRanges.apply(request, response);
+    return response;
+  }
+
+  private ODataResponse createResponse() throws Exception {
+    ODataResponse response = new ODataResponse();
+    response.setStatusCode(HttpStatusCode.OK.getStatusCode());
+    response.setHeader(HttpHeader.ETAG, "\"42\"");
+    response.setMediaContent(ODataMediaContent.of(DATA.getBytes("UTF-8")));
+    return response;
+  }
+
+  private String read(final ODataResponse response) throws Exception {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    byte[] buffer = new byte[4];
+    int count;
+    while ((count = response.getContent().read(buffer)) >= 0) {
+      output.write(buffer, 0, count);
+    }
+    return output.toString("UTF-8");
+  }
+}
@@ -131,6 +131,8 @@ public class ExceptionHelperTest {
         checkStatusCode(serverError, HttpStatusCode.NOT_IMPLEMENTED, e);
       } else if (key.equals(ODataHandlerException.MessageKeys.HTTP_METHOD_NOT_ALLOWED)) {
         checkStatusCode(serverError, HttpStatusCode.METHOD_NOT_ALLOWED, e);
+      } else if (key.equals(ODataHandlerException.MessageKeys.UNSUPPORTED_CONTENT_ENCODING)) {
+        checkStatusCode(serverError, HttpStatusCode.UNSUPPORTED_MEDIA_TYPE, e);
       } else {
         checkStatusCode(serverError, HttpStatusCode.BAD_REQUEST, e);
       }
@@ -19,16 +19,42 @@
 package org.apache.olingo.server.core;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+
+import javax.servlet.ServletOutputStream;
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 
+import org.apache.olingo.commons.api.edm.provider.CsdlAbstractEdmProvider;
+import org.apache.olingo.commons.api.edmx.EdmxReference;
+import org.apache.olingo.commons.api.http.HttpHeader;
 import org.apache.olingo.commons.api.http.HttpMethod;
+import org.apache.olingo.commons.api.http.HttpStatusCode;
+import org.apache.olingo.server.api.OData;
+import org.apache.olingo.server.api.ODataHttpHandler;
 import org.apache.olingo.server.api.ODataLibraryException;
 import org.apache.olingo.server.api.ODataRequest;
+import org.apache.olingo.server.api.ODataResponse;
+import org.apache.olingo.server.api.batch.BatchFacade;
+import org.apache.olingo.server.api.deserializer.batch.BatchRequestPart;
+import org.apache.olingo.server.api.metrics.InMemoryRequestMetrics;
+import org.apache.olingo.server.api.metrics.RequestMetrics;
+import org.apache.olingo.server.api.processor.BatchProcessor;
+import org.apache.olingo.server.core.debug.ServerCoreDebugger;
 import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 
 public class ODataHttpHandlerImplTest {
 
@@ -224,4 +250,84 @@ public class ODataHttpHandlerImplTest {
     
     }
   }
+
+  @Test
+  public void requestMetrics() throws Exception {
+    HttpServletRequest hr = mock(HttpServletRequest.class);
+    when(hr.getMethod()).thenReturn("GET");
+    when(hr.getRequestURL()).thenReturn(new StringBuffer("http://localhost/sp/$metadata"));
+    when(hr.getRequestURI()).thenReturn("/sp/$metadata");
+    when(hr.getContextPath()).thenReturn("");
+    when(hr.getServletPath()).thenReturn("/sp");
+    when(hr.getHeaderNames()).thenReturn(Collections.enumeration(Collections.emptyList()));
+    when(hr.getInputStream()).thenReturn(null);
+    final ByteArrayOutputStream output = new ByteArrayOutputStream();
+    HttpServletResponse response = mock(HttpServletResponse.class);
+    when(response.getOutputStream()).thenReturn(new ServletOutputStream() {
+      @Override
+      public void write(final int b) throws IOException {
+        output.write(b);
+      }
+    });
+
+    final OData odata = OData.newInstance();
+    ODataHttpHandler handler = odata.createHandler(odata.createServiceMetadata(new CsdlAbstractEdmProvider() {},
+        Collections.<EdmxReference> emptyList()));
+    final InMemoryRequestMetrics metrics = new InMemoryRequestMetrics();
+    handler.register(metrics);
+    handler.process(hr, response);
+    handler.process(hr, response);
+
+    verify(response, times(2)).setStatus(HttpStatusCode.OK.getStatusCode());
+    assertEquals(2, metrics.getRequestCount(HttpMethod.GET));
+    assertEquals(0, metrics.getRequestCount(HttpMethod.POST));
+    assertEquals(2, metrics.getStatusClassCount(2));
+    assertEquals(2, metrics.getRequests().getCount());
+    for (final RequestMetrics.Phase phase : RequestMetrics.Phase.values()) {
+      assertEquals(phase.name(), 2, metrics.getPhase(phase).getCount());
+    }
+    assertTrue(metrics.getBytesWritten() > 0);
+    assertEquals(output.size(), metrics.getBytesWritten());
+    assertEquals(0, metrics.getBatchParts());
+  }
+
+  @Test
+  public void requestMetricsWithBatchParts() throws Exception {
+    final OData odata = OData.newInstance();
+    ODataHandlerImpl handler = new ODataHandlerImpl(odata,
+        odata.createServiceMetadata(new CsdlAbstractEdmProvider() {}, Collections.<EdmxReference> emptyList()),
+        new ServerCoreDebugger(odata));
+    final InMemoryRequestMetrics metrics = new InMemoryRequestMetrics();
+    handler.register(metrics);
+    BatchProcessor processor = mock(BatchProcessor.class);
+    doAnswer(new Answer<Object>() {
+      @Override
+      public Object answer(final InvocationOnMock invocation) throws Throwable {
+        for (int i = 0; i < 2; i++) {
+          ODataRequest part = new ODataRequest();
+          part.setMethod(HttpMethod.GET);
+          part.setRawBaseUri("http://localhost/sp");
+          part.setRawODataPath("/$metadata");
+          ((BatchFacade) invocation.getArguments()[0]).handleBatchRequest(new BatchRequestPart(false, part));
+        }
+        ((ODataResponse) invocation.getArguments()[2]).setStatusCode(HttpStatusCode.ACCEPTED.getStatusCode());
+        return null;
+      }
+    }).when(processor).processBatch(any(BatchFacade.class), any(ODataRequest.class), any(ODataResponse.class));
+    handler.register(processor);
+
+    ODataRequest request = new ODataRequest();
+    request.setMethod(HttpMethod.POST);
+    request.setRawBaseUri("http://localhost/sp");
+    request.setRawODataPath("/$batch");
+    request.setHeader(HttpHeader.CONTENT_TYPE, "multipart/mixed;boundary=batch_1");
+    assertEquals(HttpStatusCode.ACCEPTED.getStatusCode(), handler.process(request).getStatusCode());
+
+    assertEquals(2, metrics.getBatchParts());
+    // only the batch request itself
+    for (final RequestMetrics.Phase phase : new RequestMetrics.Phase[] {
+        RequestMetrics.Phase.PARSE_URI, RequestMetrics.Phase.VALIDATE_URI, RequestMetrics.Phase.PROCESS }) {
+      assertEquals(phase.name(), 1, metrics.getPhase(phase).getCount());
+    }
+  }
 }
@@ -0,0 +1,106 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.core.debug;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+public class DebugTabProfileTest extends AbstractDebugTabTest {
+
+  private static final String HANDLER = "org.apache.olingo.server.core.ODataHttpHandlerImpl";
+
+  @Test
+  public void profile() throws Exception {
+    List<StackTraceElement[]> samples = new ArrayList<StackTraceElement[]>();
+    samples.add(createStack("Server.run", HANDLER + ".process", "class1.method1", "class2.method2"));
+    samples.add(createStack("Server.run", HANDLER + ".process", "class1.method1", "class2.method2"));
+    samples.add(createStack("Server.run", HANDLER + ".process", "class1.method1"));
+    samples.add(createStack("Server.run", HANDLER + ".process", "class3.<init>"));
+    final DebugTabProfile tab = new DebugTabProfile(samples, 5);
+
+    assertEquals("{\"interval\":5,\"unit\":\"ms\",\"samples\":4,\"tree\":["
+        + "{\"class\":\"" + HANDLER + "\",\"method\":\"process\",\"samples\":4,\"self\":0,\"children\":["
+        + "{\"class\":\"class1\",\"method\":\"method1\",\"samples\":3,\"self\":1,\"children\":["
+        + "{\"class\":\"class2\",\"method\":\"method2\",\"samples\":2,\"self\":2}]},"
+        + "{\"class\":\"class3\",\"method\":\"<init>\",\"samples\":1,\"self\":1}]}]}",
+        createJson(tab));
+
+    assertEquals("<p>4 samples at an interval of 5&nbsp;ms</p>\n"
+        + "<ol class=\"tree\">\n"
+        + "<li>\n"
+        + "<span class=\"code\"><span class=\"draw\">&#x2514;&#x2500;&nbsp;</span>"
+        + "<span class=\"class\">" + HANDLER + "</span>.<span class=\"method\">process(&hellip;)</span></span>"
+        + "<span class=\"numeric\" title=\"Samples (self)\">4 (0)&nbsp;&ndash;&nbsp;100&nbsp;%</span>\n"
+        + "<ol class=\"tree\">\n"
+        + "<li>\n"
+        + "<span class=\"code\"><span class=\"draw\">&nbsp;&nbsp;&nbsp;&#x251C;&#x2500;&nbsp;</span>"
+        + "<span class=\"class\">class1</span>.<span class=\"method\">method1(&hellip;)</span></span>"
+        + "<span class=\"numeric\" title=\"Samples (self)\">3 (1)&nbsp;&ndash;&nbsp;75&nbsp;%</span>\n"
+        + "<ol class=\"tree\">\n"
+        + "<li>\n"
+        + "<span class=\"code\"><span class=\"draw\">&nbsp;&nbsp;&nbsp;&#x2502;&nbsp;&nbsp;&#x2514;&#x2500;&nbsp;"
+        + "</span><span class=\"class\">class2</span>.<span class=\"method\">method2(&hellip;)</span></span>"
+        + "<span class=\"numeric\" title=\"Samples (self)\">2 (2)&nbsp;&ndash;&nbsp;50&nbsp;%</span>\n"
+        + "</li>\n"
+        + "</ol>\n"
+        + "</li>\n"
+        + "<li>\n"
+        + "<span class=\"code\"><span class=\"draw\">&nbsp;&nbsp;&nbsp;&#x2514;&#x2500;&nbsp;</span>"
+        + "<span class=\"class\">class3</span>.<span class=\"method\">&lt;init&gt;(&hellip;)</span></span>"
+        + "<span class=\"numeric\" title=\"Samples (self)\">1 (1)&nbsp;&ndash;&nbsp;25&nbsp;%</span>\n"
+        + "</li>\n"
+        + "</ol>\n"
+        + "</li>\n"
+        + "</ol>\n",
+        createHtml(tab));
+  }
+
+  @Test
+  public void rareMethodsAreOmitted() throws Exception {
+    List<StackTraceElement[]> samples = new ArrayList<StackTraceElement[]>(
+        Collections.nCopies(200, createStack("class1.method1")));
+    samples.add(createStack("class1.method1", "class2.method2"));
+    assertEquals("{\"interval\":10,\"unit\":\"ms\",\"samples\":201,\"tree\":["
+        + "{\"class\":\"class1\",\"method\":\"method1\",\"samples\":201,\"self\":200}]}",
+        createJson(new DebugTabProfile(samples, 10)));
+  }
+
+  @Test
+  public void empty() throws Exception {
+    final DebugTabProfile tab = new DebugTabProfile(Collections.<StackTraceElement[]> emptyList(), 10);
+    assertEquals("{\"interval\":10,\"unit\":\"ms\",\"samples\":0,\"tree\":[]}", createJson(tab));
+    assertEquals("<p>0 samples at an interval of 10&nbsp;ms</p>\n", createHtml(tab));
+  }
+
+  /** Creates a stack from the outermost to the innermost frame, each given as class name and method name. */
+  private StackTraceElement[] createStack(final String... frames) {
+    List<StackTraceElement> stack = new ArrayList<StackTraceElement>();
+    for (final String frame : frames) {
+      final int dot = frame.lastIndexOf('.');
+      stack.add(0, new StackTraceElement(frame.substring(0, dot), frame.substring(dot + 1), null, -1));
+    }
+    return stack.toArray(new StackTraceElement[stack.size()]);
+  }
+}
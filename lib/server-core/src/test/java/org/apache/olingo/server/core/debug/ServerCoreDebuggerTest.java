@@ -137,4 +137,24 @@ public class ServerCoreDebuggerTest {
         allOf(containsString(">Runtime<"), containsString(">someClass<"), containsString(">someMethod("),
             containsString("</html>")));
   }
+
+  @Test
+  public void profile() throws Exception {
+    ServerCoreDebugger defaultDebugger = new ServerCoreDebugger(odata);
+    defaultDebugger.setDebugSupportProcessor(new DefaultDebugSupport());
+    HttpServletRequest request = mock(HttpServletRequest.class);
+    when(request.getParameter(DebugSupport.ODATA_DEBUG_QUERY_PARAMETER)).thenReturn(DebugSupport.ODATA_DEBUG_JSON);
+    when(request.getParameter(DebugSupport.ODATA_DEBUG_PROFILE_QUERY_PARAMETER)).thenReturn("1");
+    defaultDebugger.resolveDebugMode(request);
+    Thread.sleep(50);
+
+    assertThat(IOUtils.toString(defaultDebugger.createDebugResponse(null, null, null, null, null).getContent()),
+        allOf(containsString("\"profile\":{\"interval\":1,"), containsString(getClass().getName())));
+
+    when(request.getParameter(DebugSupport.ODATA_DEBUG_QUERY_PARAMETER)).thenReturn(DebugSupport.ODATA_DEBUG_HTML);
+    when(request.getParameter(DebugSupport.ODATA_DEBUG_PROFILE_QUERY_PARAMETER)).thenReturn("");
+    defaultDebugger.resolveDebugMode(request);
+    assertThat(IOUtils.toString(defaultDebugger.createDebugResponse(null, null, null, null, null).getContent()),
+        allOf(containsString(">Profile<"), containsString("samples at an interval of 10&nbsp;ms")));
+  }
 }
@@ -21,6 +21,8 @@ package org.apache.olingo.server.core.deserializer;
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 
+import java.io.IOException;
+
 import org.apache.commons.io.IOUtils;
 import org.apache.olingo.commons.api.edm.EdmPrimitiveTypeKind;
 import org.apache.olingo.commons.api.edm.EdmProperty;
@@ -50,6 +52,17 @@ public class FixedFormatDeserializerTest {
                 + "ABCDEFGHIJKLMNOPQRSTUVWXYZABCDEFGHIJKLMNOPQRSTUVWXYZABCDEFGHIJKLMNOPQRSTUVWXYZ")).length);
   }
 
+  @Test
+  public void binaryStream() throws Exception {
+    assertArrayEquals(new byte[] { 0x41, 0x42, 0x43 },
+        IOUtils.toByteArray(deserializer.binaryStream(IOUtils.toInputStream("ABC"), 3)));
+  }
+
+  @Test(expected = IOException.class)
+  public void binaryStreamTooLong() throws Exception {
+    IOUtils.toByteArray(deserializer.binaryStream(IOUtils.toInputStream("ABCD"), 3));
+  }
+
   @Test
   public void primitiveValue() throws Exception {
     EdmProperty property = Mockito.mock(EdmProperty.class);
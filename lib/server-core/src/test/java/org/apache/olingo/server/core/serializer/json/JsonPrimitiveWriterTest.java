@@ -0,0 +1,133 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.core.serializer.json;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.TimeZone;
+import java.util.UUID;
+
+import org.apache.olingo.commons.api.edm.EdmPrimitiveType;
+import org.apache.olingo.commons.api.edm.EdmPrimitiveTypeException;
+import org.apache.olingo.commons.api.edm.EdmPrimitiveTypeKind;
+import org.apache.olingo.commons.core.edm.primitivetype.EdmPrimitiveTypeFactory;
+import org.junit.Test;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+public class JsonPrimitiveWriterTest {
+
+  @Test
+  public void numbers() throws Exception {
+    check(EdmPrimitiveTypeKind.Boolean, true, null, null);
+    check(EdmPrimitiveTypeKind.Byte, 255, null, null);
+    check(EdmPrimitiveTypeKind.SByte, (byte) -128, null, null);
+    check(EdmPrimitiveTypeKind.Int16, (short) -32768, null, null);
+    check(EdmPrimitiveTypeKind.Int32, Integer.MIN_VALUE, null, null);
+    check(EdmPrimitiveTypeKind.Int32, 42L, null, null);
+    check(EdmPrimitiveTypeKind.Int64, Long.MAX_VALUE, null, null);
+    check(EdmPrimitiveTypeKind.Double, 1.5E300, null, null);
+    check(EdmPrimitiveTypeKind.Double, -0.001, null, null);
+    check(EdmPrimitiveTypeKind.Double, 7, null, null);
+    check(EdmPrimitiveTypeKind.Single, 3.25F, null, null);
+    check(EdmPrimitiveTypeKind.Decimal, new BigDecimal("123.45"), 5, 2);
+    check(EdmPrimitiveTypeKind.Decimal, new BigDecimal("0.00000001"), null, 8);
+    check(EdmPrimitiveTypeKind.Decimal, new BigDecimal("1E+3"), null, null);
+  }
+
+  @Test
+  public void ieee754Compatible() throws Exception {
+    assertEquals("\"9007199254740993\"",
+        write(true, EdmPrimitiveTypeKind.Int64, 9007199254740993L, null, null));
+    assertEquals("\"0.00000001\"",
+        write(true, EdmPrimitiveTypeKind.Decimal, new BigDecimal("0.00000001"), null, 8));
+    assertEquals("42", write(true, EdmPrimitiveTypeKind.Int32, 42, null, null));
+  }
+
+  @Test
+  public void specialValuesAreNotWritten() throws Exception {
+    assertFalse(writer(EdmPrimitiveTypeKind.Double, Double.NaN, null, null));
+    assertFalse(writer(EdmPrimitiveTypeKind.Double, Double.POSITIVE_INFINITY, null, null));
+    assertFalse(writer(EdmPrimitiveTypeKind.Int16, 40000, null, null));
+    assertFalse(writer(EdmPrimitiveTypeKind.Byte, (byte) -1, null, null));
+    assertFalse(writer(EdmPrimitiveTypeKind.Decimal, new BigDecimal("123.456"), 5, 2));
+    assertFalse(writer(EdmPrimitiveTypeKind.Boolean, "true", null, null));
+    assertFalse(writer(EdmPrimitiveTypeKind.String, "text", null, null));
+  }
+
+  @Test
+  public void guid() throws Exception {
+    check(EdmPrimitiveTypeKind.Guid, UUID.fromString("01234567-89ab-cdef-0123-456789abcdef"), null, null);
+    check(EdmPrimitiveTypeKind.Guid, UUID.randomUUID(), null, null);
+  }
+
+  @Test
+  public void dates() throws Exception {
+    Calendar calendar = Calendar.getInstance(TimeZone.getTimeZone("GMT+05:30"));
+    calendar.clear();
+    calendar.set(2012, 1, 29, 1, 2, 3);
+    check(EdmPrimitiveTypeKind.Date, calendar, null, null);
+    check(EdmPrimitiveTypeKind.DateTimeOffset, calendar, null, null);
+    calendar.set(Calendar.MILLISECOND, 50);
+    check(EdmPrimitiveTypeKind.DateTimeOffset, calendar, 3, null);
+    assertFalse(writer(EdmPrimitiveTypeKind.DateTimeOffset, calendar, 1, null));
+    calendar.setTimeZone(TimeZone.getTimeZone("GMT-08:00"));
+    check(EdmPrimitiveTypeKind.DateTimeOffset, calendar, 3, null);
+    check(EdmPrimitiveTypeKind.DateTimeOffset, new Date(1234567890123L), 3, null);
+    check(EdmPrimitiveTypeKind.DateTimeOffset, 1234567890000L, null, null);
+    check(EdmPrimitiveTypeKind.Date, new Date(1234567890123L), null, null);
+  }
+
+  private void check(final EdmPrimitiveTypeKind kind, final Object value, final Integer precision,
+      final Integer scale) throws IOException, EdmPrimitiveTypeException {
+    final EdmPrimitiveType type = EdmPrimitiveTypeFactory.getInstance(kind);
+    final String expected = type.valueToString(value, null, null, precision, scale, null);
+    final String actual = write(false, kind, value, precision, scale);
+    if (kind == EdmPrimitiveTypeKind.Guid || kind == EdmPrimitiveTypeKind.Date
+        || kind == EdmPrimitiveTypeKind.DateTimeOffset) {
+      assertEquals("\"" + expected + "\"", actual);
+    } else {
+      assertEquals(expected, actual);
+    }
+  }
+
+  private boolean writer(final EdmPrimitiveTypeKind kind, final Object value, final Integer precision,
+      final Integer scale) throws IOException {
+    final JsonGenerator json = new JsonFactory().createGenerator(new StringWriter());
+    return new JsonPrimitiveWriter(false)
+        .write(EdmPrimitiveTypeFactory.getInstance(kind), value, precision, scale, json);
+  }
+
+  private String write(final boolean isIEEE754Compatible, final EdmPrimitiveTypeKind kind, final Object value,
+      final Integer precision, final Integer scale) throws IOException {
+    final StringWriter writer = new StringWriter();
+    final JsonGenerator json = new JsonFactory().createGenerator(writer);
+    assertEquals(true, new JsonPrimitiveWriter(isIEEE754Compatible)
+        .write(EdmPrimitiveTypeFactory.getInstance(kind), value, precision, scale, json));
+    json.close();
+    return writer.toString();
+  }
+}
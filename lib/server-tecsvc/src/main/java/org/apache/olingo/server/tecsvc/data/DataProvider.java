@@ -33,14 +33,14 @@ import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.olingo.commons.api.Constants;
 import org.apache.olingo.commons.api.data.ComplexValue;
-import org.apache.olingo.commons.api.data.DeletedEntity;
 import org.apache.olingo.commons.api.data.DeletedEntity.Reason;
-import org.apache.olingo.commons.api.data.DeltaLink;
+import org.apache.olingo.commons.api.data.Delta;
 import org.apache.olingo.commons.api.data.Entity;
 import org.apache.olingo.commons.api.data.EntityCollection;
 import org.apache.olingo.commons.api.data.Link;
 import org.apache.olingo.commons.api.data.Parameter;
 import org.apache.olingo.commons.api.data.Property;
+import org.apache.olingo.commons.api.data.PropertyList;
 import org.apache.olingo.commons.api.edm.Edm;
 import org.apache.olingo.commons.api.edm.EdmComplexType;
 import org.apache.olingo.commons.api.edm.EdmEntitySet;
@@ -69,6 +69,7 @@ import org.apache.olingo.server.api.uri.UriInfoResource;
 import org.apache.olingo.server.api.uri.UriParameter;
 import org.apache.olingo.server.api.uri.UriResourceEntitySet;
 import org.apache.olingo.server.api.uri.queryoption.expression.Literal;
+import org.apache.olingo.server.core.ChangeLog;
 
 public class DataProvider {
 
@@ -79,6 +80,8 @@ public class DataProvider {
   private AtomicLong KEY_STRING = new AtomicLong(0);
 
   private Map<String, EntityCollection> data;
+  private final Map<String, SearchIndex> searchIndexes = new HashMap<String, SearchIndex>();
+  private final ChangeLog changeLog = new ChangeLog(1000);
   private final OData odata;
   private final Edm edm;
 
@@ -97,6 +100,23 @@ public class DataProvider {
     return entityCollection;
   }
 
+  /**
+   * Gets the full-text search index of an entity set, creating it on first use.
+   * Once created, the index is maintained on each creation, modification, and deletion of an entity;
+   * it is rebuilt if the entity set has been changed in other ways.
+   */
+  public SearchIndex getSearchIndex(final EdmEntitySet edmEntitySet) throws DataProviderException {
+    final List<Entity> entities = readAll(edmEntitySet).getEntities();
+    SearchIndex index = searchIndexes.get(edmEntitySet.getName());
+    if (index == null || index.size() != entities.size()) {
+      final SearchIndex.Ranking ranking = index == null ? null : index.getRanking();
+      index = new SearchIndex(entities);
+      index.setRanking(ranking);
+      searchIndexes.put(edmEntitySet.getName(), index);
+    }
+    return index;
+  }
+
   public Entity read(final EdmEntitySet edmEntitySet, final List<UriParameter> keys) throws DataProviderException {
     final EntityCollection entitySet = readAll(edmEntitySet);
     return entitySet == null ? null : read(edmEntitySet.getEntityType(), entitySet, keys);
@@ -166,6 +186,13 @@ public class DataProvider {
   public void delete(final EdmEntitySet edmEntitySet, final Entity entity) throws DataProviderException {
     deleteLinksTo(entity);
     readAll(edmEntitySet).getEntities().remove(entity);
+    final SearchIndex index = searchIndexes.get(edmEntitySet.getName());
+    if (index != null) {
+      index.remove(entity);
+    }
+    if (entity.getId() != null) {
+      changeLog.entityDeleted(edmEntitySet.getName(), entity.getId(), Reason.deleted);
+    }
   }
 
   public void deleteLinksTo(final Entity to) throws DataProviderException {
@@ -208,6 +235,11 @@ public class DataProvider {
       throw new DataProviderException("Unable to set entity ID!", HttpStatusCode.INTERNAL_SERVER_ERROR, e);
     }
     entities.add(newEntity);
+    final SearchIndex index = searchIndexes.get(edmEntitySet.getName());
+    if (index != null) {
+      index.add(newEntity);
+    }
+    changeLog.entityChanged(edmEntitySet.getName(), newEntity.getId());
 
     return newEntity;
   }
@@ -349,7 +381,17 @@ public class DataProvider {
     updateETag(entity);
   }
 
+  /** Updates the ETag, the search index, and the change log; to be called after each modification of the entity. */
   public void updateETag(Entity entity) {
+    for (final SearchIndex index : searchIndexes.values()) {
+      if (index.contains(entity)) {
+        index.add(entity);
+      }
+    }
+    final String entitySetName = getEntitySetName(entity);
+    if (entitySetName != null) {
+      changeLog.entityChanged(entitySetName, entity.getId());
+    }
     if (entity.getETag() != null) {
       entity.setETag("W/\"" + UUID.randomUUID() + "\"");
     }
@@ -428,6 +470,28 @@ public class DataProvider {
     final Link link = entity.getNavigationLink(navigationProperty.getName());
     if (link != null) {
       entity.getNavigationLinks().remove(link);
+      if (link.getInlineEntity() != null) {
+        recordLink(false, entity, navigationProperty.getName(), link.getInlineEntity());
+      }
+    }
+  }
+
+  /** Gets the entity-set name from the canonical ID of an entity, e.g., <code>ESAllPrim</code>. */
+  private String getEntitySetName(final Entity entity) {
+    final String id = entity.getId() == null ? null : entity.getId().toASCIIString();
+    final int index = id == null || id.indexOf('/') >= 0 ? -1 : id.indexOf('(');
+    return index > 0 ? id.substring(0, index) : null;
+  }
+
+  private void recordLink(final boolean added, final Entity source, final String navigationPropertyName,
+      final Entity target) {
+    final String entitySetName = getEntitySetName(source);
+    if (entitySetName != null && target.getId() != null) {
+      if (added) {
+        changeLog.linkAdded(entitySetName, source.getId(), navigationPropertyName, target.getId());
+      } else {
+        changeLog.linkDeleted(entitySetName, source.getId(), navigationPropertyName, target.getId());
+      }
     }
   }
 
@@ -466,8 +530,13 @@ public class DataProvider {
     if (navigationProperty.isCollection()) {
       DataCreator.setLinks(srcEntity, navigationProperty.getName(), targetEntity);
     } else {
+      final Link link = srcEntity.getNavigationLink(navigationProperty.getName());
+      if (link != null && link.getInlineEntity() != null && link.getInlineEntity() != targetEntity) {
+        recordLink(false, srcEntity, navigationProperty.getName(), link.getInlineEntity());
+      }
       DataCreator.setLink(srcEntity, navigationProperty.getName(), targetEntity);
     }
+    recordLink(true, srcEntity, navigationProperty.getName(), targetEntity);
   }
 
   @SuppressWarnings("unchecked")
@@ -549,12 +618,7 @@ public class DataProvider {
   }
 
   private Property findProperty(final String propertyName, final List<Property> properties) {
-    for (final Property property : properties) {
-      if (propertyName.equals(property.getName())) {
-        return property;
-      }
-    }
-    return null;
+    return PropertyList.find(properties, propertyName);
   }
 
   public byte[] readMedia(final Entity entity) {
@@ -568,53 +632,33 @@ public class DataProvider {
     entity.setMediaETag("W/\"" + UUID.randomUUID() + "\"");
   }
   
-  public List<DeletedEntity> readDeletedEntities(final EdmEntitySet edmEntitySet) throws DataProviderException {
-    EntityCollection entityCollection = data.get(edmEntitySet.getName());
-    List<DeletedEntity> listOfDeletedEntities = new ArrayList<DeletedEntity>();
-    DeletedEntity entitySetDeleted = new DeletedEntity();
-    if (entityCollection.getEntities().size() > 1) {
-      entitySetDeleted.setId(entityCollection.getEntities().get(0).getId());
-      entitySetDeleted.setReason(Reason.changed);
-      listOfDeletedEntities.add(entitySetDeleted);
-      entitySetDeleted = new DeletedEntity();
-      entitySetDeleted.setId(entityCollection.getEntities().get(1).getId());
-      entitySetDeleted.setReason(Reason.deleted);
-    }
-    listOfDeletedEntities.add(entitySetDeleted);
-    return listOfDeletedEntities;
-  }
-  
-  public List<DeltaLink> readAddedLinks(final EdmEntitySet edmEntitySet) throws DataProviderException {
-    EntityCollection entityCollection = data.get(edmEntitySet.getName());
-    List<DeltaLink> listOfAddedLinks = new ArrayList<DeltaLink>();
-    DeltaLink link = new DeltaLink();
-    if (entityCollection.getEntities().size() > 0) {
-      link.setSource(entityCollection.getEntities().get(0).getId());
-      link.setRelationship("NavPropertyETAllPrimOne");
-      link.setTarget(data.get("ESAllPrim").getEntities().get(1).getId());
+  /** Gets the current delta token, to be used in a delta link. */
+  public String getDeltaToken() {
+    return changeLog.getCurrentToken();
+  }
+
+  /**
+   * Reads the changes of an entity set since the given delta token.
+   * @throws DataProviderException with status 410 (Gone) if the delta token is invalid or too old
+   */
+  public Delta readDelta(final EdmEntitySet edmEntitySet, final String deltaToken) throws DataProviderException {
+    final Delta delta = changeLog.getDelta(edmEntitySet.getName(), deltaToken,
+        new ChangeLog.EntityResolver() {
+          @Override
+          public Entity resolve(final String entitySetName, final URI id) {
+            try {
+              return getEntityByReference(id.toASCIIString(), null);
+            } catch (final DataProviderException e) {
+              return null;
+            }
+          }
+        });
+    if (delta == null) {
+      throw new DataProviderException("The delta token is invalid or expired.", HttpStatusCode.GONE);
     }
-    listOfAddedLinks.add(link);
-    return listOfAddedLinks;
+    return delta;
   }
-  
-  public List<DeltaLink> readDeletedLinks(final EdmEntitySet edmEntitySet) throws DataProviderException {
-    EntityCollection entityCollection = data.get(edmEntitySet.getName());
-    List<DeltaLink> listOfDeletedLinks = new ArrayList<DeltaLink>();
-    if (entityCollection.getEntities().size() > 1) {
-      DeltaLink link = new DeltaLink();
-      link.setSource(entityCollection.getEntities().get(0).getId());
-      link.setRelationship("NavPropertyETAllPrimOne");
-      link.setTarget(data.get("ESAllPrim").getEntities().get(0).getId());
-      listOfDeletedLinks.add(link);
-      link = new DeltaLink();
-      link.setSource(entityCollection.getEntities().get(1).getId());
-      link.setRelationship("NavPropertyETAllPrimOne");
-      link.setTarget(data.get("ESAllPrim").getEntities().get(1).getId());
-      listOfDeletedLinks.add(link);
-    }
-    return listOfDeletedLinks;
-  }
-  
+
   public EntityCollection readFunctionEntityCollection(final EdmFunction function, final List<UriParameter> parameters,
       final UriInfoResource uriInfo) throws DataProviderException {
     return FunctionData.entityCollectionFunction(function.getName(),
@@ -777,6 +821,7 @@ public class DataProvider {
 
         // Remove target entity from collection-valued navigation property
         navigationLink.getInlineEntitySet().getEntities().remove(targetEntity);
+        recordLink(false, entity, navigationProperty.getName(), targetEntity);
       } else {
         throw new DataProviderException("Entity not found", HttpStatusCode.NOT_FOUND);
       }
@@ -817,42 +862,6 @@ public class DataProvider {
     }
   }
   
-  public List<Entity> readNavigationEntities(EdmEntitySet entitySet) {
-    
-    EntityCollection entityCollection = data.get(entitySet.getName());
-    List<Entity> entities = new ArrayList<Entity>();
-    Entity otherEntity = entitySet.getName() == "ESAllPrim" ? data.get("ESDelta").getEntities().get(0) :
-      data.get("ESAllPrim").getEntities().get(0);
-    EntityCollection ec1=new EntityCollection();
-    Entity entity1 = new Entity();
-    entity1.setId(entityCollection.getEntities().get(0).getId());//added navigation
-    entity1.addProperty(entityCollection.getEntities().get(0).getProperty(edm.getEntityContainer()
-        .getEntitySet(entitySet.getName()).getEntityType().getPropertyNames().get(0)));
-    Link link = new Link();
-    Entity entity2 = new Entity();
-    entity2.setId(otherEntity.getId());
-    ec1.getEntities().add(entity2);
-    link.setInlineEntitySet(ec1);
-    link.setTitle("NavPropertyETAllPrimMany");
-    entity1.getNavigationLinks().add(link);
-    
-    Entity entity3 = new Entity();
-    EntityCollection ec2=new EntityCollection();
-    entity3.setId(entityCollection.getEntities().get(0).getId());//added navigation
-    DeletedEntity delentity = new DeletedEntity();
-    delentity.setId(otherEntity.getId());
-    delentity.setReason(Reason.deleted);
-    ec2.getEntities().add(delentity);
-    Link delLink = new Link();
-    delLink.setInlineEntitySet(ec2);
-    delLink.setTitle("NavPropertyETAllPrimMany");
-    entity3.getNavigationLinks().add(delLink);
-    entities.add(otherEntity);
-    entities.add(entity1);
-    entities.add(entity3);
-    return entities;
-  }
-  
   public Entity read(EdmSingleton singleton) {
     if (data.containsKey(singleton.getName())) {
     EntityCollection entitySet = data.get(singleton.getName());
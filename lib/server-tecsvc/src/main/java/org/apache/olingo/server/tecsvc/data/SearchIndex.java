@@ -0,0 +1,476 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.tecsvc.data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.xml.bind.DatatypeConverter;
+
+import org.apache.olingo.commons.api.data.ComplexValue;
+import org.apache.olingo.commons.api.data.Entity;
+import org.apache.olingo.commons.api.data.Property;
+import org.apache.olingo.server.api.uri.queryoption.search.SearchBinary;
+import org.apache.olingo.server.api.uri.queryoption.search.SearchBinaryOperatorKind;
+import org.apache.olingo.server.api.uri.queryoption.search.SearchExpression;
+
+/**
+ * Inverted index for the full-text search of the entities of one entity set.
+ * <br/>The vocabulary consists of the distinct primitive property values (also in complex and collection
+ * properties) as text. A search term matches, as with the scan of all entities, the entities with a value
+ * containing the term, case-sensitively; it is evaluated as the union of the posting lists of all values
+ * containing it. These values are found through an index of the trigrams of the values: only the values
+ * sharing the term's rarest trigram are checked, and only terms shorter than a trigram are checked against
+ * the whole vocabulary, each distinct value once instead of once per entity. AND, OR, and NOT are
+ * evaluated as intersection, union, and difference of posting lists sorted by document number.
+ * <br/>The index is maintained incrementally: changed entities get a new document number, and the postings of
+ * the old one are skipped until the index is compacted.
+ */
+public class SearchIndex {
+
+  /** Scores entities matching a search, higher scores first. */
+  public interface Ranking {
+    /**
+     * @param entity the matching entity
+     * @param termFrequencies for each positive search term the number of its occurrences in the entity
+     * @param documentFrequencies for each positive search term the number of entities containing it
+     * @param documentCount the number of entities in the index
+     */
+    double score(Entity entity, Map<String, Integer> termFrequencies, Map<String, Integer> documentFrequencies,
+        int documentCount);
+  }
+
+  /** Ranking by the sum of term frequency times inverse document frequency. */
+  public static final Ranking TF_IDF = new Ranking() {
+    @Override
+    public double score(final Entity entity, final Map<String, Integer> termFrequencies,
+        final Map<String, Integer> documentFrequencies, final int documentCount) {
+      double score = 0;
+      for (final Map.Entry<String, Integer> entry : termFrequencies.entrySet()) {
+        final Integer documentFrequency = documentFrequencies.get(entry.getKey());
+        if (documentFrequency != null && documentFrequency > 0) {
+          score += entry.getValue() * Math.log(1.0 + (double) documentCount / documentFrequency);
+        }
+      }
+      return score;
+    }
+  };
+
+  private static final int[] NO_DOCUMENTS = new int[0];
+  private static final int GRAM_LENGTH = 3;
+
+  /** Document numbers (ascending) and frequencies of one value. */
+  private static final class Postings {
+    private int[] documents = new int[4];
+    private int[] frequencies = new int[4];
+    private int size;
+    private int live;
+
+    private void add(final int document, final int frequency) {
+      if (size == documents.length) {
+        documents = Arrays.copyOf(documents, size * 2);
+        frequencies = Arrays.copyOf(frequencies, size * 2);
+      }
+      documents[size] = document;
+      frequencies[size++] = frequency;
+      live++;
+    }
+
+    private int frequency(final int document) {
+      final int index = Arrays.binarySearch(documents, 0, size, document);
+      return index < 0 ? 0 : frequencies[index];
+    }
+  }
+
+  private final Map<String, Postings> postings = new HashMap<String, Postings>();
+  /** Distinct values by the trigrams they contain. */
+  private final Map<String, Set<String>> grams = new HashMap<String, Set<String>>();
+  private final Map<Entity, Integer> documentNumbers = new IdentityHashMap<Entity, Integer>();
+  /** Entities by document number; <code>null</code> for removed documents. */
+  private final List<Entity> entities = new ArrayList<Entity>();
+  /** Distinct values by document number. */
+  private final List<String[]> values = new ArrayList<String[]>();
+  private final BitSet liveDocuments = new BitSet();
+  private Ranking ranking;
+
+  /** Creates an index for the given entities. */
+  public SearchIndex(final List<Entity> entities) {
+    for (final Entity entity : entities) {
+      add(entity);
+    }
+  }
+
+  /** Sets the ranking used to order search results; without ranking the entity-set order is kept. */
+  public synchronized void setRanking(final Ranking ranking) {
+    this.ranking = ranking;
+  }
+
+  public synchronized Ranking getRanking() {
+    return ranking;
+  }
+
+  /** Gets the number of indexed entities. */
+  public synchronized int size() {
+    return documentNumbers.size();
+  }
+
+  public synchronized boolean contains(final Entity entity) {
+    return documentNumbers.containsKey(entity);
+  }
+
+  /** Adds an entity or, if it is already indexed, updates its entry. */
+  public synchronized void add(final Entity entity) {
+    remove(entity);
+    List<String> documentValues = new ArrayList<String>();
+    for (final Property property : entity.getProperties()) {
+      collectValues(property, documentValues);
+    }
+    Map<String, Integer> frequencies = new HashMap<String, Integer>();
+    for (final String value : documentValues) {
+      final Integer frequency = frequencies.get(value);
+      frequencies.put(value, frequency == null ? 1 : frequency + 1);
+    }
+    final int document = entities.size();
+    entities.add(entity);
+    values.add(frequencies.keySet().toArray(new String[frequencies.size()]));
+    documentNumbers.put(entity, document);
+    liveDocuments.set(document);
+
+    for (final Map.Entry<String, Integer> entry : frequencies.entrySet()) {
+      Postings valuePostings = postings.get(entry.getKey());
+      if (valuePostings == null) {
+        valuePostings = new Postings();
+        postings.put(entry.getKey(), valuePostings);
+        addGrams(entry.getKey());
+      }
+      valuePostings.add(document, entry.getValue());
+    }
+  }
+
+  /** Removes an entity from the index. */
+  public synchronized void remove(final Entity entity) {
+    final Integer document = documentNumbers.remove(entity);
+    if (document == null) {
+      return;
+    }
+    for (final String value : values.get(document)) {
+      final Postings valuePostings = postings.get(value);
+      if (--valuePostings.live == 0) {
+        postings.remove(value);
+        removeGrams(value);
+      }
+    }
+    liveDocuments.clear(document);
+    entities.set(document, null);
+    values.set(document, null);
+    if (entities.size() > 64 && documentNumbers.size() < entities.size() / 2) {
+      compact();
+    }
+  }
+
+  /**
+   * Searches the index.
+   * @return the matching entities, ordered by the ranking if set, otherwise by document number
+   */
+  public synchronized List<Entity> search(final SearchExpression expression) {
+    final int[] documents = evaluate(expression);
+    List<Entity> result = new ArrayList<Entity>(documents.length);
+    for (final int document : documents) {
+      result.add(entities.get(document));
+    }
+    if (ranking != null && result.size() > 1) {
+      rank(expression, documents, result);
+    }
+    return result;
+  }
+
+  private int[] evaluate(final SearchExpression expression) {
+    if (expression.isSearchTerm()) {
+      return evaluateTerm(expression.asSearchTerm().getSearchTerm());
+    } else if (expression.isSearchUnary()) {
+      return difference(all(), evaluate(expression.asSearchUnary().getOperand()));
+    } else {
+      final SearchBinary binary = expression.asSearchBinary();
+      final SearchExpression left = binary.getLeftOperand();
+      final SearchExpression right = binary.getRightOperand();
+      if (binary.getOperator() == SearchBinaryOperatorKind.OR) {
+        return union(evaluate(left), evaluate(right));
+      }
+      // "a AND NOT b" is evaluated without computing the complement of b.
+      if (right.isSearchUnary()) {
+        return difference(evaluate(left), evaluate(right.asSearchUnary().getOperand()));
+      } else if (left.isSearchUnary()) {
+        return difference(evaluate(right), evaluate(left.asSearchUnary().getOperand()));
+      }
+      return intersection(evaluate(left), evaluate(right));
+    }
+  }
+
+  private int[] evaluateTerm(final String term) {
+    BitSet result = new BitSet();
+    for (final String value : getCandidates(term)) {
+      if (value.contains(term)) {
+        final Postings valuePostings = postings.get(value);
+        for (int index = 0; index < valuePostings.size; index++) {
+          result.set(valuePostings.documents[index]);
+        }
+      }
+    }
+    result.and(liveDocuments);
+    return toArray(result);
+  }
+
+  private void rank(final SearchExpression expression, final int[] documents, final List<Entity> result) {
+    List<String> positiveTerms = new ArrayList<String>();
+    collectPositiveTerms(expression, positiveTerms);
+    Map<String, Integer> documentFrequencies = new HashMap<String, Integer>();
+    // For each term the matching values and the number of occurrences of the term in each of them.
+    Map<String, Map<Postings, Integer>> termValues = new HashMap<String, Map<Postings, Integer>>();
+    for (final String term : positiveTerms) {
+      documentFrequencies.put(term, evaluateTerm(term).length);
+      Map<Postings, Integer> occurrences = new IdentityHashMap<Postings, Integer>();
+      for (final String value : getCandidates(term)) {
+        final int count = countOccurrences(value, term);
+        if (count > 0) {
+          occurrences.put(postings.get(value), count);
+        }
+      }
+      termValues.put(term, occurrences);
+    }
+    final Map<Entity, Double> scores = new IdentityHashMap<Entity, Double>();
+    for (int index = 0; index < documents.length; index++) {
+      Map<String, Integer> termFrequencies = new HashMap<String, Integer>();
+      for (final String term : positiveTerms) {
+        int frequency = 0;
+        for (final Map.Entry<Postings, Integer> entry : termValues.get(term).entrySet()) {
+          frequency += entry.getKey().frequency(documents[index]) * entry.getValue();
+        }
+        if (frequency > 0) {
+          termFrequencies.put(term, frequency);
+        }
+      }
+      scores.put(result.get(index),
+          ranking.score(result.get(index), termFrequencies, documentFrequencies, documentNumbers.size()));
+    }
+    Collections.sort(result, new Comparator<Entity>() {
+      @Override
+      public int compare(final Entity first, final Entity second) {
+        return scores.get(second).compareTo(scores.get(first));
+      }
+    });
+  }
+
+  /**
+   * Gets the values that may contain the term: the values sharing its rarest trigram
+   * or, for terms shorter than a trigram, all values.
+   */
+  private Collection<String> getCandidates(final String term) {
+    if (term.length() < GRAM_LENGTH) {
+      return postings.keySet();
+    }
+    Set<String> result = null;
+    for (int index = 0; index + GRAM_LENGTH <= term.length(); index++) {
+      final Set<String> gramValues = grams.get(term.substring(index, index + GRAM_LENGTH));
+      if (gramValues == null) {
+        return Collections.emptySet();
+      }
+      if (result == null || gramValues.size() < result.size()) {
+        result = gramValues;
+      }
+    }
+    return result;
+  }
+
+  private void addGrams(final String value) {
+    for (int index = 0; index + GRAM_LENGTH <= value.length(); index++) {
+      final String gram = value.substring(index, index + GRAM_LENGTH);
+      Set<String> gramValues = grams.get(gram);
+      if (gramValues == null) {
+        gramValues = new HashSet<String>();
+        grams.put(gram, gramValues);
+      }
+      gramValues.add(value);
+    }
+  }
+
+  private void removeGrams(final String value) {
+    for (int index = 0; index + GRAM_LENGTH <= value.length(); index++) {
+      final String gram = value.substring(index, index + GRAM_LENGTH);
+      final Set<String> gramValues = grams.get(gram);
+      if (gramValues != null && gramValues.remove(value) && gramValues.isEmpty()) {
+        grams.remove(gram);
+      }
+    }
+  }
+
+  private static int countOccurrences(final String value, final String term) {
+    int count = 0;
+    for (int index = value.indexOf(term); index >= 0 && !term.isEmpty(); index = value.indexOf(term, index + 1)) {
+      count++;
+    }
+    return count;
+  }
+
+  private void collectPositiveTerms(final SearchExpression expression, final List<String> result) {
+    if (expression.isSearchTerm()) {
+      if (!result.contains(expression.asSearchTerm().getSearchTerm())) {
+        result.add(expression.asSearchTerm().getSearchTerm());
+      }
+    } else if (expression.isSearchBinary()) {
+      collectPositiveTerms(expression.asSearchBinary().getLeftOperand(), result);
+      collectPositiveTerms(expression.asSearchBinary().getRightOperand(), result);
+    }
+  }
+
+  private int[] all() {
+    return toArray(liveDocuments);
+  }
+
+  private static int[] toArray(final BitSet documents) {
+    int[] result = new int[documents.cardinality()];
+    int size = 0;
+    for (int document = documents.nextSetBit(0); document >= 0; document = documents.nextSetBit(document + 1)) {
+      result[size++] = document;
+    }
+    return result;
+  }
+
+  private static int[] intersection(final int[] first, final int[] second) {
+    int[] result = new int[Math.min(first.length, second.length)];
+    int size = 0;
+    int i = 0;
+    int j = 0;
+    while (i < first.length && j < second.length) {
+      if (first[i] < second[j]) {
+        i++;
+      } else if (first[i] > second[j]) {
+        j++;
+      } else {
+        result[size++] = first[i++];
+        j++;
+      }
+    }
+    return Arrays.copyOf(result, size);
+  }
+
+  private static int[] union(final int[] first, final int[] second) {
+    int[] result = new int[first.length + second.length];
+    int size = 0;
+    int i = 0;
+    int j = 0;
+    while (i < first.length || j < second.length) {
+      if (j == second.length || i < first.length && first[i] < second[j]) {
+        result[size++] = first[i++];
+      } else if (i == first.length || second[j] < first[i]) {
+        result[size++] = second[j++];
+      } else {
+        result[size++] = first[i++];
+        j++;
+      }
+    }
+    return Arrays.copyOf(result, size);
+  }
+
+  private static int[] difference(final int[] first, final int[] second) {
+    int[] result = new int[first.length];
+    int size = 0;
+    int j = 0;
+    for (final int document : first) {
+      while (j < second.length && second[j] < document) {
+        j++;
+      }
+      if (j == second.length || second[j] != document) {
+        result[size++] = document;
+      }
+    }
+    return Arrays.copyOf(result, size);
+  }
+
+  /** Rebuilds the index without the postings of removed documents. */
+  private void compact() {
+    List<Entity> current = new ArrayList<Entity>(documentNumbers.size());
+    for (final Entity entity : entities) {
+      if (entity != null) {
+        current.add(entity);
+      }
+    }
+    postings.clear();
+    grams.clear();
+    documentNumbers.clear();
+    entities.clear();
+    values.clear();
+    liveDocuments.clear();
+    for (final Entity entity : current) {
+      add(entity);
+    }
+  }
+
+  private static void collectValues(final Property property, final List<String> result) {
+    if (property.isNull()) {
+      return;
+    }
+    if (property.isComplex()) {
+      if (property.isCollection()) {
+        for (final Object member : property.asCollection()) {
+          for (final Property inner : ((ComplexValue) member).getValue()) {
+            collectValues(inner, result);
+          }
+        }
+      } else {
+        for (final Property inner : property.asComplex().getValue()) {
+          collectValues(inner, result);
+        }
+      }
+    } else if (property.isPrimitive()) {
+      if (property.isCollection()) {
+        for (final Object value : property.asCollection()) {
+          if (value != null) {
+            result.add(asString(value));
+          }
+        }
+      } else {
+        result.add(asString(property.getValue()));
+      }
+    }
+  }
+
+  /** Converts a primitive value to text the same way the scan of all entities does. */
+  private static String asString(final Object value) {
+    if (value instanceof String) {
+      return (String) value;
+    } else if (value instanceof Calendar) {
+      return DatatypeConverter.printDateTime((Calendar) value);
+    } else if (value instanceof byte[]) {
+      return DatatypeConverter.printBase64Binary((byte[]) value);
+    } else {
+      return value.toString();
+    }
+  }
+}
@@ -19,20 +19,18 @@
 package org.apache.olingo.server.tecsvc.processor;
 
 import java.net.URI;
-import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Date;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
+import java.util.NoSuchElementException;
 
 import org.apache.olingo.commons.api.data.ComplexValue;
 import org.apache.olingo.commons.api.data.ContextURL;
 import org.apache.olingo.commons.api.data.ContextURL.Builder;
 import org.apache.olingo.commons.api.data.ContextURL.Suffix;
-import org.apache.olingo.commons.api.data.DeletedEntity;
 import org.apache.olingo.commons.api.data.Delta;
-import org.apache.olingo.commons.api.data.DeltaLink;
 import org.apache.olingo.commons.api.data.Entity;
 import org.apache.olingo.commons.api.data.EntityCollection;
 import org.apache.olingo.commons.api.data.EntityIterator;
@@ -41,25 +39,31 @@ import org.apache.olingo.commons.api.data.Property;
 import org.apache.olingo.commons.api.data.ValueType;
 import org.apache.olingo.commons.api.edm.EdmEntitySet;
 import org.apache.olingo.commons.api.edm.EdmEntityType;
+import org.apache.olingo.commons.api.ex.ODataException;
+import org.apache.olingo.commons.api.ex.ODataRuntimeException;
 import org.apache.olingo.commons.api.format.ContentType;
 import org.apache.olingo.commons.api.http.HttpHeader;
 import org.apache.olingo.commons.api.http.HttpMethod;
 import org.apache.olingo.commons.api.http.HttpStatusCode;
 import org.apache.olingo.server.api.ODataApplicationException;
 import org.apache.olingo.server.api.ODataLibraryException;
+import org.apache.olingo.server.api.ODataMediaContent;
 import org.apache.olingo.server.api.ODataRequest;
 import org.apache.olingo.server.api.ODataResponse;
 import org.apache.olingo.server.api.ServiceMetadata;
 import org.apache.olingo.server.api.deserializer.DeserializerResult;
+import org.apache.olingo.server.api.deserializer.DeserializerStreamResult;
 import org.apache.olingo.server.api.deserializer.ODataDeserializer;
 import org.apache.olingo.server.api.prefer.Preferences.Return;
 import org.apache.olingo.server.api.prefer.PreferencesApplied;
 import org.apache.olingo.server.api.processor.CountEntityCollectionProcessor;
+import org.apache.olingo.server.api.processor.EntityCollectionCreateProcessor;
 import org.apache.olingo.server.api.processor.EntityCollectionProcessor;
 import org.apache.olingo.server.api.processor.EntityProcessor;
 import org.apache.olingo.server.api.processor.MediaEntityProcessor;
 import org.apache.olingo.server.api.processor.ReferenceCollectionProcessor;
 import org.apache.olingo.server.api.processor.ReferenceProcessor;
+import org.apache.olingo.server.api.serializer.EdmAssistedSerializerOptions;
 import org.apache.olingo.server.api.serializer.EntityCollectionSerializerOptions;
 import org.apache.olingo.server.api.serializer.EntitySerializerOptions;
 import org.apache.olingo.server.api.serializer.ReferenceCollectionSerializerOptions;
@@ -81,7 +85,9 @@ import org.apache.olingo.server.tecsvc.async.AsyncProcessor;
 import org.apache.olingo.server.tecsvc.async.TechnicalAsyncService;
 import org.apache.olingo.server.tecsvc.data.DataProvider;
 import org.apache.olingo.server.tecsvc.data.RequestValidator;
+import org.apache.olingo.server.tecsvc.data.SearchIndex;
 import org.apache.olingo.server.tecsvc.processor.queryoptions.ExpandSystemQueryOptionHandler;
+import org.apache.olingo.server.tecsvc.processor.queryoptions.options.ApplyHandler;
 import org.apache.olingo.server.tecsvc.processor.queryoptions.options.CountHandler;
 import org.apache.olingo.server.tecsvc.processor.queryoptions.options.DeltaTokenHandler;
 import org.apache.olingo.server.tecsvc.processor.queryoptions.options.FilterHandler;
@@ -97,9 +103,11 @@ import org.apache.olingo.server.tecsvc.provider.ContainerProvider;
  */
 public class TechnicalEntityProcessor extends TechnicalProcessor
     implements EntityCollectionProcessor, CountEntityCollectionProcessor, EntityProcessor, MediaEntityProcessor,
-    ReferenceCollectionProcessor, ReferenceProcessor {
+    ReferenceCollectionProcessor, ReferenceProcessor, EntityCollectionCreateProcessor {
 
   private static final String DELTATOKEN = "deltatoken";
+  /** Number of entities of a collection that are validated and created together. */
+  private static final int CREATE_CHUNK_SIZE = 100;
   
   public TechnicalEntityProcessor(final DataProvider dataProvider, final ServiceMetadata serviceMetadata) {
     super(dataProvider, serviceMetadata);
@@ -108,11 +116,48 @@ public class TechnicalEntityProcessor extends TechnicalProcessor
   @Override
   public void readEntityCollection(final ODataRequest request, final ODataResponse response, final UriInfo uriInfo,
       final ContentType requestedContentType) throws ODataApplicationException, ODataLibraryException {
+    if (uriInfo.getApplyOption() != null) {
+      readAggregatedEntityCollection(response, uriInfo, requestedContentType);
+      return;
+    }
     validateOptions(uriInfo.asUriInfoResource());
 
     readEntityCollection(request, response, uriInfo, requestedContentType, false);
   }
 
+  private void readAggregatedEntityCollection(final ODataResponse response, final UriInfo uriInfo,
+      final ContentType requestedContentType) throws ODataApplicationException, ODataLibraryException {
+    if (uriInfo.getUriResourceParts().size() != 1 || uriInfo.getExpandOption() != null) {
+      throw new ODataApplicationException("Not all of the specified options are supported.",
+          HttpStatusCode.NOT_IMPLEMENTED.getStatusCode(), Locale.ROOT);
+    }
+    final EdmEntitySet edmEntitySet = getEdmEntitySet(uriInfo.asUriInfoResource());
+    final EntityCollection entitySet = ApplyHandler.applyApplySystemQueryOption(uriInfo.getApplyOption(),
+        readEntityCollection(uriInfo), uriInfo, serviceMetadata.getEdm());
+
+    // The system query options other than $apply are evaluated on the result of the transformations.
+    FilterHandler.applyFilterSystemQuery(uriInfo.getFilterOption(), entitySet, uriInfo, serviceMetadata.getEdm());
+    CountHandler.applyCountSystemQueryOption(uriInfo.getCountOption(), entitySet);
+    OrderByHandler.applyOrderByOption(uriInfo.getOrderByOption(), entitySet, uriInfo, serviceMetadata.getEdm());
+    SkipHandler.applySkipSystemQueryHandler(uriInfo.getSkipOption(), entitySet);
+    TopHandler.applyTopSystemQueryOption(uriInfo.getTopOption(), entitySet);
+
+    StringBuilder selectList = new StringBuilder();
+    if (!entitySet.getEntities().isEmpty()) {
+      for (final Property property : entitySet.getEntities().get(0).getProperties()) {
+        selectList.append(selectList.length() == 0 ? "" : ",").append(property.getName());
+      }
+    }
+    response.setContent(odata.createEdmAssistedSerializer(requestedContentType)
+        .entityCollection(serviceMetadata, null, entitySet, EdmAssistedSerializerOptions.with()
+            .contextURL(isODataMetadataNone(requestedContentType) ? null :
+                ContextURL.with().entitySet(edmEntitySet).selectList(selectList.toString()).build())
+            .build())
+        .getContent());
+    response.setStatusCode(HttpStatusCode.OK.getStatusCode());
+    response.setHeader(HttpHeader.CONTENT_TYPE, requestedContentType.toContentTypeString());
+  }
+
   @Override
   public void countEntityCollection(final ODataRequest request, final ODataResponse response,
       final UriInfo uriInfo) throws ODataApplicationException, ODataLibraryException {
@@ -122,11 +167,12 @@ public class TechnicalEntityProcessor extends TechnicalProcessor
     EntityCollection entitySet = new EntityCollection();
     entitySet.getEntities().addAll(entitySetInitial.getEntities());
     FilterHandler.applyFilterSystemQuery(uriInfo.getFilterOption(), entitySet, uriInfo, serviceMetadata.getEdm());
-    SearchHandler.applySearchSystemQueryOption(uriInfo.getSearchOption(), entitySet);
+    SearchHandler.applySearchSystemQueryOption(uriInfo.getSearchOption(), entitySet,
+        getSearchIndex(uriInfo, entitySetInitial));
     int count =  entitySet.getEntities().size();
     for (SystemQueryOption systemQueryOption : uriInfo.getSystemQueryOptions()) {
       if (systemQueryOption.getName().contains(DELTATOKEN)) {
-        count = count + getDeltaCount(uriInfo);
+        count = getCount(readDelta(uriInfo, systemQueryOption.getText()));
         break;
       }
     }
@@ -135,14 +181,11 @@ public class TechnicalEntityProcessor extends TechnicalProcessor
     response.setHeader(HttpHeader.CONTENT_TYPE, ContentType.TEXT_PLAIN.toContentTypeString());
   }
 
-  private int getDeltaCount(UriInfo uriInfo) throws ODataApplicationException {
-    List<DeletedEntity> deletedEntity = readDeletedEntities(uriInfo);
-    List<DeltaLink> addedLink = readAddedLinks(uriInfo);
-    List<DeltaLink> deletedLink = readDeletedLinks(uriInfo);   
-    List<Entity> listofNavigationEntities = readNavigationEntities(uriInfo);
-    return deletedEntity.size() + addedLink.size() + deletedLink.size() + listofNavigationEntities.size();
+  private int getCount(final Delta delta) {
+    return delta.getEntities().size() + delta.getDeletedEntities().size()
+        + delta.getAddedLinks().size() + delta.getDeletedLinks().size();
   }
-  
+
   @Override
   public void readEntity(final ODataRequest request, final ODataResponse response, final UriInfo uriInfo,
       final ContentType requestedContentType) throws ODataApplicationException, ODataLibraryException {
@@ -157,7 +200,7 @@ public class TechnicalEntityProcessor extends TechnicalProcessor
     getEdmEntitySet(uriInfo); // including checks
     final Entity entity = readEntity(uriInfo);
 
-    response.setContent(odata.createFixedFormatSerializer().binary(dataProvider.readMedia(entity)));
+    response.setMediaContent(ODataMediaContent.of(dataProvider.readMedia(entity)));
     response.setStatusCode(HttpStatusCode.OK.getStatusCode());
     response.setHeader(HttpHeader.CONTENT_TYPE, entity.getMediaContentType());
     if (entity.getMediaETag() != null) {
@@ -248,6 +291,103 @@ public class TechnicalEntityProcessor extends TechnicalProcessor
     }
   }
 
+  @Override
+  public void createEntityCollection(final ODataRequest request, final ODataResponse response,
+      final UriInfo uriInfo, final ContentType requestFormat, final ContentType responseFormat)
+      throws ODataApplicationException, ODataLibraryException {
+    if (uriInfo.asUriInfoResource().getUriResourceParts().size() > 1) {
+      throw new ODataApplicationException("Invalid resource type.",
+          HttpStatusCode.NOT_IMPLEMENTED.getStatusCode(), Locale.ROOT);
+    }
+    checkRequestFormat(requestFormat);
+    final EdmEntitySet edmEntitySet = getEdmEntitySet(uriInfo);
+    final EdmEntityType edmEntityType = edmEntitySet.getEntityType();
+    if (edmEntityType.hasStream()) {
+      throw new ODataApplicationException("Media entities cannot be created together.",
+          HttpStatusCode.BAD_REQUEST.getStatusCode(), Locale.ROOT);
+    }
+    final DeserializerStreamResult entities = odata.createDeserializer(requestFormat, serviceMetadata)
+        .entityCollectionStreamed(request.getBody(), edmEntityType);
+
+    // The first chunk is created before the response is started so that its errors get their own status code.
+    final String rawBaseUri = request.getRawBaseUri();
+    final List<Entity> firstChunk = createChunk(rawBaseUri, edmEntitySet, entities);
+    final Return returnPreference = odata.createPreferences(request.getHeaders(HttpHeader.PREFER)).getReturn();
+    if (returnPreference == Return.MINIMAL) {
+      List<Entity> chunk = firstChunk;
+      while (!chunk.isEmpty()) {
+        chunk = createChunk(rawBaseUri, edmEntitySet, entities);
+      }
+      response.setStatusCode(HttpStatusCode.NO_CONTENT.getStatusCode());
+    } else {
+      // The remaining chunks are created while the response is written.
+      final EntityIterator created = new EntityIterator() {
+        private Iterator<Entity> chunk = firstChunk.iterator();
+
+        @Override
+        public boolean hasNext() {
+          if (!chunk.hasNext()) {
+            try {
+              chunk = createChunk(rawBaseUri, edmEntitySet, entities).iterator();
+            } catch (final ODataException e) {
+              throw new ODataRuntimeException("Creating the entities has failed.", e);
+            }
+          }
+          return chunk.hasNext();
+        }
+
+        @Override
+        public Entity next() {
+          if (!hasNext()) {
+            throw new NoSuchElementException();
+          }
+          return chunk.next();
+        }
+
+        @Override
+        public List<Operation> getOperations() {
+          return Collections.emptyList();
+        }
+      };
+      response.setODataContent(odata.createSerializer(responseFormat).entityCollectionStreamed(
+          serviceMetadata, edmEntityType, created,
+          EntityCollectionSerializerOptions.with()
+              .contextURL(isODataMetadataNone(responseFormat) ? null :
+                  getContextUrl(request.getRawODataPath(), edmEntitySet, edmEntityType, false, null, null, false))
+              .build())
+          .getODataContent());
+      response.setHeader(HttpHeader.CONTENT_TYPE, responseFormat.toContentTypeString());
+      response.setStatusCode(HttpStatusCode.CREATED.getStatusCode());
+    }
+    if (returnPreference != null) {
+      response.setHeader(HttpHeader.PREFERENCE_APPLIED,
+          PreferencesApplied.with().returnRepresentation(returnPreference).build().toValueString());
+    }
+  }
+
+  /**
+   * Reads the next chunk of entities, validates all of them, and only then creates them,
+   * including their inline entities (deep insert).
+   * @return the created entities; empty if there are no more entities
+   */
+  private List<Entity> createChunk(final String rawBaseUri, final EdmEntitySet edmEntitySet,
+      final DeserializerStreamResult entities) throws ODataApplicationException, ODataLibraryException {
+    final RequestValidator validator = new RequestValidator(dataProvider, rawBaseUri);
+    List<Entity> chunk = new ArrayList<Entity>();
+    while (chunk.size() < CREATE_CHUNK_SIZE && entities.hasNext()) {
+      final Entity entity = entities.next().getEntity();
+      validator.validate(edmEntitySet, entity);
+      chunk.add(entity);
+    }
+    List<Entity> created = new ArrayList<Entity>(chunk.size());
+    for (final Entity entity : chunk) {
+      final Entity newEntity = dataProvider.create(edmEntitySet);
+      dataProvider.update(rawBaseUri, edmEntitySet, newEntity, entity, false, true);
+      created.add(newEntity);
+    }
+    return created;
+  }
+
   @Override
   public void updateEntity(final ODataRequest request, final ODataResponse response, final UriInfo uriInfo,
       final ContentType requestFormat, final ContentType responseFormat)
@@ -563,6 +703,23 @@ public class TechnicalEntityProcessor extends TechnicalProcessor
   return null;
   }
 
+  /**
+   * Gets the search index if a search is requested on the complete data of an entity set;
+   * other collections are searched by scanning all their entities.
+   */
+  private SearchIndex getSearchIndex(final UriInfo uriInfo, final EntityCollection entityCollection)
+      throws ODataApplicationException {
+    final List<UriResource> resourceParts = uriInfo.getUriResourceParts();
+    if (uriInfo.getSearchOption() != null
+        && resourceParts.size() == 1 && resourceParts.get(0) instanceof UriResourceEntitySet) {
+      final EdmEntitySet edmEntitySet = ((UriResourceEntitySet) resourceParts.get(0)).getEntitySet();
+      if (dataProvider.readAll(edmEntitySet) == entityCollection) {
+        return dataProvider.getSearchIndex(edmEntitySet);
+      }
+    }
+    return null;
+  }
+
   private void readEntityCollection(final ODataRequest request, final ODataResponse response,
       final UriInfo uriInfo, final ContentType requestedContentType, final boolean isReference)
       throws ODataApplicationException, ODataLibraryException {
@@ -605,7 +762,8 @@ public class TechnicalEntityProcessor extends TechnicalProcessor
     entitySet.getOperations().addAll(entitySetInitial.getOperations());
 
     // Apply system query options.
-    SearchHandler.applySearchSystemQueryOption(uriInfo.getSearchOption(), entitySet);
+    SearchHandler.applySearchSystemQueryOption(uriInfo.getSearchOption(), entitySet,
+        getSearchIndex(uriInfo, entitySetInitial));
     FilterHandler.applyFilterSystemQuery(uriInfo.getFilterOption(), entitySet, uriInfo, serviceMetadata.getEdm());
     CountHandler.applyCountSystemQueryOption(uriInfo.getCountOption(), entitySet);
     OrderByHandler.applyOrderByOption(uriInfo.getOrderByOption(), entitySet, uriInfo, serviceMetadata.getEdm());
@@ -635,34 +793,16 @@ public class TechnicalEntityProcessor extends TechnicalProcessor
         serviceMetadata.getEdm());
     final CountOption countOption = uriInfo.getCountOption();
     final List<SystemQueryOption> systemQueryOptions = uriInfo.getSystemQueryOptions();
-    String deltaToken = null;
     for (SystemQueryOption systemQueryOption : systemQueryOptions) {
       if (systemQueryOption.getName().contains(DELTATOKEN)) {
-        deltaToken = systemQueryOption.getText();
-        delta = new Delta();
-        Integer count = 0;
-        if (deltaToken != null) {
-          String deltaTokenValue = generateDeltaToken();
-          List<DeletedEntity> listOfDeletedEntities = readDeletedEntities(uriInfo);
-          List<DeltaLink> listOfAddedLinks = readAddedLinks(uriInfo);
-          List<DeltaLink> listOfDeletedLinks = readDeletedLinks(uriInfo);
-          List<Entity> listofNavigationEntities = readNavigationEntities(uriInfo);
-          delta.getDeletedEntities().addAll(listOfDeletedEntities);
-          delta.getAddedLinks().addAll(listOfAddedLinks);
-          delta.getDeletedLinks().addAll(listOfDeletedLinks);
-          delta.getEntities().addAll(listofNavigationEntities);
-          count = listOfDeletedLinks.size()+listOfAddedLinks.size()+listOfDeletedEntities.size();
-          delta.setDeltaLink(DeltaTokenHandler.createDeltaLink(
-          request.getRawRequestUri(),
-          deltaTokenValue));
-        }
-        
-        delta.getEntities().addAll(entitySetSerialization.getEntities()); 
-        count = count +  delta.getEntities().size();
-        delta.setCount(count);
+        // The token for the next delta link is taken first so that no change in between is missed.
+        final String nextDeltaToken = dataProvider.getDeltaToken();
+        delta = readDelta(uriInfo, systemQueryOption.getText());
+        delta.setCount(getCount(delta));
+        delta.setDeltaLink(DeltaTokenHandler.createDeltaLink(request.getRawRequestUri(), nextDeltaToken));
         break;
       }
-    } 
+    }
     String id;
     if (edmEntitySet == null) {
       // Used for functions, function imports etc.
@@ -671,10 +811,9 @@ public class TechnicalEntityProcessor extends TechnicalProcessor
       id = request.getRawBaseUri() + edmEntitySet.getName();
     }
     if(odata.createPreferences(request.getHeaders(HttpHeader.PREFER)).hasTrackChanges()) {
-      String deltaTokenValue = generateDeltaToken();
       entitySetSerialization.setDeltaLink(DeltaTokenHandler.createDeltaLink(
           request.getRawRequestUri(),
-          deltaTokenValue));
+          dataProvider.getDeltaToken()));
     }
     if(isReference) {
       final SerializerResult serializerResult =
@@ -715,19 +854,6 @@ public class TechnicalEntityProcessor extends TechnicalProcessor
       response.setHeader(HttpHeader.ODATA_VERSION,request.getHeaders(HttpHeader.ODATA_MAX_VERSION).get(0));
     }
   }
-  private List<Entity> readNavigationEntities(final UriInfo uriInfo) {   
-
-    final List<UriResource> resourcePaths = uriInfo.getUriResourceParts();
-    return dataProvider.readNavigationEntities(((UriResourceEntitySet) resourcePaths.get(0)).getEntitySet());
-  }
-
-  private String generateDeltaToken() {
-    SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.000");
-
-    Date date = new Date(System.currentTimeMillis());
-    return dateFormat.format(date);
-  } 
-  
   private SerializerResult serializeDeltaPayloads(final ODataRequest request, final Delta delta, 
       final EdmEntitySet edmEntitySet, final EdmEntityType edmEntityType,
       final ContentType requestedFormat, final ExpandOption expand, final SelectOption select,
@@ -44,6 +44,7 @@ import org.apache.olingo.commons.api.http.HttpMethod;
 import org.apache.olingo.commons.api.http.HttpStatusCode;
 import org.apache.olingo.server.api.ODataApplicationException;
 import org.apache.olingo.server.api.ODataLibraryException;
+import org.apache.olingo.server.api.ODataMediaContent;
 import org.apache.olingo.server.api.ODataRequest;
 import org.apache.olingo.server.api.ODataResponse;
 import org.apache.olingo.server.api.ServiceMetadata;
@@ -278,7 +279,7 @@ public class TechnicalPrimitiveComplexProcessor extends TechnicalProcessor
             response.setContent(serializePrimitiveValue(property, edmProperty, (EdmPrimitiveType) type, returnType));
           }else if(representationType == RepresentationType.PRIMITIVE && type.getFullQualifiedName()
               .getFullQualifiedNameAsString().equals(EDMSTREAM)){
-            response.setContent(odata.createFixedFormatSerializer().binary(dataProvider.readStreamProperty(property)));
+            response.setMediaContent(ODataMediaContent.of(dataProvider.readStreamProperty(property)));
             response.setStatusCode(HttpStatusCode.OK.getStatusCode());
             response.setHeader(HttpHeader.CONTENT_TYPE, ((Link)property.getValue()).getType());
             if (entity.getMediaETag() != null) {
@@ -32,16 +32,15 @@ public class DeltaTokenHandler {
       throws ODataApplicationException {
     // Remove a maybe existing skiptoken, making sure that the query part is not empty.
     String deltalink = rawRequestUri.contains("?") ?
-        rawRequestUri.replaceAll("(\\$|%24)deltatoken=.+&?", "").replaceAll("(\\?|&)$", "") :
+        rawRequestUri.replaceAll("(\\$|%24)deltatoken=[^&]*&?", "").replaceAll("(\\?|&)$", "") :
         rawRequestUri;
 
     // Add a question mark or an ampersand, depending on the current query part.
         deltalink += deltalink.contains("?") ? '&' : '?';
-        deltaToken = deltaToken.substring(0, 4);
     // Append the new skiptoken.
         deltalink += SystemQueryOptionKind.DELTATOKEN.toString().replace("$", "%24")   // poor man's percent encoding
         + '='
-        + "%2A" +deltaToken  ;  // "%2A" is a percent-encoded asterisk
+        + deltaToken;
     
     try {
       return new URI(deltalink);
@@ -19,9 +19,13 @@
 package org.apache.olingo.server.tecsvc.processor.queryoptions.options;
 
 import java.util.Calendar;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.ListIterator;
 import java.util.Locale;
+import java.util.Set;
 
 import javax.xml.bind.DatatypeConverter;
 
@@ -35,6 +39,7 @@ import org.apache.olingo.server.api.uri.queryoption.search.SearchBinary;
 import org.apache.olingo.server.api.uri.queryoption.search.SearchBinaryOperatorKind;
 import org.apache.olingo.server.api.uri.queryoption.search.SearchExpression;
 import org.apache.olingo.server.api.uri.queryoption.search.SearchTerm;
+import org.apache.olingo.server.tecsvc.data.SearchIndex;
 
 public class SearchHandler {
 
@@ -54,6 +59,40 @@ public class SearchHandler {
     }
   }
 
+  /**
+   * Applies the search option with the inverted index of the entity set the entities have been read from;
+   * without index, all entities are scanned.
+   */
+  public static void applySearchSystemQueryOption(final SearchOption searchOption, EntityCollection entitySet,
+      final SearchIndex index) throws ODataApplicationException {
+    if (searchOption == null) {
+      return;
+    } else if (index == null) {
+      applySearchSystemQueryOption(searchOption, entitySet);
+      return;
+    }
+    final List<Entity> matches = index.search(searchOption.getSearchExpression());
+    if (index.getRanking() == null) {
+      final Set<Entity> matchSet = Collections.newSetFromMap(new IdentityHashMap<Entity, Boolean>());
+      matchSet.addAll(matches);
+      for (Iterator<Entity> iterator = entitySet.getEntities().iterator(); iterator.hasNext();) {
+        if (!matchSet.contains(iterator.next())) {
+          iterator.remove();
+        }
+      }
+    } else {
+      // Keep the ranked order but only entities still present, e.g., after a preceding filter.
+      final Set<Entity> present = Collections.newSetFromMap(new IdentityHashMap<Entity, Boolean>());
+      present.addAll(entitySet.getEntities());
+      entitySet.getEntities().clear();
+      for (final Entity entity : matches) {
+        if (present.contains(entity)) {
+          entitySet.getEntities().add(entity);
+        }
+      }
+    }
+  }
+
   private static boolean isTrue(final SearchTerm term, final Property property) {
     if (property.isNull()) {
       return false;
@@ -23,6 +23,7 @@ import java.util.Collections;
 import java.util.List;
 
 import org.apache.olingo.commons.api.data.ComplexValue;
+import org.apache.olingo.commons.api.data.Delta;
 import org.apache.olingo.commons.api.data.Entity;
 import org.apache.olingo.commons.api.data.EntityCollection;
 import org.apache.olingo.commons.api.data.Property;
@@ -30,8 +31,10 @@ import org.apache.olingo.commons.api.edm.Edm;
 import org.apache.olingo.commons.api.edm.EdmEntityContainer;
 import org.apache.olingo.commons.api.edm.EdmEntitySet;
 import org.apache.olingo.commons.api.edmx.EdmxReference;
+import org.apache.olingo.commons.api.http.HttpStatusCode;
 import org.apache.olingo.server.api.OData;
 import org.apache.olingo.server.api.uri.UriParameter;
+import org.apache.olingo.server.tecsvc.data.DataProvider.DataProviderException;
 import org.apache.olingo.server.tecsvc.provider.EdmTechProvider;
 import org.junit.Assert;
 import org.junit.Test;
@@ -174,6 +177,40 @@ public class DataProviderTest {
     Assert.assertEquals("x/y", entity.getMediaContentType());
   }
 
+  @Test
+  public void delta() throws Exception {
+    DataProvider dataProvider = new DataProvider(oData, edm);
+    final String token = dataProvider.getDeltaToken();
+    Assert.assertTrue(dataProvider.readDelta(esAllPrim, token).getEntities().isEmpty());
+
+    final List<Entity> entities = dataProvider.readAll(esAllPrim).getEntities();
+    final Entity changed = entities.get(0);
+    dataProvider.updateETag(changed);
+    final Entity deleted = entities.get(1);
+    dataProvider.delete(esAllPrim, deleted);
+    final Entity created = dataProvider.create(esAllPrim);
+    final Entity target = dataProvider.readAll(entityContainer.getEntitySet("ESTwoPrim")).getEntities().get(0);
+    dataProvider.setLink(esAllPrim.getEntityType().getNavigationProperty("NavPropertyETTwoPrimOne"),
+        created, target);
+
+    final Delta delta = dataProvider.readDelta(esAllPrim, token);
+    Assert.assertEquals(Arrays.asList(changed, created), delta.getEntities());
+    Assert.assertEquals(1, delta.getDeletedEntities().size());
+    Assert.assertEquals(deleted.getId(), delta.getDeletedEntities().get(0).getId());
+    Assert.assertEquals(1, delta.getAddedLinks().size());
+    Assert.assertEquals(created.getId(), delta.getAddedLinks().get(0).getSource());
+    Assert.assertEquals(target.getId(), delta.getAddedLinks().get(0).getTarget());
+    Assert.assertTrue(delta.getDeletedLinks().isEmpty());
+
+    Assert.assertTrue(dataProvider.readDelta(esAllPrim, dataProvider.getDeltaToken()).getEntities().isEmpty());
+    try {
+      dataProvider.readDelta(esAllPrim, "1");
+      Assert.fail("Expected exception not thrown.");
+    } catch (final DataProviderException e) {
+      Assert.assertEquals(HttpStatusCode.GONE.getStatusCode(), e.getStatusCode());
+    }
+  }
+
   private static UriParameter mockParameter(final String name, final String text) {
     UriParameter parameter = Mockito.mock(UriParameter.class);
     Mockito.when(parameter.getName()).thenReturn(name);
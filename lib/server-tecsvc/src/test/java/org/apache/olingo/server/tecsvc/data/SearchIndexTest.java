@@ -0,0 +1,157 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.tecsvc.data;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.olingo.commons.api.data.Entity;
+import org.apache.olingo.commons.api.data.EntityCollection;
+import org.apache.olingo.commons.api.edm.Edm;
+import org.apache.olingo.commons.api.edm.EdmEntitySet;
+import org.apache.olingo.commons.api.edmx.EdmxReference;
+import org.apache.olingo.server.api.OData;
+import org.apache.olingo.server.api.uri.queryoption.SearchOption;
+import org.apache.olingo.server.api.uri.queryoption.search.SearchExpression;
+import org.apache.olingo.server.core.uri.parser.Parser;
+import org.apache.olingo.server.tecsvc.processor.queryoptions.options.SearchHandler;
+import org.apache.olingo.server.tecsvc.provider.EdmTechProvider;
+import org.junit.Test;
+
+public class SearchIndexTest {
+
+  private final OData oData = OData.newInstance();
+  private final Edm edm =
+      oData.createServiceMetadata(new EdmTechProvider(), Collections.<EdmxReference> emptyList())
+      .getEdm();
+  private final EdmEntitySet esAllPrim = edm.getEntityContainer().getEntitySet("ESAllPrim");
+  private final EdmEntitySet esServerSidePaging = edm.getEntityContainer().getEntitySet("ESServerSidePaging");
+
+  @Test
+  public void terms() throws Exception {
+    final DataProvider dataProvider = new DataProvider(oData, edm);
+    assertEquals(Arrays.asList(-32768), searchKeys(dataProvider, esAllPrim, "Second"));
+    assertEquals(Collections.emptyList(), searchKeys(dataProvider, esAllPrim, "second"));
+    assertEquals(Arrays.asList(32767, -32768), searchKeys(dataProvider, esAllPrim, "Resource"));
+    assertEquals(Arrays.asList(-32768), searchKeys(dataProvider, esAllPrim, "Sec"));
+    assertEquals(Arrays.asList(-32768), searchKeys(dataProvider, esAllPrim, "\"negative values\""));
+    assertEquals(Collections.emptyList(), searchKeys(dataProvider, esAllPrim, "\"values negative\""));
+    assertEquals(Arrays.asList(32766, -32766, 32767),
+        searchKeys(dataProvider, edm.getEntityContainer().getEntitySet("ESTwoPrim"), "\"32\""));
+  }
+
+  @Test
+  public void operators() throws Exception {
+    final DataProvider dataProvider = new DataProvider(oData, edm);
+    assertEquals(Collections.emptyList(), searchKeys(dataProvider, esAllPrim, "Second AND positive"));
+    assertEquals(Arrays.asList(32767, -32768), searchKeys(dataProvider, esAllPrim, "Second OR positive"));
+    assertEquals(Arrays.asList(32767), searchKeys(dataProvider, esAllPrim, "Resource AND NOT Second"));
+    assertEquals(Arrays.asList(32767), searchKeys(dataProvider, esAllPrim, "NOT Second AND Resource"));
+
+    final List<Integer> result = searchKeys(dataProvider, esServerSidePaging, "\"Number:\" AND NOT \"106\"");
+    assertEquals(502, result.size());
+    assertEquals(false, result.contains(106));
+    assertEquals(Arrays.asList(10, 100, 101, 102, 103, 104, 105, 106, 107, 108, 109),
+        searchKeys(dataProvider, esServerSidePaging, "\"Number:10\" OR \"100\""));
+  }
+
+  @Test
+  public void sameResultsAsScan() throws Exception {
+    final DataProvider dataProvider = new DataProvider(oData, edm);
+    for (final EdmEntitySet edmEntitySet : Arrays.asList(esAllPrim, esServerSidePaging,
+        edm.getEntityContainer().getEntitySet("ESTwoPrim"), edm.getEntityContainer().getEntitySet("ESMedia"))) {
+      for (final String search : new String[] { "First", "Sec", "second", "Second OR positive", "NOT First",
+          "\"negative values\"", "\"32\"", "\"Number:1\" AND NOT \"5\"", "\"2015-\"", "AAAA",
+          "ond", "\"ber:10\"", "xyz" }) {
+        EntityCollection scanned = copy(dataProvider.readAll(edmEntitySet));
+        SearchHandler.applySearchSystemQueryOption(parse(edmEntitySet, search), scanned);
+        EntityCollection indexed = copy(dataProvider.readAll(edmEntitySet));
+        SearchHandler.applySearchSystemQueryOption(parse(edmEntitySet, search), indexed,
+            dataProvider.getSearchIndex(edmEntitySet));
+        assertEquals(edmEntitySet.getName() + " " + search, scanned.getEntities(), indexed.getEntities());
+      }
+    }
+  }
+
+  @Test
+  public void maintenance() throws Exception {
+    final DataProvider dataProvider = new DataProvider(oData, edm);
+    assertEquals(Arrays.asList(-32768), searchKeys(dataProvider, esAllPrim, "Second"));
+    final SearchIndex index = dataProvider.getSearchIndex(esAllPrim);
+
+    final Entity entity = dataProvider.readAll(esAllPrim).getEntities().get(0);
+    dataProvider.updatePropertyValue(entity.getProperty("PropertyString"), "Second Entity");
+    dataProvider.updateETag(entity);
+    assertEquals(Arrays.asList(32767, -32768), searchKeys(dataProvider, esAllPrim, "Second"));
+    assertEquals(Collections.emptyList(), searchKeys(dataProvider, esAllPrim, "positive"));
+
+    final Entity created = dataProvider.create(esAllPrim);
+    dataProvider.updatePropertyValue(created.getProperty("PropertyString"), "Third");
+    dataProvider.updateETag(created);
+    assertEquals(1, searchKeys(dataProvider, esAllPrim, "Third").size());
+
+    dataProvider.delete(esAllPrim, dataProvider.readAll(esAllPrim).getEntities().get(1));
+    assertEquals(Arrays.asList(32767), searchKeys(dataProvider, esAllPrim, "Second"));
+    assertEquals(index, dataProvider.getSearchIndex(esAllPrim));
+  }
+
+  @Test
+  public void ranking() throws Exception {
+    final DataProvider dataProvider = new DataProvider(oData, edm);
+    final SearchIndex index = dataProvider.getSearchIndex(esServerSidePaging);
+    final Entity entity = dataProvider.readAll(esServerSidePaging).getEntities().get(5);
+    dataProvider.updatePropertyValue(entity.getProperty("PropertyString"), "Number 5 Number 5");
+    dataProvider.updateETag(entity);
+    index.setRanking(SearchIndex.TF_IDF);
+    final List<Integer> result = searchKeys(dataProvider, esServerSidePaging, "Number");
+    assertEquals(503, result.size());
+    assertEquals(Integer.valueOf(6), result.get(0));
+  }
+
+  private List<Integer> searchKeys(final DataProvider dataProvider, final EdmEntitySet edmEntitySet,
+      final String search) throws Exception {
+    EntityCollection entitySet = copy(dataProvider.readAll(edmEntitySet));
+    SearchHandler.applySearchSystemQueryOption(parse(edmEntitySet, search), entitySet,
+        dataProvider.getSearchIndex(edmEntitySet));
+    List<Integer> keys = new ArrayList<Integer>();
+    for (final Entity entity : entitySet.getEntities()) {
+      keys.add(((Number) entity.getProperty("PropertyInt16").getValue()).intValue());
+    }
+    return keys;
+  }
+
+  private SearchOption parse(final EdmEntitySet edmEntitySet, final String search) throws Exception {
+    final SearchOption option = new Parser(edm, oData)
+        .parseUri(edmEntitySet.getName(), "$search=" + search.replace(" ", "%20"), null, "")
+        .getSearchOption();
+    final SearchExpression expression = option.getSearchExpression();
+    assertEquals(false, expression == null);
+    return option;
+  }
+
+  private EntityCollection copy(final EntityCollection entityCollection) {
+    EntityCollection copy = new EntityCollection();
+    copy.getEntities().addAll(entityCollection.getEntities());
+    return copy;
+  }
+}
@@ -0,0 +1,148 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.tecsvc.processor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Collections;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.olingo.commons.api.data.Entity;
+import org.apache.olingo.commons.api.edm.EdmEntitySet;
+import org.apache.olingo.commons.api.edmx.EdmxReference;
+import org.apache.olingo.commons.api.format.ContentType;
+import org.apache.olingo.commons.api.http.HttpHeader;
+import org.apache.olingo.commons.api.http.HttpMethod;
+import org.apache.olingo.commons.api.http.HttpStatusCode;
+import org.apache.olingo.server.api.OData;
+import org.apache.olingo.server.api.ODataApplicationException;
+import org.apache.olingo.server.api.ODataRequest;
+import org.apache.olingo.server.api.ODataResponse;
+import org.apache.olingo.server.api.ServiceMetadata;
+import org.apache.olingo.server.core.ODataHandlerImpl;
+import org.apache.olingo.server.core.debug.ServerCoreDebugger;
+import org.apache.olingo.server.core.uri.parser.Parser;
+import org.apache.olingo.server.tecsvc.data.DataProvider;
+import org.apache.olingo.server.tecsvc.provider.EdmTechProvider;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class TechnicalEntityProcessorTest {
+
+  private static final String BASE_URI = "http://localhost/odata";
+  private static final int COUNT = 150;
+
+  private final OData odata = OData.newInstance();
+  private final ServiceMetadata metadata =
+      odata.createServiceMetadata(new EdmTechProvider(), Collections.<EdmxReference> emptyList());
+  private final DataProvider dataProvider = new DataProvider(odata, metadata.getEdm());
+  private final TechnicalEntityProcessor processor = new TechnicalEntityProcessor(dataProvider, metadata);
+  private final EdmEntitySet esAllPrim = metadata.getEdm().getEntityContainer().getEntitySet("ESAllPrim");
+  private final EdmEntitySet esTwoPrim = metadata.getEdm().getEntityContainer().getEntitySet("ESTwoPrim");
+
+  @Test
+  public void createEntityCollection() throws Exception {
+    final int allPrimCount = count(esAllPrim);
+    final int twoPrimCount = count(esTwoPrim);
+    final ODataResponse response = process(createRequest(null));
+    assertEquals(HttpStatusCode.CREATED.getStatusCode(), response.getStatusCode());
+    assertNull(response.getHeader(HttpHeader.PREFERENCE_APPLIED));
+    assertNotNull(response.getODataContent());
+
+    // Only the first chunk has been created before the response is written.
+    assertEquals(allPrimCount + 100, count(esAllPrim));
+    ByteArrayOutputStream content = new ByteArrayOutputStream();
+    response.getODataContent().write(content);
+    assertEquals(allPrimCount + COUNT, count(esAllPrim));
+
+    final JsonNode created = new ObjectMapper().readTree(content.toByteArray());
+    assertEquals("$metadata#ESAllPrim", created.get("@odata.context").asText());
+    assertEquals(COUNT, created.get("value").size());
+    assertEquals("Entity 149", created.get("value").get(COUNT - 1).get("PropertyString").asText());
+
+    // The inline entity of the first entity has been created and linked, too.
+    assertEquals(twoPrimCount + 1, count(esTwoPrim));
+    final Entity first = dataProvider.readAll(esAllPrim).getEntities().get(allPrimCount);
+    assertEquals("deep", first.getNavigationLink("NavPropertyETTwoPrimOne").getInlineEntity()
+        .getProperty("PropertyString").getValue());
+  }
+
+  @Test
+  public void createEntityCollectionMinimal() throws Exception {
+    final int allPrimCount = count(esAllPrim);
+    final ODataResponse response = process(createRequest("return=minimal"));
+    assertEquals(HttpStatusCode.NO_CONTENT.getStatusCode(), response.getStatusCode());
+    assertEquals("return=minimal", response.getHeader(HttpHeader.PREFERENCE_APPLIED));
+    assertNull(response.getODataContent());
+    assertEquals(allPrimCount + COUNT, count(esAllPrim));
+  }
+
+  @Test
+  public void createMediaEntityCollection() throws Exception {
+    // The dispatcher routes requests to media entity sets to the media-entity processor,
+    // so the processor is called directly.
+    ODataRequest request = createRequest(null);
+    try {
+      processor.createEntityCollection(request, new ODataResponse(),
+          new Parser(metadata.getEdm(), odata).parseUri("ESMedia", null, null, BASE_URI),
+          ContentType.JSON, ContentType.JSON);
+      fail("Expected an ODataApplicationException");
+    } catch (final ODataApplicationException e) {
+      assertEquals(HttpStatusCode.BAD_REQUEST.getStatusCode(), e.getStatusCode());
+    }
+  }
+
+  private ODataResponse process(final ODataRequest request) {
+    ODataHandlerImpl handler = new ODataHandlerImpl(odata, metadata, new ServerCoreDebugger(odata));
+    handler.register(processor);
+    return handler.process(request);
+  }
+
+  private ODataRequest createRequest(final String preference) {
+    ODataRequest request = new ODataRequest();
+    request.setMethod(HttpMethod.POST);
+    request.setRawBaseUri(BASE_URI);
+    request.setRawODataPath("ESAllPrim");
+    request.setRawRequestUri(BASE_URI + "/ESAllPrim");
+    request.setHeader(HttpHeader.CONTENT_TYPE, ContentType.JSON.toContentTypeString());
+    if (preference != null) {
+      request.setHeader(HttpHeader.PREFER, preference);
+    }
+    StringBuilder body = new StringBuilder("{\"value\":[");
+    for (int index = 0; index < COUNT; index++) {
+      body.append(index == 0 ? "" : ",")
+          .append("{\"PropertyInt16\":").append(index).append(",\"PropertyString\":\"Entity ").append(index)
+          .append(index == 0 ?
+              "\",\"NavPropertyETTwoPrimOne\":{\"PropertyInt16\":2,\"PropertyString\":\"deep\"}}" :
+              "\",\"NavPropertyETTwoPrimOne@odata.bind\":\"ESTwoPrim(32767)\"}");
+    }
+    request.setBody(IOUtils.toInputStream(body.append("]}").toString()));
+    return request;
+  }
+
+  private int count(final EdmEntitySet edmEntitySet) throws Exception {
+    return dataProvider.readAll(edmEntitySet).getEntities().size();
+  }
+}
@@ -0,0 +1,363 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.olingo.commons.api.edmx.EdmxReference;
+import org.apache.olingo.commons.api.ex.ODataRuntimeException;
+import org.apache.olingo.commons.api.format.ContentType;
+import org.apache.olingo.commons.api.http.HttpHeader;
+import org.apache.olingo.commons.api.http.HttpMethod;
+import org.apache.olingo.commons.api.http.HttpStatusCode;
+import org.apache.olingo.server.api.OData;
+import org.apache.olingo.server.api.ODataContent;
+import org.apache.olingo.server.api.ODataRequest;
+import org.apache.olingo.server.api.ODataResponse;
+import org.apache.olingo.server.api.ServiceMetadata;
+import org.apache.olingo.server.api.processor.EntityCollectionProcessor;
+import org.apache.olingo.server.api.processor.EntityProcessor;
+import org.apache.olingo.server.api.uri.UriInfo;
+import org.apache.olingo.server.core.debug.ServerCoreDebugger;
+import org.apache.olingo.server.tecsvc.provider.EdmTechProvider;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+public class AsyncRequestServiceTest {
+
+  private static final String BASE_URI = "http://localhost/odata";
+
+  @Rule
+  public TemporaryFolder spoolDirectory = new TemporaryFolder();
+
+  private final CountDownLatch release = new CountDownLatch(1);
+  private AsyncRequestService service;
+  private EntityCollectionProcessor processor;
+  private EntityProcessor entityProcessor;
+  private volatile String processedPreferences;
+  private volatile String processedBody;
+  private volatile boolean ignoreInterrupts;
+
+  @Before
+  public void setUp() throws Exception {
+    processor = mock(EntityCollectionProcessor.class);
+    doAnswer(new Answer<Object>() {
+      @Override
+      public Object answer(final InvocationOnMock invocation) throws Throwable {
+        final ODataRequest request = (ODataRequest) invocation.getArguments()[0];
+        processedPreferences = request.getHeader(HttpHeader.PREFER);
+        while (true) {
+          try {
+            release.await(10, TimeUnit.SECONDS);
+            break;
+          } catch (final InterruptedException e) {
+            if (!ignoreInterrupts) {
+              throw e;
+            }
+          }
+        }
+        final ODataResponse response = (ODataResponse) invocation.getArguments()[1];
+        response.setStatusCode(HttpStatusCode.OK.getStatusCode());
+        response.setHeader(HttpHeader.CONTENT_TYPE, "text/plain");
+        response.setContent(new ByteArrayInputStream("collection".getBytes("UTF-8")));
+        return null;
+      }
+    }).when(processor).readEntityCollection(
+        any(ODataRequest.class), any(ODataResponse.class), any(UriInfo.class), any(ContentType.class));
+    entityProcessor = mock(EntityProcessor.class);
+    doAnswer(new Answer<Object>() {
+      @Override
+      public Object answer(final InvocationOnMock invocation) throws Throwable {
+        processedBody = IOUtils.toString(((ODataRequest) invocation.getArguments()[0]).getBody(), "UTF-8");
+        ((ODataResponse) invocation.getArguments()[1]).setStatusCode(HttpStatusCode.NO_CONTENT.getStatusCode());
+        return null;
+      }
+    }).when(entityProcessor).updateEntity(any(ODataRequest.class), any(ODataResponse.class), any(UriInfo.class),
+        any(ContentType.class), any(ContentType.class));
+  }
+
+  @After
+  public void tearDown() {
+    release.countDown();
+    if (service != null) {
+      service.shutdown();
+    }
+  }
+
+  @Test
+  public void synchronous() throws Exception {
+    service = new AsyncRequestService(Executors.newCachedThreadPool(), 10);
+    release.countDown();
+    final ODataResponse response = process(createRequest(HttpMethod.GET, "ESAllPrim", null));
+    assertEquals(HttpStatusCode.OK.getStatusCode(), response.getStatusCode());
+    assertEquals("collection", IOUtils.toString(response.getContent()));
+  }
+
+  @Test
+  public void asynchronous() throws Exception {
+    service = new AsyncRequestService(Executors.newCachedThreadPool(), 10);
+    service.setRetryAfter(5);
+    ODataResponse response = process(createRequest(HttpMethod.GET, "ESAllPrim", "respond-async, odata.track-changes"));
+    assertEquals(HttpStatusCode.ACCEPTED.getStatusCode(), response.getStatusCode());
+    assertEquals("respond-async", response.getHeader(HttpHeader.PREFERENCE_APPLIED));
+    assertEquals("5", response.getHeader(HttpHeader.RETRY_AFTER));
+    final String location = response.getHeader(HttpHeader.LOCATION);
+    assertTrue(location.startsWith(BASE_URI + "/$async/"));
+
+    response = process(createMonitorRequest(HttpMethod.GET, location));
+    assertEquals(HttpStatusCode.ACCEPTED.getStatusCode(), response.getStatusCode());
+    assertEquals(location, response.getHeader(HttpHeader.LOCATION));
+    assertEquals(1, service.getActiveRequests());
+
+    release.countDown();
+    response = waitForResult(location);
+    assertEquals(HttpStatusCode.OK.getStatusCode(), response.getStatusCode());
+    assertEquals(ContentType.APPLICATION_HTTP.toContentTypeString(), response.getHeader(HttpHeader.CONTENT_TYPE));
+    final String result = IOUtils.toString(response.getContent(), "UTF-8");
+    assertTrue(result.startsWith("HTTP/1.1 200 OK\r\n"));
+    assertTrue(result.endsWith("\r\n\r\ncollection"));
+    assertEquals("odata.track-changes", processedPreferences);
+    assertEquals(0, service.getActiveRequests());
+
+    response = process(createMonitorRequest(HttpMethod.GET, location));
+    assertEquals(HttpStatusCode.NOT_FOUND.getStatusCode(), response.getStatusCode());
+  }
+
+  @Test
+  public void backPressure() throws Exception {
+    service = new AsyncRequestService(Executors.newCachedThreadPool(), 1);
+    ODataResponse response = process(createRequest(HttpMethod.GET, "ESAllPrim", "respond-async"));
+    assertEquals(HttpStatusCode.ACCEPTED.getStatusCode(), response.getStatusCode());
+    response = process(createRequest(HttpMethod.GET, "ESAllPrim", "respond-async"));
+    assertEquals(HttpStatusCode.SERVICE_UNAVAILABLE.getStatusCode(), response.getStatusCode());
+    assertEquals("1", response.getHeader(HttpHeader.RETRY_AFTER));
+  }
+
+  @Test
+  public void cancellation() throws Exception {
+    service = new AsyncRequestService(Executors.newCachedThreadPool(), 1);
+    ODataResponse response = process(createRequest(HttpMethod.GET, "ESAllPrim", "respond-async"));
+    final String location = response.getHeader(HttpHeader.LOCATION);
+
+    response = process(createMonitorRequest(HttpMethod.DELETE, location));
+    assertEquals(HttpStatusCode.NO_CONTENT.getStatusCode(), response.getStatusCode());
+    response = process(createMonitorRequest(HttpMethod.GET, location));
+    assertEquals(HttpStatusCode.NOT_FOUND.getStatusCode(), response.getStatusCode());
+
+    // The permit of the cancelled request is available again as soon as its processing has stopped.
+    assertEquals(HttpStatusCode.ACCEPTED.getStatusCode(), waitForPermit().getStatusCode());
+  }
+
+  @Test
+  public void cancellationWhileRunning() throws Exception {
+    service = new AsyncRequestService(Executors.newCachedThreadPool(), 1);
+    ignoreInterrupts = true;
+    final String location =
+        process(createRequest(HttpMethod.GET, "ESAllPrim", "respond-async")).getHeader(HttpHeader.LOCATION);
+    for (int i = 0; i < 100 && processedPreferences == null; i++) {
+      Thread.sleep(10);
+    }
+    process(createMonitorRequest(HttpMethod.DELETE, location));
+
+    // The worker is still running.
+    ODataResponse response = process(createRequest(HttpMethod.GET, "ESAllPrim", "respond-async"));
+    assertEquals(HttpStatusCode.SERVICE_UNAVAILABLE.getStatusCode(), response.getStatusCode());
+
+    release.countDown();
+    assertEquals(HttpStatusCode.ACCEPTED.getStatusCode(), waitForPermit().getStatusCode());
+  }
+
+  @Test
+  public void cancellationBeforeStart() throws Exception {
+    service = new AsyncRequestService(Executors.newSingleThreadExecutor(), 2);
+    process(createRequest(HttpMethod.GET, "ESAllPrim", "respond-async"));
+    final String location =
+        process(createRequest(HttpMethod.GET, "ESAllPrim", "respond-async")).getHeader(HttpHeader.LOCATION);
+
+    // The second request waits for the only thread; cancelling it releases its permit immediately.
+    process(createMonitorRequest(HttpMethod.DELETE, location));
+    ODataResponse response = process(createRequest(HttpMethod.GET, "ESAllPrim", "respond-async"));
+    assertEquals(HttpStatusCode.ACCEPTED.getStatusCode(), response.getStatusCode());
+    response = process(createRequest(HttpMethod.GET, "ESAllPrim", "respond-async"));
+    assertEquals(HttpStatusCode.SERVICE_UNAVAILABLE.getStatusCode(), response.getStatusCode());
+  }
+
+  @Test
+  public void spooling() throws Exception {
+    service = new AsyncRequestService(Executors.newCachedThreadPool(), 10);
+    service.setSpooling(4, spoolDirectory.getRoot());
+    release.countDown();
+    ODataRequest request = createRequest(HttpMethod.PATCH, "ESAllPrim(1)", "respond-async");
+    request.setBody(new ByteArrayInputStream("{\"PropertyString\":\"spooled\"}".getBytes("UTF-8")));
+    final String location = process(request).getHeader(HttpHeader.LOCATION);
+
+    ODataResponse response = waitForResult(location);
+    assertEquals(HttpStatusCode.OK.getStatusCode(), response.getStatusCode());
+    assertEquals("{\"PropertyString\":\"spooled\"}", processedBody);
+    assertEquals(1, spoolDirectory.getRoot().list().length);
+    final InputStream content = response.getContent();
+    assertTrue(IOUtils.toString(content, "UTF-8").startsWith("HTTP/1.1 204 No Content\r\n"));
+    content.close();
+    assertEquals(0, spoolDirectory.getRoot().list().length);
+  }
+
+  @Test
+  public void streamedContent() throws Exception {
+    doAnswer(new Answer<Object>() {
+      @Override
+      public Object answer(final InvocationOnMock invocation) throws Throwable {
+        final ODataResponse response = (ODataResponse) invocation.getArguments()[1];
+        response.setStatusCode(HttpStatusCode.OK.getStatusCode());
+        response.setHeader(HttpHeader.CONTENT_TYPE, "text/plain");
+        response.setODataContent(new ODataContent() {
+          @Override
+          public void write(final WritableByteChannel channel) {
+            write(Channels.newOutputStream(channel));
+          }
+
+          @Override
+          public void write(final OutputStream stream) {
+            try {
+              stream.write("streamed".getBytes("UTF-8"));
+            } catch (final IOException e) {
+              throw new ODataRuntimeException(e);
+            }
+          }
+        });
+        return null;
+      }
+    }).when(processor).readEntityCollection(
+        any(ODataRequest.class), any(ODataResponse.class), any(UriInfo.class), any(ContentType.class));
+    service = new AsyncRequestService(Executors.newCachedThreadPool(), 10);
+    final String location =
+        process(createRequest(HttpMethod.GET, "ESAllPrim", "respond-async")).getHeader(HttpHeader.LOCATION);
+
+    final ODataResponse response = waitForResult(location);
+    assertEquals(HttpStatusCode.OK.getStatusCode(), response.getStatusCode());
+    final String result = IOUtils.toString(response.getContent(), "UTF-8");
+    assertTrue(result.startsWith("HTTP/1.1 200 OK\r\n"));
+    assertTrue(result.endsWith("\r\n\r\nstreamed"));
+  }
+
+  @Test
+  public void expiration() throws Exception {
+    service = new AsyncRequestService(Executors.newCachedThreadPool(), 10);
+    service.setTimeToLive(1, TimeUnit.MILLISECONDS);
+    service.setSpooling(0, spoolDirectory.getRoot());
+    release.countDown();
+    final String location =
+        process(createRequest(HttpMethod.GET, "ESAllPrim", "respond-async")).getHeader(HttpHeader.LOCATION);
+    for (int i = 0; i < 100 && service.getActiveRequests() > 0; i++) {
+      Thread.sleep(50);
+    }
+    Thread.sleep(5);
+    final ODataResponse response = process(createMonitorRequest(HttpMethod.GET, location));
+    assertEquals(HttpStatusCode.NOT_FOUND.getStatusCode(), response.getStatusCode());
+    assertEquals(0, spoolDirectory.getRoot().list().length);
+  }
+
+  @Test
+  public void unsupportedMethod() throws Exception {
+    service = new AsyncRequestService(Executors.newCachedThreadPool(), 10);
+    final String location =
+        process(createRequest(HttpMethod.GET, "ESAllPrim", "respond-async")).getHeader(HttpHeader.LOCATION);
+    final ODataResponse response = process(createMonitorRequest(HttpMethod.PUT, location));
+    assertEquals(HttpStatusCode.METHOD_NOT_ALLOWED.getStatusCode(), response.getStatusCode());
+    assertNull(response.getContent());
+  }
+
+  private ODataResponse waitForResult(final String location) throws InterruptedException {
+    ODataResponse response = null;
+    for (int i = 0; i < 100; i++) {
+      response = process(createMonitorRequest(HttpMethod.GET, location));
+      if (response.getStatusCode() != HttpStatusCode.ACCEPTED.getStatusCode()) {
+        break;
+      }
+      Thread.sleep(50);
+    }
+    return response;
+  }
+
+  private ODataResponse waitForPermit() throws InterruptedException {
+    ODataResponse response = null;
+    for (int i = 0; i < 100; i++) {
+      response = process(createRequest(HttpMethod.GET, "ESAllPrim", "respond-async"));
+      if (response.getStatusCode() != HttpStatusCode.SERVICE_UNAVAILABLE.getStatusCode()) {
+        break;
+      }
+      Thread.sleep(50);
+    }
+    return response;
+  }
+
+  private ODataResponse process(final ODataRequest request) {
+    final OData odata = OData.newInstance();
+    final ServiceMetadata metadata = odata.createServiceMetadata(
+        new EdmTechProvider(), Collections.<EdmxReference> emptyList());
+    ODataHandlerImpl handler = new ODataHandlerImpl(odata, metadata, new ServerCoreDebugger(odata));
+    handler.register(processor);
+    handler.register(entityProcessor);
+    handler.register(service);
+    // same as in the HTTP handlers
+    final ODataResponse asyncResponse = handler.getAsyncRequestService().process(request, handler);
+    return asyncResponse == null ? handler.process(request) : asyncResponse;
+  }
+
+  private ODataRequest createRequest(final HttpMethod method, final String path, final String preferences) {
+    ODataRequest request = new ODataRequest();
+    request.setMethod(method);
+    request.setRawBaseUri(BASE_URI);
+    request.setRawODataPath("/" + path);
+    request.setHeader(HttpHeader.CONTENT_TYPE, ContentType.JSON.toContentTypeString());
+    if (preferences != null) {
+      request.setHeader(HttpHeader.PREFER, preferences);
+    }
+    return request;
+  }
+
+  private ODataRequest createMonitorRequest(final HttpMethod method, final String location) {
+    ODataRequest request = new ODataRequest();
+    request.setMethod(method);
+    request.setRawBaseUri(BASE_URI);
+    request.setRawODataPath(location.substring(BASE_URI.length()));
+    return request;
+  }
+}
@@ -0,0 +1,173 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.olingo.commons.api.data.Entity;
+import org.apache.olingo.commons.api.data.Property;
+import org.apache.olingo.commons.api.data.ValueType;
+import org.apache.olingo.commons.api.edm.Edm;
+import org.apache.olingo.commons.api.edm.EdmEntitySet;
+import org.apache.olingo.commons.api.edmx.EdmxReference;
+import org.apache.olingo.commons.api.http.HttpStatusCode;
+import org.apache.olingo.server.api.OData;
+import org.apache.olingo.server.api.ODataApplicationException;
+import org.apache.olingo.server.api.uri.queryoption.OrderByOption;
+import org.apache.olingo.server.core.KeysetPaging.Seek;
+import org.apache.olingo.server.core.KeysetPaging.SortKey;
+import org.apache.olingo.server.core.uri.parser.Parser;
+import org.apache.olingo.server.tecsvc.provider.EdmTechProvider;
+import org.junit.Test;
+
+public class KeysetPagingTest {
+
+  private static final OData odata = OData.newInstance();
+  private static final Edm edm = odata.createServiceMetadata(new EdmTechProvider(),
+      Collections.<EdmxReference> emptyList()).getEdm();
+  private static final EdmEntitySet ES_ALL_PRIM = edm.getEntityContainer().getEntitySet("ESAllPrim");
+
+  private final KeysetPaging paging = new KeysetPaging("secret".getBytes());
+
+  @Test
+  public void sortKeys() throws Exception {
+    List<SortKey> sortKeys = getSortKeys("PropertyString desc,PropertyInt16");
+    assertEquals(2, sortKeys.size());
+    assertEquals("PropertyString", sortKeys.get(0).getProperty().getName());
+    assertTrue(sortKeys.get(0).isDescending());
+    assertEquals("PropertyInt16", sortKeys.get(1).getProperty().getName());
+    assertFalse(sortKeys.get(1).isDescending());
+
+    assertEquals(1, getSortKeys(null).size());
+    assertEquals(2, getSortKeys("PropertyDate").size());
+    assertNull(getSortKeys("length(PropertyString)"));
+
+    sortKeys = KeysetPaging.getSortKeys(edm.getEntityContainer().getEntitySet("ESCompAllPrim").getEntityType(),
+        parseOrderBy("ESCompAllPrim", "PropertyComp/PropertyString"));
+    assertEquals(2, sortKeys.size());
+    assertEquals(2, sortKeys.get(0).getPath().size());
+  }
+
+  @Test
+  public void roundTrip() throws Exception {
+    final List<SortKey> sortKeys = getSortKeys("PropertyString desc");
+    final String token = paging.createSkipToken(sortKeys, createEntity(42, "Text, with 'quotes'"));
+    assertTrue(token, token.matches("[A-Za-z0-9_-]+"));
+
+    final Seek seek = paging.parseSkipToken(sortKeys, token);
+    assertEquals(Arrays.<Object> asList("Text, with 'quotes'", (short) 42), seek.getValues());
+    assertTrue(seek.isAfter(createEntity(1, "Tex")));
+    assertTrue(seek.isAfter(createEntity(43, "Text, with 'quotes'")));
+    assertFalse(seek.isAfter(createEntity(42, "Text, with 'quotes'")));
+    assertFalse(seek.isAfter(createEntity(41, "Text, with 'quotes'")));
+    assertFalse(seek.isAfter(createEntity(1, "Z")));
+    // Null is less than all other values, so it comes last in descending order.
+    assertTrue(seek.isAfter(createEntity(1, null)));
+
+    final Seek nullSeek = paging.parseSkipToken(sortKeys,
+        paging.createSkipToken(sortKeys, createEntity(7, null)));
+    assertNull(nullSeek.getValues().get(0));
+    assertTrue(nullSeek.isAfter(createEntity(8, null)));
+    assertFalse(nullSeek.isAfter(createEntity(8, "A")));
+  }
+
+  @Test
+  public void pages() throws Exception {
+    final List<SortKey> sortKeys = getSortKeys("PropertyString");
+    List<Entity> entities = new ArrayList<Entity>();
+    for (int index = 0; index < 95; index++) {
+      entities.add(createEntity(index, index % 2 == 0 ? null : "Value " + (index % 7)));
+    }
+    // Sort the entities with the seek predicate itself.
+    List<Entity> sorted = new ArrayList<Entity>();
+    for (final Entity entity : entities) {
+      int position = 0;
+      while (position < sorted.size() && !paging.parseSkipToken(sortKeys,
+          paging.createSkipToken(sortKeys, entity)).isAfter(sorted.get(position))) {
+        position++;
+      }
+      sorted.add(position, entity);
+    }
+
+    List<Entity> read = new ArrayList<Entity>();
+    String skipToken = null;
+    do {
+      final int start = skipToken == null ? 0 : paging.parseSkipToken(sortKeys, skipToken).indexAfter(sorted);
+      final List<Entity> page = sorted.subList(start, Math.min(start + 10, sorted.size()));
+      read.addAll(page);
+      skipToken = start + 10 < sorted.size() ? paging.createSkipToken(sortKeys, page.get(page.size() - 1)) : null;
+    } while (skipToken != null);
+    assertEquals(sorted, read);
+  }
+
+  @Test
+  public void invalidTokens() throws Exception {
+    final List<SortKey> sortKeys = getSortKeys("PropertyString");
+    final String token = paging.createSkipToken(sortKeys, createEntity(1, "a"));
+    paging.parseSkipToken(sortKeys, token);
+
+    assertInvalid(sortKeys, null);
+    assertInvalid(sortKeys, "");
+    assertInvalid(sortKeys, "1*10");
+    assertInvalid(sortKeys, token.substring(1));
+    final char last = token.charAt(token.length() - 1);
+    assertInvalid(sortKeys, token.substring(0, token.length() - 1) + (last == 'A' ? 'B' : 'A'));
+    assertInvalid(getSortKeys("PropertyString desc"), token);
+    assertInvalid(getSortKeys("PropertyInt32"), token);
+    try {
+      new KeysetPaging("other".getBytes()).parseSkipToken(sortKeys, token);
+      fail("Expected exception not thrown.");
+    } catch (final ODataApplicationException e) {
+      assertEquals(HttpStatusCode.BAD_REQUEST.getStatusCode(), e.getStatusCode());
+    }
+  }
+
+  private void assertInvalid(final List<SortKey> sortKeys, final String skipToken) {
+    try {
+      paging.parseSkipToken(sortKeys, skipToken);
+      fail("Expected exception not thrown.");
+    } catch (final ODataApplicationException e) {
+      assertEquals(HttpStatusCode.BAD_REQUEST.getStatusCode(), e.getStatusCode());
+    }
+  }
+
+  private Entity createEntity(final int key, final String text) {
+    return new Entity()
+        .addProperty(new Property(null, "PropertyInt16", ValueType.PRIMITIVE, (short) key))
+        .addProperty(new Property(null, "PropertyString", ValueType.PRIMITIVE, text));
+  }
+
+  private List<SortKey> getSortKeys(final String orderBy) throws Exception {
+    return KeysetPaging.getSortKeys(ES_ALL_PRIM.getEntityType(),
+        orderBy == null ? null : parseOrderBy("ESAllPrim", orderBy));
+  }
+
+  private OrderByOption parseOrderBy(final String entitySetName, final String orderBy) throws Exception {
+    return new Parser(edm, odata).parseUri(entitySetName, "$orderby=" + orderBy, null, "").getOrderByOption();
+  }
+}
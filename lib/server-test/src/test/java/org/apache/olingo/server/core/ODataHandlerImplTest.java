@@ -30,6 +30,7 @@ import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
 
 import java.io.InputStream;
 import java.nio.charset.Charset;
@@ -57,6 +58,7 @@ import org.apache.olingo.server.api.ODataResponse;
 import org.apache.olingo.server.api.ODataServerError;
 import org.apache.olingo.server.api.ServiceMetadata;
 import org.apache.olingo.server.api.batch.BatchFacade;
+import org.apache.olingo.server.api.etag.CustomETagReadSupport;
 import org.apache.olingo.server.api.processor.ActionComplexCollectionProcessor;
 import org.apache.olingo.server.api.processor.ActionComplexProcessor;
 import org.apache.olingo.server.api.processor.ActionEntityCollectionProcessor;
@@ -70,6 +72,7 @@ import org.apache.olingo.server.api.processor.ComplexProcessor;
 import org.apache.olingo.server.api.processor.CountComplexCollectionProcessor;
 import org.apache.olingo.server.api.processor.CountEntityCollectionProcessor;
 import org.apache.olingo.server.api.processor.CountPrimitiveCollectionProcessor;
+import org.apache.olingo.server.api.processor.EntityCollectionCreateProcessor;
 import org.apache.olingo.server.api.processor.EntityCollectionProcessor;
 import org.apache.olingo.server.api.processor.EntityProcessor;
 import org.apache.olingo.server.api.processor.ErrorProcessor;
@@ -88,6 +91,7 @@ import org.apache.olingo.server.tecsvc.processor.TechnicalActionProcessor;
 import org.apache.olingo.server.tecsvc.provider.ContainerProvider;
 import org.apache.olingo.server.tecsvc.provider.EdmTechProvider;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 
 public class ODataHandlerImplTest {
 
@@ -401,6 +405,69 @@ public class ODataHandlerImplTest {
     assertNull(handler.getUriInfo());
   }
 
+  @Test
+  public void conditionalRead() throws Exception {
+    EntityProcessor processor = mock(EntityProcessor.class);
+    ODataResponse response = dispatchConditionalRead(HttpMethod.GET, HttpHeader.IF_NONE_MATCH, "W/\"1\"", processor);
+    assertEquals(HttpStatusCode.NOT_MODIFIED.getStatusCode(), response.getStatusCode());
+    assertEquals("W/\"1\"", response.getHeader(HttpHeader.ETAG));
+    assertNull(response.getContent());
+    verifyZeroInteractions(processor);
+
+    response = dispatchConditionalRead(HttpMethod.HEAD, HttpHeader.IF_NONE_MATCH, "*", processor);
+    assertEquals(HttpStatusCode.NOT_MODIFIED.getStatusCode(), response.getStatusCode());
+    verifyZeroInteractions(processor);
+
+    dispatchConditionalRead(HttpMethod.GET, HttpHeader.IF_NONE_MATCH, "W/\"0\"", processor);
+    verify(processor).readEntity(any(ODataRequest.class), any(ODataResponse.class), any(UriInfo.class),
+        any(ContentType.class));
+  }
+
+  @Test
+  public void conditionalReadFailedPrecondition() throws Exception {
+    EntityProcessor processor = mock(EntityProcessor.class);
+    final ODataResponse response = dispatchConditionalRead(HttpMethod.GET, HttpHeader.IF_MATCH, "W/\"0\"",
+        processor);
+    assertEquals(HttpStatusCode.PRECONDITION_FAILED.getStatusCode(), response.getStatusCode());
+    verifyZeroInteractions(processor);
+  }
+
+  @Test
+  public void conditionalReadWithoutHeader() throws Exception {
+    EntityProcessor processor = mock(EntityProcessor.class);
+    CustomETagReadSupport eTagSupport = mock(CustomETagReadSupport.class);
+    ODataRequest request = new ODataRequest();
+    request.setMethod(HttpMethod.GET);
+    request.setRawODataPath("ESAllPrim(0)");
+    final OData odata = OData.newInstance();
+    ODataHandlerImpl handler = new ODataHandlerImpl(odata,
+        odata.createServiceMetadata(new EdmTechProvider(), Collections.<EdmxReference> emptyList()),
+        new ServerCoreDebugger(odata));
+    handler.register(processor);
+    handler.register(eTagSupport);
+    handler.process(request);
+    verifyZeroInteractions(eTagSupport);
+    verify(processor).readEntity(any(ODataRequest.class), any(ODataResponse.class), any(UriInfo.class),
+        any(ContentType.class));
+  }
+
+  private ODataResponse dispatchConditionalRead(final HttpMethod method, final String headerName,
+      final String headerValue, final Processor processor) throws ODataApplicationException {
+    CustomETagReadSupport eTagSupport = mock(CustomETagReadSupport.class);
+    when(eTagSupport.getReadETag(any(UriInfo.class))).thenReturn("W/\"1\"");
+    ODataRequest request = new ODataRequest();
+    request.setMethod(method);
+    request.setRawODataPath("ESAllPrim(0)");
+    request.addHeader(headerName, headerValue);
+    final OData odata = OData.newInstance();
+    ODataHandlerImpl handler = new ODataHandlerImpl(odata,
+        odata.createServiceMetadata(new EdmTechProvider(), Collections.<EdmxReference> emptyList()),
+        new ServerCoreDebugger(odata));
+    handler.register(processor);
+    handler.register(eTagSupport);
+    return handler.process(request);
+  }
+
   @Test
   public void dispatchBatch() throws Exception {
     final String uri = "$batch";
@@ -652,6 +719,24 @@ public class ODataHandlerImplTest {
     dispatchMethodNotAllowed(HttpMethod.HEAD, uri, processor);
   }
 
+  @Test
+  public void dispatchEntityCollectionCreate() throws Exception {
+    final String collection = "{\"@odata.context\":\"$metadata#ESAllPrim\","
+        + "\"value\":[{\"PropertyInt16\":1},{\"PropertyInt16\":2}]}";
+    final EntityCollectionCreateProcessor processor = mock(EntityCollectionCreateProcessor.class);
+    dispatchCreate(collection, processor);
+    ArgumentCaptor<ODataRequest> requestCaptor = ArgumentCaptor.forClass(ODataRequest.class);
+    verify(processor).createEntityCollection(requestCaptor.capture(), any(ODataResponse.class),
+        any(UriInfo.class), any(ContentType.class), any(ContentType.class));
+    // The dispatcher must hand over the complete payload although it has looked at its start.
+    assertEquals(collection, IOUtils.toString(requestCaptor.getValue().getBody()));
+
+    final EntityProcessor entityProcessor = mock(EntityProcessor.class);
+    dispatchCreate("{\"PropertyInt16\":1,\"PropertyString\":\"value\"}", entityProcessor);
+    verify(entityProcessor).createEntity(any(ODataRequest.class), any(ODataResponse.class), any(UriInfo.class),
+        any(ContentType.class), any(ContentType.class));
+  }
+
 
   @Test
   public void dispatchSingleton() throws Exception {
@@ -1150,6 +1235,22 @@ public class ODataHandlerImplTest {
     return response;
   }
 
+  private void dispatchCreate(final String body, final Processor processor) {
+    ODataRequest request = new ODataRequest();
+    request.setMethod(HttpMethod.POST);
+    request.setRawBaseUri(BASE_URI);
+    request.setRawODataPath("ESAllPrim");
+    request.addHeader(HttpHeader.CONTENT_TYPE, Collections.singletonList(ContentType.JSON.toContentTypeString()));
+    request.setBody(IOUtils.toInputStream(body));
+
+    final OData odata = OData.newInstance();
+    ODataHandlerImpl handler = new ODataHandlerImpl(odata,
+        odata.createServiceMetadata(new EdmTechProvider(), Collections.<EdmxReference> emptyList()),
+        new ServerCoreDebugger(odata));
+    handler.register(processor);
+    assertNotNull(handler.process(request));
+  }
+
   private ODataResponse dispatch(final HttpMethod method, final String path, final Processor processor) {
     return dispatch(method, path, null, null, null, processor);
   }
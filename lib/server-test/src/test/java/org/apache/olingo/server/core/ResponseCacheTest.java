@@ -0,0 +1,258 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.io.ByteArrayInputStream;
+import java.util.Collections;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.olingo.commons.api.edmx.EdmxReference;
+import org.apache.olingo.commons.api.format.ContentType;
+import org.apache.olingo.commons.api.http.HttpHeader;
+import org.apache.olingo.commons.api.http.HttpMethod;
+import org.apache.olingo.commons.api.http.HttpStatusCode;
+import org.apache.olingo.server.api.OData;
+import org.apache.olingo.server.api.ODataRequest;
+import org.apache.olingo.server.api.ODataResponse;
+import org.apache.olingo.server.api.ServiceMetadata;
+import org.apache.olingo.server.api.processor.EntityCollectionProcessor;
+import org.apache.olingo.server.api.processor.EntityProcessor;
+import org.apache.olingo.server.api.uri.UriInfo;
+import org.apache.olingo.server.core.debug.ServerCoreDebugger;
+import org.apache.olingo.server.tecsvc.provider.EdmTechProvider;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+public class ResponseCacheTest {
+
+  private static final String BASE_URI = "http://localhost/odata";
+
+  private EntityCollectionProcessor processor;
+  private EntityProcessor entityProcessor;
+
+  @Before
+  public void setUp() throws Exception {
+    processor = mock(EntityCollectionProcessor.class);
+    doAnswer(new ContentAnswer("collection")).when(processor).readEntityCollection(
+        any(ODataRequest.class), any(ODataResponse.class), any(UriInfo.class), any(ContentType.class));
+    entityProcessor = mock(EntityProcessor.class);
+    doAnswer(new ContentAnswer("entity")).when(entityProcessor).readEntity(
+        any(ODataRequest.class), any(ODataResponse.class), any(UriInfo.class), any(ContentType.class));
+    doAnswer(new StatusAnswer(HttpStatusCode.NO_CONTENT)).when(entityProcessor).updateEntity(
+        any(ODataRequest.class), any(ODataResponse.class), any(UriInfo.class),
+        any(ContentType.class), any(ContentType.class));
+    doAnswer(new StatusAnswer(HttpStatusCode.CREATED)).when(entityProcessor).createEntity(
+        any(ODataRequest.class), any(ODataResponse.class), any(UriInfo.class),
+        any(ContentType.class), any(ContentType.class));
+    doAnswer(new StatusAnswer(HttpStatusCode.NO_CONTENT)).when(entityProcessor).deleteEntity(
+        any(ODataRequest.class), any(ODataResponse.class), any(UriInfo.class));
+  }
+
+  @Test
+  public void hit() throws Exception {
+    final ResponseCache cache = new ResponseCache(1000, 60000);
+    ODataResponse response = dispatch(cache, HttpMethod.GET, "ESAllPrim", "$top=1&$skip=1", null);
+    assertEquals("collection", IOUtils.toString(response.getContent()));
+    response = dispatch(cache, HttpMethod.GET, "ESAllPrim", "$skip=1&$top=1", null);
+    assertEquals(HttpStatusCode.OK.getStatusCode(), response.getStatusCode());
+    assertEquals("collection", IOUtils.toString(response.getContent()));
+    assertEquals("text/plain", response.getHeader(HttpHeader.CONTENT_TYPE));
+    assertEquals("4.0", response.getHeader(HttpHeader.ODATA_VERSION));
+
+    verify(processor, times(1)).readEntityCollection(
+        any(ODataRequest.class), any(ODataResponse.class), any(UriInfo.class), any(ContentType.class));
+    assertEquals(1, cache.getHitCount());
+    assertEquals(1, cache.getMissCount());
+    assertEquals(1, cache.getEntryCount());
+    assertEquals("collection".length(), cache.getSize());
+  }
+
+  @Test
+  public void differentRepresentations() throws Exception {
+    final ResponseCache cache = new ResponseCache(1000, 60000);
+    dispatch(cache, HttpMethod.GET, "ESAllPrim", null, null);
+    dispatch(cache, HttpMethod.GET, "ESAllPrim", "$top=1", null);
+    dispatch(cache, HttpMethod.GET, "ESAllPrim", null, "application/json;odata.metadata=full");
+    verify(processor, times(3)).readEntityCollection(
+        any(ODataRequest.class), any(ODataResponse.class), any(UriInfo.class), any(ContentType.class));
+    assertEquals(0, cache.getHitCount());
+    assertEquals(3, cache.getEntryCount());
+  }
+
+  @Test
+  public void invalidation() throws Exception {
+    final ResponseCache cache = new ResponseCache(1000, 60000);
+    dispatch(cache, HttpMethod.GET, "ESAllPrim", null, null);
+    dispatch(cache, HttpMethod.GET, "ESAllPrim(1)", null, null);
+    dispatch(cache, HttpMethod.GET, "ESTwoPrim", null, null);
+    dispatch(cache, HttpMethod.GET, "ESTwoPrim", "$expand=NavPropertyETAllPrimOne", null);
+    assertEquals(4, cache.getEntryCount());
+
+    dispatch(cache, HttpMethod.DELETE, "ESAllPrim(1)", null, null);
+    assertEquals(3, cache.getInvalidationCount());
+    assertEquals(1, cache.getEntryCount());
+
+    dispatch(cache, HttpMethod.GET, "ESTwoPrim", null, null);
+    assertEquals(1, cache.getHitCount());
+  }
+
+  @Test
+  public void invalidationByDeepInsert() throws Exception {
+    final ResponseCache cache = new ResponseCache(1000, 60000);
+    dispatch(cache, HttpMethod.GET, "ESTwoPrim", null, null);
+    dispatch(cache, HttpMethod.GET, "ESTwoPrim(1)", null, null);
+    assertEquals(2, cache.getEntryCount());
+
+    // The new ESAllPrim entity brings a new ESTwoPrim entity along.
+    ODataRequest request = createRequest(HttpMethod.POST, "ESAllPrim", null, null);
+    request.setBody(IOUtils.toInputStream("{\"PropertyInt16\":1,"
+        + "\"NavPropertyETTwoPrimMany\":[{\"PropertyInt16\":2,\"PropertyString\":\"deep\"}]}"));
+    createHandler(cache).process(request);
+    assertEquals(0, cache.getEntryCount());
+
+    dispatch(cache, HttpMethod.GET, "ESTwoPrim", null, null);
+    verify(processor, times(2)).readEntityCollection(
+        any(ODataRequest.class), any(ODataResponse.class), any(UriInfo.class), any(ContentType.class));
+  }
+
+  @Test
+  public void invalidationByUpdate() throws Exception {
+    final ResponseCache cache = new ResponseCache(1000, 60000);
+    dispatch(cache, HttpMethod.GET, "ESTwoPrim", null, null);
+    // The payload could bind the entity to other entities.
+    dispatch(cache, HttpMethod.PATCH, "ESAllPrim(1)", null, null);
+    assertEquals(0, cache.getEntryCount());
+  }
+
+  @Test
+  public void eviction() throws Exception {
+    final ResponseCache cache = new ResponseCache(40, 60000);
+    dispatch(cache, HttpMethod.GET, "ESAllPrim", null, null);
+    dispatch(cache, HttpMethod.GET, "ESAllPrim(1)", null, null);
+    dispatch(cache, HttpMethod.GET, "ESAllPrim(2)", null, null);
+    dispatch(cache, HttpMethod.GET, "ESTwoPrim", null, null);
+    assertEquals(0, cache.getEvictionCount());
+    assertEquals(32, cache.getSize());
+
+    dispatch(cache, HttpMethod.GET, "ESCompAllPrim", null, null);
+    assertEquals(1, cache.getEvictionCount());
+    assertEquals(4, cache.getEntryCount());
+    assertEquals(32, cache.getSize());
+
+    cache.clear();
+    assertEquals(0, cache.getEntryCount());
+    assertEquals(0, cache.getSize());
+  }
+
+  @Test
+  public void expiration() throws Exception {
+    final ResponseCache cache = new ResponseCache(1000, 1);
+    dispatch(cache, HttpMethod.GET, "ESAllPrim", null, null);
+    Thread.sleep(5);
+    dispatch(cache, HttpMethod.GET, "ESAllPrim", null, null);
+    assertEquals(0, cache.getHitCount());
+    assertEquals(1, cache.getEvictionCount());
+    assertEquals(1, cache.getEntryCount());
+  }
+
+  @Test
+  public void notCacheable() throws Exception {
+    final ResponseCache cache = new ResponseCache(1000, 60000);
+    ODataRequest request = createRequest(HttpMethod.GET, "ESAllPrim(1)", null, null);
+    request.setHeader(HttpHeader.IF_NONE_MATCH, "W/\"1\"");
+    createHandler(cache).process(request);
+    dispatch(cache, HttpMethod.GET, "SINav", null, null);
+    assertEquals(0, cache.getMissCount());
+    assertEquals(0, cache.getEntryCount());
+  }
+
+  private ODataResponse dispatch(final ResponseCache cache, final HttpMethod method, final String path,
+      final String query, final String accept) {
+    return createHandler(cache).process(createRequest(method, path, query, accept));
+  }
+
+  private ODataHandlerImpl createHandler(final ResponseCache cache) {
+    final OData odata = OData.newInstance();
+    final ServiceMetadata metadata = odata.createServiceMetadata(
+        new EdmTechProvider(), Collections.<EdmxReference> emptyList());
+    ODataHandlerImpl handler = new ODataHandlerImpl(odata, metadata, new ServerCoreDebugger(odata));
+    handler.register(processor);
+    handler.register(entityProcessor);
+    handler.register(cache);
+    return handler;
+  }
+
+  private ODataRequest createRequest(final HttpMethod method, final String path, final String query,
+      final String accept) {
+    ODataRequest request = new ODataRequest();
+    request.setMethod(method);
+    request.setRawBaseUri(BASE_URI);
+    request.setRawODataPath(path);
+    request.setRawQueryPath(query);
+    if (method == HttpMethod.POST || method == HttpMethod.PUT || method == HttpMethod.PATCH) {
+      request.setHeader(HttpHeader.CONTENT_TYPE, ContentType.JSON.toContentTypeString());
+    }
+    if (accept != null) {
+      request.setHeader(HttpHeader.ACCEPT, accept);
+    }
+    return request;
+  }
+
+  private static class StatusAnswer implements Answer<Object> {
+    private final HttpStatusCode statusCode;
+
+    private StatusAnswer(final HttpStatusCode statusCode) {
+      this.statusCode = statusCode;
+    }
+
+    @Override
+    public Object answer(final InvocationOnMock invocation) throws Throwable {
+      final ODataResponse response = (ODataResponse) invocation.getArguments()[1];
+      response.setStatusCode(statusCode.getStatusCode());
+      write(response);
+      return null;
+    }
+
+    protected void write(final ODataResponse response) {}
+  }
+
+  private static class ContentAnswer extends StatusAnswer {
+    private final String content;
+
+    private ContentAnswer(final String content) {
+      super(HttpStatusCode.OK);
+      this.content = content;
+    }
+
+    @Override
+    protected void write(final ODataResponse response) {
+      response.setContent(new ByteArrayInputStream(content.getBytes()));
+      response.setHeader(HttpHeader.CONTENT_TYPE, "text/plain");
+    }
+  }
+}
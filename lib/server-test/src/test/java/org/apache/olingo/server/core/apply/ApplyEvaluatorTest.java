@@ -0,0 +1,203 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.core.apply;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.olingo.commons.api.data.Entity;
+import org.apache.olingo.commons.api.data.EntityCollection;
+import org.apache.olingo.commons.api.data.Property;
+import org.apache.olingo.commons.api.data.ValueType;
+import org.apache.olingo.commons.api.edm.Edm;
+import org.apache.olingo.commons.api.edmx.EdmxReference;
+import org.apache.olingo.commons.api.http.HttpStatusCode;
+import org.apache.olingo.server.api.OData;
+import org.apache.olingo.server.api.ODataApplicationException;
+import org.apache.olingo.server.api.uri.UriInfo;
+import org.apache.olingo.server.core.uri.parser.Parser;
+import org.apache.olingo.server.tecsvc.data.DataProvider;
+import org.apache.olingo.server.tecsvc.processor.queryoptions.options.ApplyHandler;
+import org.apache.olingo.server.tecsvc.provider.EdmTechProvider;
+import org.junit.Test;
+
+public class ApplyEvaluatorTest {
+
+  private static final OData odata = OData.newInstance();
+  private static final Edm edm = odata.createServiceMetadata(
+      new EdmTechProvider(), Collections.<EdmxReference> emptyList()).getEdm();
+  private final DataProvider data = new DataProvider(odata, edm);
+
+  @Test
+  public void aggregate() throws Exception {
+    final List<Entity> result = apply("ESTwoPrim",
+        "aggregate(PropertyInt16 with sum as Total,PropertyInt16 with average as Average,$count as Count)");
+    assertEquals(1, result.size());
+    assertEquals(new BigDecimal(32402), result.get(0).getProperty("Total").getValue());
+    assertEquals(new BigDecimal("8100.5"), result.get(0).getProperty("Average").getValue());
+    assertEquals(BigDecimal.valueOf(4), result.get(0).getProperty("Count").getValue());
+    assertEquals("Edm.Decimal", result.get(0).getProperty("Count").getType());
+  }
+
+  @Test
+  public void aggregateIgnoresNullValues() throws Exception {
+    final List<Entity> result = apply("ESTwoPrim",
+        "aggregate(PropertyString with countdistinct as Distinct,PropertyString with min as Min)");
+    assertEquals(BigDecimal.valueOf(3), result.get(0).getProperty("Distinct").getValue());
+    assertEquals("Test String1", result.get(0).getProperty("Min").getValue());
+  }
+
+  @Test
+  public void groupBy() throws Exception {
+    final List<Entity> result = apply("ESAllPrim", "groupby((PropertyBoolean),aggregate($count as Count))");
+    assertEquals(2, result.size());
+    assertEquals(true, result.get(0).getProperty("PropertyBoolean").getValue());
+    assertEquals(BigDecimal.ONE, result.get(0).getProperty("Count").getValue());
+    assertEquals(false, result.get(1).getProperty("PropertyBoolean").getValue());
+    assertEquals(BigDecimal.valueOf(2), result.get(1).getProperty("Count").getValue());
+  }
+
+  @Test
+  public void groupByWithoutAggregation() throws Exception {
+    final List<Entity> result = apply("ESAllPrim", "groupby((PropertyBoolean))");
+    assertEquals(2, result.size());
+    assertEquals(1, result.get(0).getProperties().size());
+  }
+
+  @Test
+  public void groupByComplexProperty() throws Exception {
+    final List<Entity> result = apply("ESCompAllPrim",
+        "groupby((PropertyComp/PropertyString),aggregate($count as Count))");
+    assertTrue(result.size() > 0);
+    final Property complex = result.get(0).getProperty("PropertyComp");
+    assertTrue(complex.isComplex());
+    assertEquals(1, complex.asComplex().getValue().size());
+    assertEquals("PropertyString", complex.asComplex().getValue().get(0).getName());
+  }
+
+  @Test
+  public void filterAndCompute() throws Exception {
+    final UriInfo uriInfo = parse("ESTwoPrim",
+        "filter(PropertyInt16 gt 0)/compute(PropertyInt16 add 1 as Next)/aggregate(Next with max as Max)");
+    final EntityCollection result = ApplyHandler.applyApplySystemQueryOption(uriInfo.getApplyOption(),
+        data.readAll(edm.getEntityContainer().getEntitySet("ESTwoPrim")), uriInfo, edm);
+    assertEquals(1, result.getEntities().size());
+    assertEquals(32768, ((Number) result.getEntities().get(0).getProperty("Max").getValue()).intValue());
+  }
+
+  @Test
+  public void topCount() throws Exception {
+    final List<Entity> result = apply("ESTwoPrim", "topcount(2,PropertyInt16)");
+    assertEquals(2, result.size());
+    assertEquals((short) 32767, result.get(0).getProperty("PropertyInt16").getValue());
+    assertEquals((short) 32766, result.get(1).getProperty("PropertyInt16").getValue());
+  }
+
+  @Test
+  public void concat() throws Exception {
+    final List<Entity> result = apply("ESTwoPrim",
+        "concat(aggregate($count as Count),bottomcount(1,PropertyInt16))");
+    assertEquals(2, result.size());
+    assertEquals(BigDecimal.valueOf(4), result.get(0).getProperty("Count").getValue());
+    assertEquals((short) -32766, result.get(1).getProperty("PropertyInt16").getValue());
+  }
+
+  @Test
+  public void parallelGroupBy() throws Exception {
+    final UriInfo uriInfo = parse("ESTwoPrim",
+        "groupby((PropertyInt16),aggregate(PropertyString with countdistinct as Distinct,$count as Count))");
+    final EntityCollection input = createEntities(1000, 7);
+
+    ApplyEvaluator evaluator = new ApplyEvaluator(null);
+    final List<Entity> sequential = evaluator.apply(uriInfo.getApplyOption(), input).getEntities();
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      evaluator.setParallelism(executor, 4);
+      final List<Entity> parallel = evaluator.apply(uriInfo.getApplyOption(), input).getEntities();
+      assertEquals(7, parallel.size());
+      for (int index = 0; index < parallel.size(); index++) {
+        assertEquals(sequential.get(index).getProperty("PropertyInt16").getValue(),
+            parallel.get(index).getProperty("PropertyInt16").getValue());
+        assertEquals(sequential.get(index).getProperty("Count").getValue(),
+            parallel.get(index).getProperty("Count").getValue());
+        assertEquals(sequential.get(index).getProperty("Distinct").getValue(),
+            parallel.get(index).getProperty("Distinct").getValue());
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void approximateCountDistinct() throws Exception {
+    final UriInfo uriInfo = parse("ESTwoPrim", "aggregate(PropertyString with countdistinct as Distinct)");
+    ApplyEvaluator evaluator = new ApplyEvaluator(null);
+    evaluator.setApproximateCountDistinct(true);
+    final BigDecimal estimate = (BigDecimal) evaluator.apply(uriInfo.getApplyOption(), createEntities(20000, 1))
+        .getEntities().get(0).getProperty("Distinct").getValue();
+    // There are three entities for each string value.
+    assertEquals(6667, estimate.doubleValue(), 6667 * 0.03);
+  }
+
+  @Test
+  public void emptyInput() throws Exception {
+    final UriInfo uriInfo = parse("ESTwoPrim", "aggregate(PropertyInt16 with sum as Total,$count as Count)");
+    final Entity result = new ApplyEvaluator(null).apply(uriInfo.getApplyOption(), new EntityCollection())
+        .getEntities().get(0);
+    assertNull(result.getProperty("Total").getValue());
+    assertEquals(BigDecimal.ZERO, result.getProperty("Count").getValue());
+  }
+
+  @Test
+  public void customAggregationMethod() throws Exception {
+    try {
+      apply("ESTwoPrim", "aggregate(PropertyInt16 with Custom.Method as Custom)");
+      fail("Expected exception not thrown.");
+    } catch (final ODataApplicationException e) {
+      assertEquals(HttpStatusCode.NOT_IMPLEMENTED.getStatusCode(), e.getStatusCode());
+    }
+  }
+
+  private UriInfo parse(final String path, final String apply) throws Exception {
+    return new Parser(edm, odata).parseUri(path, "$apply=" + apply, null, null);
+  }
+
+  private List<Entity> apply(final String entitySetName, final String apply) throws Exception {
+    return new ApplyEvaluator(null).apply(parse(entitySetName, apply).getApplyOption(),
+        data.readAll(edm.getEntityContainer().getEntitySet(entitySetName))).getEntities();
+  }
+
+  private EntityCollection createEntities(final int count, final int groups) {
+    EntityCollection entities = new EntityCollection();
+    for (int index = 0; index < count; index++) {
+      entities.getEntities().add(new Entity()
+          .addProperty(new Property(null, "PropertyInt16", ValueType.PRIMITIVE, (short) (index % groups)))
+          .addProperty(new Property(null, "PropertyString", ValueType.PRIMITIVE, "String" + index / 3)));
+    }
+    return entities;
+  }
+}
@@ -26,6 +26,7 @@ import static org.junit.Assert.fail;
 import java.io.ByteArrayInputStream;
 import java.io.InputStream;
 import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.List;
 
 import org.apache.olingo.commons.api.data.Entity;
@@ -35,6 +36,7 @@ import org.apache.olingo.commons.api.edm.FullQualifiedName;
 import org.apache.olingo.commons.api.format.ContentType;
 import org.apache.olingo.server.api.OData;
 import org.apache.olingo.server.api.deserializer.DeserializerException;
+import org.apache.olingo.server.api.deserializer.DeserializerStreamResult;
 import org.apache.olingo.server.core.deserializer.AbstractODataDeserializerTest;
 import org.junit.Test;
 
@@ -163,6 +165,35 @@ public class ODataDeserializerEntityCollectionTest extends AbstractODataDeserial
         DeserializerException.MessageKeys.NOT_IMPLEMENTED);
   }
 
+  @Test
+  public void esAllPrimStreamed() throws Exception {
+    final List<Entity> entities = deserializeStreamed(getFileAsStream("ESAllPrim.json"), "ETAllPrim");
+    assertEquals(3, entities.size());
+    assertEquals(new Short((short) 32767), entities.get(0).getProperty("PropertyInt16").getValue());
+    assertEquals(new Short((short) -32768), entities.get(1).getProperty("PropertyInt16").getValue());
+    assertEquals(new Short((short) 0), entities.get(2).getProperty("PropertyInt16").getValue());
+  }
+
+  @Test
+  public void streamedFieldsAfterValue() throws Exception {
+    final List<Entity> entities = deserializeStreamed(new ByteArrayInputStream(
+        "{\"value\":[{\"PropertyInt16\":1},{\"PropertyInt16\":2}],\"@odata.count\":2}".getBytes()),
+        "ETAllPrim");
+    assertEquals(2, entities.size());
+    assertEquals(new Short((short) 2), entities.get(1).getProperty("PropertyInt16").getValue());
+  }
+
+  @Test
+  public void streamedErrors() throws Exception {
+    expectStreamedException("{\"unknown\":null,\"value\":[]}", DeserializerException.MessageKeys.UNKNOWN_CONTENT);
+    expectStreamedException("{\"value\":[],\"unknown\":null}", DeserializerException.MessageKeys.UNKNOWN_CONTENT);
+    expectStreamedException("{\"@odata.count\":0}", DeserializerException.MessageKeys.VALUE_ARRAY_NOT_PRESENT);
+    expectStreamedException("{\"value\":null}", DeserializerException.MessageKeys.VALUE_TAG_MUST_BE_AN_ARRAY);
+    expectStreamedException("{\"value\":[],\"value\":[]}", DeserializerException.MessageKeys.DUPLICATE_PROPERTY);
+    expectStreamedException("{\"value\":[{\"PropertyInt16\":1,\"PropertyInt16\":2}]}",
+        DeserializerException.MessageKeys.DUPLICATE_PROPERTY);
+  }
+
   private EntityCollection deserialize(final InputStream stream, final String entityTypeName)
       throws DeserializerException {
     return OData.newInstance().createDeserializer(ContentType.JSON, metadata)
@@ -178,6 +209,27 @@ public class ODataDeserializerEntityCollectionTest extends AbstractODataDeserial
         .getEntityCollection();
   }
 
+  private List<Entity> deserializeStreamed(final InputStream stream, final String entityTypeName)
+      throws DeserializerException {
+    final DeserializerStreamResult result = OData.newInstance().createDeserializer(ContentType.JSON, metadata)
+        .entityCollectionStreamed(stream, edm.getEntityType(new FullQualifiedName(NAMESPACE, entityTypeName)));
+    List<Entity> entities = new ArrayList<Entity>();
+    while (result.hasNext()) {
+      entities.add(result.next().getEntity());
+    }
+    return entities;
+  }
+
+  private void expectStreamedException(final String entityCollectionString,
+      final DeserializerException.MessageKeys messageKey) {
+    try {
+      deserializeStreamed(new ByteArrayInputStream(entityCollectionString.getBytes()), "ETAllPrim");
+      fail("Expected exception not thrown.");
+    } catch (final DeserializerException e) {
+      assertEquals(messageKey, e.getMessageKey());
+    }
+  }
+
   private void expectException(final InputStream stream, final String entityTypeName,
       final DeserializerException.MessageKeys messageKey) {
     try {
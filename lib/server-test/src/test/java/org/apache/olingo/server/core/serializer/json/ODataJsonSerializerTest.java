@@ -33,6 +33,7 @@ import java.util.List;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.io.output.ByteArrayOutputStream;
 import org.apache.olingo.commons.api.constants.Constantsv01;
+import org.apache.olingo.commons.api.data.ColumnarEntityCollection;
 import org.apache.olingo.commons.api.data.ComplexValue;
 import org.apache.olingo.commons.api.data.ContextURL;
 import org.apache.olingo.commons.api.data.ContextURL.Suffix;
@@ -61,6 +62,7 @@ import org.apache.olingo.commons.api.edm.geo.Point;
 import org.apache.olingo.commons.api.edm.geo.Polygon;
 import org.apache.olingo.commons.api.edm.geo.SRID;
 import org.apache.olingo.commons.api.edmx.EdmxReference;
+import org.apache.olingo.commons.api.ex.ODataRuntimeException;
 import org.apache.olingo.commons.api.format.ContentType;
 import org.apache.olingo.server.api.OData;
 import org.apache.olingo.server.api.ODataContent;
@@ -542,6 +544,121 @@ public class ODataJsonSerializerTest {
     Assert.assertEquals("ERROR: MISSING_PROPERTY", resultString);
   }
 
+  @Test
+  public void entityCollectionStreamedWithLazyExpand() throws Exception {
+    final EdmEntitySet edmEntitySet = entityContainer.getEntitySet("ESAllPrim");
+    final List<Entity> targets = data.readAll(entityContainer.getEntitySet("ESTwoPrim")).getEntities();
+    final int[] reads = new int[1];
+    final EntityIterator entityIterator = lazilyExpandedIterator(edmEntitySet, new Iterable<Entity>() {
+      @Override
+      public Iterator<Entity> iterator() {
+        reads[0]++;
+        return targets.iterator();
+      }
+    });
+    final ExpandOption expand = ExpandSelectMock.mockExpandOption(Collections.singletonList(
+        ExpandSelectMock.mockExpandItem(edmEntitySet, "NavPropertyETTwoPrimMany")));
+
+    ODataContent result = serializer.entityCollectionStreamed(
+        metadata, edmEntitySet.getEntityType(), entityIterator,
+        EntityCollectionSerializerOptions.with()
+            .contextURL(ContextURL.with().entitySet(edmEntitySet).build())
+            .expand(expand)
+            .build()).getODataContent();
+    Assert.assertEquals(0, reads[0]);
+    ByteArrayOutputStream bout = new ByteArrayOutputStream();
+    result.write(bout);
+    final String resultString = new String(bout.toByteArray(), "UTF-8");
+    Assert.assertEquals(3, reads[0]);
+
+    final String expanded = "\"NavPropertyETTwoPrimMany\":[{\"PropertyInt16\":"
+        + targets.get(0).getProperty("PropertyInt16").getValue() + ",";
+    int count = 0;
+    int index = -1;
+    while ((index = resultString.indexOf(expanded, ++index)) > 0) {
+      count++;
+    }
+    Assert.assertEquals(3, count);
+    Assert.assertThat(resultString, CoreMatchers.endsWith("}]}]}"));
+  }
+
+  @Test
+  public void entityCollectionStreamedWithLazyExpandError() throws Exception {
+    final EdmEntitySet edmEntitySet = entityContainer.getEntitySet("ESAllPrim");
+    final EntityIterator entityIterator = lazilyExpandedIterator(edmEntitySet, new Iterable<Entity>() {
+      @Override
+      public Iterator<Entity> iterator() {
+        throw new ODataRuntimeException("Expanded entities not readable.");
+      }
+    });
+    ODataContentWriteErrorCallback errorCallback = new ODataContentWriteErrorCallback() {
+      @Override
+      public void handleError(ODataContentWriteErrorContext context, WritableByteChannel channel) {
+        try {
+          Assert.assertNull(context.getODataLibraryException());
+          channel.write(ByteBuffer.wrap(("ERROR: " + context.getException().getMessage()).getBytes("UTF-8")));
+        } catch (IOException e) {
+          throw new RuntimeException("Error in error.");
+        }
+      }
+    };
+
+    ODataContent result = serializer.entityCollectionStreamed(
+        metadata, edmEntitySet.getEntityType(), entityIterator,
+        EntityCollectionSerializerOptions.with()
+            .writeContentErrorCallback(errorCallback)
+            .contextURL(ContextURL.with().entitySet(edmEntitySet).build())
+            .expand(ExpandSelectMock.mockExpandOption(Collections.singletonList(
+                ExpandSelectMock.mockExpandItem(edmEntitySet, "NavPropertyETTwoPrimMany"))))
+            .build()).getODataContent();
+    ByteArrayOutputStream bout = new ByteArrayOutputStream();
+    result.write(bout);
+    Assert.assertThat(new String(bout.toByteArray(), "UTF-8"),
+        CoreMatchers.endsWith("ERROR: Expanded entities not readable."));
+  }
+
+  /**
+   * Iterates over the entities of the entity set; each of them gets a navigation link
+   * <code>NavPropertyETTwoPrimMany</code> whose in-line entity iterator reads the targets
+   * only when it is asked for its first entity.
+   */
+  private EntityIterator lazilyExpandedIterator(final EdmEntitySet edmEntitySet, final Iterable<Entity> targets)
+      throws Exception {
+    final Iterator<Entity> entities = data.readAll(edmEntitySet).iterator();
+    return new EntityIterator() {
+      @Override
+      public boolean hasNext() {
+        return entities.hasNext();
+      }
+
+      @Override
+      public Entity next() {
+        Entity entity = new Entity();
+        entity.getProperties().addAll(entities.next().getProperties());
+        Link link = new Link();
+        link.setTitle("NavPropertyETTwoPrimMany");
+        link.setInlineEntityIterator(new EntityIterator() {
+          private Iterator<Entity> inner;
+
+          @Override
+          public boolean hasNext() {
+            if (inner == null) {
+              inner = targets.iterator();
+            }
+            return inner.hasNext();
+          }
+
+          @Override
+          public Entity next() {
+            return inner.next();
+          }
+        });
+        entity.getNavigationLinks().add(link);
+        return entity;
+      }
+    };
+  }
+
 
   @Test
   public void entityCollAllPrim() throws Exception {
@@ -2141,6 +2258,74 @@ public class ODataJsonSerializerTest {
     Assert.assertEquals(3, count);
   }
 
+  @Test
+  public void entitySetColumnar() throws Exception {
+    final EdmEntitySet edmEntitySet = entityContainer.getEntitySet("ESAllPrim");
+    final EdmEntityType entityType = edmEntitySet.getEntityType();
+    final EntityCollection entitySet = data.readAll(edmEntitySet);
+    final ColumnarEntityCollection columnar = toColumnar(entityType, entitySet);
+    final EntityCollectionSerializerOptions options = EntityCollectionSerializerOptions.with()
+        .contextURL(ContextURL.with().entitySet(edmEntitySet).build()).build();
+    for (final ODataSerializer current : Arrays.asList(serializer, serializerNoMetadata, serializerIEEECompatible)) {
+      Assert.assertEquals(
+          IOUtils.toString(current.entityCollection(metadata, entityType, entitySet, options).getContent()),
+          IOUtils.toString(current.entityCollection(metadata, entityType, columnar, options).getContent()));
+    }
+  }
+
+  @Test
+  public void entitySetColumnarSelect() throws Exception {
+    final EdmEntitySet edmEntitySet = entityContainer.getEntitySet("ESAllPrim");
+    final EdmEntityType entityType = edmEntitySet.getEntityType();
+    final EntityCollection entitySet = data.readAll(edmEntitySet);
+    ColumnarEntityCollection columnar = toColumnar(entityType, entitySet);
+    final int column = columnar.getColumnIndex("PropertyString");
+    columnar.setNull(1, column);
+    entitySet.getEntities().get(1).getProperty("PropertyString").setValue(ValueType.PRIMITIVE, null);
+    final SelectOption select = ExpandSelectMock.mockSelectOption(Arrays.asList(
+        ExpandSelectMock.mockSelectItem(edmEntitySet, "PropertyString"),
+        ExpandSelectMock.mockSelectItem(edmEntitySet, "PropertyInt64")));
+    final EntityCollectionSerializerOptions options = EntityCollectionSerializerOptions.with()
+        .contextURL(ContextURL.with().entitySet(edmEntitySet).selectList("PropertyString,PropertyInt64").build())
+        .select(select).build();
+    final String expected =
+        IOUtils.toString(serializer.entityCollection(metadata, entityType, entitySet, options).getContent());
+    Assert.assertEquals(expected,
+        IOUtils.toString(serializer.entityCollection(metadata, entityType, columnar, options).getContent()));
+    Assert.assertThat(expected, CoreMatchers.containsString("\"PropertyString\":null"));
+  }
+
+  @Test
+  public void entitySetColumnarWrongValue() throws Exception {
+    final EdmEntitySet edmEntitySet = entityContainer.getEntitySet("ESAllPrim");
+    ColumnarEntityCollection columnar = toColumnar(edmEntitySet.getEntityType(), data.readAll(edmEntitySet));
+    columnar.setInt(0, columnar.getColumnIndex("PropertyByte"), 256);
+    try {
+      serializer.entityCollection(metadata, edmEntitySet.getEntityType(), columnar,
+          EntityCollectionSerializerOptions.with()
+              .contextURL(ContextURL.with().entitySet(edmEntitySet).build()).build());
+      Assert.fail("Expected exception not thrown!");
+    } catch (final SerializerException e) {
+      Assert.assertEquals(SerializerException.MessageKeys.WRONG_PROPERTY_VALUE, e.getMessageKey());
+    }
+  }
+
+  private ColumnarEntityCollection toColumnar(final EdmEntityType entityType, final EntityCollection entitySet) {
+    ColumnarEntityCollection columnar =
+        new ColumnarEntityCollection(entityType.getFullQualifiedName().getFullQualifiedNameAsString());
+    for (final String name : entityType.getPropertyNames()) {
+      columnar.addColumn(name,
+          EdmPrimitiveTypeKind.valueOfFQN(entityType.getStructuralProperty(name).getType().getFullQualifiedName()));
+    }
+    for (final Entity entity : entitySet) {
+      final int row = columnar.addRow();
+      for (final Property property : entity.getProperties()) {
+        columnar.setValue(row, columnar.getColumnIndex(property.getName()), property.getValue());
+      }
+    }
+    return columnar;
+  }
+
   @Test
   public void entitySetAllPrimReferenceIEEE754CompatibleCount() throws Exception {
     final EdmEntitySet edmEntitySet = entityContainer.getEntitySet("ESAllPrim");
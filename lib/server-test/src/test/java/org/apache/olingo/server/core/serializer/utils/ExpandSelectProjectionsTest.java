@@ -0,0 +1,132 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.core.serializer.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.olingo.commons.api.edm.Edm;
+import org.apache.olingo.commons.api.edm.EdmEntityContainer;
+import org.apache.olingo.commons.api.edm.EdmEntitySet;
+import org.apache.olingo.commons.api.edm.EdmProperty;
+import org.apache.olingo.commons.api.edmx.EdmxReference;
+import org.apache.olingo.server.api.OData;
+import org.apache.olingo.server.api.uri.queryoption.ExpandItem;
+import org.apache.olingo.server.api.uri.queryoption.ExpandOption;
+import org.apache.olingo.server.api.uri.queryoption.SelectOption;
+import org.apache.olingo.server.core.serializer.ExpandSelectMock;
+import org.apache.olingo.server.core.serializer.utils.ExpandSelectProjections.Navigation;
+import org.apache.olingo.server.core.serializer.utils.ExpandSelectProjections.Selection;
+import org.apache.olingo.server.tecsvc.provider.EdmTechProvider;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+public class ExpandSelectProjectionsTest {
+
+  private static final Edm edm = OData.newInstance().createServiceMetadata(
+      new EdmTechProvider(), Collections.<EdmxReference> emptyList()).getEdm();
+  private static final EdmEntityContainer entityContainer = edm.getEntityContainer();
+
+  private final ExpandSelectProjections projections = new ExpandSelectProjections();
+
+  @Test
+  public void selectAll() throws Exception {
+    final EdmEntitySet entitySet = entityContainer.getEntitySet("ESAllPrim");
+    final Selection selection = projections.getSelection(null, entitySet.getEntityType());
+    assertTrue(selection.isAll());
+    assertTrue(selection.areKeysSelected());
+    assertEquals(entitySet.getEntityType().getPropertyNames(), names(selection.getProperties()));
+    assertSame(selection, projections.getSelection(null, entitySet.getEntityType()));
+  }
+
+  @Test
+  public void select() throws Exception {
+    final EdmEntitySet entitySet = entityContainer.getEntitySet("ESAllPrim");
+    final SelectOption select = ExpandSelectMock.mockSelectOption(Arrays.asList(
+        ExpandSelectMock.mockSelectItem(entitySet, "PropertyString"),
+        ExpandSelectMock.mockSelectItem(entitySet, "PropertyBoolean")));
+    final Selection selection = projections.getSelection(select, entitySet.getEntityType());
+    assertFalse(selection.isAll());
+    assertFalse(selection.areKeysSelected());
+    assertEquals(Arrays.asList("PropertyInt16", "PropertyString", "PropertyBoolean"),
+        names(selection.getProperties()));
+    assertNull(selection.getSelectedPaths("PropertyString"));
+    assertSame(selection, projections.getSelection(select, entitySet.getEntityType()));
+    assertNotSame(selection, projections.getSelection(
+        ExpandSelectMock.mockSelectOption(select.getSelectItems()), entitySet.getEntityType()));
+  }
+
+  @Test
+  public void selectComplexPath() throws Exception {
+    final EdmEntitySet entitySet = entityContainer.getEntitySet("ESCompAllPrim");
+    final SelectOption select = ExpandSelectMock.mockSelectOption(Arrays.asList(
+        ExpandSelectMock.mockSelectItem(entitySet, "PropertyComp", "PropertyString"),
+        ExpandSelectMock.mockSelectItem(entitySet, "PropertyInt16")));
+    final Selection selection = projections.getSelection(select, entitySet.getEntityType());
+    assertTrue(selection.areKeysSelected());
+    assertEquals(Arrays.asList("PropertyInt16", "PropertyComp"), names(selection.getProperties()));
+    assertEquals(Collections.singleton(Collections.singletonList("PropertyString")),
+        selection.getSelectedPaths("PropertyComp"));
+  }
+
+  @Test
+  public void expand() throws Exception {
+    final EdmEntitySet entitySet = entityContainer.getEntitySet("ESTwoPrim");
+    final ExpandItem item = ExpandSelectMock.mockExpandItem(entitySet, "NavPropertyETAllPrimOne");
+    final ExpandOption expand = ExpandSelectMock.mockExpandOption(Collections.singletonList(item));
+    final Navigation navigation = projections.getNavigation(expand, entitySet.getEntityType(), "ESTwoPrim");
+    assertNull(navigation.getExpandAll());
+    assertSame(item, navigation.getExpandItem("NavPropertyETAllPrimOne"));
+    assertNull(navigation.getExpandItem("NavPropertyETAllPrimMany"));
+    assertNull(navigation.getChildExpand("NavPropertyETAllPrimMany"));
+    assertSame(navigation, projections.getNavigation(expand, entitySet.getEntityType(), "ESTwoPrim"));
+    assertTrue(projections.getExpandedItemsPath(expand).isEmpty());
+  }
+
+  @Test
+  public void expandAll() throws Exception {
+    final EdmEntitySet entitySet = entityContainer.getEntitySet("ESTwoPrim");
+    ExpandItem star = Mockito.mock(ExpandItem.class);
+    Mockito.when(star.isStar()).thenReturn(true);
+    final ExpandOption expand = ExpandSelectMock.mockExpandOption(Collections.singletonList(star));
+    final Navigation navigation = projections.getNavigation(expand, entitySet.getEntityType(), "ESTwoPrim");
+    assertSame(star, navigation.getExpandAll());
+    assertNull(navigation.getExpandItem("NavPropertyETAllPrimOne"));
+    final ExpandOption childExpand = navigation.getChildExpand("NavPropertyETAllPrimOne");
+    assertEquals(Collections.singletonList(star), childExpand.getExpandItems());
+    assertSame(childExpand, navigation.getChildExpand("NavPropertyETAllPrimMany"));
+  }
+
+  private static List<String> names(final List<EdmProperty> properties) {
+    List<String> names = new ArrayList<String>();
+    for (final EdmProperty property : properties) {
+      names.add(property.getName());
+    }
+    return names;
+  }
+}
@@ -18,6 +18,7 @@
  */
 package org.apache.olingo.server.core.serializer.xml;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
@@ -26,6 +27,8 @@ import java.text.SimpleDateFormat;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
 
 import org.apache.commons.io.IOUtils;
 import org.apache.olingo.commons.api.Constants;
@@ -34,6 +37,8 @@ import org.apache.olingo.commons.api.data.ContextURL;
 import org.apache.olingo.commons.api.data.ContextURL.Suffix;
 import org.apache.olingo.commons.api.data.Entity;
 import org.apache.olingo.commons.api.data.EntityCollection;
+import org.apache.olingo.commons.api.data.EntityIterator;
+import org.apache.olingo.commons.api.data.Link;
 import org.apache.olingo.commons.api.data.Property;
 import org.apache.olingo.commons.api.data.ValueType;
 import org.apache.olingo.commons.api.edm.EdmComplexType;
@@ -46,6 +51,7 @@ import org.apache.olingo.commons.api.edm.FullQualifiedName;
 import org.apache.olingo.commons.api.edmx.EdmxReference;
 import org.apache.olingo.commons.api.format.ContentType;
 import org.apache.olingo.server.api.OData;
+import org.apache.olingo.server.api.ODataContent;
 import org.apache.olingo.server.api.ServiceMetadata;
 import org.apache.olingo.server.api.serializer.ComplexSerializerOptions;
 import org.apache.olingo.server.api.serializer.EntityCollectionSerializerOptions;
@@ -421,6 +427,76 @@ public class ODataXmlSerializerTest {
     }
   }
 
+  @Test
+  public void entityCollectionStreamedWithLazyExpand() throws Exception {
+    final EdmEntitySet edmEntitySet = entityContainer.getEntitySet("ESAllPrim");
+    final List<Entity> targets = data.readAll(entityContainer.getEntitySet("ESTwoPrim")).getEntities();
+    final Iterator<Entity> entities = data.readAll(edmEntitySet).iterator();
+    final int[] reads = new int[1];
+    final EntityIterator entityIterator = new EntityIterator() {
+      @Override
+      public boolean hasNext() {
+        return entities.hasNext();
+      }
+
+      @Override
+      public Entity next() {
+        Entity entity = new Entity();
+        entity.getProperties().addAll(entities.next().getProperties());
+        Link link = new Link();
+        link.setRel(Constants.NS_NAVIGATION_LINK_REL + "NavPropertyETTwoPrimMany");
+        link.setType(Constants.ENTITY_SET_NAVIGATION_LINK_TYPE);
+        link.setTitle("NavPropertyETTwoPrimMany");
+        link.setInlineEntityIterator(new EntityIterator() {
+          private Iterator<Entity> inner;
+
+          @Override
+          public boolean hasNext() {
+            if (inner == null) {
+              reads[0]++;
+              inner = targets.iterator();
+            }
+            return inner.hasNext();
+          }
+
+          @Override
+          public Entity next() {
+            return inner.next();
+          }
+        });
+        entity.getNavigationLinks().add(link);
+        return entity;
+      }
+    };
+    final ExpandOption expand = ExpandSelectMock.mockExpandOption(Collections.singletonList(
+        ExpandSelectMock.mockExpandItem(edmEntitySet, "NavPropertyETTwoPrimMany")));
+
+    ODataContent result = serializer.entityCollectionStreamed(metadata, edmEntitySet.getEntityType(),
+        entityIterator,
+        EntityCollectionSerializerOptions.with()
+            .contextURL(ContextURL.with().entitySet(edmEntitySet).build())
+            .expand(expand)
+            .build()).getODataContent();
+    Assert.assertEquals(0, reads[0]);
+    ByteArrayOutputStream bout = new ByteArrayOutputStream();
+    result.write(bout);
+    final String resultString = new String(bout.toByteArray(), "UTF-8");
+    Assert.assertEquals(3, reads[0]);
+
+    int count = 0;
+    int index = -1;
+    while ((index = resultString.indexOf("<m:inline><a:feed>", ++index)) > 0) {
+      count++;
+    }
+    Assert.assertEquals(3, count);
+    count = 0;
+    index = -1;
+    while ((index = resultString.indexOf("<a:entry>", ++index)) > 0) {
+      count++;
+    }
+    Assert.assertEquals(3 + 3 * targets.size(), count);
+  }
+
   @Test
   public void entitySetCompAllPrim() throws Exception {
     final EdmEntitySet edmEntitySet = entityContainer.getEntitySet("ESCompAllPrim");
@@ -75,6 +75,29 @@ public class UriHelperTest {
         helper.buildCanonicalURL(entitySet, entity));
   }
 
+  @Test
+  public void appendKeyPredicate() throws Exception {
+    final EdmEntitySet entitySet = container.getEntitySet("ESAllPrim");
+    Entity entity = data.readAll(entitySet).getEntities().get(0);
+    final UriHelperImpl helperImpl = new UriHelperImpl();
+    StringBuilder buffer = new StringBuilder("ESAllPrim(");
+    helperImpl.appendKeyPredicate(buffer, entitySet.getEntityType(), entity);
+    Assert.assertEquals("ESAllPrim(32767", buffer.toString());
+
+    entity.getProperty("PropertyInt16").setValue(ValueType.PRIMITIVE, (short) -32768);
+    Assert.assertEquals("ESAllPrim(-32768)", helperImpl.buildEntityId("ESAllPrim", entitySet.getEntityType(), entity));
+    entity.getProperty("PropertyInt16").setValue(ValueType.PRIMITIVE, 42L);
+    Assert.assertEquals("42", helperImpl.buildKeyPredicate(entitySet.getEntityType(), entity));
+  }
+
+  @Test(expected = SerializerException.class)
+  public void canonicalURLOutOfRange() throws Exception {
+    final EdmEntitySet entitySet = container.getEntitySet("ESAllPrim");
+    Entity entity = data.readAll(entitySet).getEntities().get(0);
+    entity.getProperty("PropertyInt16").setValue(ValueType.PRIMITIVE, 32768);
+    helper.buildCanonicalURL(entitySet, entity);
+  }
+
   @Test(expected = SerializerException.class)
   public void canonicalURLWrong() throws Exception {
     final EdmEntitySet entitySet = container.getEntitySet("ESAllPrim");